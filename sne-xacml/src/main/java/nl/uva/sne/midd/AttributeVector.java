@@ -0,0 +1,396 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Reusable vector of attribute values indexed by the variable identifier. Integer and double values are kept in
+ * primitive slots, other values are kept as objects. A bitset records which variables are present, a variable that is
+ * not set is a missing attribute. A variable with several values, added by {@link #add(int, Comparable)}, is a bag.
+ * <p/>
+ * The vector is not thread-safe, it is meant to be reused by one thread for successive requests and cleared in
+ * between.
+ *
+ * @author Canh Ngo
+ */
+public class AttributeVector {
+
+    private static final byte KIND_OBJECT = 0;
+    private static final byte KIND_LONG = 1;
+    private static final byte KIND_DOUBLE = 2;
+    private static final byte KIND_BAG = 3;
+
+    private long[] present;
+
+    private byte[] kinds;
+
+    private long[] longValues;
+
+    private double[] doubleValues;
+
+    private Comparable<?>[] values;
+
+    /**
+     * Values of bags, allocated when the first bag is added
+     */
+    private Comparable<?>[][] bags;
+
+    private int[] bagSizes;
+
+    /**
+     * Number of variables that are bags
+     */
+    private int bagCount = 0;
+
+    /**
+     * Highest variable identifier that has been set since the last clear
+     */
+    private int maxId = -1;
+
+    /**
+     * Create a vector for variables from 0 to <code>capacity - 1</code>, it grows if a higher identifier is set.
+     *
+     * @param capacity
+     */
+    public AttributeVector(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * Create a vector from a map of variables
+     *
+     * @param variables
+     * @return
+     */
+    public static AttributeVector of(Map<Integer, Variable<?>> variables) {
+        AttributeVector vector = new AttributeVector(variables.size());
+        for (Variable<?> var : variables.values()) {
+            if (var != null && var.getValue() != null) {
+                vector.set(var.getID(), var.getValue());
+            }
+        }
+        return vector;
+    }
+
+    private void allocate(int capacity) {
+        present = new long[(capacity + 63) >>> 6];
+        kinds = new byte[capacity];
+        longValues = new long[capacity];
+        doubleValues = new double[capacity];
+        values = new Comparable<?>[capacity];
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Variable identifier must not be negative: " + id);
+        }
+        if (id >= kinds.length) {
+            int capacity = Math.max(id + 1, kinds.length * 2);
+            present = Arrays.copyOf(present, (capacity + 63) >>> 6);
+            kinds = Arrays.copyOf(kinds, capacity);
+            longValues = Arrays.copyOf(longValues, capacity);
+            doubleValues = Arrays.copyOf(doubleValues, capacity);
+            values = Arrays.copyOf(values, capacity);
+            if (bags != null) {
+                bags = Arrays.copyOf(bags, capacity);
+                bagSizes = Arrays.copyOf(bagSizes, capacity);
+            }
+        }
+    }
+
+    private void markPresent(int id) {
+        present[id >>> 6] |= 1L << id;
+        if (id > maxId) {
+            maxId = id;
+        }
+    }
+
+    public void setLong(int id, long value) {
+        ensureCapacity(id);
+        removeBag(id);
+        kinds[id] = KIND_LONG;
+        longValues[id] = value;
+        values[id] = null;
+        markPresent(id);
+    }
+
+    public void setDouble(int id, double value) {
+        ensureCapacity(id);
+        removeBag(id);
+        kinds[id] = KIND_DOUBLE;
+        doubleValues[id] = value;
+        values[id] = null;
+        markPresent(id);
+    }
+
+    /**
+     * Set the value of a variable, long and double values are unboxed into their primitive slots.
+     *
+     * @param id
+     * @param value the value, <code>null</code> to remove the variable
+     */
+    public void set(int id, Comparable<?> value) {
+        if (value instanceof Long) {
+            setLong(id, (Long) value);
+        } else if (value instanceof Double) {
+            setDouble(id, (Double) value);
+        } else if (value == null) {
+            remove(id);
+        } else {
+            ensureCapacity(id);
+            removeBag(id);
+            kinds[id] = KIND_OBJECT;
+            values[id] = value;
+            markPresent(id);
+        }
+    }
+
+    /**
+     * Add a value to a variable: a missing variable is set, otherwise the variable becomes a bag of its values.
+     *
+     * @param id
+     * @param value
+     */
+    public void add(int id, Comparable<?> value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null");
+        }
+        if (!isPresent(id)) {
+            set(id, value);
+            return;
+        }
+
+        if (bags == null) {
+            bags = new Comparable<?>[kinds.length][];
+            bagSizes = new int[kinds.length];
+        }
+        if (kinds[id] != KIND_BAG) {
+            Comparable<?> first = get(id);
+            kinds[id] = KIND_BAG;
+            values[id] = null;
+            bagSizes[id] = 0;
+            addToBag(id, first);
+            bagCount++;
+        }
+        addToBag(id, value);
+    }
+
+    private void addToBag(int id, Comparable<?> value) {
+        Comparable<?>[] bag = bags[id];
+        if (bag == null) {
+            bag = bags[id] = new Comparable<?>[4];
+        } else if (bagSizes[id] == bag.length) {
+            bag = bags[id] = Arrays.copyOf(bag, bag.length * 2);
+        }
+        bag[bagSizes[id]++] = value;
+    }
+
+    /**
+     * Release the values of a bag before the variable is set or removed
+     */
+    private void removeBag(int id) {
+        if (isBag(id)) {
+            Arrays.fill(bags[id], 0, bagSizes[id], null);
+            bagSizes[id] = 0;
+            kinds[id] = KIND_OBJECT;
+            bagCount--;
+        }
+    }
+
+    public void remove(int id) {
+        if (id >= 0 && id < kinds.length) {
+            removeBag(id);
+            present[id >>> 6] &= ~(1L << id);
+            values[id] = null;
+        }
+    }
+
+    public boolean isPresent(int id) {
+        return id >= 0 && id < kinds.length && (present[id >>> 6] & (1L << id)) != 0;
+    }
+
+    public boolean isLong(int id) {
+        return isPresent(id) && kinds[id] == KIND_LONG;
+    }
+
+    public boolean isDouble(int id) {
+        return isPresent(id) && kinds[id] == KIND_DOUBLE;
+    }
+
+    /**
+     * Return true if the variable has several values
+     *
+     * @param id
+     * @return
+     */
+    public boolean isBag(int id) {
+        return isPresent(id) && kinds[id] == KIND_BAG;
+    }
+
+    /**
+     * Return true if a variable of the vector is a bag
+     *
+     * @return
+     */
+    public boolean hasBags() {
+        return bagCount > 0;
+    }
+
+    /**
+     * Return the number of values of the bag
+     *
+     * @param id
+     * @return
+     */
+    public int getBagSize(int id) {
+        return bagSizes[id];
+    }
+
+    /**
+     * Return a value of the bag, values are kept in the order they were added
+     *
+     * @param id
+     * @param index
+     * @return
+     */
+    public Comparable<?> getBagValue(int id, int index) {
+        return bags[id][index];
+    }
+
+    public long getLong(int id) {
+        return longValues[id];
+    }
+
+    public double getDouble(int id) {
+        return doubleValues[id];
+    }
+
+    /**
+     * Return the value of the variable, a numeric value is boxed. The first value of a bag is returned.
+     *
+     * @param id
+     * @return null if the variable is missing
+     */
+    public Comparable<?> get(int id) {
+        if (!isPresent(id)) {
+            return null;
+        }
+        switch (kinds[id]) {
+            case KIND_LONG:
+                return longValues[id];
+            case KIND_DOUBLE:
+                return doubleValues[id];
+            case KIND_BAG:
+                return bags[id][0];
+            default:
+                return values[id];
+        }
+    }
+
+    /**
+     * Return the data type of the variable
+     *
+     * @param id
+     * @return null if the variable is missing
+     */
+    public Class<?> getType(int id) {
+        if (!isPresent(id)) {
+            return null;
+        }
+        switch (kinds[id]) {
+            case KIND_LONG:
+                return Long.class;
+            case KIND_DOUBLE:
+                return Double.class;
+            case KIND_BAG:
+                return bags[id][0].getClass();
+            default:
+                return values[id].getClass();
+        }
+    }
+
+    /**
+     * Set the variables present in the other vector, overwriting their values in this vector
+     *
+     * @param other
+     */
+    public void setAll(AttributeVector other) {
+        final int words = (other.maxId >>> 6) + 1;
+        for (int w = 0; w < words && other.maxId >= 0; w++) {
+            long bits = other.present[w];
+            while (bits != 0) {
+                final int id = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                switch (other.kinds[id]) {
+                    case KIND_LONG:
+                        setLong(id, other.longValues[id]);
+                        break;
+                    case KIND_DOUBLE:
+                        setDouble(id, other.doubleValues[id]);
+                        break;
+                    case KIND_BAG:
+                        remove(id);
+                        for (int i = 0; i < other.bagSizes[id]; i++) {
+                            add(id, other.bags[id][i]);
+                        }
+                        break;
+                    default:
+                        set(id, other.values[id]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all variables, the vector keeps its capacity for the next request.
+     */
+    public void clear() {
+        if (maxId < 0) {
+            return;
+        }
+        final int words = (maxId >>> 6) + 1;
+        for (int w = 0; w < words; w++) {
+            present[w] = 0;
+        }
+        Arrays.fill(values, 0, maxId + 1, null);
+        if (bagCount > 0) {
+            for (int id = 0; id <= maxId; id++) {
+                if (bags[id] != null) {
+                    Arrays.fill(bags[id], 0, bagSizes[id], null);
+                    bagSizes[id] = 0;
+                }
+            }
+            bagCount = 0;
+        }
+        maxId = -1;
+    }
+
+    public int capacity() {
+        return kinds.length;
+    }
+}
@@ -30,35 +30,66 @@ package nl.uva.sne.midd;
 import nl.uva.sne.midd.obligations.Obligation;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
+ * Immutable decision of a MIDD evaluation with its obligations.
+ *
  * @author Canh Ngo
  * @since: Sep 20, 2012
  */
-public class Decision {
-    private DecisionType decision;
-    private List<Obligation> obligations;
+public final class Decision {
+    private final DecisionType decision;
+    private final List<Obligation> obligations;
+    private final int hash;
 
     public Decision(DecisionType decision) {
         this.decision = decision;
-        obligations = new ArrayList<Obligation>();
+        this.obligations = Collections.emptyList();
+        this.hash = computeHash();
     }
 
     public Decision(DecisionType decision, List<Obligation> obligations) {
         this.decision = decision;
-        this.obligations = new ArrayList<Obligation>();
-        this.obligations.addAll(obligations);
+        this.obligations = obligations.isEmpty() ? Collections.<Obligation>emptyList() :
+                Collections.unmodifiableList(new ArrayList<>(obligations));
+        this.hash = computeHash();
+    }
+
+    private int computeHash() {
+        return 31 * (decision == null ? 0 : decision.hashCode()) + obligations.hashCode();
     }
 
     public DecisionType getDecision() {
         return this.decision;
     }
 
+    /**
+     * Return the obligations, the list is read-only
+     *
+     * @return
+     */
     public List<Obligation> getObligations() {
         return this.obligations;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Decision)) {
+            return false;
+        }
+        Decision other = (Decision) obj;
+        return hash == other.hash && decision == other.decision && obligations.equals(other.obligations);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder();
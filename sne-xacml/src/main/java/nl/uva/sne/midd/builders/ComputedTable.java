@@ -0,0 +1,197 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.builders;
+
+import nl.uva.sne.midd.nodes.AbstractNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computed table of MIDD operations: the result of an operation on two sub-diagrams is kept, so it is not computed
+ * again when the same pair of sub-diagrams meets under other edges. Operands are compared by identity, the combined
+ * diagrams must not be changed while their results are in the table.
+ * <p/>
+ * The table has a maximum number of results. When it is full, either the least recently used result is evicted or the
+ * whole table is cleared, see {@link EvictionPolicy}. Methods of the table are synchronized, it can be shared by
+ * threads parsing the policies.
+ *
+ * @author Canh Ngo
+ */
+public class ComputedTable {
+
+    /**
+     * Policy applied when a result is added to a full table
+     */
+    public enum EvictionPolicy {
+        /**
+         * Evict the least recently used result
+         */
+        LRU,
+        /**
+         * Clear all results, cheaper to maintain but results of the current operation are lost
+         */
+        CLEAR
+    }
+
+    public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+    private final int maxSize;
+
+    private final EvictionPolicy policy;
+
+    private final LinkedHashMap<Key, AbstractNode> results;
+
+    private long hits;
+
+    private long misses;
+
+    public ComputedTable() {
+        this(DEFAULT_MAX_SIZE, EvictionPolicy.LRU);
+    }
+
+    /**
+     * @param maxSize maximum number of results
+     * @param policy  policy applied when the table is full
+     */
+    public ComputedTable(final int maxSize, EvictionPolicy policy) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Eviction policy must not be null");
+        }
+        this.maxSize = maxSize;
+        this.policy = policy;
+        this.results = new LinkedHashMap<Key, AbstractNode>(16, 0.75f, policy == EvictionPolicy.LRU) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, AbstractNode> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Return the result of the operation on the operands
+     *
+     * @param operation identifier of the operation, compared by equals
+     * @param n1
+     * @param n2
+     * @return null if the result is not in the table
+     */
+    public synchronized AbstractNode get(Object operation, AbstractNode n1, AbstractNode n2) {
+        AbstractNode result = results.get(new Key(operation, n1, n2));
+        if (result != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Keep the result of the operation on the operands
+     *
+     * @param operation identifier of the operation, compared by equals
+     * @param n1
+     * @param n2
+     * @param result    the result, null results are not kept
+     */
+    public synchronized void put(Object operation, AbstractNode n1, AbstractNode n2, AbstractNode result) {
+        if (result == null) {
+            return;
+        }
+        if (policy == EvictionPolicy.CLEAR && results.size() >= maxSize) {
+            results.clear();
+        }
+        results.put(new Key(operation, n1, n2), result);
+    }
+
+    /**
+     * Remove all results, the counters are kept
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return policy;
+    }
+
+    /**
+     * Return number of results found in the table
+     *
+     * @return
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Return number of results not found in the table
+     *
+     * @return
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static final class Key {
+
+        private final Object operation;
+
+        private final AbstractNode n1;
+
+        private final AbstractNode n2;
+
+        Key(Object operation, AbstractNode n1, AbstractNode n2) {
+            this.operation = operation;
+            this.n1 = n1;
+            this.n2 = n2;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = operation.hashCode();
+            h = 31 * h + System.identityHashCode(n1);
+            return 31 * h + System.identityHashCode(n2);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return n1 == other.n1 && n2 == other.n2 && operation.equals(other.operation);
+        }
+    }
+}
@@ -49,8 +49,34 @@ public class ConjunctiveBuilder {
      * @param midd2
      * @return
      */
-    @SuppressWarnings("rawtypes")
     public static AbstractNode join(AbstractNode midd1, AbstractNode midd2) throws MIDDException {
+        return join(midd1, midd2, null);
+    }
+
+    /**
+     * Join two MIDDs, results of joined pairs of sub-diagrams are kept in the computed table. The joined MIDDs must not
+     * be changed while their results are in the table.
+     *
+     * @param midd1
+     * @param midd2
+     * @param cache the computed table, null to join pairs again
+     * @return
+     */
+    public static AbstractNode join(AbstractNode midd1, AbstractNode midd2, ComputedTable cache) throws MIDDException {
+        if (cache == null || midd1 == null || midd2 == null) {
+            return apply(midd1, midd2, cache);
+        }
+
+        AbstractNode result = cache.get(ConjunctiveBuilder.class, midd1, midd2);
+        if (result == null) {
+            result = apply(midd1, midd2, cache);
+            cache.put(ConjunctiveBuilder.class, midd1, midd2, result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static AbstractNode apply(AbstractNode midd1, AbstractNode midd2, ComputedTable cache) throws MIDDException {
 
         if (midd1 == null || midd2 == null) {
             log.error("Conjunctive join with either a null MIDD");
@@ -85,7 +111,7 @@ public class ConjunctiveBuilder {
                 InternalNode<?> n2 = (InternalNode) midd2;
 
                 if (n1.getID() == n2.getID()) {
-                    return joinMIDDatSameLevel(n1, n2);
+                    return joinMIDDatSameLevel(n1, n2, cache);
                 } else {
                     //n1 as lower variable order than n2, so:
                     // - Create a node clone from n1 -> n
@@ -95,7 +121,7 @@ public class ConjunctiveBuilder {
                     InternalNode<?> n = NodeUtils.createInternalNode(n1, n1.getType());
 
                     for (AbstractEdge<?> e : n1.getEdges()) {
-                        AbstractNode child = join(e.getSubDiagram(), n2);
+                        AbstractNode child = join(e.getSubDiagram(), n2, cache);
                         if (child != null) {
                             n.addChild(EdgeUtils.cloneEdge(e), child);
                         }
@@ -119,7 +145,7 @@ public class ConjunctiveBuilder {
      * @return
      */
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private static InternalNode<?> joinMIDDatSameLevel(InternalNode n1, InternalNode n2) throws MIDDException {
+    private static InternalNode<?> joinMIDDatSameLevel(InternalNode n1, InternalNode n2, ComputedTable cache) throws MIDDException {
         if (n1.getID() != n2.getID()) {
             throw new IllegalArgumentException("Both params should have the same variable level at their root");
         }
@@ -149,7 +175,7 @@ public class ConjunctiveBuilder {
             AbstractNode child = null;
 
             if (op1 != null && op2 != null) {
-                child = join(op1, op2);
+                child = join(op1, op2, cache);
             } else if (op1 != null || op2 != null) {
                 child = (op1 == null) ? GenericUtils.newInstance(op2) : GenericUtils.newInstance(op1);
             } else {
@@ -32,10 +32,13 @@ import nl.uva.sne.midd.partition.Partition;
 import nl.uva.sne.midd.partition.PartitionBuilder;
 import nl.uva.sne.midd.util.EdgeUtils;
 import nl.uva.sne.midd.util.GenericUtils;
+import nl.uva.sne.midd.util.IntervalUtils;
 import nl.uva.sne.midd.util.NodeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * Join two MIDD using disjunctive operator.
  *
@@ -49,8 +52,34 @@ public class DisjunctiveBuilder {
      * @param midd2
      * @return
      */
-    @SuppressWarnings("rawtypes")
     public static AbstractNode join(AbstractNode midd1, AbstractNode midd2) throws MIDDException {
+        return join(midd1, midd2, null);
+    }
+
+    /**
+     * Join two MIDDs, results of joined pairs of sub-diagrams are kept in the computed table. The joined MIDDs must not
+     * be changed while their results are in the table.
+     *
+     * @param midd1
+     * @param midd2
+     * @param cache the computed table, null to join pairs again
+     * @return
+     */
+    public static AbstractNode join(AbstractNode midd1, AbstractNode midd2, ComputedTable cache) throws MIDDException {
+        if (cache == null || midd1 == null || midd2 == null) {
+            return apply(midd1, midd2, cache);
+        }
+
+        AbstractNode result = cache.get(DisjunctiveBuilder.class, midd1, midd2);
+        if (result == null) {
+            result = apply(midd1, midd2, cache);
+            cache.put(DisjunctiveBuilder.class, midd1, midd2, result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static AbstractNode apply(AbstractNode midd1, AbstractNode midd2, ComputedTable cache) throws MIDDException {
 
         if (midd1 == null || midd2 == null) {
             log.error("Disjunctive join with a null MIDD");
@@ -85,7 +114,7 @@ public class DisjunctiveBuilder {
             InternalNode<?> n2 = (InternalNode) midd2;
 
             if (n1.getID() == n2.getID()) {
-                return joinWithSameLevel(n1, n2);
+                return joinWithSameLevel(n1, n2, cache);
             } else {
                 //n1 as lower variable order than n2, so:
                 // - Create a node clone from n1 -> n
@@ -95,13 +124,19 @@ public class DisjunctiveBuilder {
                 InternalNode<?> n = NodeUtils.createInternalNode(n1, n1.getType());
 
                 for (AbstractEdge<?> e : n1.getEdges()) {
-                    AbstractNode child = join(e.getSubDiagram(), n2);
+                    AbstractNode child = join(e.getSubDiagram(), n2, cache);
                     if (child != null) {
                         n.addChild(EdgeUtils.cloneEdge(e), child);
                     } else {
                         throw new RuntimeException("empty child");
                     }
                 }
+
+                // values of n1 variable outside its edges may still satisfy n2
+                List<Interval<?>> complementIntervals = IntervalUtils.complement(n1.getIntervals());
+                if (complementIntervals.size() > 0) {
+                    n.addChild(EdgeUtils.createEdge(complementIntervals, n1.getType()), n2);
+                }
                 if (n.getEdges().size() == 0) {
                     System.err.println("Disjunctive join two midd return null");
                     return null;
@@ -121,7 +156,7 @@ public class DisjunctiveBuilder {
      */
     @SuppressWarnings({"rawtypes", "unchecked"})
     private static InternalNode<?> joinWithSameLevel(InternalNode n1,
-                                                     InternalNode n2) throws MIDDException {
+                                                     InternalNode n2, ComputedTable cache) throws MIDDException {
         if (n1.getID() != n2.getID()) {
             throw new IllegalArgumentException("Both params should have the same variable level at their root");
         }
@@ -148,7 +183,7 @@ public class DisjunctiveBuilder {
             AbstractNode op2 = n2.getChild(interval);
             AbstractNode child = null;
             if (op1 != null && op2 != null) {
-                child = join(op1, op2);
+                child = join(op1, op2, cache);
             } else if (op1 != null || op2 != null) {
                 child = GenericUtils.newInstance(op1 != null ? op1 : op2);
             } else {
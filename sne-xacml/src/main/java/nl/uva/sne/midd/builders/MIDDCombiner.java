@@ -34,6 +34,7 @@ import nl.uva.sne.midd.util.EdgeUtils;
 import nl.uva.sne.midd.util.GenericUtils;
 import nl.uva.sne.midd.util.IntervalUtils;
 import nl.uva.sne.midd.util.NodeUtils;
+import nl.uva.sne.midd.util.ReductionUtils;
 import nl.uva.sne.xacml.ExternalNode3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,15 +43,51 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Combine MIDDs using XACML 3.0 combining algorithms.
+ * Combine MIDDs using XACML 3.0 combining algorithms. Combined nodes are reduced by
+ * {@link ReductionUtils#reduceNode(InternalNode)}.
  */
 public class MIDDCombiner {
     private static final Logger log = LoggerFactory.getLogger(MIDDCombiner.class);
 
     private CombiningAlgorithm algo;
 
+    /**
+     * Unique table of the combined nodes, null if sub-diagrams are copied
+     */
+    private final UniqueTable nodes;
+
+    /**
+     * Computed table of combined pairs, null if results are not kept
+     */
+    private final ComputedTable cache;
+
     public MIDDCombiner(CombiningAlgorithm algorithm) {
+        this(algorithm, null, null);
+    }
+
+    /**
+     * Create a combiner that shares the sub-diagrams of its results. The combined MIDDs must be canonical nodes of the
+     * table, e.g. returned by {@link UniqueTable#intern(AbstractNode)}, and must not be changed afterwards.
+     *
+     * @param algorithm
+     * @param nodes     the unique table, null to copy sub-diagrams
+     */
+    public MIDDCombiner(CombiningAlgorithm algorithm, UniqueTable nodes) {
+        this(algorithm, nodes, null);
+    }
+
+    /**
+     * Create a combiner that keeps the results of combined pairs of sub-diagrams in a computed table, which can be
+     * shared by combiners of other algorithms.
+     *
+     * @param algorithm
+     * @param nodes     the unique table, null to copy sub-diagrams
+     * @param cache     the computed table, null to combine pairs again
+     */
+    public MIDDCombiner(CombiningAlgorithm algorithm, UniqueTable nodes, ComputedTable cache) {
         this.algo = algorithm;
+        this.nodes = nodes;
+        this.cache = cache;
     }
 
     /**
@@ -72,14 +109,28 @@ public class MIDDCombiner {
      * @return
      */
     public AbstractNode combine(AbstractNode midd1, AbstractNode midd2) throws MIDDException {
+        if (cache == null) {
+            return apply(midd1, midd2);
+        }
+
+        // algorithms are stateless, their classes identify the operation
+        AbstractNode result = cache.get(algo.getClass(), midd1, midd2);
+        if (result == null) {
+            result = apply(midd1, midd2);
+            cache.put(algo.getClass(), midd1, midd2, result);
+        }
+        return result;
+    }
+
+    private AbstractNode apply(AbstractNode midd1, AbstractNode midd2) throws MIDDException {
 
         if (midd1 instanceof ExternalNode3) {
             if (midd2 instanceof ExternalNode3) {
-                return combineExternalNodes((ExternalNode3) midd1, (ExternalNode3) midd2);            // combine two external nodes
+                return reduce(combineExternalNodes((ExternalNode3) midd1, (ExternalNode3) midd2));            // combine two external nodes
             } else {
                 ExternalNode3 n1 = (ExternalNode3) midd1;
                 InternalNode<?> n2 = (InternalNode<?>) midd2;
-                return combineIDD(n1, n2); // combine an external node n1 with an internal node n2
+                return reduce(combineIDD(n1, n2)); // combine an external node n1 with an internal node n2
             }
         } else {
             InternalNode<?> n1 = (InternalNode<?>) midd1;
@@ -87,13 +138,13 @@ public class MIDDCombiner {
             if (midd2 instanceof ExternalNode3) {
                 // combine an internal node (midd1) with an external node (midd2)
                 ExternalNode3 n2 = (ExternalNode3) midd2;
-                return combineIDD(n1, n2);     // combine an internal node n1 with an external node2
+                return reduce(combineIDD(n1, n2));     // combine an internal node n1 with an external node2
             } else {
                 // both are internal nodes, combine two internal nodes here
                 InternalNode<?> n2 = (InternalNode<?>) midd2;
 
                 if (n1.getID() == n2.getID()) {
-                    return combineIDDSameLevel(n1, n2);
+                    return reduce(combineIDDSameLevel(n1, n2));
                 } else {
                     //Algorithm: find a node with lower order, e.g: n1
                     // - Create a node clone from n1 -> n
@@ -137,7 +188,7 @@ public class MIDDCombiner {
                         }
                     }
                     if (n.getEdges().size() > 0) {
-                        return n;
+                        return reduce(n);
                     } else {
                         return null;
                     }
@@ -146,6 +197,16 @@ public class MIDDCombiner {
         }
     }
 
+    /**
+     * Reduce a combined node, and return its canonical node if sub-diagrams are shared
+     */
+    private AbstractNode reduce(AbstractNode n) throws MIDDException {
+        if (n instanceof InternalNode) {
+            n = ReductionUtils.reduceNode((InternalNode<?>) n);
+        }
+        return (nodes != null) ? nodes.intern(n) : n;
+    }
+
     /**
      * Combine two MIDDs: an external node with an internal node.
      * <p/>
@@ -323,7 +384,8 @@ public class MIDDCombiner {
             if (op1 != null && op2 != null) {
                 child = combine(op1, op2);
             } else if (op1 != null || op2 != null) {
-                child = GenericUtils.newInstance(op1 == null ? op2 : op1);
+                // canonical nodes are shared, otherwise the sub-diagram is copied
+                child = (nodes != null) ? (op1 == null ? op2 : op1) : GenericUtils.newInstance(op1 == null ? op2 : op1);
             } else {
                 throw new RuntimeException("Error merging two partitions, " +
                         "the output partition has an item not belong to both previous ones");
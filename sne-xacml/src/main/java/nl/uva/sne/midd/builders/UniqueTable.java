@@ -0,0 +1,220 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.builders;
+
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.ExternalNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.obligations.ObligationExpression;
+import nl.uva.sne.xacml.ExternalNode3;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unique table of MIDD nodes: structurally equal sub-diagrams are replaced by a single canonical node, so the MIDD is a
+ * DAG instead of a tree. Nodes are equal if they have the same variable, the same state and the same edges, i.e. the
+ * same intervals leading to the same canonical children. External nodes are equal if they have the same decision and
+ * the same obligation expressions.
+ * <p/>
+ * A canonical node is shared by every diagram built with the table, it must not be changed afterwards. The table can
+ * be shared by threads parsing the policies; a node being interned must not be shared with other threads until it is
+ * interned.
+ *
+ * @author Canh Ngo
+ */
+public class UniqueTable {
+
+    private final ConcurrentMap<Key, AbstractNode> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Canonical nodes of the table, nodes do not override equals() so they are compared by identity
+     */
+    private final ConcurrentMap<AbstractNode, Boolean> canonical = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Return the canonical node structurally equal to the diagram. Children of the diagram are replaced by their
+     * canonical nodes; if there is no canonical node yet, the diagram becomes canonical.
+     *
+     * @param n
+     * @return
+     * @throws MIDDException
+     */
+    public AbstractNode intern(AbstractNode n) throws MIDDException {
+        if (n == null || canonical.containsKey(n)) {
+            return n;
+        }
+
+        if (n instanceof InternalNode) {
+            for (AbstractEdge<?> e : ((InternalNode<?>) n).getEdges()) {
+                AbstractNode child = intern(e.getSubDiagram());
+                if (child != e.getSubDiagram()) {
+                    e.setSubDiagram(child);
+                }
+            }
+        }
+
+        Key key = new Key(n);
+        lookups.incrementAndGet();
+        AbstractNode c = nodes.putIfAbsent(key, n);
+        if (c != null) {
+            hits.incrementAndGet();
+            return c;
+        }
+        canonical.put(n, Boolean.TRUE);
+        return n;
+    }
+
+    /**
+     * Return number of canonical nodes
+     *
+     * @return
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Return number of nodes looked up in the table
+     *
+     * @return
+     */
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Return number of nodes replaced by an existing canonical node
+     *
+     * @return
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Structure of a node: variable, state, obligations and edges. Children and obligation expressions of nodes are
+     * compared by identity, intervals by value.
+     */
+    private static final class Key {
+
+        private final Class<?> nodeClass;
+
+        private final int id;
+
+        private final DecisionType decision;
+
+        private final Object[] obligations;
+
+        /**
+         * Intervals and child of each edge
+         */
+        private final Object[] edges;
+
+        private final int hash;
+
+        Key(AbstractNode n) throws MIDDException {
+            this.nodeClass = n.getClass();
+            this.id = n.getID();
+
+            ExternalNode3 state = null;
+            if (n instanceof InternalNode) {
+                InternalNode<?> node = (InternalNode<?>) n;
+                state = node.getState().getExternalNode();
+
+                List<? extends AbstractEdge<?>> l = node.getEdges();
+                this.edges = new Object[2 * l.size()];
+                for (int i = 0; i < l.size(); i++) {
+                    edges[2 * i] = l.get(i).getIntervals();
+                    edges[2 * i + 1] = l.get(i).getSubDiagram();
+                }
+            } else {
+                if (n instanceof ExternalNode3) {
+                    state = (ExternalNode3) n;
+                }
+                this.edges = new Object[0];
+            }
+
+            if (state != null) {
+                this.decision = state.getDecision();
+                List<ObligationExpression> oes = state.getObligationExpressions();
+                this.obligations = (oes == null) ? new Object[0] : oes.toArray();
+            } else {
+                this.decision = null;
+                this.obligations = new Object[0];
+            }
+
+            int h = nodeClass.hashCode();
+            h = 31 * h + id;
+            h = 31 * h + ((decision == null) ? 0 : decision.hashCode());
+            for (Object oe : obligations) {
+                h = 31 * h + System.identityHashCode(oe);
+            }
+            for (int i = 0; i < edges.length; i += 2) {
+                h = 31 * h + edges[i].hashCode();
+                h = 31 * h + System.identityHashCode(edges[i + 1]);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (hash != other.hash || nodeClass != other.nodeClass || id != other.id || decision != other.decision ||
+                    obligations.length != other.obligations.length || edges.length != other.edges.length) {
+                return false;
+            }
+            for (int i = 0; i < obligations.length; i++) {
+                if (obligations[i] != other.obligations[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < edges.length; i += 2) {
+                if (edges[i + 1] != other.edges[i + 1] || !edges[i].equals(other.edges[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.compiled;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.interval.DoubleIntervalTable;
+import nl.uva.sne.midd.interval.IntervalTable;
+import nl.uva.sne.midd.interval.LongIntervalTable;
+
+/**
+ * Flat, immutable representation of a MIDD.
+ * <p/>
+ * Internal nodes are indexed from 0 (the root, if it is an internal node) and their attributes are stored in
+ * parallel arrays. Each node has an {@link IntervalTable} holding its sorted boundaries, the table resolves a value
+ * to a child reference. A child reference <code>r >= 0</code> is the index of an internal node, a negative reference
+ * is the leaf <code>~r</code> in the table of leaf decisions.
+ * <p/>
+ * Decisions of leaves and internal node states are built once at compile time and shared by all evaluations.
+ *
+ * @author Canh Ngo
+ * @see MIDDCompiler
+ */
+public class CompiledMIDD {
+
+    private final int root;
+
+    private final int[] variableIds;
+
+    private final Class<?>[] types;
+
+    private final IntervalTable[] tables;
+
+    /**
+     * Decision of each internal node when no edge matches, built from its state
+     */
+    private final Decision[] stateDecisions;
+
+    /**
+     * Decision of each leaf
+     */
+    private final Decision[] leafDecisions;
+
+    CompiledMIDD(int root, int[] variableIds, Class<?>[] types, IntervalTable[] tables,
+                 Decision[] stateDecisions, Decision[] leafDecisions) {
+        this.root = root;
+        this.variableIds = variableIds;
+        this.types = types;
+        this.tables = tables;
+        this.stateDecisions = stateDecisions;
+        this.leafDecisions = leafDecisions;
+    }
+
+    /**
+     * Return the reference to the root of the diagram
+     *
+     * @return
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Return true if the reference points to a leaf
+     *
+     * @param ref
+     * @return
+     */
+    public static boolean isLeaf(int ref) {
+        return ref < 0;
+    }
+
+    public int getVariableId(int node) {
+        return variableIds[node];
+    }
+
+    public Class<?> getType(int node) {
+        return types[node];
+    }
+
+    /**
+     * Return the lookup table of the node
+     *
+     * @param node
+     * @return
+     */
+    public IntervalTable getTable(int node) {
+        return tables[node];
+    }
+
+    /**
+     * Return the reference to the child of the node whose incoming edge contains the value.
+     *
+     * @param node
+     * @param value the value of the node's variable, <code>null</code> if it is missing
+     * @return {@link IntervalTable#NO_MATCH} if there's no matching edge
+     */
+    public int match(int node, Comparable<?> value) {
+        return tables[node].lookup(value);
+    }
+
+    /**
+     * Similar to {@link #match(int, Comparable)} for a node of an integer variable.
+     *
+     * @param node
+     * @param value
+     * @return
+     */
+    public int matchLong(int node, long value) {
+        return ((LongIntervalTable) tables[node]).lookupLong(value);
+    }
+
+    /**
+     * Similar to {@link #match(int, Comparable)} for a node of a double variable.
+     *
+     * @param node
+     * @param value
+     * @return
+     */
+    public int matchDouble(int node, double value) {
+        return ((DoubleIntervalTable) tables[node]).lookupDouble(value);
+    }
+
+    /**
+     * Return the decision of the internal state of the node
+     *
+     * @param node
+     * @return
+     */
+    public Decision getDecision(int node) {
+        return stateDecisions[node];
+    }
+
+    /**
+     * Return the decision of the leaf
+     *
+     * @param ref a negative reference to the leaf
+     * @return
+     */
+    public Decision getLeafDecision(int ref) {
+        return leafDecisions[~ref];
+    }
+
+    /**
+     * Return number of internal nodes
+     *
+     * @return
+     */
+    public int countInternalNodes() {
+        return variableIds.length;
+    }
+
+    /**
+     * Return number of leaves
+     *
+     * @return
+     */
+    public int countLeaves() {
+        return leafDecisions.length;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.compiled;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.interval.IntervalTable;
+
+/**
+ * A MIDD compiled into a class, see {@link DecisionFunctionGenerator}. The generated subclass implements
+ * {@link #evaluate(AttributeVector)} as straight-line code: integer and double values are compared with the bounds of
+ * the intervals as constants, the other values are resolved by the lookup tables of the nodes.
+ *
+ * @author Canh Ngo
+ */
+public abstract class DecisionFunction {
+
+    /**
+     * Decisions of the leaves, followed by the decisions of the internal node states
+     */
+    protected final Decision[] decisions;
+
+    /**
+     * Lookup tables of the internal nodes
+     */
+    protected final IntervalTable[] tables;
+
+    /**
+     * Data types of the internal nodes
+     */
+    protected final Class<?>[] types;
+
+    protected DecisionFunction(Decision[] decisions, IntervalTable[] tables, Class<?>[] types) {
+        this.decisions = decisions;
+        this.tables = tables;
+        this.types = types;
+    }
+
+    /**
+     * Evaluate a vector of attributes, it has the same decision as
+     * {@link nl.uva.sne.midd.util.EvaluationUtils#eval(CompiledMIDD, AttributeVector)}.
+     *
+     * @param attributes vector of single values, a missing attribute is not set
+     * @return
+     */
+    public abstract Decision evaluate(AttributeVector attributes);
+
+    /**
+     * Return true if the variable is present in the vector with the data type of the node
+     *
+     * @param attributes
+     * @param varId
+     * @param type
+     * @return
+     */
+    protected static boolean isPresent(AttributeVector attributes, int varId, Class<?> type) {
+        if (!attributes.isPresent(varId)) {
+            return false;
+        }
+        if (attributes.getType(varId) != type) {
+            throw new RuntimeException("Error evaluation, either tree or values have error: same attribute with different variable identifiers");
+        }
+        return true;
+    }
+}
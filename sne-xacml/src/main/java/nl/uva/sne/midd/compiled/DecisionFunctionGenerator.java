@@ -0,0 +1,646 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.compiled;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.interval.DoubleIntervalTable;
+import nl.uva.sne.midd.interval.IntervalTable;
+import nl.uva.sne.midd.interval.LongIntervalTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Generate the bytecode of a {@link DecisionFunction} from a {@link CompiledMIDD} and load it with
+ * {@link ClassLoader#defineClass(String, byte[], int, int)}.
+ * <p/>
+ * Each internal node becomes a block of the <code>evaluate</code> method that jumps to the blocks of its children, a
+ * node shared by several edges has a single block. The binary search over the intervals of an integer or double node
+ * is unrolled into nested comparisons with its bounds; nodes of other data types call the lookup table and dispatch its
+ * result with a <code>lookupswitch</code>. Leaves return their decisions, which are built once by the
+ * {@link MIDDCompiler}.
+ * <p/>
+ * The class file has the version of Java 5, so it is checked by the type inferencing verifier and needs no stack map
+ * frames. A MIDD whose method would be too large to be compiled by the JIT is not generated.
+ *
+ * @author Canh Ngo
+ */
+public final class DecisionFunctionGenerator {
+
+    /**
+     * Maximum length of the method: HotSpot does not compile a method of more than 8000 bytes, which would run slower
+     * than the interpreted MIDD. It also keeps the branch offsets in signed 16-bit integers.
+     */
+    private static final int MAX_CODE_LENGTH = 8000;
+
+    private static final int MAX_CONSTANTS = 0xFFFF;
+
+    private static final String CLASS_NAME = "nl/uva/sne/midd/compiled/GeneratedDecisionFunction";
+    private static final String SUPER_NAME = "nl/uva/sne/midd/compiled/DecisionFunction";
+    private static final String VECTOR_NAME = "nl/uva/sne/midd/AttributeVector";
+    private static final String TABLE_NAME = "nl/uva/sne/midd/interval/IntervalTable";
+
+    private static final String DECISIONS_DESC = "[Lnl/uva/sne/midd/Decision;";
+    private static final String TABLES_DESC = "[Lnl/uva/sne/midd/interval/IntervalTable;";
+    private static final String TYPES_DESC = "[Ljava/lang/Class;";
+    private static final String INIT_DESC = "(" + DECISIONS_DESC + TABLES_DESC + TYPES_DESC + ")V";
+    private static final String EVALUATE_DESC = "(Lnl/uva/sne/midd/AttributeVector;)Lnl/uva/sne/midd/Decision;";
+    private static final String IS_PRESENT_DESC = "(Lnl/uva/sne/midd/AttributeVector;ILjava/lang/Class;)Z";
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int LLOAD_2 = 0x20;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int AALOAD = 0x32;
+    private static final int LSTORE_2 = 0x41;
+    private static final int DSTORE = 0x39;
+    private static final int LCMP = 0x94;
+    private static final int IFEQ = 0x99;
+    private static final int IFLT = 0x9b;
+    private static final int IFGE = 0x9c;
+    private static final int IFGT = 0x9d;
+    private static final int IFLE = 0x9e;
+    private static final int GOTO = 0xa7;
+    private static final int LOOKUPSWITCH = 0xab;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    /**
+     * Local variable of the value of an integer node, <code>this</code> and the vector are the first ones
+     */
+    private static final int LONG_VALUE = 2;
+
+    private static final int DOUBLE_VALUE = 4;
+
+    private final CompiledMIDD midd;
+
+    private final ConstantPool pool = new ConstantPool();
+
+    private final Bytes code = new Bytes();
+
+    /**
+     * Position of each label in the code, -1 if it is not bound yet. Internal nodes, leaves and node states have
+     * the first labels, the others are branches of the binary searches.
+     */
+    private final List<Integer> labels = new ArrayList<>();
+
+    /**
+     * Branches to patch once the labels are bound: position of the instruction, position of the offset, label and
+     * size of the offset
+     */
+    private final List<int[]> fixups = new ArrayList<>();
+
+    private DecisionFunctionGenerator(CompiledMIDD midd) {
+        this.midd = midd;
+    }
+
+    /**
+     * Generate the decision function of the MIDD if it has at most <code>maxNodes</code> internal nodes.
+     *
+     * @param midd
+     * @param maxNodes maximum number of internal nodes
+     * @return <code>null</code> if the MIDD is too large, it should be interpreted, see
+     * {@link nl.uva.sne.midd.util.EvaluationUtils#eval(CompiledMIDD, nl.uva.sne.midd.AttributeVector)}
+     */
+    public static DecisionFunction generate(CompiledMIDD midd, int maxNodes) {
+        if (midd == null) {
+            throw new IllegalArgumentException("MIDD argument must not be null");
+        }
+        if (midd.countInternalNodes() > maxNodes) {
+            return null;
+        }
+        byte[] classFile = new DecisionFunctionGenerator(midd).build();
+        if (classFile == null) {
+            return null;
+        }
+
+        final int numNodes = midd.countInternalNodes();
+        final int numLeaves = midd.countLeaves();
+        Decision[] decisions = new Decision[numLeaves + numNodes];
+        IntervalTable[] tables = new IntervalTable[numNodes];
+        Class<?>[] types = new Class<?>[numNodes];
+        for (int i = 0; i < numLeaves; i++) {
+            decisions[i] = midd.getLeafDecision(~i);
+        }
+        for (int i = 0; i < numNodes; i++) {
+            decisions[numLeaves + i] = midd.getDecision(i);
+            tables[i] = midd.getTable(i);
+            types[i] = midd.getType(i);
+        }
+
+        try {
+            Class<?> c = new Loader(DecisionFunction.class.getClassLoader()).define(classFile);
+            return (DecisionFunction) c.getConstructor(Decision[].class, IntervalTable[].class, Class[].class)
+                    .newInstance(decisions, tables, types);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalStateException("Invalid decision function generated from the MIDD", e);
+        }
+    }
+
+    /**
+     * Return the class file, <code>null</code> if the method is too large
+     */
+    private byte[] build() {
+        final int numNodes = midd.countInternalNodes();
+        final int numLeaves = midd.countLeaves();
+        for (int i = 0; i < 2 * numNodes + numLeaves; i++) {
+            labels.add(-1);
+        }
+
+        int root = midd.getRoot();
+        if (root != 0) {
+            branch(GOTO, getLabel(root, -1));
+        }
+        for (int i = 0; i < numNodes; i++) {
+            bind(i);
+            generateNode(i);
+        }
+        for (int i = 0; i < numLeaves; i++) {
+            bind(numNodes + i);
+            generateReturn(i);
+        }
+        for (int i = 0; i < numNodes; i++) {
+            bind(numNodes + numLeaves + i);
+            generateReturn(numLeaves + i);
+        }
+
+        if (code.length > MAX_CODE_LENGTH) {
+            return null;
+        }
+        for (int[] f : fixups) {
+            int offset = labels.get(f[2]) - f[0];
+            if (f[3] == 2) {
+                code.set2(f[1], offset);
+            } else {
+                code.set4(f[1], offset);
+            }
+        }
+
+        final int thisClass = pool.classRef(CLASS_NAME);
+        final int superClass = pool.classRef(SUPER_NAME);
+        final int codeName = pool.utf8("Code");
+        final int init = pool.utf8("<init>");
+        final int initDesc = pool.utf8(INIT_DESC);
+        final int superInit = pool.memberRef(ConstantPool.METHOD_REF, SUPER_NAME, "<init>", INIT_DESC);
+        final int evaluate = pool.utf8("evaluate");
+        final int evaluateDesc = pool.utf8(EVALUATE_DESC);
+        if (pool.count > MAX_CONSTANTS) {
+            return null;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(pool.count);
+            out.write(pool.bytes.data, 0, pool.bytes.length);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(2);
+
+            Bytes initCode = new Bytes();
+            initCode.put1(ALOAD_0);
+            initCode.put1(ALOAD_1);
+            initCode.put1(ALOAD_2);
+            initCode.put1(ALOAD_3);
+            initCode.put1(INVOKESPECIAL);
+            initCode.put2(superInit);
+            initCode.put1(RETURN);
+            writeMethod(out, init, initDesc, codeName, 4, 4, initCode);
+
+            writeMethod(out, evaluate, evaluateDesc, codeName, 6, 6, code);
+            out.writeShort(0);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                    int maxStack, int maxLocals, Bytes code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code.data, 0, code.length);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    /**
+     * Generate the block of the node, which jumps to the block of the matched child or to the node state
+     */
+    private void generateNode(int node) {
+        final int varId = midd.getVariableId(node);
+        final Class<?> type = midd.getType(node);
+        final IntervalTable table = midd.getTable(node);
+
+        // a missing attribute follows the null target of the table
+        code.put1(ALOAD_1);
+        pushInt(varId);
+        if (type == Long.class || type == Double.class) {
+            ldc(pool.classRef(type == Long.class ? "java/lang/Long" : "java/lang/Double"));
+        } else {
+            getField("types", TYPES_DESC);
+            pushInt(node);
+            code.put1(AALOAD);
+        }
+        invoke(INVOKESTATIC, SUPER_NAME, "isPresent", IS_PRESENT_DESC);
+        branch(IFEQ, getLabel(table.getNullTarget(), node));
+
+        if (type == Long.class) {
+            code.put1(ALOAD_1);
+            pushInt(varId);
+            invoke(INVOKEVIRTUAL, VECTOR_NAME, "getLong", "(I)J");
+            code.put1(LSTORE_2);
+            generateSearch(node, table, 0, table.size() - 1);
+        } else if (type == Double.class) {
+            code.put1(ALOAD_1);
+            pushInt(varId);
+            invoke(INVOKEVIRTUAL, VECTOR_NAME, "getDouble", "(I)D");
+            code.put1(DSTORE);
+            code.put1(DOUBLE_VALUE);
+            generateSearch(node, table, 0, table.size() - 1);
+        } else {
+            getField("tables", TABLES_DESC);
+            pushInt(node);
+            code.put1(AALOAD);
+            code.put1(ALOAD_1);
+            pushInt(varId);
+            invoke(INVOKEVIRTUAL, VECTOR_NAME, "get", "(I)Ljava/lang/Comparable;");
+            invoke(INVOKEVIRTUAL, TABLE_NAME, "lookup", "(Ljava/lang/Comparable;)I");
+            generateSwitch(node, table);
+        }
+    }
+
+    /**
+     * Generate the binary search over the intervals <code>[low..high]</code> of an integer or double node, the same
+     * search as {@link LongIntervalTable#lookupLong(long)}
+     */
+    private void generateSearch(int node, IntervalTable table, int low, int high) {
+        if (low > high) {
+            branch(GOTO, getLabel(IntervalTable.NO_MATCH, node));
+            return;
+        }
+        final int mid = (low + high) >>> 1;
+        final int noMatch = getLabel(IntervalTable.NO_MATCH, node);
+
+        int left = -1;
+        if (!table.isLowerInfinite(mid)) {
+            left = (low < mid) ? newLabel() : noMatch;
+            compare(table, mid, true);
+            branch(table.isLowerBoundClosed(mid) ? IFLT : IFLE, left);
+        }
+        int right = -1;
+        if (!table.isUpperInfinite(mid)) {
+            right = (mid < high) ? newLabel() : noMatch;
+            compare(table, mid, false);
+            branch(table.isUpperBoundClosed(mid) ? IFGT : IFGE, right);
+        }
+        branch(GOTO, getLabel(table.getTarget(mid), node));
+
+        if (left >= 0 && left != noMatch) {
+            bind(left);
+            generateSearch(node, table, low, mid - 1);
+        }
+        if (right >= 0 && right != noMatch) {
+            bind(right);
+            generateSearch(node, table, mid + 1, high);
+        }
+    }
+
+    /**
+     * Compare the value of the node with a bound of the interval, the result is an integer as
+     * {@link Long#compare(long, long)}
+     */
+    private void compare(IntervalTable table, int i, boolean lowerBound) {
+        if (table instanceof LongIntervalTable) {
+            LongIntervalTable t = (LongIntervalTable) table;
+            code.put1(LLOAD_2);
+            code.put1(LDC2_W);
+            code.put2(pool.longValue(lowerBound ? t.getLowerBound(i) : t.getUpperBound(i)));
+            code.put1(LCMP);
+        } else {
+            DoubleIntervalTable t = (DoubleIntervalTable) table;
+            code.put1(DLOAD);
+            code.put1(DOUBLE_VALUE);
+            code.put1(LDC2_W);
+            code.put2(pool.doubleValue(lowerBound ? t.getLowerBound(i) : t.getUpperBound(i)));
+            invoke(INVOKESTATIC, "java/lang/Double", "compare", "(DD)I");
+        }
+    }
+
+    /**
+     * Jump to the child whose reference is returned by the lookup table
+     */
+    private void generateSwitch(int node, IntervalTable table) {
+        TreeSet<Integer> targets = new TreeSet<>();
+        for (int i = 0; i < table.size(); i++) {
+            targets.add(table.getTarget(i));
+        }
+
+        final int start = code.length;
+        code.put1(LOOKUPSWITCH);
+        while (code.length % 4 != 0) {
+            code.put1(0);
+        }
+        fixups.add(new int[]{start, code.length, getLabel(IntervalTable.NO_MATCH, node), 4});
+        code.put4(0);
+        code.put4(targets.size());
+        for (int target : targets) {
+            code.put4(target);
+            fixups.add(new int[]{start, code.length, getLabel(target, node), 4});
+            code.put4(0);
+        }
+    }
+
+    /**
+     * Return the decision at the index of the decision array
+     */
+    private void generateReturn(int decision) {
+        getField("decisions", DECISIONS_DESC);
+        pushInt(decision);
+        code.put1(AALOAD);
+        code.put1(ARETURN);
+    }
+
+    /**
+     * Return the label of a child reference, {@link IntervalTable#NO_MATCH} is the state of the node
+     */
+    private int getLabel(int ref, int node) {
+        final int numNodes = midd.countInternalNodes();
+        if (ref == IntervalTable.NO_MATCH) {
+            return numNodes + midd.countLeaves() + node;
+        }
+        return CompiledMIDD.isLeaf(ref) ? numNodes + ~ref : ref;
+    }
+
+    private int newLabel() {
+        labels.add(-1);
+        return labels.size() - 1;
+    }
+
+    private void bind(int label) {
+        labels.set(label, code.length);
+    }
+
+    private void branch(int opcode, int label) {
+        fixups.add(new int[]{code.length, code.length + 1, label, 2});
+        code.put1(opcode);
+        code.put2(0);
+    }
+
+    private void getField(String name, String descriptor) {
+        code.put1(ALOAD_0);
+        code.put1(GETFIELD);
+        code.put2(pool.memberRef(ConstantPool.FIELD_REF, SUPER_NAME, name, descriptor));
+    }
+
+    private void invoke(int opcode, String owner, String name, String descriptor) {
+        code.put1(opcode);
+        code.put2(pool.memberRef(ConstantPool.METHOD_REF, owner, name, descriptor));
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            code.put1(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.put1(BIPUSH);
+            code.put1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.put1(SIPUSH);
+            code.put2(value);
+        } else {
+            ldc(pool.intValue(value));
+        }
+    }
+
+    private void ldc(int index) {
+        if (index <= 0xFF) {
+            code.put1(LDC);
+            code.put1(index);
+        } else {
+            code.put1(LDC_W);
+            code.put2(index);
+        }
+    }
+
+    /**
+     * Growable byte array in big-endian order
+     */
+    private static final class Bytes {
+        private byte[] data = new byte[256];
+        private int length;
+
+        void put1(int b) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, 2 * length);
+            }
+            data[length++] = (byte) b;
+        }
+
+        void put2(int s) {
+            put1(s >>> 8);
+            put1(s);
+        }
+
+        void put4(int i) {
+            put2(i >>> 16);
+            put2(i);
+        }
+
+        void set2(int pos, int s) {
+            data[pos] = (byte) (s >>> 8);
+            data[pos + 1] = (byte) s;
+        }
+
+        void set4(int pos, int i) {
+            set2(pos, i >>> 16);
+            set2(pos + 2, i);
+        }
+    }
+
+    /**
+     * Constant pool of the class file, each constant is added once
+     */
+    private static final class ConstantPool {
+        static final int UTF8 = 1;
+        static final int INTEGER = 3;
+        static final int LONG = 5;
+        static final int DOUBLE = 6;
+        static final int CLASS = 7;
+        static final int FIELD_REF = 9;
+        static final int METHOD_REF = 10;
+        static final int NAME_AND_TYPE = 12;
+
+        private final Bytes bytes = new Bytes();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            String key = "U" + value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                // names and descriptors of the generated class are ASCII
+                index = add(key, UTF8, 1);
+                bytes.put2(value.length());
+                for (int i = 0; i < value.length(); i++) {
+                    bytes.put1(value.charAt(i));
+                }
+            }
+            return index;
+        }
+
+        int classRef(String internalName) {
+            String key = "C" + internalName;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                int name = utf8(internalName);
+                index = add(key, CLASS, 1);
+                bytes.put2(name);
+            }
+            return index;
+        }
+
+        /**
+         * Add a field or method reference
+         */
+        int memberRef(int tag, String owner, String name, String descriptor) {
+            String key = tag + owner + "." + name + descriptor;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                int ownerClass = classRef(owner);
+                int nameAndType = nameAndType(name, descriptor);
+                index = add(key, tag, 1);
+                bytes.put2(ownerClass);
+                bytes.put2(nameAndType);
+            }
+            return index;
+        }
+
+        int nameAndType(String name, String descriptor) {
+            String key = "N" + name + ":" + descriptor;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                int n = utf8(name);
+                int d = utf8(descriptor);
+                index = add(key, NAME_AND_TYPE, 1);
+                bytes.put2(n);
+                bytes.put2(d);
+            }
+            return index;
+        }
+
+        int intValue(int value) {
+            String key = "I" + value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = add(key, INTEGER, 1);
+                bytes.put4(value);
+            }
+            return index;
+        }
+
+        int longValue(long value) {
+            String key = "J" + value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = add(key, LONG, 2);
+                bytes.put4((int) (value >>> 32));
+                bytes.put4((int) value);
+            }
+            return index;
+        }
+
+        int doubleValue(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            String key = "D" + bits;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = add(key, DOUBLE, 2);
+                bytes.put4((int) (bits >>> 32));
+                bytes.put4((int) bits);
+            }
+            return index;
+        }
+
+        /**
+         * Add the tag of a constant taking one or two entries, its content follows
+         */
+        private int add(String key, int tag, int size) {
+            int index = count;
+            indexes.put(key, index);
+            count += size;
+            bytes.put1(tag);
+            return index;
+        }
+    }
+
+    /**
+     * Class loader of a single generated class, it is unloaded with the decision function
+     */
+    private static final class Loader extends ClassLoader {
+
+        Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(byte[] classFile) {
+            return defineClass(CLASS_NAME.replace('/', '.'), classFile, 0, classFile.length);
+        }
+    }
+}
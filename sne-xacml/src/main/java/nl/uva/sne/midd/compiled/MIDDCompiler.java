@@ -0,0 +1,155 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.compiled;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.interval.IntervalTable;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.xacml.ExternalNode3;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transform a MIDD object graph into its flat representation {@link CompiledMIDD}.
+ * <p/>
+ * Nodes are numbered in breadth-first order from the root, a node shared by several edges is compiled only once.
+ *
+ * @author Canh Ngo
+ */
+public class MIDDCompiler {
+
+    private final List<InternalNode<?>> internalNodes = new ArrayList<>();
+
+    private final List<ExternalNode3> leaves = new ArrayList<>();
+
+    private final Map<AbstractNode, Integer> references = new IdentityHashMap<>();
+
+    private MIDDCompiler() {
+    }
+
+    /**
+     * Compile a MIDD whose leaves are XACML 3.0 external nodes.
+     *
+     * @param midd
+     * @return
+     * @throws MIDDException if the MIDD has an invalid leaf or a node has overlapped intervals
+     */
+    public static CompiledMIDD compile(AbstractNode midd) throws MIDDException {
+        if (midd == null) {
+            throw new IllegalArgumentException("MIDD argument must not be null");
+        }
+        return new MIDDCompiler().build(midd);
+    }
+
+    private CompiledMIDD build(AbstractNode midd) throws MIDDException {
+        int root = getReference(midd);
+
+        // breadth-first numbering, internalNodes grows while it is traversed
+        for (int i = 0; i < internalNodes.size(); i++) {
+            for (AbstractEdge<?> e : internalNodes.get(i).getEdges()) {
+                getReference(e.getSubDiagram());
+            }
+        }
+
+        final int size = internalNodes.size();
+        int[] variableIds = new int[size];
+        Class<?>[] types = new Class<?>[size];
+        IntervalTable[] tables = new IntervalTable[size];
+        Decision[] stateDecisions = new Decision[size];
+
+        for (int i = 0; i < size; i++) {
+            InternalNode<?> n = internalNodes.get(i);
+            variableIds[i] = n.getID();
+            types[i] = n.getType();
+            tables[i] = createTable(n);
+            stateDecisions[i] = n.buildDecision();
+        }
+
+        Decision[] leafDecisions = new Decision[leaves.size()];
+        for (int i = 0; i < leafDecisions.length; i++) {
+            leafDecisions[i] = leaves.get(i).buildDecision();
+        }
+
+        return new CompiledMIDD(root, variableIds, types, tables, stateDecisions, leafDecisions);
+    }
+
+    /**
+     * Create the lookup table of the node from intervals of its out-going edges, in the order of edges.
+     *
+     * @param n
+     * @return
+     * @throws MIDDException
+     */
+    @SuppressWarnings("rawtypes")
+    private IntervalTable createTable(InternalNode<?> n) throws MIDDException {
+        List<Interval> intervals = new ArrayList<>();
+        List<Integer> targets = new ArrayList<>();
+
+        for (AbstractEdge<?> e : n.getEdges()) {
+            int child = references.get(e.getSubDiagram());
+            for (Interval<?> interval : e.getIntervals()) {
+                intervals.add(interval);
+                targets.add(child);
+            }
+        }
+
+        int[] arrTargets = new int[targets.size()];
+        for (int i = 0; i < arrTargets.length; i++) {
+            arrTargets[i] = targets.get(i);
+        }
+        return IntervalTable.create(intervals, arrTargets, n.getType());
+    }
+
+    /**
+     * Return the reference of the node, assign a new one if the node has not been visited.
+     *
+     * @param n
+     * @return
+     * @throws MIDDException
+     */
+    private int getReference(AbstractNode n) throws MIDDException {
+        Integer ref = references.get(n);
+        if (ref != null) {
+            return ref;
+        }
+
+        if (n instanceof InternalNode) {
+            ref = internalNodes.size();
+            internalNodes.add((InternalNode<?>) n);
+        } else if (n instanceof ExternalNode3) {
+            ref = ~leaves.size();
+            leaves.add((ExternalNode3) n);
+        } else {
+            throw new MIDDException("Incorrect MIDD: leaf node must be an XACML 3.0 external node");
+        }
+        references.put(n, ref);
+        return ref;
+    }
+}
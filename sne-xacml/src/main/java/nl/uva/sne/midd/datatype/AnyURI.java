@@ -40,4 +40,20 @@ public class AnyURI implements Comparable<AnyURI> {
     public int compareTo(AnyURI arg0) {
         return uri.compareTo(arg0.uri);
     }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AnyURI)) {
+            return false;
+        }
+        return uri.equals(((AnyURI) obj).uri);
+    }
+
+    @Override
+    public int hashCode() {
+        return uri.hashCode();
+    }
 }
@@ -34,23 +34,22 @@ import java.util.List;
 
 /**
  * @author Canh Ngo
- * @date: Sep 12, 2012
  */
-public class IntegerEdge extends AbstractEdge<Integer> {
+public class LongEdge extends AbstractEdge<Long> {
 
-    public IntegerEdge(final Interval<Integer> interval) throws MIDDException {
+    public LongEdge(final Interval<Long> interval) throws MIDDException {
         super(interval);
     }
 
-    public IntegerEdge(final List<Interval<Integer>> intervals) {
+    public LongEdge(final List<Interval<Long>> intervals) {
         super(intervals);
     }
 
-    public IntegerEdge(IntegerEdge e) throws MIDDException {
+    public LongEdge(LongEdge e) throws MIDDException {
         super(e);
     }
     @Override
-    public Class<Integer> getType() {
-        return Integer.class;
+    public Class<Long> getType() {
+        return Long.class;
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.interval;
+
+import java.util.List;
+
+/**
+ * Lookup table keeping the bounds as comparable objects, used for data types that have no primitive representation.
+ *
+ * @author Canh Ngo
+ */
+public class ComparableIntervalTable extends IntervalTable {
+
+    private final Comparable[] lowerBounds;
+    private final Comparable[] upperBounds;
+
+    protected ComparableIntervalTable(final List<Entry> entries, int nullTarget) {
+        super(entries, nullTarget);
+
+        final int size = entries.size();
+        this.lowerBounds = new Comparable[size];
+        this.upperBounds = new Comparable[size];
+        for (int i = 0; i < size; i++) {
+            lowerBounds[i] = entries.get(i).lowerBound.getValue();
+            upperBounds[i] = entries.get(i).upperBound.getValue();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int lookup(final Comparable value) {
+        if (value == null) {
+            return nullTarget;
+        }
+
+        int low = 0;
+        int high = targets.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final byte f = flags[mid];
+
+            if ((f & LOWER_INFINITE) == 0) {
+                final int c = value.compareTo(lowerBounds[mid]);
+                if (c < 0 || (c == 0 && (f & LOWER_CLOSED) == 0)) {
+                    high = mid - 1;
+                    continue;
+                }
+            }
+            if ((f & UPPER_INFINITE) == 0) {
+                final int c = value.compareTo(upperBounds[mid]);
+                if (c > 0 || (c == 0 && (f & UPPER_CLOSED) == 0)) {
+                    low = mid + 1;
+                    continue;
+                }
+            }
+            return targets[mid];
+        }
+        return NO_MATCH;
+    }
+}
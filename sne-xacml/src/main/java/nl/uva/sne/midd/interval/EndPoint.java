@@ -146,6 +146,15 @@ public class EndPoint<T extends Comparable<T>> implements Comparable<EndPoint<T>
         return this.infinity;
     }
 
+    /**
+     * Return the value of the end-point, or <code>null</code> if it is an infinite end-point
+     *
+     * @return
+     */
+    public T getValue() {
+        return this.value;
+    }
+
     public boolean isInfinity() {
         return this.infinity != null && this.value == null;
     }
@@ -0,0 +1,113 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.interval;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup table for equality-only variables, where every interval is a single value except the intervals of the
+ * complement, which all have the same target. A value is resolved by a hash lookup, other values fall into the
+ * complement.
+ *
+ * @author Canh Ngo
+ */
+public class HashIntervalTable extends IntervalTable {
+
+    private final Map<Comparable, Integer> pointTargets;
+
+    /**
+     * Target of the values not in the table
+     */
+    private final int defaultTarget;
+
+    @SuppressWarnings("rawtypes")
+    protected HashIntervalTable(final List<Entry> entries, int nullTarget) {
+        super(entries, nullTarget);
+
+        this.pointTargets = new HashMap<>(entries.size() * 2);
+        int complementTarget = NO_MATCH;
+        for (Entry e : entries) {
+            if (isPoint(e)) {
+                pointTargets.put((Comparable) e.lowerBound.getValue(), e.target);
+            } else {
+                complementTarget = e.target;
+            }
+        }
+        this.defaultTarget = complementTarget;
+    }
+
+    /**
+     * Check if the sorted entries are single values and intervals of their complement.
+     *
+     * @param entries sorted, disjoint entries
+     * @return true if non single-value intervals have the same target and all intervals cover the whole domain, or
+     * all intervals are single values.
+     */
+    @SuppressWarnings("unchecked")
+    static boolean isApplicable(final List<Entry> entries) {
+        Integer complementTarget = null;
+        for (Entry e : entries) {
+            if (!isPoint(e)) {
+                if (complementTarget != null && complementTarget != e.target) {
+                    return false;
+                }
+                complementTarget = e.target;
+            }
+        }
+        if (complementTarget == null) {
+            return true;
+        }
+
+        // the complement intervals must leave no gap between the single values
+        if (!entries.get(0).lowerBound.negativeInfinity() ||
+                !entries.get(entries.size() - 1).upperBound.positiveInfinity()) {
+            return false;
+        }
+        for (int i = 1; i < entries.size(); i++) {
+            Entry prev = entries.get(i - 1);
+            Entry next = entries.get(i);
+            if (prev.upperBound.compareTo(next.lowerBound) != 0 ||
+                    ((prev.flags & UPPER_CLOSED) == 0 && (next.flags & LOWER_CLOSED) == 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPoint(final Entry e) {
+        return (e.flags & (LOWER_INFINITE | UPPER_INFINITE)) == 0 &&
+                (e.flags & (LOWER_CLOSED | UPPER_CLOSED)) == (LOWER_CLOSED | UPPER_CLOSED) &&
+                e.lowerBound.equals(e.upperBound);
+    }
+
+    @Override
+    public int lookup(final Comparable value) {
+        if (value == null) {
+            return nullTarget;
+        }
+        Integer target = pointTargets.get(value);
+        return (target != null) ? target : defaultTarget;
+    }
+}
@@ -263,7 +263,8 @@ public class Interval<T extends Comparable<T>> {
     }
 
     /**
-     * Check if the value is presenting in the interval.
+     * Check if the value is presenting in the interval. The value is compared against the bounds directly, no
+     * end-point is created.
      *
      * @param value
      * @return
@@ -275,18 +276,27 @@ public class Interval<T extends Comparable<T>> {
             return this.isLowerInfinite() || this.isUpperInfinite();
         }
 
+        return aboveLowerBound(value) && belowUpperBound(value);
+    }
 
-        EndPoint<T> epValue = new EndPoint<>(value);
-
-        int compareLow = this.lowerBound.compareTo(epValue);
-        int compareUp = this.upperBound.compareTo(epValue);
-
-        if ((compareLow < 0 || (compareLow == 0 && this.lowerBoundClosed)) &&
-                (compareUp > 0 || (compareUp == 0 && this.upperBoundClosed))) {
+    private boolean aboveLowerBound(final T value) {
+        if (this.lowerBound.negativeInfinity()) {
             return true;
+        } else if (this.lowerBound.positiveInfinity()) {
+            return false;
         }
+        int c = this.lowerBound.getValue().compareTo(value);
+        return c < 0 || (c == 0 && this.lowerBoundClosed);
+    }
 
-        return false;
+    private boolean belowUpperBound(final T value) {
+        if (this.upperBound.positiveInfinity()) {
+            return true;
+        } else if (this.upperBound.negativeInfinity()) {
+            return false;
+        }
+        int c = this.upperBound.getValue().compareTo(value);
+        return c > 0 || (c == 0 && this.upperBoundClosed);
     }
 
     /**
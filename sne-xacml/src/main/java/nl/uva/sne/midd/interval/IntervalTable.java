@@ -0,0 +1,283 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.interval;
+
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.datatype.AnyURI;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable lookup table over a list of disjoint intervals, each of them is associated with an integer target (e.g.
+ * the index of a child node). The bounds are kept sorted in flat arrays, so a value is resolved by a binary search
+ * instead of scanning every interval.
+ * <p/>
+ * Tables over integer and double intervals keep their bounds in primitive arrays, see {@link LongIntervalTable} and
+ * {@link DoubleIntervalTable}. String and URI values of equality-only variables are hashed, see
+ * {@link HashIntervalTable}.
+ *
+ * @author Canh Ngo
+ */
+public abstract class IntervalTable {
+
+    /**
+     * Returned by the lookup methods when no interval contains the value
+     */
+    public static final int NO_MATCH = Integer.MIN_VALUE;
+
+    protected static final byte LOWER_CLOSED = 1;
+    protected static final byte UPPER_CLOSED = 2;
+    protected static final byte LOWER_INFINITE = 4;
+    protected static final byte UPPER_INFINITE = 8;
+
+    /**
+     * Open/closed and infinite flags of the bounds, one byte per interval
+     */
+    protected final byte[] flags;
+
+    /**
+     * Target associated with each interval, in the sorted order
+     */
+    protected final int[] targets;
+
+    /**
+     * Target returned for a missing value
+     */
+    protected final int nullTarget;
+
+    protected IntervalTable(final List<Entry> entries, int nullTarget) {
+        final int size = entries.size();
+        this.flags = new byte[size];
+        this.targets = new int[size];
+        this.nullTarget = nullTarget;
+
+        for (int i = 0; i < size; i++) {
+            flags[i] = entries.get(i).flags;
+            targets[i] = entries.get(i).target;
+        }
+    }
+
+    /**
+     * Create a lookup table from a list of intervals and their associated targets. Depending on the data type of the
+     * bounds, the table keeps them in an array of <code>long</code>, <code>double</code> or comparable objects, or in a
+     * hash table if the intervals are single values and their complement.
+     * <p/>
+     * A missing value is resolved to the target of the first interval in the given order that has an infinite bound,
+     * which is the same behaviour as {@link Interval#hasValue} with a <code>null</code> value.
+     *
+     * @param intervals disjoint intervals
+     * @param targets   target of each interval, must have the same size as <code>intervals</code>
+     * @return
+     * @throws MIDDException if the intervals are overlapped
+     */
+    @SuppressWarnings("rawtypes")
+    public static IntervalTable create(final List<? extends Interval> intervals, final int[] targets) throws MIDDException {
+        return create(intervals, targets, null);
+    }
+
+    /**
+     * Similar to {@link #create(java.util.List, int[])} with the data type of the intervals given.
+     *
+     * @param intervals disjoint intervals
+     * @param targets   target of each interval, must have the same size as <code>intervals</code>
+     * @param type      data type of the intervals, if <code>null</code> it is retrieved from the bounds
+     * @return
+     * @throws MIDDException if the intervals are overlapped
+     */
+    @SuppressWarnings("rawtypes")
+    public static IntervalTable create(final List<? extends Interval> intervals, final int[] targets, final Class<?> type) throws MIDDException {
+        List<Entry> entries = sort(intervals, targets);
+        int nullTarget = findNullTarget(intervals, targets);
+
+        Class<?> boundType = (type != null) ? type : getBoundType(entries);
+        if (boundType == Long.class) {
+            return new LongIntervalTable(entries, nullTarget);
+        } else if (boundType == Double.class) {
+            return new DoubleIntervalTable(entries, nullTarget);
+        } else if ((boundType == String.class || boundType == AnyURI.class) && HashIntervalTable.isApplicable(entries)) {
+            return new HashIntervalTable(entries, nullTarget);
+        } else {
+            return new ComparableIntervalTable(entries, nullTarget);
+        }
+    }
+
+    /**
+     * Return the common class of finite bounds, <code>null</code> if they have different classes or all bounds are
+     * infinite.
+     *
+     * @param entries
+     * @return
+     */
+    private static Class<?> getBoundType(final List<Entry> entries) {
+        Class<?> type = null;
+        for (Entry e : entries) {
+            for (Object value : new Object[]{e.lowerBound.getValue(), e.upperBound.getValue()}) {
+                if (value == null) {
+                    continue;
+                }
+                if (type == null) {
+                    type = value.getClass();
+                } else if (type != value.getClass()) {
+                    return null;
+                }
+            }
+        }
+        return type;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected static List<Entry> sort(final List<? extends Interval> intervals, final int[] targets) throws MIDDException {
+        if (intervals.size() != targets.length) {
+            throw new IllegalArgumentException("Intervals and targets must have the same size");
+        }
+
+        List<Entry> entries = new ArrayList<>(intervals.size());
+        for (int i = 0; i < intervals.size(); i++) {
+            entries.add(new Entry(intervals.get(i), targets[i]));
+        }
+        Collections.sort(entries, ENTRY_ORDER);
+
+        for (int i = 1; i < entries.size(); i++) {
+            if (entries.get(i - 1).interval.isIntersec(entries.get(i).interval)) {
+                throw new MIDDException("Overlapped intervals " + entries.get(i - 1).interval + " and " + entries.get(i).interval);
+            }
+        }
+        return entries;
+    }
+
+    @SuppressWarnings("rawtypes")
+    protected static int findNullTarget(final List<? extends Interval> intervals, final int[] targets) {
+        for (int i = 0; i < intervals.size(); i++) {
+            if (intervals.get(i).isLowerInfinite() || intervals.get(i).isUpperInfinite()) {
+                return targets[i];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Return the target of the interval containing the value
+     *
+     * @param value the value to lookup, <code>null</code> if the value is missing
+     * @return {@link #NO_MATCH} if no interval contains the value
+     */
+    public abstract int lookup(final Comparable value);
+
+    /**
+     * Return the target for a missing value
+     *
+     * @return
+     */
+    public int getNullTarget() {
+        return nullTarget;
+    }
+
+    /**
+     * Return number of intervals in the table
+     *
+     * @return
+     */
+    public int size() {
+        return targets.length;
+    }
+
+    /**
+     * Return the target of the i-th interval, intervals are sorted by their lower bounds
+     *
+     * @param i
+     * @return
+     */
+    public int getTarget(int i) {
+        return targets[i];
+    }
+
+    public boolean isLowerBoundClosed(int i) {
+        return (flags[i] & LOWER_CLOSED) != 0;
+    }
+
+    public boolean isUpperBoundClosed(int i) {
+        return (flags[i] & UPPER_CLOSED) != 0;
+    }
+
+    public boolean isLowerInfinite(int i) {
+        return (flags[i] & LOWER_INFINITE) != 0;
+    }
+
+    public boolean isUpperInfinite(int i) {
+        return (flags[i] & UPPER_INFINITE) != 0;
+    }
+
+    /**
+     * An interval with its target, used while building the table
+     */
+    @SuppressWarnings("rawtypes")
+    protected static class Entry {
+        protected final Interval interval;
+        protected final EndPoint lowerBound;
+        protected final EndPoint upperBound;
+        protected final int target;
+        protected final byte flags;
+
+        Entry(Interval interval, int target) throws MIDDException {
+            this.interval = interval;
+            this.lowerBound = interval.getLowerBound();
+            this.upperBound = interval.getUpperBound();
+            this.target = target;
+
+            byte f = 0;
+            if (interval.isLowerBoundClosed()) {
+                f |= LOWER_CLOSED;
+            }
+            if (interval.isUpperBoundClosed()) {
+                f |= UPPER_CLOSED;
+            }
+            if (interval.isLowerInfinite()) {
+                f |= LOWER_INFINITE;
+            }
+            if (interval.isUpperInfinite()) {
+                f |= UPPER_INFINITE;
+            }
+            this.flags = f;
+        }
+    }
+
+    /**
+     * Order intervals by their lower bounds, a closed lower bound comes before an open one.
+     */
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(Entry e1, Entry e2) {
+            int c = e1.lowerBound.compareTo(e2.lowerBound);
+            if (c != 0) {
+                return c;
+            }
+            boolean closed1 = (e1.flags & LOWER_CLOSED) != 0;
+            boolean closed2 = (e2.flags & LOWER_CLOSED) != 0;
+            return (closed1 == closed2) ? 0 : (closed1 ? -1 : 1);
+        }
+    };
+}
@@ -0,0 +1,114 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.interval;
+
+import java.util.List;
+
+/**
+ * Lookup table over integer intervals, the bounds are kept in <code>long</code> arrays so a value is resolved without
+ * boxing it.
+ *
+ * @author Canh Ngo
+ */
+public class LongIntervalTable extends IntervalTable {
+
+    private final long[] lowerBounds;
+    private final long[] upperBounds;
+
+    protected LongIntervalTable(final List<Entry> entries, int nullTarget) {
+        super(entries, nullTarget);
+
+        final int size = entries.size();
+        this.lowerBounds = new long[size];
+        this.upperBounds = new long[size];
+        for (int i = 0; i < size; i++) {
+            Entry e = entries.get(i);
+            if (e.lowerBound.getValue() != null) {
+                lowerBounds[i] = ((Number) e.lowerBound.getValue()).longValue();
+            }
+            if (e.upperBound.getValue() != null) {
+                upperBounds[i] = ((Number) e.upperBound.getValue()).longValue();
+            }
+        }
+    }
+
+    @Override
+    public int lookup(final Comparable value) {
+        if (value == null) {
+            return nullTarget;
+        }
+        return lookupLong(((Number) value).longValue());
+    }
+
+    /**
+     * Return the target of the interval containing the value
+     *
+     * @param value
+     * @return {@link #NO_MATCH} if no interval contains the value
+     */
+    public int lookupLong(final long value) {
+        int low = 0;
+        int high = targets.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final byte f = flags[mid];
+
+            if ((f & LOWER_INFINITE) == 0) {
+                final int c = Long.compare(value, lowerBounds[mid]);
+                if (c < 0 || (c == 0 && (f & LOWER_CLOSED) == 0)) {
+                    high = mid - 1;
+                    continue;
+                }
+            }
+            if ((f & UPPER_INFINITE) == 0) {
+                final int c = Long.compare(value, upperBounds[mid]);
+                if (c > 0 || (c == 0 && (f & UPPER_CLOSED) == 0)) {
+                    low = mid + 1;
+                    continue;
+                }
+            }
+            return targets[mid];
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Return the lower bound of the i-th interval, undefined if it is infinite
+     *
+     * @param i
+     * @return
+     */
+    public long getLowerBound(int i) {
+        return lowerBounds[i];
+    }
+
+    /**
+     * Return the upper bound of the i-th interval, undefined if it is infinite
+     *
+     * @param i
+     * @return
+     */
+    public long getUpperBound(int i) {
+        return upperBounds[i];
+    }
+}
@@ -29,6 +29,9 @@ package nl.uva.sne.midd.nodes;
 
 import nl.uva.sne.midd.DecisionType;
 import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.DoubleIntervalTable;
+import nl.uva.sne.midd.interval.IntervalTable;
 import nl.uva.sne.midd.obligations.InternalNodeState;
 
 /**
@@ -54,4 +57,20 @@ public class DoubleNode extends InternalNode<Double> {
     public Class<Double> getType() {
         return Double.class;
     }
+
+    /**
+     * Return an edge to match with input value, the value is not boxed if the edges are indexed.
+     *
+     * @param value
+     * @return null if no matching edge found.
+     * @throws MIDDException
+     */
+    public AbstractEdge<Double> matchDouble(double value) throws MIDDException {
+        IntervalTable index = getEdgeIndex();
+        if (index instanceof DoubleIntervalTable) {
+            int pos = ((DoubleIntervalTable) index).lookupDouble(value);
+            return (pos == IntervalTable.NO_MATCH) ? null : getEdges().get(pos);
+        }
+        return findEdge(value);
+    }
 }
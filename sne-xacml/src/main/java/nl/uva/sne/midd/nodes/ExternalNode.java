@@ -34,17 +34,17 @@ public class ExternalNode extends AbstractNode {
 
     public static final int EXTERNAL_NODE_ID = -1;
 
-    private static ExternalNode instance;
+    /**
+     * Shared true-value node, created eagerly as policies may be parsed by several threads
+     */
+    private static final ExternalNode INSTANCE = new ExternalNode();
 
     public ExternalNode() {
         super(EXTERNAL_NODE_ID);
     }
 
     public static ExternalNode newInstance(){
-        if (instance == null) {
-            instance = new ExternalNode();
-        }
-        return instance;
+        return INSTANCE;
     }
 
     @Override
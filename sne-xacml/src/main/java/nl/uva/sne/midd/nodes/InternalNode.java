@@ -29,6 +29,7 @@ import nl.uva.sne.midd.MIDDException;
 import nl.uva.sne.midd.UnmatchedException;
 import nl.uva.sne.midd.edges.AbstractEdge;
 import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.interval.IntervalTable;
 import nl.uva.sne.midd.obligations.InternalNodeState;
 import nl.uva.sne.midd.util.GenericUtils;
 import org.slf4j.Logger;
@@ -36,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -45,10 +47,17 @@ import java.util.List;
 public abstract class InternalNode<T extends Comparable<T>> extends AbstractNode {
     private static final Logger log = LoggerFactory.getLogger(InternalNode.class);
 
-    private List<AbstractEdge<T>> edges = new ArrayList<>();
+    private final List<AbstractEdge<T>> edges = new EdgeList();
 
     private InternalNodeState state;
 
+    /**
+     * Sorted index over intervals of the out-going edges, mapping to the edge positions. It is built by
+     * {@link #buildEdgeIndex()} once the MIDD is complete and dropped by any change of the edges; without it the edges
+     * are matched by a linear scan.
+     */
+    private volatile IntervalTable edgeIndex;
+
     public InternalNode(int id, DecisionType state) {
         super(id);
         this.state = new InternalNodeState(state);
@@ -160,18 +169,117 @@ public abstract class InternalNode<T extends Comparable<T>> extends AbstractNode
      * @throws nl.uva.sne.midd.UnmatchedException
      */
     public AbstractEdge<T> match(T value) throws UnmatchedException, MIDDException {
-        for (AbstractEdge<T> e : this.edges) {
+        AbstractEdge<T> e = findEdge(value);
+        if (e == null) {
+            throw new UnmatchedException("No matching edge found for value " + value);
+        }
+        return e;
+    }
+
+    /**
+     * Return an edge to match with input value, without raising an exception when there's no matching edge.
+     *
+     * @param value the input value, <code>null</code> if the attribute is missing
+     * @return null if no matching edge found.
+     * @throws MIDDException
+     */
+    public AbstractEdge<T> findEdge(T value) throws MIDDException {
+        IntervalTable index = getEdgeIndex();
+        if (index != null) {
+            int pos = index.lookup(value);
+            return (pos == IntervalTable.NO_MATCH) ? null : this.edges.get(pos);
+        }
+
+        for (int i = 0; i < edges.size(); i++) {
+            AbstractEdge<T> e = edges.get(i);
             if (e.match(value)) {
                 return e;
             }
         }
-        throw new UnmatchedException("No matching edge found for value " + value);
+        return null;
+    }
+
+    /**
+     * Build the sorted index of the edges' intervals. It is called once the MIDD is complete, before the node is
+     * shared between threads, see {@link nl.uva.sne.midd.util.MIDDUtils#buildEdgeIndexes(AbstractNode)}; an indexed
+     * node is not changed. Adding, replacing or removing an edge drops the index, intervals of indexed edges must not
+     * be changed.
+     */
+    public void buildEdgeIndex() {
+        if (edgeIndex != null) {
+            return;
+        }
+        List<Interval<T>> intervals = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < edges.size(); i++) {
+            for (Interval<T> interval : edges.get(i).getIntervals()) {
+                intervals.add(interval);
+                positions.add(i);
+            }
+        }
+        int[] targets = new int[positions.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = positions.get(i);
+        }
+
+        try {
+            edgeIndex = IntervalTable.create(intervals, targets, getType());
+        } catch (MIDDException e) {
+            log.warn("Unable to index edges of node {}, use linear scan: {}", getID(), e.getMessage());
+            edgeIndex = null;
+        }
+    }
+
+    /**
+     * Return the sorted index of the edges' intervals
+     *
+     * @return null if the index has not been built, or the edges have overlapped intervals
+     */
+    protected IntervalTable getEdgeIndex() {
+        return edgeIndex;
     }
 
     public void addAllEdges(List<AbstractEdge<T>> newEdges) {
         this.edges.addAll(newEdges);
     }
 
+    /**
+     * Edges of the node, a change of the list drops the edge index
+     */
+    private final class EdgeList extends AbstractList<AbstractEdge<T>> {
+        private final ArrayList<AbstractEdge<T>> list = new ArrayList<>();
+
+        @Override
+        public AbstractEdge<T> get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public AbstractEdge<T> set(int index, AbstractEdge<T> e) {
+            edgeIndex = null;
+            return list.set(index, e);
+        }
+
+        @Override
+        public void add(int index, AbstractEdge<T> e) {
+            edgeIndex = null;
+            modCount++;
+            list.add(index, e);
+        }
+
+        @Override
+        public AbstractEdge<T> remove(int index) {
+            edgeIndex = null;
+            modCount++;
+            return list.remove(index);
+        }
+    }
+
     @Override
     public void print(OutputStream os) throws MIDDException {
         String strNode = "ID:" + this.getID() + ";" + this.state.getStateIN();
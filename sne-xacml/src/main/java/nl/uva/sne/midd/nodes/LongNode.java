@@ -29,29 +29,46 @@ package nl.uva.sne.midd.nodes;
 
 import nl.uva.sne.midd.DecisionType;
 import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.IntervalTable;
+import nl.uva.sne.midd.interval.LongIntervalTable;
 import nl.uva.sne.midd.obligations.InternalNodeState;
 
 /**
  * @author Canh Ngo
  */
-public class IntegerNode extends InternalNode<Integer> {
+public class LongNode extends InternalNode<Long> {
 
-    public IntegerNode(int id, DecisionType state) {
+    public LongNode(int id, DecisionType state) {
         super(id, state);
     }
 
-    public IntegerNode(int id, InternalNodeState state) {
+    public LongNode(int id, InternalNodeState state) {
         super(id, state);
     }
 
-    public IntegerNode(IntegerNode node) throws MIDDException {
+    public LongNode(LongNode node) throws MIDDException {
         super(node);
     }
 
     @Override
-    public Class<Integer> getType() {
-        return Integer.class;
+    public Class<Long> getType() {
+        return Long.class;
     }
 
-
+    /**
+     * Return an edge to match with input value, the value is not boxed if the edges are indexed.
+     *
+     * @param value
+     * @return null if no matching edge found.
+     * @throws MIDDException
+     */
+    public AbstractEdge<Long> matchLong(long value) throws MIDDException {
+        IntervalTable index = getEdgeIndex();
+        if (index instanceof LongIntervalTable) {
+            int pos = ((LongIntervalTable) index).lookupLong(value);
+            return (pos == IntervalTable.NO_MATCH) ? null : getEdges().get(pos);
+        }
+        return findEdge(value);
+    }
 }
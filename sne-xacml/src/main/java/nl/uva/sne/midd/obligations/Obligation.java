@@ -33,6 +33,23 @@ public class Obligation {
         obligationId = id;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Obligation)) {
+            return false;
+        }
+        Obligation other = (Obligation) obj;
+        return (obligationId == null) ? other.obligationId == null : obligationId.equals(other.obligationId);
+    }
+
+    @Override
+    public int hashCode() {
+        return (obligationId == null) ? 0 : obligationId.hashCode();
+    }
+
     @Override
     public String toString() {
         return this.obligationId;
@@ -47,7 +47,7 @@ public class EdgeUtils {
      */
     private static final Map<Class<? extends  Comparable>, Class<? extends AbstractEdge>> MAP_EDGE_TYPES = new HashMap<>();
     static{
-        MAP_EDGE_TYPES.put(Integer.class, IntegerEdge.class);
+        MAP_EDGE_TYPES.put(Long.class, LongEdge.class);
         MAP_EDGE_TYPES.put(Double.class, DoubleEdge.class);
         MAP_EDGE_TYPES.put(String.class, StringEdge.class);
         MAP_EDGE_TYPES.put(AnyURI.class, AnyURIEdge.class);
@@ -74,7 +74,7 @@ public class EdgeUtils {
      * @see nl.uva.sne.midd.edges.BooleanEdge
      * @see nl.uva.sne.midd.edges.DateTimeEdge
      * @see nl.uva.sne.midd.edges.DoubleEdge
-     * @see nl.uva.sne.midd.edges.IntegerEdge
+     * @see nl.uva.sne.midd.edges.LongEdge
      * @see nl.uva.sne.midd.edges.StringEdge
      */
     public static AbstractEdge<?> createEdge(Interval interval, Class<?> clsDataType) throws MIDDException {
@@ -22,15 +22,19 @@
  */
 package nl.uva.sne.midd.util;
 
+import nl.uva.sne.midd.AttributeVector;
 import nl.uva.sne.midd.Decision;
 import nl.uva.sne.midd.MIDDException;
-import nl.uva.sne.midd.UnmatchedException;
 import nl.uva.sne.midd.Variable;
+import nl.uva.sne.midd.compiled.CompiledMIDD;
 import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.IntervalTable;
 import nl.uva.sne.midd.nodes.AbstractNode;
 import nl.uva.sne.midd.nodes.InternalNode;
 import nl.uva.sne.xacml.ExternalNode3;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -52,24 +56,22 @@ public class EvaluationUtils {
         while (currentNode instanceof InternalNode) {
             InternalNode currentInternalNode = (InternalNode) currentNode;
 
-            Variable<?> currentVar = null;
-            // attribute not found:
-            if (!variables.containsKey(currentInternalNode.getID())) {
-                // create a null variable
-                currentVar = createVariable(currentInternalNode.getID(), null, currentInternalNode.getType());
-            } else {
-                currentVar = variables.get(currentInternalNode.getID());
-            }
-
-            if (currentVar.getType() != currentInternalNode.getType()) {
-                throw new RuntimeException("Error evaluation, either tree or values have error: same attribute with different variable identifiers");
+            Variable<?> currentVar = variables.get(currentInternalNode.getID());
+            Comparable<?> value = null;
+            // a missing attribute is matched with null value
+            if (currentVar != null) {
+                if (currentVar.getType() != currentInternalNode.getType()) {
+                    throw new RuntimeException("Error evaluation, either tree or values have error: same attribute with different variable identifiers");
+                }
+                value = currentVar.getValue();
             }
 
             try {
-                AbstractEdge<?> e = currentInternalNode.match(currentVar.getValue());
+                AbstractEdge<?> e = currentInternalNode.findEdge(value);
+                if (e == null) {
+                    return currentInternalNode.buildDecision();
+                }
                 currentNode = e.getSubDiagram();
-            } catch (UnmatchedException ex) {
-                return currentInternalNode.buildDecision();
             } catch (MIDDException e) {
                 throw new RuntimeException(e);
             }
@@ -81,7 +83,169 @@ public class EvaluationUtils {
         return ((ExternalNode3) currentNode).buildDecision();
     }
 
-    private static <T extends Comparable<T>> Variable<?> createVariable(int id, T value, Class<T> type) {
-        return new Variable<>(id, value, type);
+    /**
+     * Evaluate a map of attributes (from id to variable) against a compiled MIDD.
+     *
+     * @param midd      the flat representation of the MIDD
+     * @param variables vector of attributes, starting from x0. If there's missing any attribute, its value is null.
+     * @return The decision of the reached leaf, or the state of the node where no matching edge is found.
+     * @see nl.uva.sne.midd.compiled.MIDDCompiler
+     */
+    public static Decision eval(CompiledMIDD midd, Map<Integer, Variable<?>> variables) {
+        int ref = midd.getRoot();
+
+        while (!CompiledMIDD.isLeaf(ref)) {
+            Variable<?> currentVar = variables.get(midd.getVariableId(ref));
+
+            Comparable<?> value = null;
+            if (currentVar != null) {
+                value = currentVar.getValue();
+                if (value != null && value.getClass() != midd.getType(ref)) {
+                    throw new RuntimeException("Error evaluation, either tree or values have error: same attribute with different variable identifiers");
+                }
+            }
+
+            int child = midd.match(ref, value);
+            if (child == IntervalTable.NO_MATCH) {
+                return midd.getDecision(ref);
+            }
+            ref = child;
+        }
+
+        return midd.getLeafDecision(ref);
+    }
+
+    /**
+     * Evaluate a vector of attributes against a compiled MIDD. Integer and double attributes are matched without
+     * boxing their values.
+     *
+     * @param midd       the flat representation of the MIDD
+     * @param attributes vector of attributes indexed by variable identifiers, a missing attribute is not set.
+     * @return The decision of the reached leaf, or the state of the node where no matching edge is found.
+     * @throws IllegalArgumentException if a variable is a bag
+     */
+    public static Decision eval(CompiledMIDD midd, AttributeVector attributes) {
+        if (attributes.hasBags()) {
+            throw new IllegalArgumentException("Attributes must have a single value");
+        }
+        int ref = midd.getRoot();
+
+        while (!CompiledMIDD.isLeaf(ref)) {
+            int child = match(midd, ref, attributes);
+            if (child == IntervalTable.NO_MATCH) {
+                return midd.getDecision(ref);
+            }
+            ref = child;
+        }
+
+        return midd.getLeafDecision(ref);
+    }
+
+    /**
+     * Evaluate several vectors of attributes against a compiled MIDD in a single walk. The vectors follow one path
+     * while the visited nodes test shared variables, which have the same value in all vectors; at a node testing a
+     * varying variable, the vectors are grouped by the matched edge and each group continues on its own path.
+     *
+     * @param midd       the flat representation of the MIDD
+     * @param requests   vectors of attributes of the individual requests
+     * @param count      number of vectors to evaluate, from the first one
+     * @param varying    variables whose values may differ between the vectors
+     * @param results    decisions of the vectors, in the same order
+     */
+    public static void eval(CompiledMIDD midd, AttributeVector[] requests, int count, BitSet varying, Decision[] results) {
+        if (count > requests.length || count > results.length) {
+            throw new IllegalArgumentException("Number of requests must not exceed the length of the arrays");
+        }
+        if (count == 0) {
+            return;
+        }
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        eval(midd, midd.getRoot(), requests, varying, indices, new int[count], new long[count], 0, count, results);
+    }
+
+    /**
+     * Evaluate the vectors of <code>indices[from..to)</code> from the node <code>ref</code>
+     */
+    private static void eval(CompiledMIDD midd, int ref, AttributeVector[] requests, BitSet varying,
+                             int[] indices, int[] children, long[] keys, int from, int to, Decision[] results) {
+        while (!CompiledMIDD.isLeaf(ref)) {
+            if (to - from == 1 || !varying.get(midd.getVariableId(ref))) {
+                int child = match(midd, ref, requests[indices[from]]);
+                if (child == IntervalTable.NO_MATCH) {
+                    setDecision(midd.getDecision(ref), indices, from, to, results);
+                    return;
+                }
+                ref = child;
+                continue;
+            }
+
+            // branch: group the vectors by their matched edges
+            for (int i = from; i < to; i++) {
+                children[i] = match(midd, ref, requests[indices[i]]);
+            }
+            sort(indices, children, keys, from, to);
+
+            int start = from;
+            while (start < to) {
+                final int child = children[start];
+                int end = start + 1;
+                while (end < to && children[end] == child) {
+                    end++;
+                }
+                if (child == IntervalTable.NO_MATCH) {
+                    setDecision(midd.getDecision(ref), indices, start, end, results);
+                } else {
+                    eval(midd, child, requests, varying, indices, children, keys, start, end, results);
+                }
+                start = end;
+            }
+            return;
+        }
+
+        setDecision(midd.getLeafDecision(ref), indices, from, to, results);
+    }
+
+    /**
+     * Return the child of the node matching the value of its variable in the vector
+     */
+    private static int match(CompiledMIDD midd, int ref, AttributeVector attributes) {
+        final int varId = midd.getVariableId(ref);
+        final Class<?> type = midd.getType(ref);
+
+        if (!attributes.isPresent(varId)) {
+            return midd.match(ref, null);
+        } else if (attributes.getType(varId) != type) {
+            throw new RuntimeException("Error evaluation, either tree or values have error: same attribute with different variable identifiers");
+        } else if (type == Long.class) {
+            return midd.matchLong(ref, attributes.getLong(varId));
+        } else if (type == Double.class) {
+            return midd.matchDouble(ref, attributes.getDouble(varId));
+        } else {
+            return midd.match(ref, attributes.get(varId));
+        }
+    }
+
+    private static void setDecision(Decision decision, int[] indices, int from, int to, Decision[] results) {
+        for (int i = from; i < to; i++) {
+            results[indices[i]] = decision;
+        }
+    }
+
+    /**
+     * Sort <code>indices[from..to)</code> by their children in O(N log N): each pair is packed in a long, the child in
+     * the high bits, and the keys are sorted as primitives. Vectors of the same child keep their order.
+     */
+    private static void sort(int[] indices, int[] children, long[] keys, int from, int to) {
+        for (int i = from; i < to; i++) {
+            keys[i] = ((long) children[i] << 32) | (indices[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(keys, from, to);
+        for (int i = from; i < to; i++) {
+            children[i] = (int) (keys[i] >> 32);
+            indices[i] = (int) keys[i];
+        }
     }
 }
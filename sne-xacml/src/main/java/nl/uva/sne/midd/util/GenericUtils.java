@@ -26,6 +26,11 @@ import nl.uva.sne.midd.MIDDException;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @author Canh Ngo
@@ -33,12 +38,23 @@ import java.lang.reflect.InvocationTargetException;
  */
 public class GenericUtils {
 
+    /**
+     * Immutable types, their values are shared instead of being copied
+     */
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class));
+
     @SuppressWarnings("unchecked")
     public static <T> T newInstance(final T value, Class<?> clsType) throws MIDDException {
         if (value == null) {
             throw new MIDDException("Cannot copy null value");
         }
 
+        if (IMMUTABLE_TYPES.contains(clsType) || clsType.isEnum()) {
+            return value;
+        }
+
         Constructor<?> copyConstructor = null;
         try {
             copyConstructor = clsType.getConstructor(clsType);
@@ -25,6 +25,8 @@ import nl.uva.sne.midd.interval.Interval;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.DoubleStream;
 
@@ -69,4 +71,91 @@ public class IntervalUtils {
     public static List<Interval<?>> complement(final Interval interval) throws MIDDException {
         return complement(Arrays.asList(interval));
     }
+
+    /**
+     * Return the intersection of two intervals
+     *
+     * @param i1
+     * @param i2
+     * @return the intersection, or null if the intervals are disjoint
+     */
+    public static <T extends Comparable<T>> Interval<T> intersect(Interval<T> i1, Interval<T> i2) throws MIDDException {
+        int c = i1.getLowerBound().compareTo(i2.getLowerBound());
+        final Interval<T> lower = (c > 0 || (c == 0 && !i1.isLowerBoundClosed())) ? i1 : i2;
+        c = i1.getUpperBound().compareTo(i2.getUpperBound());
+        final Interval<T> upper = (c < 0 || (c == 0 && !i1.isUpperBoundClosed())) ? i1 : i2;
+
+        Interval<T> result = new Interval<>(lower.getLowerBound(), upper.getUpperBound(),
+                lower.isLowerBoundClosed(), upper.isUpperBoundClosed());
+        return result.validate() ? result : null;
+    }
+
+    /**
+     * Return the intersection of two lists of disjoint intervals
+     *
+     * @param l1
+     * @param l2
+     * @return the disjoint intervals in both lists, sorted by their lower bounds
+     */
+    public static <T extends Comparable<T>> List<Interval<T>> intersect(List<Interval<T>> l1, List<Interval<T>> l2) throws MIDDException {
+        List<Interval<T>> result = new ArrayList<>();
+        for (Interval<T> i1 : l1) {
+            for (Interval<T> i2 : l2) {
+                Interval<T> i = intersect(i1, i2);
+                if (i != null) {
+                    result.add(i);
+                }
+            }
+        }
+        return union(result);
+    }
+
+    /**
+     * Return the union of intervals as disjoint intervals: overlapping and adjacent intervals are merged.
+     *
+     * @param intervals
+     * @return the disjoint intervals sorted by their lower bounds
+     */
+    public static <T extends Comparable<T>> List<Interval<T>> union(List<Interval<T>> intervals) throws MIDDException {
+        List<Interval<T>> sorted = new ArrayList<>(intervals);
+        Collections.sort(sorted, new Comparator<Interval<T>>() {
+            @Override
+            public int compare(Interval<T> i1, Interval<T> i2) {
+                try {
+                    int c = i1.getLowerBound().compareTo(i2.getLowerBound());
+                    if (c == 0 && i1.isLowerBoundClosed() != i2.isLowerBoundClosed()) {
+                        c = i1.isLowerBoundClosed() ? -1 : 1;
+                    }
+                    return c;
+                } catch (MIDDException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        List<Interval<T>> result = new ArrayList<>();
+        Interval<T> current = null;
+        for (Interval<T> i : sorted) {
+            if (current == null) {
+                current = new Interval<>(i);
+                continue;
+            }
+            int c = current.getUpperBound().compareTo(i.getLowerBound());
+            if (c > 0 || (c == 0 && (current.isUpperBoundClosed() || i.isLowerBoundClosed()))) {
+                // overlapping or adjacent, extend the current interval
+                int u = current.getUpperBound().compareTo(i.getUpperBound());
+                if (u < 0 || (u == 0 && i.isUpperBoundClosed())) {
+                    current = new Interval<>(current.getLowerBound(), i.getUpperBound(),
+                            current.isLowerBoundClosed(), i.isUpperBoundClosed());
+                }
+            } else {
+                result.add(current);
+                current = new Interval<>(i);
+            }
+        }
+        if (current != null) {
+            result.add(current);
+        }
+        return result;
+    }
 }
@@ -27,7 +27,9 @@ import nl.uva.sne.midd.edges.AbstractEdge;
 import nl.uva.sne.midd.nodes.AbstractNode;
 import nl.uva.sne.midd.nodes.InternalNode;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.Stack;
@@ -56,4 +58,30 @@ public class MIDDUtils {
         }
         return nodes.size();
     }
+
+    /**
+     * Build the edge indexes of the internal nodes of a complete MIDD, see {@link InternalNode#buildEdgeIndex()}. A
+     * sub-diagram shared by several edges is indexed once.
+     *
+     * @param midd
+     * @throws MIDDException
+     */
+    @SuppressWarnings("rawtypes")
+    public static void buildEdgeIndexes(AbstractNode midd) throws MIDDException {
+        Set<AbstractNode> visited = Collections.newSetFromMap(new IdentityHashMap<AbstractNode, Boolean>());
+        Stack<AbstractNode> stackNodes = new Stack<AbstractNode>();
+        stackNodes.push(midd);
+
+        while (!stackNodes.empty()) {
+            AbstractNode n = stackNodes.pop();
+            if (!(n instanceof InternalNode) || !visited.add(n)) {
+                continue;
+            }
+            InternalNode node = (InternalNode) n;
+            node.buildEdgeIndex();
+            for (Object e : node.getEdges()) {
+                stackNodes.push(((AbstractEdge) e).getSubDiagram());
+            }
+        }
+    }
 }
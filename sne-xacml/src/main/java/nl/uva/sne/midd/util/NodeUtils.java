@@ -47,7 +47,7 @@ public class NodeUtils {
     private static final Map<Class<? extends  Comparable>, Class<? extends InternalNode>> MAP_NODE_TYPES = new HashMap<>();
 
     static{
-        MAP_NODE_TYPES.put(Integer.class, IntegerNode.class);
+        MAP_NODE_TYPES.put(Long.class, LongNode.class);
         MAP_NODE_TYPES.put(Double.class, DoubleNode.class);
         MAP_NODE_TYPES.put(String.class, StringNode.class);
         MAP_NODE_TYPES.put(AnyURI.class, AnyURINode.class);
@@ -69,7 +69,7 @@ public class NodeUtils {
      * @see BooleanNode
      * @see DateTimeNode
      * @see DoubleNode
-     * @see IntegerNode
+     * @see LongNode
      * @see StringNode
      *
      */
@@ -0,0 +1,113 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Partial evaluation of a MIDD: variables whose values are known are fixed, the result is a residual MIDD over the
+ * other variables. Evaluating the residual MIDD with the unknown variables gives the same decision as evaluating the
+ * MIDD with all of them.
+ * <p/>
+ * The input MIDD is not modified: a node testing a known variable is replaced by the residual of its matched child, or
+ * by its state if no edge matches; the other nodes are copied. Sub-diagrams shared in the MIDD are shared in the
+ * residual MIDD, and copied nodes are reduced by {@link ReductionUtils#reduceNode(InternalNode)}.
+ *
+ * @author Canh Ngo
+ */
+public class PartialEvaluationUtils {
+
+    private final AttributeVector known;
+
+    private final Map<AbstractNode, AbstractNode> residuals = new IdentityHashMap<>();
+
+    private PartialEvaluationUtils(AttributeVector known) {
+        this.known = known;
+    }
+
+    /**
+     * Create the residual MIDD of the known variables
+     *
+     * @param midd
+     * @param known values of the known variables, a variable that is not set is unknown
+     * @return the residual MIDD, an external node if the decision does not depend on unknown variables
+     * @throws MIDDException if a known value has a different type from the variable in the MIDD
+     * @throws IllegalArgumentException if a known variable is a bag
+     */
+    public static AbstractNode partialEval(AbstractNode midd, AttributeVector known) throws MIDDException {
+        if (midd == null || known == null) {
+            throw new IllegalArgumentException("MIDD and known attributes must not be null");
+        }
+        if (known.hasBags()) {
+            throw new IllegalArgumentException("Known attributes must not be bags");
+        }
+        return new PartialEvaluationUtils(known).residual(midd);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private AbstractNode residual(AbstractNode n) throws MIDDException {
+        AbstractNode r = residuals.get(n);
+        if (r != null) {
+            return r;
+        }
+
+        if (!(n instanceof InternalNode)) {
+            r = n;
+        } else {
+            InternalNode node = (InternalNode) n;
+            final int varId = node.getID();
+            if (known.isPresent(varId)) {
+                if (known.getType(varId) != node.getType()) {
+                    throw new MIDDException("Value of variable " + varId + " has type " + known.getType(varId).getName() +
+                            " instead of " + node.getType().getName());
+                }
+                AbstractEdge<?> e = node.findEdge(known.get(varId));
+                r = (e == null) ? node.getState().getExternalNode() : residual(e.getSubDiagram());
+            } else {
+                r = copy(node);
+            }
+        }
+
+        residuals.put(n, r);
+        return r;
+    }
+
+    /**
+     * Copy a node testing an unknown variable, with residual children
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private AbstractNode copy(InternalNode<?> node) throws MIDDException {
+        InternalNode copy = NodeUtils.createInternalNode(node, node.getType());
+        for (AbstractEdge<?> e : node.getEdges()) {
+            copy.addChild(EdgeUtils.createEdge(e.getIntervals(), node.getType()), residual(e.getSubDiagram()));
+        }
+        return ReductionUtils.reduceNode(copy);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.EndPoint;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.xacml.ExternalNode3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reverse queries on a MIDD: with the values of all variables but one given, find the values of that variable which
+ * lead to Permit. It allows filtering a listing, e.g. of resource identifiers, by one traversal of the MIDD instead of
+ * one evaluation per item.
+ * <p/>
+ * Each node is visited once: the permitted intervals of a node are the intervals of its edges intersected with the
+ * permitted intervals of their children. Other variables are matched as in {@link EvaluationUtils}, a missing one
+ * leads to the state of the node. Obligations of the Permit decisions are not returned.
+ *
+ * @author Canh Ngo
+ */
+public class QueryUtils {
+
+    private final AttributeVector attributes;
+
+    private final int varId;
+
+    private final Map<AbstractNode, List<Interval<?>>> permitted = new IdentityHashMap<>();
+
+    private QueryUtils(AttributeVector attributes, int varId) {
+        this.attributes = attributes;
+        this.varId = varId;
+    }
+
+    /**
+     * Return the values of a variable leading to Permit
+     *
+     * @param midd
+     * @param attributes values of the other variables, the value of the queried variable is ignored
+     * @param varId      the queried variable
+     * @return disjoint intervals sorted by their lower bounds, an empty list if no value leads to Permit
+     * @throws MIDDException if a value has a different type from the variable in the MIDD
+     * @throws IllegalArgumentException if a variable is a bag
+     */
+    public static List<Interval<?>> permittedIntervals(AbstractNode midd, AttributeVector attributes, int varId) throws MIDDException {
+        if (midd == null || attributes == null) {
+            throw new IllegalArgumentException("MIDD and attributes must not be null");
+        }
+        if (attributes.hasBags()) {
+            throw new IllegalArgumentException("Attributes must not be bags");
+        }
+        return Collections.unmodifiableList(new QueryUtils(attributes, varId).permitted(midd));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Interval<?>> permitted(AbstractNode n) throws MIDDException {
+        List<Interval<?>> result = permitted.get(n);
+        if (result != null) {
+            return result;
+        }
+
+        if (!(n instanceof InternalNode)) {
+            result = permitted((ExternalNode3) n);
+        } else {
+            InternalNode node = (InternalNode) n;
+            final int id = node.getID();
+            if (id == varId) {
+                result = query(node);
+            } else if (!attributes.isPresent(id)) {
+                result = permitted(node.getState().getExternalNode());
+            } else {
+                if (attributes.getType(id) != node.getType()) {
+                    throw new MIDDException("Value of variable " + id + " has type " + attributes.getType(id).getName() +
+                            " instead of " + node.getType().getName());
+                }
+                AbstractEdge<?> e = node.findEdge(attributes.get(id));
+                result = permitted((e == null) ? node.getState().getExternalNode() : e.getSubDiagram());
+            }
+        }
+
+        permitted.put(n, result);
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Interval<?>> permitted(ExternalNode3 leaf) throws MIDDException {
+        if (leaf.getDecision() != DecisionType.Permit) {
+            return Collections.emptyList();
+        }
+        List<Interval<?>> all = new ArrayList<>();
+        all.add(new Interval(new EndPoint(EndPoint.Infinity.NEGATIVE), new EndPoint(EndPoint.Infinity.POSITIVE)));
+        return all;
+    }
+
+    /**
+     * Permitted intervals of a node testing the queried variable
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Interval<?>> query(InternalNode<?> node) throws MIDDException {
+        List result = new ArrayList<>();
+        for (AbstractEdge<?> e : node.getEdges()) {
+            List child = permitted(e.getSubDiagram());
+            if (!child.isEmpty()) {
+                result.addAll(IntervalUtils.intersect((List) e.getIntervals(), child));
+            }
+        }
+
+        // values matching no edge lead to the state
+        List state = permitted(node.getState().getExternalNode());
+        if (!state.isEmpty()) {
+            result.addAll(IntervalUtils.complement(node.getIntervals()));
+        }
+        return IntervalUtils.union(result);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.util;
+
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.builders.UniqueTable;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.xacml.ExternalNode3;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduction of MIDDs: edges of a node leading to the same child are merged into one edge whose overlapping and
+ * adjacent intervals are joined, and a node that does not discriminate, i.e. every value and a missing value lead to
+ * the same decision, is replaced by that decision. The reduced MIDD gives the same decisions as the input MIDD.
+ *
+ * @author Canh Ngo
+ */
+public class ReductionUtils {
+
+    /**
+     * Reduce a node whose children are already reduced. The node is not modified, a reduced copy is returned if its
+     * edges can be merged.
+     *
+     * @param node
+     * @return the node itself if it is reduced, a copy with merged edges, or the external node replacing it
+     * @throws MIDDException
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static AbstractNode reduceNode(InternalNode<?> node) throws MIDDException {
+        // intervals grouped by child, in the order of edges
+        List<AbstractNode> children = new ArrayList<>();
+        List<List<Interval>> intervals = new ArrayList<>();
+        boolean merged = false;
+        for (AbstractEdge<?> e : node.getEdges()) {
+            AbstractNode child = e.getSubDiagram();
+            int i = 0;
+            while (i < children.size() && children.get(i) != child) {
+                i++;
+            }
+            if (i == children.size()) {
+                children.add(child);
+                intervals.add(new ArrayList<Interval>());
+            } else {
+                merged = true;
+            }
+            intervals.get(i).addAll(e.getIntervals());
+        }
+
+        // any value, or a missing one, leads to the same decision
+        if (children.isEmpty()) {
+            return node.getState().getExternalNode();
+        }
+        if (children.size() == 1 && children.get(0) instanceof ExternalNode3 &&
+                ((ExternalNode3) children.get(0)).buildDecision().equals(node.buildDecision())) {
+            return children.get(0);
+        }
+
+        for (int i = 0; i < intervals.size(); i++) {
+            List<Interval> union = IntervalUtils.union((List) intervals.get(i));
+            if (union.size() < intervals.get(i).size()) {
+                intervals.set(i, union);
+                merged = true;
+            }
+        }
+        if (!merged) {
+            return node;
+        }
+
+        InternalNode copy = NodeUtils.createInternalNode(node, node.getType());
+        for (int i = 0; i < children.size(); i++) {
+            copy.addChild(EdgeUtils.createEdge(intervals.get(i), node.getType()), children.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Reduce a MIDD bottom-up. The input MIDD is not modified; equal sub-diagrams of the result are shared, so edges
+     * leading to equal sub-diagrams are merged as well.
+     *
+     * @param midd
+     * @return the reduced MIDD, an external node if the decision does not depend on any variable
+     * @throws MIDDException
+     */
+    public static AbstractNode reduce(AbstractNode midd) throws MIDDException {
+        if (midd == null) {
+            throw new IllegalArgumentException("MIDD argument must not be null");
+        }
+        return reduce(midd, new UniqueTable(), new IdentityHashMap<AbstractNode, AbstractNode>());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static AbstractNode reduce(AbstractNode n, UniqueTable nodes, Map<AbstractNode, AbstractNode> reduced) throws MIDDException {
+        AbstractNode r = reduced.get(n);
+        if (r != null) {
+            return r;
+        }
+
+        if (n instanceof InternalNode) {
+            InternalNode node = (InternalNode) n;
+            InternalNode copy = NodeUtils.createInternalNode(node, node.getType());
+            for (AbstractEdge<?> e : (List<AbstractEdge<?>>) node.getEdges()) {
+                copy.addChild(EdgeUtils.createEdge(e.getIntervals(), node.getType()),
+                        reduce(e.getSubDiagram(), nodes, reduced));
+            }
+            r = nodes.intern(reduceNode(copy));
+        } else {
+            r = nodes.intern(n);
+        }
+
+        reduced.put(n, r);
+        return r;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import java.util.Map;
+
+/**
+ * Immutable table from attributes to variable identifiers using a perfect hash: the table size and the hash multiplier
+ * are searched so that every key has its own slot, and a lookup is a single probe and one comparison of the attribute
+ * parts. If no such multiplier is found (e.g. keys with the same hash code), keys are placed by linear probing.
+ *
+ * @author Canh Ngo
+ */
+final class AttributeIdTable {
+
+    /**
+     * Number of multipliers tried for a table size before doubling it
+     */
+    private static final int MAX_ATTEMPTS = 64;
+
+    /**
+     * Number of times the table size is doubled while searching for a perfect hash
+     */
+    private static final int MAX_GROWTHS = 3;
+
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final AttributeKey[] keys;
+
+    private final int[] values;
+
+    private final int multiplier;
+
+    private final int shift;
+
+    private AttributeIdTable(AttributeKey[] keys, int[] values, int multiplier, int shift) {
+        this.keys = keys;
+        this.values = values;
+        this.multiplier = multiplier;
+        this.shift = shift;
+    }
+
+    /**
+     * Build the table, searching for a multiplier that maps every key to a distinct slot.
+     *
+     * @param map
+     * @return
+     */
+    static AttributeIdTable create(Map<AttributeKey, Integer> map) {
+        int bits = 1;
+        while ((1 << bits) < 2 * map.size()) {
+            bits++;
+        }
+
+        for (int growth = 0; growth <= MAX_GROWTHS; growth++) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                AttributeIdTable table = place(map, bits + growth, GOLDEN_RATIO * (2 * attempt + 1), false);
+                if (table != null) {
+                    return table;
+                }
+            }
+        }
+        return place(map, bits, GOLDEN_RATIO, true);
+    }
+
+    /**
+     * Place the keys into a table of <code>2^bits</code> slots.
+     *
+     * @param map
+     * @param bits
+     * @param multiplier
+     * @param probing    if false, return null when two keys have the same slot; otherwise place the key in the next free
+     *                   slot
+     * @return
+     */
+    private static AttributeIdTable place(Map<AttributeKey, Integer> map, int bits, int multiplier, boolean probing) {
+        final int size = 1 << bits;
+        final int shift = 32 - bits;
+        AttributeKey[] keys = new AttributeKey[size];
+        int[] values = new int[size];
+
+        for (Map.Entry<AttributeKey, Integer> e : map.entrySet()) {
+            int slot = slot(e.getKey().hashCode(), multiplier, shift);
+            while (keys[slot] != null) {
+                if (!probing) {
+                    return null;
+                }
+                slot = (slot + 1) & (size - 1);
+            }
+            keys[slot] = e.getKey();
+            values[slot] = e.getValue();
+        }
+        return new AttributeIdTable(keys, values, multiplier, shift);
+    }
+
+    private static int slot(int hash, int multiplier, int shift) {
+        return (hash * multiplier) >>> shift;
+    }
+
+    /**
+     * Return the variable identifier of the attribute with the given parts
+     *
+     * @param category
+     * @param attributeId
+     * @param dataType
+     * @param issuer
+     * @return -1 if the attribute is not in the table
+     */
+    int get(String category, String attributeId, String dataType, String issuer) {
+        if (attributeId == null || dataType == null) {
+            return -1;
+        }
+        int slot = slot(AttributeKey.hash(category, attributeId, dataType, issuer), multiplier, shift);
+        AttributeKey key;
+        while ((key = keys[slot]) != null) {
+            if (key.matches(category, attributeId, dataType, issuer)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+/**
+ * Identity of an attribute: its category, attribute identifier, data type and issuer. The category and issuer are
+ * optional: a designator without them matches the attribute of any category or issuer. The hash code is computed
+ * once, at construction.
+ *
+ * @author Canh Ngo
+ */
+public final class AttributeKey implements Comparable<AttributeKey> {
+
+    private final String category;
+
+    private final String attributeId;
+
+    private final String dataType;
+
+    private final String issuer;
+
+    private final int hash;
+
+    public AttributeKey(String category, String attributeId, String dataType, String issuer) {
+        if (attributeId == null || dataType == null) {
+            throw new IllegalArgumentException("Attribute identifier and data type must not be null");
+        }
+        this.category = category;
+        this.attributeId = attributeId;
+        this.dataType = dataType;
+        this.issuer = issuer;
+        this.hash = hash(category, attributeId, dataType, issuer);
+    }
+
+    public AttributeKey(String category, String attributeId, String dataType) {
+        this(category, attributeId, dataType, null);
+    }
+
+    /**
+     * Compute the hash code of the attribute key with the given parts, without creating it.
+     *
+     * @param category
+     * @param attributeId
+     * @param dataType
+     * @param issuer
+     * @return
+     */
+    static int hash(String category, String attributeId, String dataType, String issuer) {
+        int h = attributeId.hashCode();
+        h = 31 * h + (category == null ? 0 : category.hashCode());
+        h = 31 * h + dataType.hashCode();
+        h = 31 * h + (issuer == null ? 0 : issuer.hashCode());
+        return h;
+    }
+
+    /**
+     * Return true if the key has the given parts
+     *
+     * @param category
+     * @param attributeId
+     * @param dataType
+     * @param issuer
+     * @return
+     */
+    boolean matches(String category, String attributeId, String dataType, String issuer) {
+        return this.attributeId.equals(attributeId) && equals(this.category, category) &&
+                this.dataType.equals(dataType) && equals(this.issuer, issuer);
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return (s1 == null) ? s2 == null : s1.equals(s2);
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getAttributeId() {
+        return attributeId;
+    }
+
+    public String getDataType() {
+        return dataType;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AttributeKey)) {
+            return false;
+        }
+        AttributeKey other = (AttributeKey) obj;
+        return hash == other.hash && matches(other.category, other.attributeId, other.dataType, other.issuer);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Order by attribute identifier, then category, data type and issuer.
+     *
+     * @param o
+     * @return
+     */
+    @Override
+    public int compareTo(AttributeKey o) {
+        int c = attributeId.compareTo(o.attributeId);
+        if (c == 0) {
+            c = compare(category, o.category);
+        }
+        if (c == 0) {
+            c = dataType.compareTo(o.dataType);
+        }
+        if (c == 0) {
+            c = compare(issuer, o.issuer);
+        }
+        return c;
+    }
+
+    /**
+     * Compare two optional parts, a missing one comes first
+     */
+    private static int compare(String s1, String s2) {
+        if (s1 == null || s2 == null) {
+            return (s1 == s2) ? 0 : (s1 == null ? -1 : 1);
+        }
+        return s1.compareTo(s2);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        if (category != null) {
+            buf.append(category).append(':');
+        }
+        buf.append(attributeId).append('#').append(dataType);
+        if (issuer != null) {
+            buf.append('@').append(issuer);
+        }
+        return buf.toString();
+    }
+}
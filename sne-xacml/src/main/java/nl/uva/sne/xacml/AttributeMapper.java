@@ -32,88 +32,222 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Mapping from a string-based attribute identifier in XACML policies to the number-based variable identifier in MIDD
- * structure
+ * Mapping from attributes in XACML policies, identified by {@link AttributeKey}, to the number-based variable
+ * identifier in MIDD structure.
+ * <p/>
+ * Once the policies have been parsed, the mapper is frozen: no attribute can be added anymore and lookups go through an
+ * immutable perfect hash table, so the mapper can be read by concurrent requests. Before it is frozen, adding and
+ * looking up attributes is synchronized, so the mapper can be shared by threads parsing the policies.
  */
 public class AttributeMapper {
 
-    private Map<String, Integer> attributeMapper = null;
+    private Map<AttributeKey, Integer> attributeMapper = null;
 
     private int varIdCounter = 0;
 
+    /**
+     * Read-only table, not null when the mapper is frozen
+     */
+    private AttributeIdTable frozenTable = null;
+
+    /**
+     * Variables matching request attributes, not null when the mapper is frozen
+     */
+    private AttributeMatchTable matchTable = null;
+
+    /**
+     * Attributes indexed by variable identifiers, not null when the mapper is frozen
+     */
+    private AttributeKey[] attributes = null;
+
     public AttributeMapper() {
-        attributeMapper = new HashMap<String, Integer>();
+        attributeMapper = new HashMap<AttributeKey, Integer>();
         varIdCounter = 0;
     }
 
     /**
-     * Add a new attribute-id to the map, return the variable id. If the attribute existed, throws exception
+     * Add a new attribute to the map, return the variable id. If the attribute existed, return its variable id.
      *
-     * @param attrId
+     * @param attr
      * @return
-     * @throws MIDDParsingException
+     * @throws IllegalStateException if the mapper is frozen
      */
-    public int addAttribute(String attrId) {
-        if (attributeMapper.containsKey(attrId)) {
-            return attributeMapper.get(attrId);        // attribute-id has existed
+    public synchronized int addAttribute(AttributeKey attr) {
+        if (frozenTable != null) {
+            throw new IllegalStateException("Cannot add attribute '" + attr + "' to a frozen attribute mapper");
+        }
+        if (attributeMapper.containsKey(attr)) {
+            return attributeMapper.get(attr);        // attribute has existed
         }
 
-        attributeMapper.put(attrId, varIdCounter);
+        attributeMapper.put(attr, varIdCounter);
         varIdCounter++;
-        return attributeMapper.get(attrId);
+        return attributeMapper.get(attr);
     }
 
     /*
-     * Return the variable identifier from the attribute-id
+     * Return the variable identifier of the attribute
      */
-    public int getVariableId(String attrId) throws MIDDParsingException {
-        if (!attributeMapper.containsKey(attrId)) {
-            throw new MIDDParsingException("Attribute '" + attrId + "' not found");
+    public int getVariableId(AttributeKey attr) throws MIDDParsingException {
+        int varId = lookup(attr);
+        if (varId < 0) {
+            throw new MIDDParsingException("Attribute '" + attr + "' not found");
         }
-
-        return attributeMapper.get(attrId).intValue();
+        return varId;
     }
 
     /**
-     * Return the attribute identifier from the variable-id
+     * Return the attribute from the variable-id
      *
      * @param variableId
      * @return
      * @throws MIDDParsingException
      */
-    public String getAttributeId(int variableId) throws MIDDParsingException {
-        if (!attributeMapper.containsValue(variableId)) {
-            throw new MIDDParsingException("Variable identifier '" + variableId + "' not found");
+    public AttributeKey getAttribute(int variableId) throws MIDDParsingException {
+        if (attributes != null) {
+            if (variableId < 0 || variableId >= attributes.length) {
+                throw new MIDDParsingException("Variable identifier '" + variableId + "' not found");
+            }
+            return attributes[variableId];
         }
 
-        for (String attrId : attributeMapper.keySet()) {
-            if (attributeMapper.get(attrId) == variableId) {
-                return attrId;
+        synchronized (this) {
+            for (Map.Entry<AttributeKey, Integer> e : attributeMapper.entrySet()) {
+                if (e.getValue() == variableId) {
+                    return e.getKey();
+                }
             }
         }
 
         throw new MIDDParsingException("Variable identifier '" + variableId + "' not found");
     }
 
-    public void addAttributes(List<String> attributes) {
-        for (String attr : attributes) {
+    /**
+     * Add the attributes in their order, they have consecutive variable identifiers if they are new
+     *
+     * @param attributes
+     * @throws IllegalStateException if the mapper is frozen
+     */
+    public synchronized void addAttributes(List<AttributeKey> attributes) {
+        for (AttributeKey attr : attributes) {
             addAttribute(attr);
         }
 
     }
 
-    public void combine(AttributeMapper outerMapper) {
-        for (String attrId : outerMapper.attributeMapper.keySet()) {
-            if (!this.attributeMapper.containsKey(attrId)) {
-                // add new attribute-id
+    public boolean hasVariableId(AttributeKey attr) {
+        return lookup(attr) >= 0;
+    }
 
-            } else {
+    /**
+     * Return the variable identifier of the attribute, without raising an exception if it is not found.
+     *
+     * @param attr
+     * @return -1 if the attribute is not in the mapper
+     */
+    public int lookup(AttributeKey attr) {
+        if (frozenTable != null) {
+            return frozenTable.get(attr.getCategory(), attr.getAttributeId(), attr.getDataType(), attr.getIssuer());
+        }
+        synchronized (this) {
+            Integer varId = attributeMapper.get(attr);
+            return (varId != null) ? varId : -1;
+        }
+    }
 
+    /**
+     * Similar to {@link #lookup(AttributeKey)} with the parts of the attribute key given, the frozen mapper does not
+     * create the key.
+     *
+     * @param category
+     * @param attributeId
+     * @param dataType
+     * @param issuer
+     * @return -1 if the attribute is not in the mapper
+     */
+    public int lookup(String category, String attributeId, String dataType, String issuer) {
+        if (frozenTable != null) {
+            return frozenTable.get(category, attributeId, dataType, issuer);
+        }
+        if (attributeId == null || dataType == null) {
+            return -1;
+        }
+        return lookup(new AttributeKey(category, attributeId, dataType, issuer));
+    }
+
+    /**
+     * Find the variables of the attributes matching a request attribute: the attribute with the same parts, and those
+     * without category or issuer, which match any category or issuer. The frozen mapper finds them with a single probe.
+     *
+     * @param category
+     * @param attributeId
+     * @param dataType
+     * @param issuer
+     * @param result      receives the variable identifiers, it has at least 4 elements
+     * @return number of variables found
+     */
+    public int findVariables(String category, String attributeId, String dataType, String issuer, int[] result) {
+        if (result.length < AttributeMatchTable.MAX_MATCHES) {
+            throw new IllegalArgumentException("Result array must have at least " + AttributeMatchTable.MAX_MATCHES + " elements");
+        }
+        if (frozenTable != null) {
+            if (attributeId == null || dataType == null) {
+                return 0;
+            }
+            return matchTable.find(category, attributeId, dataType, issuer, result);
+        }
+
+        int count = add(lookup(category, attributeId, dataType, issuer), result, 0);
+        if (issuer != null) {
+            count = add(lookup(category, attributeId, dataType, null), result, count);
+        }
+        if (category != null) {
+            count = add(lookup(null, attributeId, dataType, issuer), result, count);
+            if (issuer != null) {
+                count = add(lookup(null, attributeId, dataType, null), result, count);
             }
         }
+        return count;
     }
 
-    public boolean hasVariableId(String attrId) {
-        return attributeMapper.containsKey(attrId);
+    private static int add(int varId, int[] result, int count) {
+        if (varId >= 0) {
+            result[count++] = varId;
+        }
+        return count;
+    }
+
+    /**
+     * Make the mapper read-only, afterwards adding an attribute raises {@link IllegalStateException}.
+     */
+    public synchronized void freeze() {
+        if (frozenTable != null) {
+            return;
+        }
+        AttributeKey[] keys = new AttributeKey[varIdCounter];
+        for (Map.Entry<AttributeKey, Integer> e : attributeMapper.entrySet()) {
+            keys[e.getValue()] = e.getKey();
+        }
+        this.attributes = keys;
+        this.matchTable = AttributeMatchTable.create(attributeMapper);
+        this.frozenTable = AttributeIdTable.create(attributeMapper);
+    }
+
+    public boolean isFrozen() {
+        return frozenTable != null;
+    }
+
+    /**
+     * Return number of attributes, variable identifiers are from 0 to <code>size() - 1</code>
+     *
+     * @return
+     */
+    public int size() {
+        if (attributes != null) {
+            return attributes.length;
+        }
+        synchronized (this) {
+            return varIdCounter;
+        }
     }
 }
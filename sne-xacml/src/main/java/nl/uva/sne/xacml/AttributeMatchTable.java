@@ -0,0 +1,123 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table from the identifier and data type of an attribute to the variables of all attributes having them. A
+ * policy attribute without category or issuer matches any category or issuer, so a request attribute may match several
+ * variables: they are found by a single probe of the table and a scan of the few attributes of the entry.
+ *
+ * @author Canh Ngo
+ */
+final class AttributeMatchTable {
+
+    /**
+     * Largest number of variables matching a request attribute: with and without its category and issuer
+     */
+    static final int MAX_MATCHES = 4;
+
+    /**
+     * Entries indexed by the attribute identifier and data type, keys have no category and issuer
+     */
+    private final AttributeIdTable entries;
+
+    private final AttributeKey[][] keys;
+
+    private final int[][] varIds;
+
+    private AttributeMatchTable(AttributeIdTable entries, AttributeKey[][] keys, int[][] varIds) {
+        this.entries = entries;
+        this.keys = keys;
+        this.varIds = varIds;
+    }
+
+    /**
+     * Group the attributes by their identifiers and data types
+     *
+     * @param map
+     * @return
+     */
+    static AttributeMatchTable create(Map<AttributeKey, Integer> map) {
+        Map<AttributeKey, Integer> entryIds = new HashMap<>();
+        List<List<AttributeKey>> groups = new ArrayList<>();
+        for (AttributeKey attr : map.keySet()) {
+            AttributeKey name = new AttributeKey(null, attr.getAttributeId(), attr.getDataType(), null);
+            Integer entry = entryIds.get(name);
+            if (entry == null) {
+                entry = groups.size();
+                entryIds.put(name, entry);
+                groups.add(new ArrayList<AttributeKey>());
+            }
+            groups.get(entry).add(attr);
+        }
+
+        AttributeKey[][] keys = new AttributeKey[groups.size()][];
+        int[][] varIds = new int[groups.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            List<AttributeKey> group = groups.get(i);
+            keys[i] = group.toArray(new AttributeKey[group.size()]);
+            varIds[i] = new int[keys[i].length];
+            for (int j = 0; j < keys[i].length; j++) {
+                varIds[i][j] = map.get(keys[i][j]);
+            }
+        }
+        return new AttributeMatchTable(AttributeIdTable.create(entryIds), keys, varIds);
+    }
+
+    /**
+     * Find the variables of the attributes matching a request attribute
+     *
+     * @param category
+     * @param attributeId
+     * @param dataType
+     * @param issuer
+     * @param result      receives the variable identifiers, it has at least {@link #MAX_MATCHES} elements
+     * @return number of variables found
+     */
+    int find(String category, String attributeId, String dataType, String issuer, int[] result) {
+        int entry = entries.get(null, attributeId, dataType, null);
+        if (entry < 0) {
+            return 0;
+        }
+        final AttributeKey[] attrs = keys[entry];
+        int count = 0;
+        for (int i = 0; i < attrs.length; i++) {
+            if (matches(attrs[i].getCategory(), category) && matches(attrs[i].getIssuer(), issuer)) {
+                result[count++] = varIds[entry][i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A part of a policy attribute matches the same part of a request attribute, a missing part matches any value
+     */
+    private static boolean matches(String policyPart, String requestPart) {
+        return policyPart == null || policyPart.equals(requestPart);
+    }
+}
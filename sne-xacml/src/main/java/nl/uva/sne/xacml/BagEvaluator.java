@@ -0,0 +1,549 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.algorithms.CombiningAlgorithm;
+import nl.uva.sne.midd.algorithms.FirstApplicableAlg;
+import nl.uva.sne.midd.builders.MIDDCombiner;
+import nl.uva.sne.midd.interval.EndPoint;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.obligations.Obligation;
+import nl.uva.sne.midd.obligations.ObligationExpression;
+import nl.uva.sne.xacml.policy.finder.PolicyFinder;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.CombiningAlgConverterUtil;
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+import nl.uva.sne.xacml.policy.parsers.util.MatchIdConverterUtil;
+import nl.uva.sne.xacml.policy.parsers.util.MatchIdConverterUtil.OperatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AllOfType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AnyOfType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.EffectType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.IdReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.MatchType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObligationExpressionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RuleType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.TargetType;
+
+import javax.xml.bind.JAXBElement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluation of requests with bags of attribute values, which the MIDD cannot evaluate as it matches a single value per
+ * variable.
+ * <p/>
+ * XACML matches a bag existentially: a Match expression is true if a value of the bag satisfies it. The MIDD merges the
+ * Match expressions of an attribute into one interval, a bag may satisfy each of them with a different value and none
+ * of the intervals. The bags are therefore evaluated on the targets of the policy: every Match expression is tested
+ * against all values of its bag, targets, rules, policies and policy sets follow the XACML truth tables, and the
+ * decisions of the children are combined by the algorithms of the MIDD. The result of each Match expression and of each
+ * policy is kept during a request, equal Match expressions and policies referenced several times are evaluated once.
+ * <p/>
+ * As in the MIDD, children that are not applicable are skipped by the combining algorithms and only the obligations of
+ * rules are returned.
+ *
+ * @author Canh Ngo
+ */
+public final class BagEvaluator {
+
+    private static final ExternalNode3 NOT_APPLICABLE = new ExternalNode3(DecisionType.NotApplicable);
+
+    /**
+     * Truth values of Match expressions and targets, 0 is not evaluated yet
+     */
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INDETERMINATE = 3;
+
+    private final MatchExpression[] matches;
+
+    private final Element root;
+
+    /**
+     * Number of policies and policy sets, whose decisions are kept during a request
+     */
+    private final int policyCount;
+
+    /**
+     * Values of the variables known by a residual policy, null for the whole policy
+     */
+    private final AttributeVector known;
+
+    private BagEvaluator(MatchExpression[] matches, Element root, int policyCount, AttributeVector known) {
+        this.matches = matches;
+        this.root = root;
+        this.policyCount = policyCount;
+        this.known = known;
+    }
+
+    /**
+     * Compile the targets of a policy set, its children and the policies it references
+     *
+     * @param policyset
+     * @param policyFinder lookup of referenced policies, null if references are not supported
+     * @param attrMapper   mapping of the attributes of the policy set
+     * @return
+     * @throws XACMLParsingException
+     * @throws MIDDException
+     */
+    public static BagEvaluator of(PolicySetType policyset, PolicyFinder policyFinder, AttributeMapper attrMapper)
+            throws XACMLParsingException, MIDDException {
+        Compiler compiler = new Compiler(policyFinder, attrMapper);
+        return compiler.create(compiler.compile(policyset));
+    }
+
+    /**
+     * Compile the targets of a policy and its rules
+     *
+     * @param policy
+     * @param attrMapper mapping of the attributes of the policy
+     * @return
+     * @throws XACMLParsingException
+     * @throws MIDDException
+     */
+    public static BagEvaluator of(PolicyType policy, AttributeMapper attrMapper) throws XACMLParsingException, MIDDException {
+        Compiler compiler = new Compiler(null, attrMapper);
+        return compiler.create(compiler.compile(policy));
+    }
+
+    /**
+     * Return the evaluator of a residual policy, the known values replace those of the requests
+     *
+     * @param known values of the known variables
+     * @return
+     */
+    public BagEvaluator withKnown(AttributeVector known) {
+        AttributeVector values = new AttributeVector(known.capacity());
+        if (this.known != null) {
+            values.setAll(this.known);
+        }
+        values.setAll(known);
+        return new BagEvaluator(matches, root, policyCount, values);
+    }
+
+    /**
+     * Evaluate a vector of attributes, a variable may be a bag of values. The evaluator is thread-safe.
+     *
+     * @param attributes
+     * @return
+     */
+    public Decision evaluate(AttributeVector attributes) {
+        if (known != null) {
+            AttributeVector values = new AttributeVector(attributes.capacity());
+            values.setAll(attributes);
+            values.setAll(known);
+            attributes = values;
+        }
+        return new Evaluation(attributes).evaluate(root).buildDecision();
+    }
+
+    /**
+     * Match expression of a variable: the interval of the values satisfying the function
+     */
+    private static final class MatchExpression {
+        final int varId;
+
+        final Interval<?> interval;
+
+        final Class<?> type;
+
+        final boolean mustBePresent;
+
+        MatchExpression(int varId, Interval<?> interval, boolean mustBePresent) throws MIDDException {
+            this.varId = varId;
+            this.interval = interval;
+            this.type = interval.getType();
+            this.mustBePresent = mustBePresent;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MatchExpression)) {
+                return false;
+            }
+            MatchExpression other = (MatchExpression) obj;
+            return varId == other.varId && mustBePresent == other.mustBePresent && interval.equals(other.interval);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * varId + interval.hashCode()) * 2 + (mustBePresent ? 1 : 0);
+        }
+    }
+
+    /**
+     * A rule, a policy or a policy set. The target is the conjunction of its AnyOf elements, which are disjunctions of
+     * AllOf elements of indexes of Match expressions; an empty target is always true.
+     */
+    private static final class Element {
+        /**
+         * Index of the kept decision of a policy or a policy set, -1 for a rule
+         */
+        final int index;
+
+        final int[][][] target;
+
+        /**
+         * Combiner of the decisions of the children, null for a rule
+         */
+        final MIDDCombiner combiner;
+
+        final boolean firstApplicable;
+
+        final Element[] children;
+
+        /**
+         * Effect of a rule with its obligations
+         */
+        final ExternalNode3 effect;
+
+        Element(int index, int[][][] target, CombiningAlgorithm algorithm, Element[] children) {
+            this.index = index;
+            this.target = target;
+            this.combiner = new MIDDCombiner(algorithm);
+            this.firstApplicable = algorithm instanceof FirstApplicableAlg;
+            this.children = children;
+            this.effect = null;
+        }
+
+        Element(int[][][] target, ExternalNode3 effect) {
+            this.index = -1;
+            this.target = target;
+            this.combiner = null;
+            this.firstApplicable = false;
+            this.children = null;
+            this.effect = effect;
+        }
+    }
+
+    /**
+     * State of a request: the results of the Match expressions and the decisions of the policies evaluated so far
+     */
+    private final class Evaluation {
+        private final AttributeVector attributes;
+
+        private final byte[] matched = new byte[matches.length];
+
+        private final ExternalNode3[] decisions = new ExternalNode3[policyCount];
+
+        Evaluation(AttributeVector attributes) {
+            this.attributes = attributes;
+        }
+
+        ExternalNode3 evaluate(Element element) {
+            if (element.index >= 0 && decisions[element.index] != null) {
+                return decisions[element.index];
+            }
+
+            final byte target = evaluateTarget(element.target);
+            ExternalNode3 decision;
+            if (target == FALSE) {
+                decision = NOT_APPLICABLE;
+            } else if (element.children == null) {
+                decision = (target == TRUE) ? element.effect : new ExternalNode3(indeterminate(element.effect.getDecision()));
+            } else {
+                decision = combine(element);
+                if (target == INDETERMINATE && decision.getDecision() != DecisionType.NotApplicable) {
+                    // XACML 3.0, section 7.13: an Indeterminate target keeps the effect of the children
+                    decision = new ExternalNode3(indeterminate(decision.getDecision()));
+                }
+            }
+
+            if (element.index >= 0) {
+                decisions[element.index] = decision;
+            }
+            return decision;
+        }
+
+        private ExternalNode3 combine(Element element) {
+            ExternalNode3 combined = null;
+            try {
+                for (Element child : element.children) {
+                    ExternalNode3 decision = evaluate(child);
+                    if (decision.getDecision() == DecisionType.NotApplicable) {
+                        continue;
+                    }
+                    combined = (combined == null) ? decision : (ExternalNode3) element.combiner.combine(combined, decision);
+                    if (element.firstApplicable) {
+                        break;
+                    }
+                }
+            } catch (MIDDException e) {
+                throw new RuntimeException(e);
+            }
+            return (combined == null) ? NOT_APPLICABLE : combined;
+        }
+
+        private byte evaluateTarget(int[][][] target) {
+            byte result = TRUE;
+            for (int[][] anyOf : target) {
+                byte value = FALSE;
+                for (int[] allOf : anyOf) {
+                    byte conjunction = evaluateAllOf(allOf);
+                    if (conjunction == TRUE) {
+                        value = TRUE;
+                        break;
+                    } else if (conjunction == INDETERMINATE) {
+                        value = INDETERMINATE;
+                    }
+                }
+                if (anyOf.length == 0 || value == TRUE) {
+                    continue;
+                }
+                if (value == FALSE) {
+                    return FALSE;
+                }
+                result = INDETERMINATE;
+            }
+            return result;
+        }
+
+        private byte evaluateAllOf(int[] allOf) {
+            byte result = TRUE;
+            for (int match : allOf) {
+                if (matched[match] == 0) {
+                    matched[match] = evaluateMatch(matches[match]);
+                }
+                if (matched[match] == FALSE) {
+                    return FALSE;
+                } else if (matched[match] == INDETERMINATE) {
+                    result = INDETERMINATE;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * A Match expression is true if a value of the bag satisfies it, a missing attribute is Indeterminate if it
+         * must be present
+         */
+        private byte evaluateMatch(MatchExpression match) {
+            final int varId = match.varId;
+            if (!attributes.isPresent(varId)) {
+                return match.mustBePresent ? INDETERMINATE : FALSE;
+            }
+            if (!attributes.isBag(varId)) {
+                return hasValue(match, attributes.get(varId)) ? TRUE : FALSE;
+            }
+            for (int i = 0; i < attributes.getBagSize(varId); i++) {
+                if (hasValue(match, attributes.getBagValue(varId, i))) {
+                    return TRUE;
+                }
+            }
+            return FALSE;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private boolean hasValue(MatchExpression match, Comparable<?> value) {
+            if (value.getClass() != match.type) {
+                throw new RuntimeException("Error evaluation, either tree or values have error: same attribute with different variable identifiers");
+            }
+            try {
+                return ((Interval) match.interval).hasValue(value);
+            } catch (MIDDException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static DecisionType indeterminate(DecisionType decision) {
+        switch (decision) {
+            case Permit:
+                return DecisionType.Indeterminate_P;
+            case Deny:
+                return DecisionType.Indeterminate_D;
+            default:
+                return decision;
+        }
+    }
+
+    /**
+     * Walk of the policy compiling the targets. A policy or a policy set is compiled once, however often it is
+     * referenced, and equal Match expressions share their index.
+     */
+    private static final class Compiler {
+        private final PolicyFinder policyFinder;
+
+        private final AttributeMapper attrMapper;
+
+        private final Map<MatchExpression, Integer> indexes = new HashMap<>();
+
+        private final List<MatchExpression> matches = new ArrayList<>();
+
+        private final Map<Object, Element> policies = new IdentityHashMap<>();
+
+        Compiler(PolicyFinder policyFinder, AttributeMapper attrMapper) {
+            this.policyFinder = policyFinder;
+            this.attrMapper = attrMapper;
+        }
+
+        BagEvaluator create(Element root) {
+            return new BagEvaluator(matches.toArray(new MatchExpression[matches.size()]), root, policies.size(), null);
+        }
+
+        Element compile(PolicySetType policyset) throws XACMLParsingException, MIDDException {
+            Element element = policies.get(policyset);
+            if (element != null) {
+                return element;
+            }
+
+            List<Element> children = new ArrayList<>();
+            for (JAXBElement<?> obj : policyset.getPolicySetOrPolicyOrPolicySetIdReference()) {
+                if (obj == null) {
+                    continue;
+                }
+                Object child = obj.getValue();
+                if (child instanceof IdReferenceType) {
+                    child = lookup((IdReferenceType) child);
+                }
+                if (child instanceof PolicySetType) {
+                    children.add(compile((PolicySetType) child));
+                } else if (child instanceof PolicyType) {
+                    children.add(compile((PolicyType) child));
+                }
+            }
+
+            element = new Element(policies.size(), compile(policyset.getTarget()),
+                    CombiningAlgConverterUtil.getAlgorithm(policyset.getPolicyCombiningAlgId()),
+                    children.toArray(new Element[children.size()]));
+            policies.put(policyset, element);
+            return element;
+        }
+
+        Element compile(PolicyType policy) throws XACMLParsingException, MIDDException {
+            Element element = policies.get(policy);
+            if (element != null) {
+                return element;
+            }
+
+            List<Element> rules = new ArrayList<>();
+            for (Object obj : policy.getCombinerParametersOrRuleCombinerParametersOrVariableDefinition()) {
+                if (obj instanceof RuleType) {
+                    RuleType rule = (RuleType) obj;
+                    rules.add(new Element(compile(rule.getTarget()), createEffect(rule)));
+                }
+            }
+
+            element = new Element(policies.size(), compile(policy.getTarget()),
+                    CombiningAlgConverterUtil.getAlgorithm(policy.getRuleCombiningAlgId()),
+                    rules.toArray(new Element[rules.size()]));
+            policies.put(policy, element);
+            return element;
+        }
+
+        private Object lookup(IdReferenceType idReference) {
+            String id = idReference.getValue();
+            if (policyFinder == null || id == null || id.isEmpty()) {
+                return null;
+            }
+            return policyFinder.lookup(id);
+        }
+
+        /**
+         * Create the effect of a rule with its obligations, as {@link nl.uva.sne.xacml.policy.parsers.RuleParser}
+         */
+        private static ExternalNode3 createEffect(RuleType rule) {
+            DecisionType effect = convertEffect(rule.getEffect());
+            List<ObligationExpression> oes = new ArrayList<>();
+            if (rule.getObligationExpressions() != null) {
+                for (ObligationExpressionType oe : rule.getObligationExpressions().getObligationExpression()) {
+                    oes.add(new ObligationExpression(convertEffect(oe.getFulfillOn()), new Obligation(oe.getObligationId())));
+                }
+            }
+            return new ExternalNode3(effect, oes);
+        }
+
+        private static DecisionType convertEffect(EffectType effect) {
+            return (effect == EffectType.PERMIT) ? DecisionType.Permit : DecisionType.Deny;
+        }
+
+        private int[][][] compile(TargetType target) throws XACMLParsingException, MIDDException {
+            if (target == null) {
+                return new int[0][][];
+            }
+            int[][][] anyOfs = new int[target.getAnyOf().size()][][];
+            for (int i = 0; i < anyOfs.length; i++) {
+                AnyOfType anyOf = target.getAnyOf().get(i);
+                anyOfs[i] = new int[anyOf.getAllOf().size()][];
+                for (int j = 0; j < anyOfs[i].length; j++) {
+                    AllOfType allOf = anyOf.getAllOf().get(j);
+                    anyOfs[i][j] = new int[allOf.getMatch().size()];
+                    for (int k = 0; k < anyOfs[i][j].length; k++) {
+                        anyOfs[i][j][k] = compile(allOf.getMatch().get(k));
+                    }
+                }
+            }
+            return anyOfs;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private int compile(MatchType match) throws XACMLParsingException, MIDDException {
+            AttributeDesignatorType designator = match.getAttributeDesignator();
+            AttributeValueType attrValue = match.getAttributeValue();
+            if (designator == null || attrValue == null || attrValue.getContent().isEmpty()) {
+                throw new XACMLParsingException("Invalid Match expression");
+            }
+            int varId = attrMapper.lookup(new AttributeKey(designator.getCategory(), designator.getAttributeId(),
+                    designator.getDataType(), designator.getIssuer()));
+            Comparable value = DataTypeConverterUtil.convert((String) attrValue.getContent().get(0), attrValue.getDataType());
+
+            OperatorType operator = MatchIdConverterUtil.getOperator(match.getMatchId());
+            Interval interval;
+            switch (operator) {
+                case EQUAL:
+                    interval = new Interval(value);
+                    break;
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUAL:
+                    // the value is the first argument of the function, it is the lower bound of the attribute
+                    interval = new Interval(new EndPoint(value), new EndPoint(EndPoint.Infinity.POSITIVE),
+                            operator == OperatorType.LESS_THAN_OR_EQUAL, false);
+                    break;
+                default:
+                    interval = new Interval(new EndPoint(EndPoint.Infinity.NEGATIVE), new EndPoint(value),
+                            false, operator == OperatorType.GREATER_THAN_OR_EQUAL);
+            }
+
+            // a variable that is not mapped is never present in a request
+            MatchExpression expression = new MatchExpression(varId, interval, designator.isMustBePresent());
+            Integer index = indexes.get(expression);
+            if (index == null) {
+                index = matches.size();
+                matches.add(expression);
+                indexes.put(expression, index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.compiled.CompiledMIDD;
+import nl.uva.sne.midd.compiled.DecisionFunction;
+import nl.uva.sne.midd.compiled.DecisionFunctionGenerator;
+import nl.uva.sne.midd.compiled.MIDDCompiler;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.midd.util.MIDDUtils;
+import nl.uva.sne.midd.util.PartialEvaluationUtils;
+import nl.uva.sne.midd.util.QueryUtils;
+import nl.uva.sne.xacml.binary.AttributeTable;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable result of loading a policy: the attribute mapping and the MIDD in its evaluation forms. It is published by
+ * the {@link PDP} as a single handle, so concurrent requests always see a consistent and fully constructed policy.
+ *
+ * @author Canh Ngo
+ */
+public final class CompiledPolicy {
+
+    private final AttributeMapper attributeMapper;
+
+    private final AbstractNode midd;
+
+    private final CompiledMIDD compiledMIDD;
+
+    /**
+     * Maximum number of internal nodes of a MIDD generated into a decision function, 0 to disable it
+     */
+    private final int decisionFunctionMaxNodes;
+
+    /**
+     * MIDD generated into a class, null if it is disabled or the MIDD is too large
+     */
+    private final DecisionFunction decisionFunction;
+
+    private final AttributeTable attributeTable;
+
+    private final BagEvaluator bagEvaluator;
+
+    /**
+     * @param attributeMapper frozen mapping from attribute identifiers to variable identifiers
+     * @param midd            the MIDD object graph
+     * @param compiledMIDD    flat representation of the MIDD
+     * @param bagEvaluator    targets of the policy, evaluating the requests with bags
+     * @param decisionFunctionMaxNodes maximum number of internal nodes of the compiled MIDD to generate it into a
+     *                                 decision function, 0 to disable it
+     * @throws MIDDException
+     */
+    CompiledPolicy(AttributeMapper attributeMapper, AbstractNode midd, CompiledMIDD compiledMIDD, BagEvaluator bagEvaluator,
+                   int decisionFunctionMaxNodes) throws MIDDException {
+        this.attributeMapper = attributeMapper;
+        this.midd = midd;
+        // indexes are built before the MIDD is shared, requests only read them
+        MIDDUtils.buildEdgeIndexes(midd);
+        this.compiledMIDD = compiledMIDD;
+        this.decisionFunctionMaxNodes = decisionFunctionMaxNodes;
+        this.decisionFunction = (decisionFunctionMaxNodes > 0)
+                ? DecisionFunctionGenerator.generate(compiledMIDD, decisionFunctionMaxNodes) : null;
+        this.attributeTable = AttributeTable.of(attributeMapper);
+        this.bagEvaluator = bagEvaluator;
+    }
+
+    public AttributeMapper getAttributeMapper() {
+        return attributeMapper;
+    }
+
+    /**
+     * Return the MIDD object graph, an external node for a residual policy that does not depend on any variable
+     *
+     * @return
+     */
+    public AbstractNode getMIDD() {
+        return midd;
+    }
+
+    public CompiledMIDD getCompiledMIDD() {
+        return compiledMIDD;
+    }
+
+    /**
+     * Return the MIDD generated into a decision function, <code>null</code> if the compiled MIDD is interpreted
+     *
+     * @return
+     */
+    public DecisionFunction getDecisionFunction() {
+        return decisionFunction;
+    }
+
+    /**
+     * Return the attribute table of binary requests
+     *
+     * @return
+     */
+    public AttributeTable getAttributeTable() {
+        return attributeTable;
+    }
+
+    /**
+     * Evaluate a vector of attributes on the compiled MIDD, or its decision function if it has been generated. A vector
+     * with bags is evaluated on the targets of the policy, see {@link BagEvaluator}.
+     *
+     * @param attributes
+     * @return
+     */
+    public Decision evaluate(AttributeVector attributes) {
+        if (attributes.hasBags()) {
+            return bagEvaluator.evaluate(attributes);
+        }
+        if (decisionFunction != null) {
+            return decisionFunction.evaluate(attributes);
+        }
+        return EvaluationUtils.eval(compiledMIDD, attributes);
+    }
+
+    /**
+     * Evaluate several vectors of attributes in a single walk of the compiled MIDD, see
+     * {@link EvaluationUtils#eval(CompiledMIDD, AttributeVector[], int, BitSet, Decision[])}.
+     *
+     * @param requests vectors of attributes of individual requests
+     * @param count    number of vectors
+     * @param varying  variables whose values differ between the vectors
+     * @param results  decisions of the vectors
+     */
+    public void evaluate(AttributeVector[] requests, int count, BitSet varying, Decision[] results) {
+        for (int i = 0; i < count; i++) {
+            if (requests[i].hasBags()) {
+                // bags are evaluated one by one
+                for (int j = 0; j < count; j++) {
+                    results[j] = evaluate(requests[j]);
+                }
+                return;
+            }
+        }
+        EvaluationUtils.eval(compiledMIDD, requests, count, varying, results);
+    }
+
+    /**
+     * Create the residual policy of known attributes, which is evaluated with the other attributes. It shares the
+     * attribute mapping of this policy, and its decision function is generated with the same maximum number of nodes.
+     *
+     * @param known    values of the known variables
+     * @return
+     * @throws MIDDException
+     * @see PartialEvaluationUtils
+     */
+    public CompiledPolicy partialEvaluate(AttributeVector known) throws MIDDException {
+        AbstractNode residual = PartialEvaluationUtils.partialEval(midd, known);
+
+        return new CompiledPolicy(attributeMapper, residual, MIDDCompiler.compile(residual), bagEvaluator.withKnown(known),
+                decisionFunctionMaxNodes);
+    }
+
+    /**
+     * Return the values of a variable leading to Permit, the other variables have the values of the vector
+     *
+     * @param attributes values of the other variables
+     * @param varId      the queried variable
+     * @return
+     * @throws MIDDException
+     * @see QueryUtils
+     */
+    public List<Interval<?>> permittedIntervals(AttributeVector attributes, int varId) throws MIDDException {
+        return QueryUtils.permittedIntervals(midd, attributes, varId);
+    }
+}
@@ -90,17 +90,24 @@ public class ExternalNode3 extends ExternalNode {
         }
     }
 
+    /**
+     * Create the decision of the node with obligations fulfilled on its effect. The node can be changed while the MIDD
+     * is built, a compiled MIDD keeps the decision once, see {@link nl.uva.sne.midd.compiled.MIDDCompiler}.
+     *
+     * @return
+     */
     public Decision buildDecision() {
-        Decision decision = new Decision(this.effect);
+        if (obligationExpressions == null || obligationExpressions.isEmpty()) {
+            return new Decision(this.effect);
+        }
 
-        if (obligationExpressions != null && obligationExpressions.size() > 0) {
-            for (ObligationExpression oe : this.obligationExpressions) {
-                if (oe.isFulfilled(effect)) {
-                    decision.getObligations().add(oe.getObligation());
-                }
+        List<Obligation> obligations = new ArrayList<>(obligationExpressions.size());
+        for (ObligationExpression oe : this.obligationExpressions) {
+            if (oe.isFulfilled(effect)) {
+                obligations.add(oe.getObligation());
             }
         }
-        return decision;
+        return new Decision(this.effect, obligations);
     }
 
     public DecisionType getDecision() {
@@ -0,0 +1,218 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Individual requests of a request in the Multiple Decision Profile of XACML 3.0. The individual requests are given by
+ * the request references of the <code>MultiRequests</code> element, otherwise they are the combinations of repeated
+ * categories of the request. A request without multiple decisions has a single individual request.
+ * <p/>
+ * An <code>Attributes</code> element in all individual requests is shared, its attributes are converted and matched
+ * once for all individual requests.
+ *
+ * @author Canh Ngo
+ */
+public final class MultipleDecisionRequest {
+
+    /**
+     * Maximum number of individual requests of a request
+     */
+    public static final int MAX_INDIVIDUAL_REQUESTS = 1024;
+
+    private final List<List<AttributesType>> requests;
+
+    private final Map<AttributesType, Boolean> shared;
+
+    private MultipleDecisionRequest(List<List<AttributesType>> requests) {
+        this.requests = requests;
+
+        Map<AttributesType, Integer> counts = new IdentityHashMap<>();
+        for (List<AttributesType> request : requests) {
+            for (AttributesType attrs : request) {
+                Integer count = counts.get(attrs);
+                counts.put(attrs, (count == null) ? 1 : count + 1);
+            }
+        }
+        this.shared = new IdentityHashMap<>();
+        for (Map.Entry<AttributesType, Integer> e : counts.entrySet()) {
+            if (e.getValue() == requests.size()) {
+                shared.put(e.getKey(), Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Return true if the request has request references or repeated categories, without splitting it
+     *
+     * @param request
+     * @return
+     */
+    public static boolean isMultiple(RequestType request) {
+        if (request.getMultiRequests() != null && !request.getMultiRequests().getRequestReference().isEmpty()) {
+            return true;
+        }
+        List<AttributesType> attributes = request.getAttributes();
+        for (int i = 1; i < attributes.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (attributes.get(i) != null && attributes.get(j) != null &&
+                        equals(attributes.get(i).getCategory(), attributes.get(j).getCategory())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean equals(String s1, String s2) {
+        return (s1 == null) ? s2 == null : s1.equals(s2);
+    }
+
+    /**
+     * Split the request into its individual requests
+     *
+     * @param request
+     * @return
+     * @throws XACMLParsingException if a request reference is invalid, or there are more than
+     *                               {@link #MAX_INDIVIDUAL_REQUESTS} individual requests
+     */
+    public static MultipleDecisionRequest of(RequestType request) throws XACMLParsingException {
+        if (request == null) {
+            throw new IllegalArgumentException("RequestType argument must not be null");
+        }
+
+        List<List<AttributesType>> requests = new ArrayList<>();
+        if (request.getMultiRequests() == null || request.getMultiRequests().getRequestReference().isEmpty()) {
+            expand(request.getAttributes(), requests);
+        } else {
+            Map<String, AttributesType> ids = new HashMap<>();
+            for (AttributesType attrs : request.getAttributes()) {
+                if (attrs != null && attrs.getId() != null) {
+                    ids.put(attrs.getId(), attrs);
+                }
+            }
+
+            for (RequestReferenceType ref : request.getMultiRequests().getRequestReference()) {
+                List<AttributesType> referenced = new ArrayList<>();
+                for (AttributesReferenceType attrsRef : ref.getAttributesReference()) {
+                    referenced.add(resolve(attrsRef.getReferenceId(), ids));
+                }
+                expand(referenced, requests);
+            }
+        }
+        return new MultipleDecisionRequest(requests);
+    }
+
+    /**
+     * Add the combinations of the repeated categories of the attributes as individual requests
+     */
+    private static void expand(List<AttributesType> attributes, List<List<AttributesType>> requests) throws XACMLParsingException {
+        Map<String, List<AttributesType>> categories = new LinkedHashMap<>();
+        for (AttributesType attrs : attributes) {
+            if (attrs != null) {
+                List<AttributesType> l = categories.get(attrs.getCategory());
+                if (l == null) {
+                    l = new ArrayList<>();
+                    categories.put(attrs.getCategory(), l);
+                }
+                l.add(attrs);
+            }
+        }
+
+        int count = 1;
+        for (List<AttributesType> l : categories.values()) {
+            count *= l.size();
+            if (count + requests.size() > MAX_INDIVIDUAL_REQUESTS) {
+                throw new XACMLParsingException("Request has more than " + MAX_INDIVIDUAL_REQUESTS + " individual requests");
+            }
+        }
+
+        // the first category varies the slowest, in the order of the request
+        List<List<AttributesType>> lists = new ArrayList<>(categories.values());
+        for (int n = 0; n < count; n++) {
+            AttributesType[] individual = new AttributesType[lists.size()];
+            int k = n;
+            for (int c = lists.size() - 1; c >= 0; c--) {
+                List<AttributesType> l = lists.get(c);
+                individual[c] = l.get(k % l.size());
+                k /= l.size();
+            }
+            requests.add(Collections.unmodifiableList(Arrays.asList(individual)));
+        }
+    }
+
+    private static AttributesType resolve(Object referenceId, Map<String, AttributesType> ids) throws XACMLParsingException {
+        // JAXB resolves the IDREF to the referenced element
+        if (referenceId instanceof AttributesType) {
+            return (AttributesType) referenceId;
+        }
+        AttributesType attrs = (referenceId instanceof String) ? ids.get(referenceId) : null;
+        if (attrs == null) {
+            throw new XACMLParsingException("Invalid reference to an Attributes element: " + referenceId);
+        }
+        return attrs;
+    }
+
+    /**
+     * Return number of individual requests
+     *
+     * @return
+     */
+    public int size() {
+        return requests.size();
+    }
+
+    /**
+     * Return the attributes elements of the individual request
+     *
+     * @param index
+     * @return
+     */
+    public List<AttributesType> get(int index) {
+        return requests.get(index);
+    }
+
+    /**
+     * Return true if the attributes element is in all individual requests
+     *
+     * @param attrs
+     * @return
+     */
+    public boolean isShared(AttributesType attrs) {
+        return shared.containsKey(attrs);
+    }
+}
@@ -22,37 +22,78 @@
  */
 package nl.uva.sne.xacml;
 
+import nl.uva.sne.midd.AttributeVector;
 import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
 import nl.uva.sne.midd.MIDDException;
 import nl.uva.sne.midd.Variable;
+import nl.uva.sne.midd.builders.ComputedTable;
+import nl.uva.sne.midd.builders.UniqueTable;
+import nl.uva.sne.midd.compiled.DecisionFunctionGenerator;
+import nl.uva.sne.midd.compiled.MIDDCompiler;
+import nl.uva.sne.midd.interval.Interval;
 import nl.uva.sne.midd.nodes.AbstractNode;
 import nl.uva.sne.midd.nodes.InternalNode;
 import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.midd.util.MIDDUtils;
+import nl.uva.sne.midd.util.ReductionUtils;
+import nl.uva.sne.xacml.binary.BinaryFormat;
+import nl.uva.sne.xacml.binary.BinaryRequestDecoder;
+import nl.uva.sne.xacml.binary.BinaryResponseEncoder;
 import nl.uva.sne.xacml.builders.ResponseTypeBuilder;
+import nl.uva.sne.xacml.builders.ResponseWriter;
 import nl.uva.sne.xacml.policy.finder.PolicyFinder;
 import nl.uva.sne.xacml.policy.parsers.MIDDParsingException;
 import nl.uva.sne.xacml.policy.parsers.PolicyParser;
 import nl.uva.sne.xacml.policy.parsers.PolicySetParser;
 import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
 import nl.uva.sne.xacml.policy.parsers.util.AttributeConverter;
+import nl.uva.sne.xacml.util.JsonRequestDecoder;
+import nl.uva.sne.xacml.util.RequestDecoder;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Policy decision point evaluating XACML requests against a policy or policy set compiled into a MIDD.
+ * <p/>
+ * After {@link #initialize()}, a PDP can be shared by multiple threads: the compiled policy is published as an
+ * immutable {@link CompiledPolicy} and all request-scoped state is kept in the evaluation call.
+ */
 public class PDP {
     private static final Logger logger = LoggerFactory.getLogger(PDP.class);
 
-    protected AttributeMapper attrMapper;
+    /**
+     * Maximum number of combined pairs of sub-diagrams kept while the MIDD is built, 0 to disable the computed table
+     */
+    protected int computedTableMaxSize = ComputedTable.DEFAULT_MAX_SIZE;
+
+    protected ComputedTable.EvictionPolicy computedTablePolicy = ComputedTable.EvictionPolicy.LRU;
 
-    protected InternalNode middRoot = null;
+    protected VariableOrdering.Strategy variableOrdering = VariableOrdering.Strategy.FIRST_SEEN;
 
-    protected boolean fXACMLParsingError;
+    protected boolean sifting = false;
 
-    protected boolean fProcessiongError;
+    /**
+     * Number of threads parsing children of the policy set, 1 to parse them sequentially
+     */
+    protected int compileParallelism = 1;
+
+    /**
+     * Maximum number of internal nodes of the compiled MIDD to generate it into a class, 0 to interpret it
+     */
+    protected int decisionFunctionMaxNodes = 0;
 
     protected PolicySetType policyset;
 
@@ -60,6 +101,27 @@ public class PDP {
 
     private PolicyFinder policyFinder;
 
+    private final ResponseWriter responseWriter = new ResponseWriter();
+
+    private final ResponseWriter jsonResponseWriter = new ResponseWriter(ResponseWriter.Format.JSON);
+
+    private final BinaryResponseEncoder binaryResponseEncoder = new BinaryResponseEncoder();
+
+    /**
+     * The loaded policy, replaced as a whole by {@link #initialize()}
+     */
+    private volatile CompiledPolicy compiledPolicy;
+
+    /**
+     * Attribute vector reused by successive requests of a thread
+     */
+    private final ThreadLocal<AttributeVector> attributeVectors = new ThreadLocal<AttributeVector>() {
+        @Override
+        protected AttributeVector initialValue() {
+            return new AttributeVector(getCompiledPolicy().getAttributeMapper().size());
+        }
+    };
+
     public PDP(PolicySetType policyset, PolicyFinder policyFinder) throws MIDDParsingException, XACMLParsingException, MIDDException {
         if (policyset == null) {
             throw new IllegalArgumentException("Policyset argument must not be null");
@@ -73,22 +135,89 @@ public class PDP {
 
     public void initialize()
             throws MIDDParsingException, XACMLParsingException, MIDDException {
-        attrMapper = new AttributeMapper();
-
-        AbstractNode n;
-        if (policyset != null) {
-            n = buildMIDD(policyset);
-        } else if (policy != null) {
-            n = buildMIDD(policy);
-        } else {
+        if (policyset == null && policy == null) {
             throw new RuntimeException("Invalid constructing PDP");
         }
 
-        if (!(n instanceof InternalNode)) {
+        AttributeMapper attrMapper = new AttributeMapper();
+        // attributes are added beforehand, their variable identifiers do not depend on the order threads parse them
+        attrMapper.addAttributes(orderVariables());
+        AbstractNode n = buildMIDD(attrMapper);
+
+        if (!(n instanceof InternalNode || n instanceof ExternalNode3)) {
             throw new MIDDException("Invalid parsing policies to MIDD tree");
-        } else {
-            this.middRoot = (InternalNode) n;
         }
+        n = reduce(n);
+
+        attrMapper.freeze();
+        BagEvaluator bagEvaluator = (policyset != null) ? BagEvaluator.of(policyset, policyFinder, attrMapper)
+                : BagEvaluator.of(policy, attrMapper);
+        CompiledPolicy p = new CompiledPolicy(attrMapper, n, MIDDCompiler.compile(n), bagEvaluator, decisionFunctionMaxNodes);
+        if (decisionFunctionMaxNodes > 0 && p.getDecisionFunction() == null) {
+            logger.info("MIDD has more than {} nodes or is too large for a class, use interpreted evaluation",
+                    decisionFunctionMaxNodes);
+        }
+        this.compiledPolicy = p;
+    }
+
+    /**
+     * Configure the order of the MIDD variables, see {@link VariableOrdering}. It must be set before
+     * {@link #initialize()}. The order only changes the size of the compiled MIDD and the initialization time, the
+     * decisions are the same, also for requests with missing attributes.
+     *
+     * @param strategy static order of the attributes
+     * @param sifting  true to improve the static order by sifting, which builds the MIDD many times
+     */
+    public void setVariableOrdering(VariableOrdering.Strategy strategy, boolean sifting) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Strategy argument must not be null");
+        }
+        this.variableOrdering = strategy;
+        this.sifting = sifting;
+    }
+
+    /**
+     * Generate the compiled MIDD into a class if it has at most <code>maxNodes</code> internal nodes, see
+     * {@link DecisionFunctionGenerator}; a larger MIDD is interpreted. It must be set before {@link #initialize()}.
+     *
+     * @param maxNodes maximum number of internal nodes, 0 to disable the generated decision function
+     */
+    public void setDecisionFunctionMaxNodes(int maxNodes) {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException("Maximum number of nodes must not be negative");
+        }
+        this.decisionFunctionMaxNodes = maxNodes;
+    }
+
+    /**
+     * Parse children of the policy set in parallel on a fork/join pool of <code>parallelism</code> threads while the
+     * MIDD is built. It must be set before {@link #initialize()}.
+     *
+     * @param parallelism number of threads, 1 to parse the policy set sequentially
+     */
+    public void setCompileParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.compileParallelism = parallelism;
+    }
+
+    /**
+     * Configure the computed table keeping combined pairs of sub-diagrams while the MIDD is built, see
+     * {@link ComputedTable}. It must be set before {@link #initialize()}.
+     *
+     * @param maxSize maximum number of results, 0 to disable the computed table
+     * @param policy  policy applied when the table is full
+     */
+    public void setComputedTable(int maxSize, ComputedTable.EvictionPolicy policy) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Eviction policy must not be null");
+        }
+        this.computedTableMaxSize = maxSize;
+        this.computedTablePolicy = policy;
     }
 
 
@@ -101,77 +230,476 @@ public class PDP {
         policyset = null;
     }
 
+    /**
+     * Return the loaded policy
+     *
+     * @return
+     * @throws IllegalStateException if the PDP has not been initialized
+     */
+    public CompiledPolicy getCompiledPolicy() {
+        CompiledPolicy p = this.compiledPolicy;
+        if (p == null) {
+            throw new IllegalStateException("PDP has not been initialized");
+        }
+        return p;
+    }
+
+    /**
+     * Evaluate an XACML 3.0 request. A request of multiple decisions, with repeated categories or request references,
+     * has a result for each individual request, or a single result if a combined decision is requested.
+     *
+     * @param request
+     * @return
+     */
     public ResponseType evaluate(RequestType request) {
+        return evaluate(getCompiledPolicy(), request);
+    }
+
+    /**
+     * Evaluate an XACML 3.0 request against a policy of this PDP, e.g. a residual policy created by
+     * {@link #partialEvaluate(RequestType)}.
+     *
+     * @param policy
+     * @param request
+     * @return
+     * @see #evaluate(RequestType)
+     */
+    public ResponseType evaluate(CompiledPolicy policy, RequestType request) {
+        if (MultipleDecisionRequest.isMultiple(request)) {
+            try {
+                return evaluate(policy, request, MultipleDecisionRequest.of(request));
+            } catch (XACMLParsingException e) {
+                logger.error(e.getMessage());
+                return createResponse(null, true, false);
+            }
+        }
 
-        resetErrorFlags();
+        final CompiledPolicy p = policy;
 
-        Map<Integer, Variable<?>> variables;
+        boolean xacmlParsingError = false;
+        boolean processingError = false;
+
+        AttributeVector attributes = attributeVectors.get();
         Decision result = null;
-        ResponseType response = null;
 
         try {
-            variables = convertRequest(request);
+            convertRequest(request, p.getAttributeMapper(), attributes);
 
-            result = EvaluationUtils.eval(this.middRoot, variables);
+            result = p.evaluate(attributes);
         } catch (MIDDParsingException e) {
             logger.error(e.getMessage());
-            fProcessiongError = true;
+            processingError = true;
         } catch (XACMLParsingException e) {
             logger.error(e.getMessage());
-            fXACMLParsingError = true;
+            xacmlParsingError = true;
+        } finally {
+            attributes.clear();
+        }
+
+        return createResponse(result, xacmlParsingError, processingError);
+    }
+
+    /**
+     * Evaluate the individual requests of a multiple decision request. Attributes shared by all individual requests
+     * are matched once, the MIDD walk branches only at the variables of the attributes that differ.
+     *
+     * @param policy
+     * @param request
+     * @param requests individual requests
+     * @return
+     */
+    protected ResponseType evaluate(CompiledPolicy policy, RequestType request, MultipleDecisionRequest requests) {
+        final CompiledPolicy p = policy;
+        final AttributeMapper attrMapper = p.getAttributeMapper();
+        final int n = requests.size();
+
+        AttributeConverter attrConverter = new AttributeConverter(attrMapper);
+        AttributeVector[] vectors = new AttributeVector[n];
+        int[] indices = new int[n];
+        boolean[] xacmlParsingErrors = new boolean[n];
+        boolean[] processingErrors = new boolean[n];
+        int count = 0;
+
+        // each attributes element is converted once, the shared ones into a common vector
+        AttributeVector shared = new AttributeVector(attrMapper.size());
+        AttributeVector varyingAttributes = new AttributeVector(attrMapper.size());
+        Map<AttributesType, AttributeVector> converted = new IdentityHashMap<>();
+        Map<AttributesType, Boolean> invalid = new IdentityHashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            AttributeVector attributes = new AttributeVector(attrMapper.size());
+            attributes.setAll(shared);
+
+            for (AttributesType attrs : requests.get(i)) {
+                AttributeVector v = converted.get(attrs);
+                if (v == null && !invalid.containsKey(attrs)) {
+                    v = new AttributeVector(attrMapper.size());
+                    try {
+                        convertAttributes(attrs, attrConverter, v);
+                        converted.put(attrs, v);
+                        if (requests.isShared(attrs)) {
+                            shared.setAll(v);
+                        } else {
+                            varyingAttributes.setAll(v);
+                        }
+                    } catch (MIDDParsingException e) {
+                        logger.error(e.getMessage());
+                        invalid.put(attrs, Boolean.FALSE);
+                        v = null;
+                    } catch (XACMLParsingException e) {
+                        logger.error(e.getMessage());
+                        invalid.put(attrs, Boolean.TRUE);
+                        v = null;
+                    }
+                }
+
+                if (v == null) {
+                    xacmlParsingErrors[i] |= invalid.get(attrs);
+                    processingErrors[i] |= !invalid.get(attrs);
+                } else {
+                    attributes.setAll(v);
+                }
+            }
+
+            if (!xacmlParsingErrors[i] && !processingErrors[i]) {
+                indices[count] = i;
+                vectors[count++] = attributes;
+            }
+        }
+
+        BitSet varying = new BitSet(attrMapper.size());
+        for (int varId = 0; varId < varyingAttributes.capacity(); varId++) {
+            if (varyingAttributes.isPresent(varId)) {
+                varying.set(varId);
+            }
         }
 
-        response = createResponse(result);
-        return response;
+        Decision[] evaluated = new Decision[count];
+        p.evaluate(vectors, count, varying, evaluated);
+
+        Decision[] decisions = new Decision[n];
+        for (int i = 0; i < count; i++) {
+            decisions[indices[i]] = evaluated[i];
+        }
+
+        List<ResultType> results = new ArrayList<>(n);
+        if (request.isCombinedDecision()) {
+            results.add(combine(decisions, xacmlParsingErrors, processingErrors));
+        } else {
+            Decision indeterminate = new Decision(DecisionType.Indeterminate);
+            for (int i = 0; i < n; i++) {
+                ResponseTypeBuilder builder = new ResponseTypeBuilder(xacmlParsingErrors[i], processingErrors[i]);
+                results.add(builder.createResult((decisions[i] != null) ? decisions[i] : indeterminate, requests.get(i)));
+            }
+        }
+        return ResponseTypeBuilder.create(results);
     }
 
+    /**
+     * Combine the decisions of the individual requests: if all of them are the same decision without obligations, it
+     * is the combined decision, otherwise the combined decision is Indeterminate.
+     */
+    private static ResultType combine(Decision[] decisions, boolean[] xacmlParsingErrors, boolean[] processingErrors) {
+        for (int i = 0; i < decisions.length; i++) {
+            if (decisions[i] == null) {
+                return new ResponseTypeBuilder(xacmlParsingErrors[i], processingErrors[i])
+                        .createResult(new Decision(DecisionType.Indeterminate));
+            }
+        }
 
-    protected void resetErrorFlags() {
-        fXACMLParsingError = false;
-        fProcessiongError = false;
+        DecisionType combined = decisions[0].getDecision();
+        for (Decision d : decisions) {
+            if (d.getDecision() != combined || !d.getObligations().isEmpty()) {
+                return new ResponseTypeBuilder(false, true).createResult(new Decision(DecisionType.Indeterminate));
+            }
+        }
+        return new ResponseTypeBuilder(false, false).createResult(new Decision(combined));
+    }
+
+    /**
+     * Create the residual policy of the known attributes, e.g. the subject attributes of a session. The residual
+     * policy only tests the other attributes and is evaluated by {@link #evaluate(CompiledPolicy, RequestType)} or
+     * {@link CompiledPolicy#evaluate(AttributeVector)}; it is immutable and can be cached and shared by threads.
+     * <p/>
+     * A known attribute must have a single value, the residual policy does not change if the PDP is initialized again.
+     *
+     * @param knownAttributes request with the known attributes
+     * @return
+     * @throws XACMLParsingException if an attribute is invalid
+     * @throws MIDDException
+     */
+    public CompiledPolicy partialEvaluate(RequestType knownAttributes) throws XACMLParsingException, MIDDException {
+        final CompiledPolicy p = getCompiledPolicy();
+
+        AttributeVector known = new AttributeVector(p.getAttributeMapper().size());
+        convertRequest(knownAttributes, p.getAttributeMapper(), known);
+        if (known.hasBags()) {
+            throw new XACMLParsingException("Known attributes must have a single value");
+        }
+        return p.partialEvaluate(known);
+    }
+
+    /**
+     * Return the values of an attribute leading to Permit, with the other attributes of the request. It lets a PEP
+     * filter a listing, e.g. of resource identifiers, by one traversal of the policy instead of one request per item.
+     * <p/>
+     * Values of the queried attribute in the request are ignored, a missing attribute is handled as in
+     * {@link #evaluate(RequestType)}. The intervals are disjoint and sorted, a single value is a single point interval.
+     *
+     * @param request   request with the other attributes
+     * @param attribute the queried attribute
+     * @return
+     * @throws XACMLParsingException if an attribute is invalid or has several values
+     * @throws MIDDException
+     */
+    public List<Interval<?>> permittedIntervals(RequestType request, AttributeKey attribute) throws XACMLParsingException, MIDDException {
+        final CompiledPolicy p = getCompiledPolicy();
+
+        AttributeVector attributes = new AttributeVector(p.getAttributeMapper().size());
+        convertRequest(request, p.getAttributeMapper(), attributes);
+        final int varId = p.getAttributeMapper().lookup(attribute);
+        if (varId >= 0) {
+            attributes.remove(varId);
+        }
+        if (attributes.hasBags()) {
+            throw new XACMLParsingException("Attributes of a query must have a single value");
+        }
+        return p.permittedIntervals(attributes, varId);
+    }
+
+    /**
+     * Evaluate an XACML 3.0 request read from the stream. The request is decoded in a single pass, see
+     * {@link RequestDecoder}.
+     *
+     * @param request
+     * @return
+     */
+    public ResponseType evaluate(InputStream request) {
+        Decision result = decode(request);
+
+        return createResponse(result, result == null, false);
+    }
+
+    /**
+     * Evaluate an XACML 3.0 request read from the stream and write the response, see {@link ResponseWriter}. Requests of
+     * the Multiple Decision Profile are answered with a syntax error, they are evaluated by {@link #evaluate(RequestType)}.
+     *
+     * @param request
+     * @param response
+     * @throws IOException if the response cannot be written
+     */
+    public void evaluate(InputStream request, OutputStream response) throws IOException {
+        Decision result = decode(request);
+
+        responseWriter.write(result, result == null, false, response);
+    }
+
+    /**
+     * Decode and evaluate the request
+     *
+     * @param request
+     * @return <code>null</code> if the request is invalid
+     */
+    private Decision decode(InputStream request) {
+        final CompiledPolicy p = getCompiledPolicy();
+
+        AttributeVector attributes = attributeVectors.get();
+        try {
+            new RequestDecoder(p.getAttributeMapper()).decode(request, attributes);
+
+            return p.evaluate(attributes);
+        } catch (XACMLParsingException e) {
+            logger.error(e.getMessage());
+            return null;
+        } finally {
+            attributes.clear();
+        }
+    }
+
+    /**
+     * Evaluate a request of the JSON Profile of XACML 3.0 and write the JSON response, see {@link JsonRequestDecoder}.
+     * Requests of the Multiple Decision Profile are answered with a syntax error.
+     *
+     * @param request UTF-8 encoded request, from the position to the limit of the buffer
+     * @param response
+     * @throws IOException if the response cannot be written
+     */
+    public void evaluateJson(ByteBuffer request, OutputStream response) throws IOException {
+        final CompiledPolicy p = getCompiledPolicy();
+
+        AttributeVector attributes = attributeVectors.get();
+        Decision result = null;
+        try {
+            new JsonRequestDecoder(p.getAttributeMapper()).decode(request, attributes);
+
+            result = p.evaluate(attributes);
+        } catch (XACMLParsingException e) {
+            logger.error(e.getMessage());
+        } finally {
+            attributes.clear();
+        }
+
+        jsonResponseWriter.write(result, result == null, false, response);
+    }
+
+    /**
+     * Similar to {@link #evaluateJson(ByteBuffer, OutputStream)}
+     *
+     * @param request UTF-8 encoded request
+     * @param response
+     * @throws IOException if the response cannot be written
+     */
+    public void evaluateJson(byte[] request, OutputStream response) throws IOException {
+        evaluateJson(ByteBuffer.wrap(request), response);
+    }
+
+    /**
+     * Evaluate a binary request frame and write the binary response frame, see {@link BinaryFormat}. The request
+     * buffer is positioned after the request frame, the response buffer after the response frame.
+     *
+     * @param request
+     * @param response
+     * @throws java.nio.BufferOverflowException if the response buffer is too small
+     */
+    public void evaluate(ByteBuffer request, ByteBuffer response) {
+        final CompiledPolicy p = getCompiledPolicy();
+
+        AttributeVector attributes = attributeVectors.get();
+        Decision result = null;
+        try {
+            new BinaryRequestDecoder(p.getAttributeTable()).decode(request, attributes);
+
+            result = p.evaluate(attributes);
+        } catch (XACMLParsingException e) {
+            logger.error(e.getMessage());
+        } finally {
+            attributes.clear();
+        }
+
+        binaryResponseEncoder.write(result, result == null, false, response);
+    }
+
+    /**
+     * Evaluate a vector of attributes on the compiled MIDD.
+     *
+     * @param attributes
+     * @return
+     */
+    public Decision evaluate(AttributeVector attributes) {
+        return getCompiledPolicy().evaluate(attributes);
     }
 
     public Decision evaluate(Map<Integer, Variable<?>> variables) {
-        return EvaluationUtils.eval(this.middRoot, variables);
+        return EvaluationUtils.eval(getCompiledPolicy().getCompiledMIDD(), variables);
     }
 
-    protected ResponseType createResponse(Decision middDecision) {
+    protected ResponseType createResponse(Decision middDecision, boolean xacmlParsingError, boolean processingError) {
 
-        ResponseTypeBuilder builder = new ResponseTypeBuilder(fXACMLParsingError, fProcessiongError);
+        ResponseTypeBuilder builder = new ResponseTypeBuilder(xacmlParsingError, processingError);
 
         return builder.create(middDecision);
     }
 
-    private AbstractNode buildMIDD(PolicySetType policyset) throws MIDDParsingException, XACMLParsingException, MIDDException {
-        PolicySetParser parser = new PolicySetParser(null, policyset, this.attrMapper, policyFinder);
-        return parser.parse();
+    /**
+     * Return the attributes to add to the mapper before the policy is parsed
+     */
+    private List<AttributeKey> orderVariables() throws MIDDParsingException, XACMLParsingException, MIDDException {
+        List<AttributeKey> order = (policyset != null) ? VariableOrdering.order(policyset, policyFinder, variableOrdering) :
+                VariableOrdering.order(policy, variableOrdering);
+        if (!sifting) {
+            return order;
+        }
+
+        order = VariableOrdering.sift(order, new VariableOrdering.MIDDBuilder() {
+            @Override
+            public AbstractNode build(AttributeMapper attrMapper) throws MIDDParsingException, XACMLParsingException, MIDDException {
+                return buildMIDD(attrMapper);
+            }
+        });
+        logger.debug("Sifted variable order: {}", order);
+        return order;
+    }
+
+    private AbstractNode buildMIDD(AttributeMapper attrMapper) throws MIDDParsingException, XACMLParsingException, MIDDException {
+        return (policyset != null) ? buildMIDD(policyset, attrMapper) : buildMIDD(policy, attrMapper);
     }
 
-    private AbstractNode buildMIDD(PolicyType policy) throws MIDDParsingException, XACMLParsingException, MIDDException {
-        PolicyParser parser = new PolicyParser(null, policy, this.attrMapper);
-        return parser.parse();
+    private AbstractNode buildMIDD(PolicySetType policyset, AttributeMapper attrMapper) throws MIDDParsingException, XACMLParsingException, MIDDException {
+        UniqueTable nodes = new UniqueTable();
+        ComputedTable cache = createComputedTable();
+        ForkJoinPool pool = (compileParallelism > 1) ? new ForkJoinPool(compileParallelism) : null;
+        try {
+            PolicySetParser parser = new PolicySetParser(null, policyset, attrMapper, policyFinder, nodes, cache, pool);
+            AbstractNode n = parser.parse();
+            logBuildStatistics(nodes, cache);
+            return n;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private AbstractNode buildMIDD(PolicyType policy, AttributeMapper attrMapper) throws MIDDParsingException, XACMLParsingException, MIDDException {
+        UniqueTable nodes = new UniqueTable();
+        ComputedTable cache = createComputedTable();
+        PolicyParser parser = new PolicyParser(null, policy, attrMapper, nodes, cache);
+        AbstractNode n = parser.parse();
+        logBuildStatistics(nodes, cache);
+        return n;
     }
 
-    protected Map<Integer, Variable<?>> convertRequest(RequestType request) throws MIDDParsingException, XACMLParsingException {
-        Map<Integer, Variable<?>> variables = new HashMap<Integer, Variable<?>>();
+    /**
+     * Reduce the parsed MIDD, nodes created by joining targets and conditions are not reduced while parsing
+     */
+    private static AbstractNode reduce(AbstractNode n) throws MIDDException {
+        AbstractNode reduced = ReductionUtils.reduce(n);
+        if (logger.isDebugEnabled() && n instanceof InternalNode) {
+            logger.debug("Reduced MIDD from {} to {} nodes", MIDDUtils.countNodes((InternalNode<?>) n),
+                    (reduced instanceof InternalNode) ? MIDDUtils.countNodes((InternalNode<?>) reduced) : 1);
+        }
+        return reduced;
+    }
 
-        AttributeConverter attrConverter = new AttributeConverter(this.attrMapper);
+    private ComputedTable createComputedTable() {
+        return (computedTableMaxSize > 0) ? new ComputedTable(computedTableMaxSize, computedTablePolicy) : null;
+    }
+
+    private static void logBuildStatistics(UniqueTable nodes, ComputedTable cache) {
+        logger.debug("MIDD has {} unique nodes, {} created nodes were shared", nodes.size(), nodes.getHits());
+        if (cache != null) {
+            logger.debug("Computed table: {} hits, {} misses", cache.getHits(), cache.getMisses());
+        }
+    }
+
+    /**
+     * Fill the attribute vector with attributes of the request. Attributes not used by the policy are skipped.
+     *
+     * @param request
+     * @param attrMapper
+     * @param attributes
+     * @throws MIDDParsingException
+     * @throws XACMLParsingException
+     */
+    protected void convertRequest(RequestType request, AttributeMapper attrMapper, AttributeVector attributes) throws MIDDParsingException, XACMLParsingException {
+        AttributeConverter attrConverter = new AttributeConverter(attrMapper);
 
         for (AttributesType attrs : request.getAttributes()) {
+            convertAttributes(attrs, attrConverter, attributes);
+        }
+    }
 
-            if (attrs != null) {
-                for (AttributeType attr : attrs.getAttribute()) {
-                    if (attr != null) {
-                        Variable var = attrConverter.convert(attr);
-                        variables.put(var.getID(), var);
-                    }
+    private static void convertAttributes(AttributesType attrs, AttributeConverter attrConverter, AttributeVector attributes) throws MIDDParsingException, XACMLParsingException {
+        if (attrs != null) {
+            for (AttributeType attr : attrs.getAttribute()) {
+                if (attr != null) {
+                    attrConverter.convert(attrs.getCategory(), attr, attributes);
                 }
             }
         }
-        return variables;
     }
 
     public void print(OutputStream os) throws MIDDException {
-        middRoot.print(os);
+        getCompiledPolicy().getMIDD().print(os);
     }
 }
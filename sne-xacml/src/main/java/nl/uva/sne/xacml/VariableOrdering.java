@@ -0,0 +1,317 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.util.MIDDUtils;
+import nl.uva.sne.xacml.policy.finder.PolicyFinder;
+import nl.uva.sne.xacml.policy.parsers.MIDDParsingException;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AllOfType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AnyOfType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeDesignatorType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.IdReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.MatchType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RuleType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.TargetType;
+
+import javax.xml.bind.JAXBElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Order of the MIDD variables. Variable identifiers, i.e. levels of the MIDD, are assigned in the order attributes are
+ * added to the {@link AttributeMapper}; adding the ordered attributes to the mapper before the policy is parsed fixes
+ * the levels of the MIDD, whose size depends strongly on them.
+ * <p/>
+ * A static order is computed from the attributes of the targets in the policy. Sifting improves an order by moving each
+ * attribute to the level giving the smallest MIDD; as nodes keep a decision for missing attributes, a MIDD cannot
+ * exchange its levels in place and it is rebuilt from the policy for every candidate order.
+ * <p/>
+ * The order changes the size of the MIDD, not its decisions: requests have the same decision under every order,
+ * including requests with missing attributes.
+ *
+ * @author Canh Ngo
+ */
+public final class VariableOrdering {
+
+    public enum Strategy {
+        /**
+         * Attributes in the order the parser meets them: targets in document order, attributes of an AnyOf element in
+         * their sorted order
+         */
+        FIRST_SEEN,
+        /**
+         * Attributes matched by more AllOf expressions first
+         */
+        FREQUENCY,
+        /**
+         * Attributes of outer targets first: policy set targets, then policy targets, then rule targets; attributes of
+         * the same depth by frequency
+         */
+        DEPTH
+    }
+
+    /**
+     * Build the MIDD of a policy with the variables of the mapper, used by sifting
+     */
+    public interface MIDDBuilder {
+        AbstractNode build(AttributeMapper attrMapper) throws MIDDParsingException, XACMLParsingException, MIDDException;
+    }
+
+    /**
+     * Occurrences of an attribute in the targets
+     */
+    private static final class Occurrence {
+        private final int firstSeen;
+        private int count;
+        private int depth;
+
+        Occurrence(int firstSeen, int depth) {
+            this.firstSeen = firstSeen;
+            this.depth = depth;
+        }
+    }
+
+    private final Map<AttributeKey, Occurrence> occurrences = new LinkedHashMap<>();
+
+    /**
+     * Attributes in the order of the parser
+     */
+    private final Set<AttributeKey> firstSeen = new LinkedHashSet<>();
+
+    /**
+     * Lookup of referenced policies, null if references are not supported
+     */
+    private final PolicyFinder policyFinder;
+
+    /**
+     * Referenced policies already visited
+     */
+    private final Map<Object, Boolean> visited = new IdentityHashMap<>();
+
+    private VariableOrdering(PolicyFinder policyFinder) {
+        this.policyFinder = policyFinder;
+    }
+
+    /**
+     * Return the attributes of the targets of a policy set and its children in the order of the strategy. Policies
+     * referenced by identifiers are not visited, their attributes are added by the parser.
+     *
+     * @param policyset
+     * @param strategy
+     * @return
+     */
+    public static List<AttributeKey> order(PolicySetType policyset, Strategy strategy) {
+        return order(policyset, null, strategy);
+    }
+
+    /**
+     * Return the attributes of the targets of a policy set, its children and the policies it references in the order of
+     * the strategy. A policy referenced several times is visited once.
+     *
+     * @param policyset
+     * @param policyFinder lookup of referenced policies, null if references are not supported
+     * @param strategy
+     * @return
+     */
+    public static List<AttributeKey> order(PolicySetType policyset, PolicyFinder policyFinder, Strategy strategy) {
+        VariableOrdering ordering = new VariableOrdering(policyFinder);
+        ordering.visit(policyset, 0);
+        return ordering.sort(strategy);
+    }
+
+    /**
+     * Return the attributes of the targets of a policy and its rules in the order of the strategy
+     *
+     * @param policy
+     * @param strategy
+     * @return
+     */
+    public static List<AttributeKey> order(PolicyType policy, Strategy strategy) {
+        VariableOrdering ordering = new VariableOrdering(null);
+        ordering.visit(policy, 0);
+        return ordering.sort(strategy);
+    }
+
+    /**
+     * Sift the attributes: each attribute, in the given order, is moved to the level where the MIDD has the fewest
+     * nodes. The MIDD is built <code>n * n</code> times for <code>n</code> attributes.
+     *
+     * @param order   the initial order
+     * @param builder
+     * @return the order giving the smallest MIDD found
+     * @throws MIDDParsingException
+     * @throws XACMLParsingException
+     * @throws MIDDException
+     */
+    public static List<AttributeKey> sift(List<AttributeKey> order, MIDDBuilder builder) throws MIDDParsingException, XACMLParsingException, MIDDException {
+        List<AttributeKey> best = new ArrayList<>(order);
+        int bestSize = size(best, builder);
+
+        for (AttributeKey attr : order) {
+            List<AttributeKey> others = new ArrayList<>(best);
+            int from = others.indexOf(attr);
+            others.remove(from);
+            for (int level = 0; level <= others.size(); level++) {
+                if (level == from) {
+                    continue;
+                }
+                List<AttributeKey> candidate = new ArrayList<>(others);
+                candidate.add(level, attr);
+                int size = size(candidate, builder);
+                if (size < bestSize) {
+                    best = candidate;
+                    bestSize = size;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return number of nodes of the MIDD built with the attributes in the given order
+     *
+     * @param order
+     * @param builder
+     * @return
+     * @throws MIDDParsingException
+     * @throws XACMLParsingException
+     * @throws MIDDException
+     */
+    public static int size(List<AttributeKey> order, MIDDBuilder builder) throws MIDDParsingException, XACMLParsingException, MIDDException {
+        AttributeMapper attrMapper = new AttributeMapper();
+        attrMapper.addAttributes(order);
+        AbstractNode n = builder.build(attrMapper);
+        if (n instanceof InternalNode) {
+            return MIDDUtils.countNodes((InternalNode) n);
+        }
+        return (n == null) ? 0 : 1;
+    }
+
+    private void visit(PolicySetType policyset, int depth) {
+        visit(policyset.getTarget(), depth);
+        for (JAXBElement<?> obj : policyset.getPolicySetOrPolicyOrPolicySetIdReference()) {
+            if (obj == null) {
+                continue;
+            }
+            Object child = obj.getValue();
+            if (child instanceof IdReferenceType) {
+                child = lookup((IdReferenceType) child);
+            }
+            if (child instanceof PolicySetType) {
+                visit((PolicySetType) child, depth + 1);
+            } else if (child instanceof PolicyType) {
+                visit((PolicyType) child, depth + 1);
+            }
+        }
+    }
+
+    private Object lookup(IdReferenceType idReference) {
+        String id = idReference.getValue();
+        if (policyFinder == null || id == null || id.isEmpty()) {
+            return null;
+        }
+        Object obj = policyFinder.lookup(id);
+        if (obj == null || visited.put(obj, Boolean.TRUE) != null) {
+            return null;
+        }
+        return obj;
+    }
+
+    private void visit(PolicyType policy, int depth) {
+        visit(policy.getTarget(), depth);
+        for (Object obj : policy.getCombinerParametersOrRuleCombinerParametersOrVariableDefinition()) {
+            if (obj instanceof RuleType) {
+                visit(((RuleType) obj).getTarget(), depth + 1);
+            }
+        }
+    }
+
+    private void visit(TargetType target, int depth) {
+        if (target == null) {
+            return;
+        }
+        for (AnyOfType anyOf : target.getAnyOf()) {
+            List<AttributeKey> attributes = new ArrayList<>();
+            for (AllOfType allOf : anyOf.getAllOf()) {
+                for (MatchType match : allOf.getMatch()) {
+                    AttributeDesignatorType designator = match.getAttributeDesignator();
+                    if (designator == null) {
+                        continue;
+                    }
+                    AttributeKey attr = new AttributeKey(designator.getCategory(), designator.getAttributeId(),
+                            designator.getDataType(), designator.getIssuer());
+                    Occurrence o = occurrences.get(attr);
+                    if (o == null) {
+                        o = new Occurrence(occurrences.size(), depth);
+                        occurrences.put(attr, o);
+                    }
+                    o.count++;
+                    o.depth = Math.min(o.depth, depth);
+                    attributes.add(attr);
+                }
+            }
+            // the parser adds the attributes of an AnyOf element sorted
+            Collections.sort(attributes);
+            firstSeen.addAll(attributes);
+        }
+    }
+
+    private List<AttributeKey> sort(final Strategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Strategy argument must not be null");
+        }
+        if (strategy == Strategy.FIRST_SEEN) {
+            return new ArrayList<>(firstSeen);
+        }
+
+        List<AttributeKey> attributes = new ArrayList<>(occurrences.keySet());
+        Collections.sort(attributes, new Comparator<AttributeKey>() {
+            @Override
+            public int compare(AttributeKey a1, AttributeKey a2) {
+                Occurrence o1 = occurrences.get(a1);
+                Occurrence o2 = occurrences.get(a2);
+                if (strategy == Strategy.DEPTH && o1.depth != o2.depth) {
+                    return (o1.depth < o2.depth) ? -1 : 1;
+                }
+                if (o1.count != o2.count) {
+                    return (o1.count > o2.count) ? -1 : 1;
+                }
+                return (o1.firstSeen < o2.firstSeen) ? -1 : (o1.firstSeen == o2.firstSeen ? 0 : 1);
+            }
+        });
+        return attributes;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import nl.uva.sne.xacml.AttributeKey;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.policy.parsers.MIDDParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Attribute table negotiated between a PDP and its PEPs: the attributes of the loaded policies ordered by their
+ * variable identifiers. Binary requests identify values by variable identifier and carry the table identifier, a PDP
+ * rejects requests encoded for another table.
+ *
+ * @author Canh Ngo
+ */
+public final class AttributeTable {
+
+    private final AttributeKey[] attributes;
+
+    private final byte[] types;
+
+    private final Map<AttributeKey, Integer> variableIds;
+
+    private final int id;
+
+    private AttributeTable(AttributeKey[] attributes) {
+        if (attributes.length > BinaryFormat.MAX_UNSIGNED_SHORT) {
+            throw new IllegalArgumentException("Too many attributes for the binary format");
+        }
+        this.attributes = attributes;
+        this.types = new byte[attributes.length];
+        this.variableIds = new HashMap<>();
+
+        int h = attributes.length;
+        for (int i = 0; i < attributes.length; i++) {
+            types[i] = getValueType(attributes[i].getDataType());
+            variableIds.put(attributes[i], i);
+            h = 31 * h + attributes[i].hashCode();
+        }
+        this.id = h;
+    }
+
+    /**
+     * Create the table of a frozen attribute mapper
+     *
+     * @param attrMapper
+     * @return
+     */
+    public static AttributeTable of(AttributeMapper attrMapper) {
+        if (!attrMapper.isFrozen()) {
+            throw new IllegalStateException("Attribute mapper must be frozen");
+        }
+        AttributeKey[] attributes = new AttributeKey[attrMapper.size()];
+        try {
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = attrMapper.getAttribute(i);
+            }
+        } catch (MIDDParsingException e) {
+            throw new IllegalStateException("Variable identifiers of the attribute mapper are not contiguous", e);
+        }
+        return new AttributeTable(attributes);
+    }
+
+    /**
+     * Read a table written by {@link #writeTo(ByteBuffer)}
+     *
+     * @param buffer
+     * @return
+     */
+    public static AttributeTable readFrom(ByteBuffer buffer) {
+        AttributeKey[] attributes = new AttributeKey[buffer.getShort() & BinaryFormat.MAX_UNSIGNED_SHORT];
+        for (int i = 0; i < attributes.length; i++) {
+            String category = BinaryFormat.getString(buffer);
+            String attributeId = BinaryFormat.getString(buffer);
+            String dataType = BinaryFormat.getString(buffer);
+            String issuer = BinaryFormat.getString(buffer);
+            attributes[i] = new AttributeKey(category, attributeId, dataType, issuer);
+        }
+        return new AttributeTable(attributes);
+    }
+
+    /**
+     * Write the table, to be sent to PEPs
+     *
+     * @param buffer
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putShort((short) attributes.length);
+        for (AttributeKey attr : attributes) {
+            BinaryFormat.putString(attr.getCategory(), buffer);
+            BinaryFormat.putString(attr.getAttributeId(), buffer);
+            BinaryFormat.putString(attr.getDataType(), buffer);
+            BinaryFormat.putString(attr.getIssuer(), buffer);
+        }
+    }
+
+    private static byte getValueType(String dataType) {
+        if (dataType.equalsIgnoreCase(DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER)) {
+            return BinaryFormat.TYPE_LONG;
+        } else if (dataType.equalsIgnoreCase(DataTypeConverterUtil.XACML_3_0_DATA_TYPE_DOUBLE)) {
+            return BinaryFormat.TYPE_DOUBLE;
+        } else {
+            return BinaryFormat.TYPE_STRING;
+        }
+    }
+
+    /**
+     * Return the identifier of the table, computed from its attributes
+     *
+     * @return
+     */
+    public int getId() {
+        return id;
+    }
+
+    public int size() {
+        return attributes.length;
+    }
+
+    public AttributeKey getAttribute(int varId) {
+        return attributes[varId];
+    }
+
+    /**
+     * Return the value type of the variable, one of the <code>TYPE_*</code> constants of {@link BinaryFormat}
+     *
+     * @param varId
+     * @return
+     */
+    public byte getValueType(int varId) {
+        return types[varId];
+    }
+
+    /**
+     * Return the variable identifier of the attribute
+     *
+     * @param attr
+     * @return -1 if the attribute is not in the table
+     */
+    public int getVariableId(AttributeKey attr) {
+        Integer varId = variableIds.get(attr);
+        return (varId != null) ? varId : -1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof AttributeTable && Arrays.equals(attributes, ((AttributeTable) obj).attributes);
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import nl.uva.sne.midd.DecisionType;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants of the binary request/response format for internal PEPs. Integers are big-endian.
+ * <p/>
+ * A request frame is: <code>int length</code> of the rest of the frame, <code>int</code> identifier of the attribute
+ * table (see {@link AttributeTable#getId()}), <code>unsigned short</code> number of values, then for each value an
+ * <code>unsigned short</code> variable identifier, a type byte and the value: 8 bytes for {@link #TYPE_LONG} and
+ * {@link #TYPE_DOUBLE}, an <code>unsigned short</code> length and UTF-8 bytes for {@link #TYPE_STRING}. A variable
+ * repeated in a frame is a bag of its values.
+ * <p/>
+ * A response frame is: <code>int length</code> of the rest of the frame, a decision byte, a status byte,
+ * <code>unsigned short</code> number of obligations and for each of them an <code>unsigned short</code> length and the
+ * UTF-8 bytes of its identifier.
+ *
+ * @author Canh Ngo
+ */
+public final class BinaryFormat {
+
+    public static final byte TYPE_LONG = 1;
+    public static final byte TYPE_DOUBLE = 2;
+    public static final byte TYPE_STRING = 3;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_MISSING_ATTRIBUTE = 1;
+    public static final byte STATUS_SYNTAX_ERROR = 2;
+    public static final byte STATUS_PROCESSING_ERROR = 3;
+
+    /**
+     * Decisions indexed by their codes in a response frame
+     */
+    private static final DecisionType[] DECISIONS = {
+            DecisionType.Deny,
+            DecisionType.Permit,
+            DecisionType.NotApplicable,
+            DecisionType.Indeterminate,
+            DecisionType.Indeterminate_D,
+            DecisionType.Indeterminate_P,
+            DecisionType.Indeterminate_DP};
+
+    /**
+     * Largest number of values in a frame, and largest variable identifier and string length
+     */
+    public static final int MAX_UNSIGNED_SHORT = 0xFFFF;
+
+    private BinaryFormat() {
+    }
+
+    public static byte encodeDecision(DecisionType decision) {
+        for (byte i = 0; i < DECISIONS.length; i++) {
+            if (DECISIONS[i] == decision) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown decision value:" + decision);
+    }
+
+    public static DecisionType decodeDecision(byte code) {
+        if (code < 0 || code >= DECISIONS.length) {
+            throw new IllegalArgumentException("Unknown decision code:" + code);
+        }
+        return DECISIONS[code];
+    }
+
+    /**
+     * Write a string as an <code>unsigned short</code> length and UTF-8 bytes, a <code>null</code> string has the
+     * length {@link #MAX_UNSIGNED_SHORT}.
+     *
+     * @param s
+     * @param buffer
+     */
+    static void putString(String s, ByteBuffer buffer) {
+        if (s == null) {
+            buffer.putShort((short) MAX_UNSIGNED_SHORT);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= MAX_UNSIGNED_SHORT) {
+            throw new IllegalArgumentException("String is too long for the binary format");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #putString(String, ByteBuffer)}
+     *
+     * @param buffer
+     * @return
+     * @throws BufferUnderflowException if the buffer has fewer bytes than the length of the string
+     */
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & MAX_UNSIGNED_SHORT;
+        if (length == MAX_UNSIGNED_SHORT) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s;
+        if (buffer.hasArray()) {
+            s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decoder of binary request frames into an attribute vector, used by the PDP. Integer and double values are copied
+ * into the primitive slots of the vector, no object is created for them.
+ *
+ * @author Canh Ngo
+ * @see BinaryFormat
+ */
+public class BinaryRequestDecoder {
+
+    private final AttributeTable table;
+
+    public BinaryRequestDecoder(AttributeTable table) {
+        if (table == null) {
+            throw new IllegalArgumentException("Attribute table argument must not be null");
+        }
+        this.table = table;
+    }
+
+    /**
+     * Decode the frame at the position of the buffer, the buffer is positioned after the frame.
+     *
+     * @param frame
+     * @param attributes
+     * @throws XACMLParsingException if the frame is truncated or invalid, or it was encoded for another attribute table
+     */
+    public void decode(ByteBuffer frame, AttributeVector attributes) throws XACMLParsingException {
+        final int end;
+        try {
+            int length = frame.getInt();
+            if (length < 0 || length > frame.remaining()) {
+                throw new XACMLParsingException("Truncated binary request of " + length + " bytes");
+            }
+            end = frame.position() + length;
+        } catch (BufferUnderflowException e) {
+            throw new XACMLParsingException("Truncated binary request");
+        }
+
+        // values are read within the frame: a value crossing the end of the frame underflows
+        final int limit = frame.limit();
+        frame.limit(end);
+        try {
+            int tableId = frame.getInt();
+            if (tableId != table.getId()) {
+                throw new XACMLParsingException("Binary request was encoded for another attribute table");
+            }
+
+            int count = frame.getShort() & BinaryFormat.MAX_UNSIGNED_SHORT;
+            for (int i = 0; i < count; i++) {
+                int varId = frame.getShort() & BinaryFormat.MAX_UNSIGNED_SHORT;
+                byte type = frame.get();
+                if (varId >= table.size() || table.getValueType(varId) != type) {
+                    throw new XACMLParsingException("Invalid value type " + type + " of variable " + varId);
+                }
+
+                // a variable repeated in the frame is a bag
+                final boolean bag = attributes.isPresent(varId);
+                switch (type) {
+                    case BinaryFormat.TYPE_LONG:
+                        if (bag) {
+                            attributes.add(varId, frame.getLong());
+                        } else {
+                            attributes.setLong(varId, frame.getLong());
+                        }
+                        break;
+                    case BinaryFormat.TYPE_DOUBLE:
+                        if (bag) {
+                            attributes.add(varId, frame.getDouble());
+                        } else {
+                            attributes.setDouble(varId, frame.getDouble());
+                        }
+                        break;
+                    default:
+                        String value = BinaryFormat.getString(frame);
+                        if (value == null) {
+                            throw new XACMLParsingException("Empty value of variable " + varId);
+                        }
+                        attributes.add(varId, DataTypeConverterUtil.convert(value, table.getAttribute(varId).getDataType()));
+                }
+            }
+
+            if (frame.position() != end) {
+                throw new XACMLParsingException("Invalid length of binary request");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new XACMLParsingException("Truncated binary request");
+        } finally {
+            frame.limit(limit);
+            frame.position(end);
+        }
+    }
+}
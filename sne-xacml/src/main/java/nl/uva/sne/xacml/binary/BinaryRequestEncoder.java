@@ -0,0 +1,125 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoder of binary request frames, used by PEPs. Values are identified by variable identifiers of the attribute table
+ * negotiated with the PDP. An encoder is not thread-safe, it can be reused for successive frames.
+ * <p/>
+ * Usage: {@link #begin(ByteBuffer)}, a <code>put</code> method per value, then {@link #end()}.
+ *
+ * @author Canh Ngo
+ * @see BinaryFormat
+ */
+public class BinaryRequestEncoder {
+
+    private final AttributeTable table;
+
+    private ByteBuffer buffer;
+
+    private int start;
+
+    private int count;
+
+    public BinaryRequestEncoder(AttributeTable table) {
+        if (table == null) {
+            throw new IllegalArgumentException("Attribute table argument must not be null");
+        }
+        this.table = table;
+    }
+
+    /**
+     * Start a frame at the position of the buffer
+     *
+     * @param buffer
+     */
+    public void begin(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.start = buffer.position();
+        this.count = 0;
+
+        buffer.putInt(0);
+        buffer.putInt(table.getId());
+        buffer.putShort((short) 0);
+    }
+
+    public void putLong(int varId, long value) {
+        putHeader(varId, BinaryFormat.TYPE_LONG);
+        buffer.putLong(value);
+    }
+
+    public void putDouble(int varId, double value) {
+        putHeader(varId, BinaryFormat.TYPE_DOUBLE);
+        buffer.putDouble(value);
+    }
+
+    public void putString(int varId, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null");
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= BinaryFormat.MAX_UNSIGNED_SHORT) {
+            throw new IllegalArgumentException("String is too long for the binary format");
+        }
+        putHeader(varId, BinaryFormat.TYPE_STRING);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void putHeader(int varId, byte type) {
+        if (buffer == null) {
+            throw new IllegalStateException("No frame has been started");
+        }
+        if (varId < 0 || varId >= table.size()) {
+            throw new IllegalArgumentException("Unknown variable identifier: " + varId);
+        }
+        if (table.getValueType(varId) != type) {
+            throw new IllegalArgumentException("Variable " + varId + " has type " + table.getValueType(varId) + ", not " + type);
+        }
+        if (count == BinaryFormat.MAX_UNSIGNED_SHORT) {
+            throw new IllegalStateException("Too many values in the frame");
+        }
+        buffer.putShort((short) varId);
+        buffer.put(type);
+        count++;
+    }
+
+    /**
+     * Complete the frame, the buffer is positioned after it
+     *
+     * @return size of the frame in bytes
+     */
+    public int end() {
+        if (buffer == null) {
+            throw new IllegalStateException("No frame has been started");
+        }
+        int size = buffer.position() - start;
+        buffer.putInt(start, size - 4);
+        buffer.putShort(start + 8, (short) count);
+        buffer = null;
+        return size;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.obligations.Obligation;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary response frame decoded by a PEP: the decision with its obligations, and the status.
+ *
+ * @author Canh Ngo
+ * @see BinaryFormat
+ */
+public final class BinaryResponse {
+
+    private final Decision decision;
+
+    private final byte status;
+
+    private BinaryResponse(Decision decision, byte status) {
+        this.decision = decision;
+        this.status = status;
+    }
+
+    /**
+     * Decode the frame at the position of the buffer, the buffer is positioned after the frame.
+     *
+     * @param frame
+     * @return
+     * @throws IllegalArgumentException if the frame is invalid
+     * @throws BufferUnderflowException if the frame is truncated
+     */
+    public static BinaryResponse decode(ByteBuffer frame) {
+        int length = frame.getInt();
+        if (length < 4 || length > frame.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int end = frame.position() + length;
+
+        byte decision = frame.get();
+        byte status = frame.get();
+        int count = frame.getShort() & BinaryFormat.MAX_UNSIGNED_SHORT;
+        List<Obligation> obligations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            obligations.add(new Obligation(BinaryFormat.getString(frame)));
+        }
+        if (frame.position() != end) {
+            throw new IllegalArgumentException("Invalid length of binary response");
+        }
+
+        return new BinaryResponse(new Decision(BinaryFormat.decodeDecision(decision), obligations), status);
+    }
+
+    public Decision getDecision() {
+        return decision;
+    }
+
+    /**
+     * Return the status, one of the <code>STATUS_*</code> constants of {@link BinaryFormat}
+     *
+     * @return
+     */
+    public byte getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.obligations.Obligation;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Encoder of binary response frames, used by the PDP. The frame of each decision is cached, see
+ * {@link nl.uva.sne.xacml.builders.ResponseWriter}. The encoder is thread-safe.
+ *
+ * @author Canh Ngo
+ * @see BinaryFormat
+ */
+public class BinaryResponseEncoder {
+
+    /**
+     * Maximum number of decisions whose frames are cached, others are encoded on every call
+     */
+    public static final int MAX_CACHED_RESPONSES = 1024;
+
+    private static final byte[] SYNTAX_ERROR = encode(new Decision(DecisionType.Indeterminate), BinaryFormat.STATUS_SYNTAX_ERROR);
+
+    private static final byte[] PROCESSING_ERROR = encode(new Decision(DecisionType.Indeterminate), BinaryFormat.STATUS_PROCESSING_ERROR);
+
+    private final ConcurrentMap<Decision, byte[]> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Write the frame of the decision at the position of the buffer. If there's an error, or the decision is
+     * <code>null</code>, the decision is Indeterminate with the status of the error.
+     *
+     * @param decision
+     * @param xacmlParsingError
+     * @param processingError
+     * @param buffer
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public void write(Decision decision, boolean xacmlParsingError, boolean processingError, ByteBuffer buffer) {
+        if (xacmlParsingError) {
+            buffer.put(SYNTAX_ERROR);
+        } else if (processingError || decision == null) {
+            buffer.put(PROCESSING_ERROR);
+        } else {
+            byte[] frame = responses.get(decision);
+            if (frame == null) {
+                frame = encode(decision, getStatus(decision.getDecision()));
+                if (responses.size() < MAX_CACHED_RESPONSES) {
+                    responses.putIfAbsent(decision, frame);
+                }
+            }
+            buffer.put(frame);
+        }
+    }
+
+    private static byte getStatus(DecisionType decision) {
+        switch (decision) {
+            case Indeterminate:
+            case Indeterminate_D:
+            case Indeterminate_P:
+            case Indeterminate_DP:
+                return BinaryFormat.STATUS_MISSING_ATTRIBUTE;
+            default:
+                return BinaryFormat.STATUS_OK;
+        }
+    }
+
+    private static byte[] encode(Decision decision, byte status) {
+        int size = 4 + 1 + 1 + 2;
+        for (Obligation o : decision.getObligations()) {
+            size += 2 + o.toString().length() * 3;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(0);
+        buffer.put(BinaryFormat.encodeDecision(decision.getDecision()));
+        buffer.put(status);
+        buffer.putShort((short) decision.getObligations().size());
+        for (Obligation o : decision.getObligations()) {
+            BinaryFormat.putString(o.toString(), buffer);
+        }
+        buffer.putInt(0, buffer.position() - 4);
+
+        byte[] frame = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, frame, 0, frame.length);
+        return frame;
+    }
+}
@@ -30,16 +30,20 @@ import oasis.names.tc.xacml._3_0.core.schema.wd_17.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 public class ResponseTypeBuilder {
     private static final Logger logger = LoggerFactory.getLogger(ResponseTypeBuilder.class);
 
-    private static final String STATUS_CODE_OK = "urn:oasis:names:tc:xacml:1.0:status:ok";
+    private static final ObjectFactory factory = new ObjectFactory();
+
+    static final String STATUS_CODE_OK = "urn:oasis:names:tc:xacml:1.0:status:ok";
 
-    private static final String STATUS_CODE_MISSING_ATTRIBUTE = "urn:oasis:names:tc:xacml:1.0:status:missing-attribute";
+    static final String STATUS_CODE_MISSING_ATTRIBUTE = "urn:oasis:names:tc:xacml:1.0:status:missing-attribute";
 
-    private static final String STATUS_CODE_SYNTAX_ERROR = "urn:oasis:names:tc:xacml:1.0:status:syntax-error";
+    static final String STATUS_CODE_SYNTAX_ERROR = "urn:oasis:names:tc:xacml:1.0:status:syntax-error";
 
-    private static final String STATUS_CODE_PROCESSING_ERROR = "urn:oasis:names:tc:xacml:1.0:status:processing-error";
+    static final String STATUS_CODE_PROCESSING_ERROR = "urn:oasis:names:tc:xacml:1.0:status:processing-error";
 
     private boolean fXACMLParsingError;
 
@@ -56,48 +60,96 @@ public class ResponseTypeBuilder {
         if (middDecision == null) {
             return null;
         }
-        ResponseType response = (new ObjectFactory()).createResponseType();
+        ResponseType response = factory.createResponseType();
+        response.getResult().add(createResult(middDecision));
+        return response;
+    }
+
+    /**
+     * Create a response of several results, e.g. of the individual requests of a multiple decision request
+     *
+     * @param results
+     * @return
+     */
+    public static ResponseType create(List<ResultType> results) {
+        ResponseType response = factory.createResponseType();
+        response.getResult().addAll(results);
+        return response;
+    }
 
+    public ResultType createResult(Decision middDecision) {
         // Create obligations object
-        ObligationsType obligations = (new ObjectFactory()).createObligationsType();
+        ObligationsType obligations = factory.createObligationsType();
         if (middDecision.getObligations() != null) {
             for (Obligation middObl : middDecision.getObligations()) {
-                ObligationType o = (new ObjectFactory()).createObligationType();
+                ObligationType o = factory.createObligationType();
                 o.setObligationId(middObl.toString());
                 obligations.getObligation().add(o);
             }
         }
 
         // Create status code object
-        StatusCodeType statusCode = (new ObjectFactory()).createStatusCodeType();
-        statusCode.setValue(getStatusCode(middDecision.getDecision()));
-        StatusType status = (new ObjectFactory()).createStatusType();
+        StatusCodeType statusCode = factory.createStatusCodeType();
+        statusCode.setValue(getResultStatusCode(middDecision.getDecision()));
+        StatusType status = factory.createStatusType();
         status.setStatusCode(statusCode);
 
         // Create result object
-        ResultType result = (new ObjectFactory()).createResultType();
+        ResultType result = factory.createResultType();
         result.setDecision(DecisionConverterUtil.convertMIDDDecision(middDecision.getDecision()));
         result.setObligations(obligations);
         result.setStatus(status);
-
-        response.getResult().add(result);
-        return response;
+        return result;
     }
 
-
     /**
-     * Dummy convert
+     * Create the result of an individual request, it includes the attributes of the request marked with
+     * <code>IncludeInResult</code> so that the PEP can correlate the results with its requests.
      *
-     * @param decision
+     * @param middDecision
+     * @param request      attributes elements of the individual request
      * @return
      */
-    private String getStatusCode(DecisionType decision) {
+    public ResultType createResult(Decision middDecision, List<AttributesType> request) {
+        ResultType result = createResult(middDecision);
+
+        for (AttributesType attrs : request) {
+            AttributesType included = null;
+            for (AttributeType attr : attrs.getAttribute()) {
+                if (attr != null && attr.isIncludeInResult()) {
+                    if (included == null) {
+                        included = factory.createAttributesType();
+                        included.setCategory(attrs.getCategory());
+                        included.setId(attrs.getId());
+                        result.getAttributes().add(included);
+                    }
+                    included.getAttribute().add(attr);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    private String getResultStatusCode(DecisionType decision) {
         if (fXACMLParsingError) {
             return STATUS_CODE_SYNTAX_ERROR;
         } else if (fProcessingError) {
             return STATUS_CODE_PROCESSING_ERROR;
-        } else if (decision == DecisionType.Deny ||
-                decision == DecisionType.Permit) {
+        }
+        return getStatusCode(decision);
+    }
+
+    /**
+     * Return the status code of the decision without error
+     *
+     * @param decision
+     * @return
+     */
+    static String getStatusCode(DecisionType decision) {
+        if (decision == DecisionType.Deny ||
+                decision == DecisionType.Permit ||
+                decision == DecisionType.NotApplicable) {
             return STATUS_CODE_OK;
         } else if (decision == DecisionType.Indeterminate ||
                 decision == DecisionType.Indeterminate_D ||
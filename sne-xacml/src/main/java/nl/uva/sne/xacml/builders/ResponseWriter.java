@@ -0,0 +1,219 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.builders;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.obligations.Obligation;
+import nl.uva.sne.xacml.policy.parsers.util.DecisionConverterUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Write XACML 3.0 responses, in XML or in the JSON Profile of XACML 3.0, without JAXB marshalling.
+ * <p/>
+ * Decisions of a PDP come from a small set of MIDD leaves, so the encoded response of each decision is cached and
+ * writing a response is mostly a buffer copy. The writer is thread-safe.
+ *
+ * @author Canh Ngo
+ */
+public class ResponseWriter {
+
+    /**
+     * Maximum number of decisions whose responses are cached, others are encoded on every call
+     */
+    public static final int MAX_CACHED_RESPONSES = 1024;
+
+    /**
+     * Encoding of responses
+     */
+    public enum Format {
+        XML, JSON
+    }
+
+    private static final String RESPONSE_START = "<Response xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\"><Result><Decision>";
+
+    private final Format format;
+
+    private final Fragment syntaxError;
+
+    private final Fragment processingError;
+
+    private final ConcurrentMap<Decision, Fragment> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Create an XML response writer
+     */
+    public ResponseWriter() {
+        this(Format.XML);
+    }
+
+    public ResponseWriter(Format format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format argument must not be null");
+        }
+        this.format = format;
+        Decision indeterminate = new Decision(DecisionType.Indeterminate);
+        this.syntaxError = new Fragment(encode(indeterminate, ResponseTypeBuilder.STATUS_CODE_SYNTAX_ERROR));
+        this.processingError = new Fragment(encode(indeterminate, ResponseTypeBuilder.STATUS_CODE_PROCESSING_ERROR));
+    }
+
+    /**
+     * Write the response of the decision. If there's an error, or the decision is <code>null</code>, the response is
+     * Indeterminate with the status code of the error.
+     *
+     * @param decision
+     * @param xacmlParsingError
+     * @param processingError
+     * @param os
+     * @throws IOException
+     */
+    public void write(Decision decision, boolean xacmlParsingError, boolean processingError, OutputStream os) throws IOException {
+        os.write(getFragment(decision, xacmlParsingError, processingError).bytes);
+    }
+
+    /**
+     * Similar to {@link #write(Decision, boolean, boolean, OutputStream)} with a character stream.
+     *
+     * @param decision
+     * @param xacmlParsingError
+     * @param processingError
+     * @param writer
+     * @throws IOException
+     */
+    public void write(Decision decision, boolean xacmlParsingError, boolean processingError, Writer writer) throws IOException {
+        writer.write(getFragment(decision, xacmlParsingError, processingError).text);
+    }
+
+    private Fragment getFragment(Decision decision, boolean xacmlParsingError, boolean processingError) {
+        if (xacmlParsingError) {
+            return syntaxError;
+        } else if (processingError || decision == null) {
+            return this.processingError;
+        }
+
+        Fragment fragment = responses.get(decision);
+        if (fragment == null) {
+            fragment = new Fragment(encode(decision, ResponseTypeBuilder.getStatusCode(decision.getDecision())));
+            if (responses.size() < MAX_CACHED_RESPONSES) {
+                responses.putIfAbsent(decision, fragment);
+            }
+        }
+        return fragment;
+    }
+
+    private String encode(Decision decision, String statusCode) {
+        return (format == Format.JSON) ? encodeJson(decision, statusCode) : encodeXml(decision, statusCode);
+    }
+
+    private static String encodeXml(Decision decision, String statusCode) {
+        StringBuilder buf = new StringBuilder(256);
+        buf.append(RESPONSE_START);
+        buf.append(DecisionConverterUtil.convertMIDDDecision(decision.getDecision()).value());
+        buf.append("</Decision><Status><StatusCode Value=\"").append(statusCode).append("\"/></Status>");
+
+        if (!decision.getObligations().isEmpty()) {
+            buf.append("<Obligations>");
+            for (Obligation o : decision.getObligations()) {
+                buf.append("<Obligation ObligationId=\"");
+                escape(o.toString(), buf);
+                buf.append("\"/>");
+            }
+            buf.append("</Obligations>");
+        }
+        buf.append("</Result></Response>");
+        return buf.toString();
+    }
+
+    private static String encodeJson(Decision decision, String statusCode) {
+        StringBuilder buf = new StringBuilder(256);
+        buf.append("{\"Response\":[{\"Decision\":\"");
+        buf.append(DecisionConverterUtil.convertMIDDDecision(decision.getDecision()).value());
+        buf.append("\",\"Status\":{\"StatusCode\":{\"Value\":\"").append(statusCode).append("\"}}");
+
+        if (!decision.getObligations().isEmpty()) {
+            buf.append(",\"Obligations\":[");
+            for (Obligation o : decision.getObligations()) {
+                buf.append("{\"Id\":\"");
+                escapeJson(o.toString(), buf);
+                buf.append("\"},");
+            }
+            buf.setCharAt(buf.length() - 1, ']');
+        }
+        buf.append("}]}");
+        return buf.toString();
+    }
+
+    private static void escapeJson(String value, StringBuilder buf) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buf.append('\\').append(c);
+            } else if (c < 0x20) {
+                buf.append(String.format("\\u%04x", (int) c));
+            } else {
+                buf.append(c);
+            }
+        }
+    }
+
+    private static void escape(String value, StringBuilder buf) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    buf.append("&amp;");
+                    break;
+                case '<':
+                    buf.append("&lt;");
+                    break;
+                case '>':
+                    buf.append("&gt;");
+                    break;
+                case '"':
+                    buf.append("&quot;");
+                    break;
+                default:
+                    buf.append(c);
+            }
+        }
+    }
+
+    /**
+     * An encoded response, as text and UTF-8 bytes
+     */
+    private static class Fragment {
+        private final String text;
+        private final byte[] bytes;
+
+        Fragment(String text) {
+            this.text = text;
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
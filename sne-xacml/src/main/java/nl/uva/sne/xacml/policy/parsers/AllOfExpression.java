@@ -22,6 +22,7 @@ package nl.uva.sne.xacml.policy.parsers;
 import nl.uva.sne.midd.MIDDException;
 import nl.uva.sne.midd.interval.EndPoint;
 import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.xacml.AttributeKey;
 import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
 import nl.uva.sne.xacml.policy.parsers.util.MatchIdConverterUtil;
 import nl.uva.sne.xacml.policy.parsers.util.MatchIdConverterUtil.OperatorType;
@@ -52,17 +53,17 @@ public class AllOfExpression {
     private static final Logger log = LoggerFactory.getLogger(AllOfExpression.class);
 
     @SuppressWarnings("rawtypes")
-    private Map<String, AttributeInfo> variables;
+    private Map<AttributeKey, AttributeInfo> variables;
 
 
     public AllOfExpression() {
-        variables = new HashMap<String, AttributeInfo>();
+        variables = new HashMap<AttributeKey, AttributeInfo>();
     }
 
     /**
      * @return List of variables with their equivalent intervals.
      */
-    public Map<String, AttributeInfo> getAttributeInfos() {
+    public Map<AttributeKey, AttributeInfo> getAttributeInfos() {
         return this.variables;
     }
 
@@ -85,13 +86,15 @@ public class AllOfExpression {
         List<MatchType> lstMatches = allOf.getMatch();
 
         // Collect all intervals in the allOf expression and put to each attribute
-        Map<String, AttributeInfo> intervals = new HashMap<String, AttributeInfo>();
+        Map<AttributeKey, AttributeInfo> intervals = new HashMap<AttributeKey, AttributeInfo>();
 
         for (MatchType match : lstMatches) {
             // validating the match expression
             validate(match);
 
-            String varId = match.getAttributeDesignator().getAttributeId();
+            AttributeDesignatorType designator = match.getAttributeDesignator();
+            AttributeKey varId = new AttributeKey(designator.getCategory(), designator.getAttributeId(),
+                    designator.getDataType(), designator.getIssuer());
             boolean isMustBePresent = match.getAttributeDesignator().isMustBePresent();
 
             if (!intervals.containsKey(varId)) {
@@ -136,8 +139,8 @@ public class AllOfExpression {
         }
 
         // validating extracted intervals
-        Map<String, AttributeInfo> validIntervals = new HashMap<String, AttributeInfo>();
-        for (String varId : intervals.keySet()) {
+        Map<AttributeKey, AttributeInfo> validIntervals = new HashMap<AttributeKey, AttributeInfo>();
+        for (AttributeKey varId : intervals.keySet()) {
             Interval interval = intervals.get(varId).getInterval();
 
             if (interval.validate()) {
@@ -33,6 +33,7 @@ import nl.uva.sne.midd.nodes.InternalNode;
 import nl.uva.sne.midd.obligations.InternalNodeState;
 import nl.uva.sne.midd.util.EdgeUtils;
 import nl.uva.sne.midd.util.NodeUtils;
+import nl.uva.sne.xacml.AttributeKey;
 import nl.uva.sne.xacml.AttributeMapper;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AllOfType;
 import oasis.names.tc.xacml._3_0.core.schema.wd_17.AnyOfType;
@@ -83,7 +84,7 @@ public class AnyOfExpression {
      * @throws MIDDParsingException
      * @throws MIDDException
      */
-    public AbstractNode createFromConjunctionClauses(Map<String, AttributeInfo> intervals) throws MIDDParsingException, MIDDException {
+    public AbstractNode createFromConjunctionClauses(Map<AttributeKey, AttributeInfo> intervals) throws MIDDParsingException, MIDDException {
 
         if (intervals == null || intervals.size() == 0) {
             return ExternalNode.newInstance(); // return true-value external node
@@ -91,7 +92,7 @@ public class AnyOfExpression {
 
         // Create edges from intervals
         Map<Integer, AbstractEdge<?>> edges = new HashMap<Integer, AbstractEdge<?>>();
-        for (String attrId : intervals.keySet()) {
+        for (AttributeKey attrId : intervals.keySet()) {
             int varId = attrMapper.getVariableId(attrId);
             Interval<?> interval = intervals.get(attrId).getInterval();
 
@@ -114,7 +115,7 @@ public class AnyOfExpression {
             AbstractEdge<?> e = edges.get(varId);
 
             // default is NotApplicable, unless the "MustBePresent" is set to "true"
-            String attrId = attrMapper.getAttributeId(varId);
+            AttributeKey attrId = attrMapper.getAttribute(varId);
             boolean isAttrMustBePresent = intervals.get(attrId).isMustBePresent;
 
             InternalNodeState nodeState = new InternalNodeState(isAttrMustBePresent ? DecisionType.Indeterminate : DecisionType.NotApplicable);
@@ -149,7 +150,7 @@ public class AnyOfExpression {
         /**
          * Each element in this list represents a AllOf expression.
          */
-        List<Map<String, AttributeInfo>> lstAllOfExprIntervals = new ArrayList<Map<String, AttributeInfo>>();
+        List<Map<AttributeKey, AttributeInfo>> lstAllOfExprIntervals = new ArrayList<Map<AttributeKey, AttributeInfo>>();
 
         // Parsing from XML element to list of intervals
         AllOfExpression allOfExpression = new AllOfExpression();
@@ -157,7 +158,7 @@ public class AnyOfExpression {
         for (AllOfType allOf : lstAllOf) {
             // Extract intervals from a AllOfType element
             allOfExpression.parse(allOf);
-            Map<String, AttributeInfo> attributeInfos = allOfExpression.getAttributeInfos();
+            Map<AttributeKey, AttributeInfo> attributeInfos = allOfExpression.getAttributeInfos();
 
             if (!attributeInfos.isEmpty())    // if this AllOf expr has any applicable predicates
             {
@@ -166,9 +167,9 @@ public class AnyOfExpression {
         }
 
         // Indexing variables
-        List<String> attributes = new ArrayList<String>();
-        for (Map<String, AttributeInfo> i : lstAllOfExprIntervals) {
-            Set<String> attrSet = i.keySet();
+        List<AttributeKey> attributes = new ArrayList<AttributeKey>();
+        for (Map<AttributeKey, AttributeInfo> i : lstAllOfExprIntervals) {
+            Set<AttributeKey> attrSet = i.keySet();
             attributes.addAll(attrSet);
         }
         // sort attribute in alphabet order (temporary)
@@ -178,10 +179,10 @@ public class AnyOfExpression {
         // Build MIDDs from allOf expressions and combine as disjunction
         AbstractNode root = null;
 
-        Iterator<Map<String, AttributeInfo>> iterAllOf = lstAllOfExprIntervals.iterator();
+        Iterator<Map<AttributeKey, AttributeInfo>> iterAllOf = lstAllOfExprIntervals.iterator();
 
         while (iterAllOf.hasNext()) {
-            Map<String, AttributeInfo> currentAllOfExp = iterAllOf.next();
+            Map<AttributeKey, AttributeInfo> currentAllOfExp = iterAllOf.next();
             // Create an IDD from list of intervals in the AllOf expression
             AbstractNode n = createFromConjunctionClauses(currentAllOfExp);
 
@@ -24,8 +24,10 @@ package nl.uva.sne.xacml.policy.parsers;
 
 import nl.uva.sne.midd.MIDDException;
 import nl.uva.sne.midd.algorithms.CombiningAlgorithm;
+import nl.uva.sne.midd.builders.ComputedTable;
 import nl.uva.sne.midd.builders.ConjunctiveBuilder;
 import nl.uva.sne.midd.builders.MIDDCombiner;
+import nl.uva.sne.midd.builders.UniqueTable;
 import nl.uva.sne.midd.nodes.AbstractNode;
 import nl.uva.sne.midd.nodes.ExternalNode;
 import nl.uva.sne.midd.util.GenericUtils;
@@ -51,11 +53,35 @@ public class PolicyParser {
 
     private AttributeMapper attrMapper = null;
 
+    private UniqueTable nodes;
+
+    private ComputedTable cache;
+
     /**
      * @param condition a MIDD that represents the target expression of the parents' policy.
      * @param policy    a XACML 3.0 policy element.
      */
     public PolicyParser(AbstractNode condition, PolicyType policy, AttributeMapper attrMapper) throws MIDDException {
+        this(condition, policy, attrMapper, null);
+    }
+
+    /**
+     * @param condition a MIDD that represents the target expression of the parents' policy.
+     * @param policy    a XACML 3.0 policy element.
+     * @param nodes     unique table sharing equal sub-diagrams of the MIDD, null to build a tree.
+     */
+    public PolicyParser(AbstractNode condition, PolicyType policy, AttributeMapper attrMapper, UniqueTable nodes) throws MIDDException {
+        this(condition, policy, attrMapper, nodes, null);
+    }
+
+    /**
+     * @param condition a MIDD that represents the target expression of the parents' policy.
+     * @param policy    a XACML 3.0 policy element.
+     * @param nodes     unique table sharing equal sub-diagrams of the MIDD, null to build a tree.
+     * @param cache     computed table of combined sub-diagrams, null to combine them again.
+     */
+    public PolicyParser(AbstractNode condition, PolicyType policy, AttributeMapper attrMapper, UniqueTable nodes,
+                        ComputedTable cache) throws MIDDException {
         if (policy == null) {
             throw new IllegalArgumentException("PolicyType argument must not be null");
         }
@@ -65,6 +91,8 @@ public class PolicyParser {
 
         this.policy = policy;
         this.attrMapper = attrMapper;
+        this.nodes = nodes;
+        this.cache = cache;
 
         // If there's no condition, assume it's the true value
         if (condition == null) {
@@ -78,7 +106,7 @@ public class PolicyParser {
                                           CombiningAlgorithm rca) throws MIDDException {
         log.debug("Combining policy {}", this.policy.getPolicyId());
 
-        MIDDCombiner combiner = new MIDDCombiner(rca);
+        MIDDCombiner combiner = new MIDDCombiner(rca, nodes, cache);
 
         Iterator<AbstractNode> it = lstMIDDs.iterator();
         AbstractNode root = null;
@@ -154,7 +182,7 @@ public class PolicyParser {
 
 
         // Conjunctive join it with the MIDD representing preconditions of the policy
-        AbstractNode condition = ConjunctiveBuilder.join(this.preCondition, targetCondition);
+        AbstractNode condition = ConjunctiveBuilder.join(this.preCondition, targetCondition, cache);
 
         List<RuleType> rules = getRules();
 
@@ -168,7 +196,7 @@ public class PolicyParser {
             if (xacmlMIDD == null) {// a never-applicable rule
                 System.err.println("Found a non-transformable MIDD rule:" + r.getRuleId());
             } else {
-                lstMIDDs.add(xacmlMIDD);
+                lstMIDDs.add((nodes != null) ? nodes.intern(xacmlMIDD) : xacmlMIDD);
             }
         }
 
@@ -24,8 +24,11 @@ package nl.uva.sne.xacml.policy.parsers;
 
 import nl.uva.sne.midd.MIDDException;
 import nl.uva.sne.midd.algorithms.CombiningAlgorithm;
+import nl.uva.sne.midd.algorithms.FirstApplicableAlg;
+import nl.uva.sne.midd.builders.ComputedTable;
 import nl.uva.sne.midd.builders.ConjunctiveBuilder;
 import nl.uva.sne.midd.builders.MIDDCombiner;
+import nl.uva.sne.midd.builders.UniqueTable;
 import nl.uva.sne.midd.nodes.AbstractNode;
 import nl.uva.sne.midd.nodes.ExternalNode;
 import nl.uva.sne.midd.nodes.InternalNode;
@@ -42,9 +45,17 @@ import javax.xml.bind.JAXBElement;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Create MIDD from a XACML 3.0 PolicySet element.
+ * <p/>
+ * Children of the policy set can be parsed in parallel on a fork/join pool. Their MIDDs are combined by a balanced
+ * tree of combinations keeping the order of the children, which gives the same MIDD as combining them one by one as the
+ * combining algorithms are associative; children of a first-applicable policy set are combined one by one. The
+ * attribute mapper, the unique table and the computed table are shared by the threads.
  */
 public class PolicySetParser {
     private static final Logger log = LoggerFactory.getLogger(PolicySetParser.class);
@@ -63,6 +74,30 @@ public class PolicySetParser {
      */
     private PolicyFinder policyFinder;
 
+    /**
+     * Unique table sharing equal sub-diagrams, null to build a tree
+     */
+    private UniqueTable nodes;
+
+    /**
+     * Computed table of combined sub-diagrams, null to combine them again
+     */
+    private ComputedTable cache;
+
+    /**
+     * Pool parsing the children in parallel, null to parse them sequentially
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Checked exception of a child parsed in a fork/join task
+     */
+    private static final class ParsingTaskException extends RuntimeException {
+        ParsingTaskException(Exception cause) {
+            super(cause);
+        }
+    }
+
     /**
      * Brief constructor not to use policy finder. It does not support references to policies or policysets.
      *
@@ -81,6 +116,43 @@ public class PolicySetParser {
      */
     public PolicySetParser(AbstractNode condition, PolicySetType policyset,
                            AttributeMapper attrMapper, PolicyFinder policyFinder) throws MIDDException {
+        this(condition, policyset, attrMapper, policyFinder, null);
+    }
+
+    /**
+     * @param condition    a MIDD that represents the target expression of the parents' policyset.
+     * @param policyset    a XACML 3.0 policyset element.
+     * @param policyFinder lookup of referenced policies, null if references are not supported.
+     * @param nodes        unique table sharing equal sub-diagrams of the MIDD, null to build a tree.
+     */
+    public PolicySetParser(AbstractNode condition, PolicySetType policyset,
+                           AttributeMapper attrMapper, PolicyFinder policyFinder, UniqueTable nodes) throws MIDDException {
+        this(condition, policyset, attrMapper, policyFinder, nodes, null);
+    }
+
+    /**
+     * @param condition    a MIDD that represents the target expression of the parents' policyset.
+     * @param policyset    a XACML 3.0 policyset element.
+     * @param policyFinder lookup of referenced policies, null if references are not supported.
+     * @param nodes        unique table sharing equal sub-diagrams of the MIDD, null to build a tree.
+     * @param cache        computed table of combined sub-diagrams, null to combine them again.
+     */
+    public PolicySetParser(AbstractNode condition, PolicySetType policyset, AttributeMapper attrMapper,
+                           PolicyFinder policyFinder, UniqueTable nodes, ComputedTable cache) throws MIDDException {
+        this(condition, policyset, attrMapper, policyFinder, nodes, cache, null);
+    }
+
+    /**
+     * @param condition    a MIDD that represents the target expression of the parents' policyset.
+     * @param policyset    a XACML 3.0 policyset element.
+     * @param policyFinder lookup of referenced policies, null if references are not supported. It is called by the
+     *                     threads of the pool.
+     * @param nodes        unique table sharing equal sub-diagrams of the MIDD, null to build a tree.
+     * @param cache        computed table of combined sub-diagrams, null to combine them again.
+     * @param pool         pool parsing children policies and policysets in parallel, null to parse them sequentially.
+     */
+    public PolicySetParser(AbstractNode condition, PolicySetType policyset, AttributeMapper attrMapper,
+                           PolicyFinder policyFinder, UniqueTable nodes, ComputedTable cache, ForkJoinPool pool) throws MIDDException {
         if (policyset == null) {
             throw new IllegalArgumentException("PolicySetType argument must not be null");
         }
@@ -90,6 +162,12 @@ public class PolicySetParser {
 
         this.policyFinder = policyFinder;
 
+        this.nodes = nodes;
+
+        this.cache = cache;
+
+        this.pool = pool;
+
         this.policyset = policyset;
 
         this.attrMapper = attrMapper;
@@ -105,7 +183,7 @@ public class PolicySetParser {
     private AbstractNode combinePolicyMIDDs(List<AbstractNode> lstMIDDs,
                                             CombiningAlgorithm pca) throws MIDDException {
         log.debug("Combining policy set " + this.policyset.getPolicySetId());
-        MIDDCombiner combiner = new MIDDCombiner(pca);
+        MIDDCombiner combiner = new MIDDCombiner(pca, nodes, cache);
 
         Iterator<AbstractNode> it = lstMIDDs.iterator();
         AbstractNode root = null;
@@ -115,16 +193,18 @@ public class PolicySetParser {
             if (root == null) {
                 root = n;
             } else {
-                if (root instanceof InternalNode) {
+                // counting nodes traverses the MIDDs, only when they are logged
+                final boolean debug = log.isDebugEnabled();
+                if (debug && root instanceof InternalNode) {
                     log.debug("root size:" + MIDDUtils.countNodes((InternalNode) root));
                 }
-                if (n instanceof InternalNode) {
+                if (debug && n instanceof InternalNode) {
                     log.debug("child midd size:" + MIDDUtils.countNodes((InternalNode) n));
                 }
 
                 root = combiner.combine(root, n);
 
-                if (root instanceof InternalNode) {
+                if (debug && root instanceof InternalNode) {
                     log.debug("Combined midd size:" + MIDDUtils.countNodes((InternalNode) root));
                 }
 
@@ -210,48 +290,141 @@ public class PolicySetParser {
         }
 
         // Conjunctive join it with the MIDD representing preconditions of the policy
-        AbstractNode condition = ConjunctiveBuilder.join(this.preCondition, targetCondition);
+        AbstractNode condition = ConjunctiveBuilder.join(this.preCondition, targetCondition, cache);
 
         getChilden();
 
+        CombiningAlgorithm pca = CombiningAlgConverterUtil.getAlgorithm(policyset.getPolicyCombiningAlgId());
+        if (pool != null) {
+            return parseInParallel(condition, pca);
+        }
+
         List<AbstractNode> lstMIDDs = new ArrayList<AbstractNode>();
 
         // Warning: must convert children policy/policyset in its natural order to compliant with some ordered-RCAs (e.g: First-Applicable)
 
         // Create MIDDs for children policies
         for (Object obj : this.children) {
-            if (obj instanceof PolicyType) {
-                PolicyType pol = (PolicyType) obj;
-                PolicyParser policyParser = new PolicyParser(condition, pol, attrMapper);
+            AbstractNode xacmlMIDD = parseChild(obj, condition);
+            if (xacmlMIDD != null) {
+                lstMIDDs.add(xacmlMIDD);
+            }
+        }
 
-                // return the MIDD with XACML decisions at the external nodes
-                AbstractNode xacmlMIDD = policyParser.parse();
+        // combine MIDDs using policyset's policy-combining-algorithm
+        return combinePolicyMIDDs(lstMIDDs, pca);
+    }
 
-                if (xacmlMIDD == null) {// a never-applicable rule
-                    System.err.println("Found a non-transformable MIDD policy:" + pol.getPolicyId());
-                } else {
-                    lstMIDDs.add(xacmlMIDD);
-                }
+    /**
+     * Return the MIDD with XACML decisions at the external nodes of a child policy or policyset, null if it is never
+     * applicable
+     */
+    private AbstractNode parseChild(Object obj, AbstractNode condition) throws XACMLParsingException, MIDDException {
+        if (obj instanceof PolicyType) {
+            PolicyType pol = (PolicyType) obj;
+            PolicyParser policyParser = new PolicyParser(condition, pol, attrMapper, nodes, cache);
+
+            AbstractNode xacmlMIDD = policyParser.parse();
+            if (xacmlMIDD == null) {// a never-applicable rule
+                System.err.println("Found a non-transformable MIDD policy:" + pol.getPolicyId());
+            }
+            return xacmlMIDD;
 
-            } else if (obj instanceof PolicySetType) {
-                PolicySetType polset = (PolicySetType) obj;
-                PolicySetParser psParser = new PolicySetParser(condition, polset, attrMapper, policyFinder);
+        } else if (obj instanceof PolicySetType) {
+            PolicySetType polset = (PolicySetType) obj;
+            PolicySetParser psParser = new PolicySetParser(condition, polset, attrMapper, policyFinder, nodes, cache, pool);
 
-                // return the MIDD with XACML decisions at the external nodes
-                AbstractNode xacmlMIDD = psParser.parse();
-                if (xacmlMIDD == null) {// a never-applicable rule
-                    log.error("Found a non-transformable MIDD policy set:" + polset.getPolicySetId());
-                } else {
-                    lstMIDDs.add(xacmlMIDD);
+            AbstractNode xacmlMIDD = psParser.parse();
+            if (xacmlMIDD == null) {// a never-applicable rule
+                log.error("Found a non-transformable MIDD policy set:" + polset.getPolicySetId());
+            }
+            return xacmlMIDD;
+
+        } else {
+            throw new MIDDParsingException("Unknown children policyset type");
+        }
+    }
+
+    private AbstractNode parseInParallel(final AbstractNode condition, final CombiningAlgorithm pca) throws XACMLParsingException, MIDDException {
+        ForkJoinTask<AbstractNode> task;
+        if (pca instanceof FirstApplicableAlg) {
+            // parse the children in parallel, combine them in their order
+            task = new RecursiveTask<AbstractNode>() {
+                @Override
+                protected AbstractNode compute() {
+                    List<ChildrenTask> tasks = new ArrayList<>();
+                    for (int i = 0; i < children.size(); i++) {
+                        tasks.add(new ChildrenTask(i, i + 1, condition, null));
+                    }
+                    invokeAll(tasks);
+
+                    List<AbstractNode> lstMIDDs = new ArrayList<>();
+                    for (ChildrenTask t : tasks) {
+                        if (t.join() != null) {
+                            lstMIDDs.add(t.join());
+                        }
+                    }
+                    try {
+                        return combinePolicyMIDDs(lstMIDDs, pca);
+                    } catch (MIDDException e) {
+                        throw new ParsingTaskException(e);
+                    }
                 }
+            };
+        } else {
+            task = new ChildrenTask(0, children.size(), condition, new MIDDCombiner(pca, nodes, cache));
+        }
 
-            } else {
-                throw new MIDDParsingException("Unknown children policyset type");
+        try {
+            // a policy set parsed by a task of the pool runs its children in the same task
+            return (ForkJoinTask.getPool() == pool) ? task.invoke() : pool.invoke(task);
+        } catch (ParsingTaskException e) {
+            if (e.getCause() instanceof XACMLParsingException) {
+                throw (XACMLParsingException) e.getCause();
             }
+            throw (MIDDException) e.getCause();
         }
+    }
 
-        // combine MIDDs using policyset's policy-combining-algorithm
-        CombiningAlgorithm pca = CombiningAlgConverterUtil.getAlgorithm(policyset.getPolicyCombiningAlgId());
-        return combinePolicyMIDDs(lstMIDDs, pca);
+    /**
+     * Parse the children from <code>from</code> to <code>to</code> (exclusive), combine the MIDDs of both halves
+     */
+    private final class ChildrenTask extends RecursiveTask<AbstractNode> {
+
+        private final int from;
+
+        private final int to;
+
+        private final AbstractNode condition;
+
+        private final MIDDCombiner combiner;
+
+        ChildrenTask(int from, int to, AbstractNode condition, MIDDCombiner combiner) {
+            this.from = from;
+            this.to = to;
+            this.condition = condition;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected AbstractNode compute() {
+            try {
+                if (to - from == 1) {
+                    return parseChild(children.get(from), condition);
+                }
+
+                int mid = (from + to) >>> 1;
+                ChildrenTask left = new ChildrenTask(from, mid, condition, combiner);
+                left.fork();
+                AbstractNode right = new ChildrenTask(mid, to, condition, combiner).compute();
+                AbstractNode n = left.join();
+                if (n == null) {
+                    return right;
+                }
+                return (right == null) ? n : combiner.combine(n, right);
+            } catch (XACMLParsingException | MIDDException e) {
+                throw new ParsingTaskException(e);
+            }
+        }
     }
 }
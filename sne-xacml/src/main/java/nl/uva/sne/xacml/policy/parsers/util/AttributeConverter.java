@@ -22,7 +22,9 @@
  */
 package nl.uva.sne.xacml.policy.parsers.util;
 
+import nl.uva.sne.midd.AttributeVector;
 import nl.uva.sne.midd.Variable;
+import nl.uva.sne.xacml.AttributeKey;
 import nl.uva.sne.xacml.AttributeMapper;
 import nl.uva.sne.xacml.policy.parsers.MIDDParsingException;
 import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
@@ -35,6 +37,13 @@ public class AttributeConverter {
 
     private AttributeMapper attrMapper = null;
 
+    /**
+     * Variables matching the converted attribute, with and without its category and issuer
+     */
+    private final int[] varIds = new int[4];
+
+    private int numVarIds = 0;
+
     public AttributeConverter(AttributeMapper attrMapper) {
         if (attrMapper == null) {
             throw new IllegalArgumentException("Argument AttributeMapper must not be null");
@@ -43,19 +52,158 @@ public class AttributeConverter {
         this.attrMapper = attrMapper;
     }
 
-    public Variable convert(AttributeType attr) throws MIDDParsingException, XACMLParsingException {
+    /**
+     * Convert the attribute of the category into a variable. If the attribute is not in the mapper, it is added unless
+     * the mapper is frozen.
+     *
+     * @param category
+     * @param attr
+     * @return
+     * @throws MIDDParsingException if the mapper is frozen and the attribute is not found
+     * @throws XACMLParsingException
+     */
+    public Variable convert(String category, AttributeType attr) throws MIDDParsingException, XACMLParsingException {
         if (attr == null) {
             throw new IllegalArgumentException("Argument AttributeType must not be null");
         }
 
-        // Obtain or add new variable id in the attribute mapper.
+        AttributeValueType attrValue = getAttributeValue(attr);
+        AttributeKey key = new AttributeKey(category, attr.getAttributeId(), attrValue.getDataType(), attr.getIssuer());
+
+        // Obtain or add new variable id in the attribute mapper, a frozen mapper raises MIDDParsingException.
         int varId;
-        if (!attrMapper.hasVariableId(attr.getAttributeId())) {
-            varId = attrMapper.addAttribute(attr.getAttributeId());
+        if (!attrMapper.isFrozen() && !attrMapper.hasVariableId(key)) {
+            varId = attrMapper.addAttribute(key);
         } else {
-            varId = this.attrMapper.getVariableId(attr.getAttributeId());
+            varId = attrMapper.getVariableId(key);
+        }
+
+        String strValue = (String) attrValue.getContent().get(0);
+        Comparable value = DataTypeConverterUtil.convert(strValue, attrValue.getDataType());
+
+        return new Variable(varId, value);
+    }
+
+    /**
+     * Convert the attribute of the category and set its values into the vector. Integer and double values are parsed
+     * into the primitive slots of the vector. An attribute not in the attribute mapper is skipped, the mapper is not
+     * modified.
+     * <p/>
+     * The values are set to every variable whose attribute matches: the one with the same category and issuer, and
+     * those of policy attributes without category or issuer, which match any category or issuer. A variable with
+     * several values is a bag.
+     *
+     * @param category
+     * @param attr
+     * @param attributes
+     * @throws MIDDParsingException
+     * @throws XACMLParsingException
+     */
+    public void convert(String category, AttributeType attr, AttributeVector attributes) throws MIDDParsingException, XACMLParsingException {
+        if (attr == null) {
+            throw new IllegalArgumentException("Argument AttributeType must not be null");
         }
 
+        getAttributeValue(attr);
+        for (AttributeValueType attrValue : attr.getAttributeValue()) {
+            if (attrValue == null || attrValue.getContent() == null || attrValue.getContent().size() == 0) {
+                throw new XACMLParsingException("Empty value in the attribute:" + attr.getAttributeId());
+            }
+            String dataType = attrValue.getDataType();
+            if (findVariables(category, attr.getAttributeId(), dataType, attr.getIssuer()) > 0) {
+                setValue(attr.getAttributeId(), dataType, (String) attrValue.getContent().get(0), attributes);
+            }
+        }
+    }
+
+    /**
+     * Parse the value and set it to the variables found by the last call of
+     * {@link #findVariables(String, String, String, String)}.
+     *
+     * @param attributeId attribute identifier, used in error messages
+     * @param dataType
+     * @param strValue
+     * @param attributes
+     * @throws XACMLParsingException if the value is invalid for the data type
+     */
+    public void setValue(String attributeId, String dataType, String strValue, AttributeVector attributes) throws XACMLParsingException {
+        try {
+            if (dataType.equalsIgnoreCase(DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER)) {
+                setLong(Long.parseLong(strValue), attributes);
+            } else if (dataType.equalsIgnoreCase(DataTypeConverterUtil.XACML_3_0_DATA_TYPE_DOUBLE)) {
+                setDouble(Double.parseDouble(strValue), attributes);
+            } else {
+                set(DataTypeConverterUtil.convert(strValue, dataType), attributes);
+            }
+        } catch (NumberFormatException e) {
+            throw new XACMLParsingException("Invalid value '" + strValue + "' of type " + dataType + " in the attribute:" + attributeId);
+        }
+    }
+
+    /**
+     * Set an integer value to the variables found by the last call of
+     * {@link #findVariables(String, String, String, String)}. A variable that has been set is turned into a bag.
+     *
+     * @param value
+     * @param attributes
+     */
+    public void setLong(long value, AttributeVector attributes) {
+        for (int i = 0; i < numVarIds; i++) {
+            if (attributes.isPresent(varIds[i])) {
+                attributes.add(varIds[i], value);
+            } else {
+                attributes.setLong(varIds[i], value);
+            }
+        }
+    }
+
+    /**
+     * Set a double value to the variables found by the last call of
+     * {@link #findVariables(String, String, String, String)}. A variable that has been set is turned into a bag.
+     *
+     * @param value
+     * @param attributes
+     */
+    public void setDouble(double value, AttributeVector attributes) {
+        for (int i = 0; i < numVarIds; i++) {
+            if (attributes.isPresent(varIds[i])) {
+                attributes.add(varIds[i], value);
+            } else {
+                attributes.setDouble(varIds[i], value);
+            }
+        }
+    }
+
+    /**
+     * Set a value to the variables found by the last call of {@link #findVariables(String, String, String, String)}. A
+     * variable that has been set is turned into a bag.
+     *
+     * @param value
+     * @param attributes
+     */
+    public void set(Comparable<?> value, AttributeVector attributes) {
+        for (int i = 0; i < numVarIds; i++) {
+            attributes.add(varIds[i], value);
+        }
+    }
+
+    /**
+     * Find the variables of the policy attributes matching a request attribute, without creating objects, see
+     * {@link AttributeMapper#findVariables(String, String, String, String, int[])}. The variables are kept until the
+     * next call.
+     *
+     * @param category
+     * @param attributeId
+     * @param dataType
+     * @param issuer
+     * @return number of variables found, 0 if the policies do not use the attribute
+     */
+    public int findVariables(String category, String attributeId, String dataType, String issuer) {
+        numVarIds = attrMapper.findVariables(category, attributeId, dataType, issuer, varIds);
+        return numVarIds;
+    }
+
+    private AttributeValueType getAttributeValue(AttributeType attr) throws XACMLParsingException {
         List<AttributeValueType> lstValues = attr.getAttributeValue();
         if (lstValues == null || lstValues.size() == 0) {
             throw new XACMLParsingException("Empty value in the attribute:" + attr.getAttributeId());
@@ -65,11 +213,7 @@ public class AttributeConverter {
         if (attrValue == null || attrValue.getContent() == null || attrValue.getContent().size() == 0) {
             throw new XACMLParsingException("Empty value in the attribute:" + attr.getAttributeId());
         }
-
-        String strValue = (String) attrValue.getContent().get(0);
-        Comparable value = DataTypeConverterUtil.convert(strValue, attrValue.getDataType());
-
-        return new Variable(varId, value);
+        return attrValue;
     }
 
 }
@@ -52,7 +52,7 @@ public class DataTypeConverterUtil {
         if (dataType.equalsIgnoreCase(XACML_3_0_DATA_TYPE_STRING)) {
             return value;
         } else if (dataType.equalsIgnoreCase(XACML_3_0_DATA_TYPE_INTEGER)) {
-            return new Integer(Integer.parseInt(value));
+            return Long.valueOf(value);
         } else if (dataType.equalsIgnoreCase(XACML_3_0_DATA_TYPE_DOUBLE)) {
             return new Double(Double.parseDouble(value));
         } else if (dataType.equalsIgnoreCase(XACML_3_0_DATA_TYPE_ANYURI)) {
@@ -0,0 +1,673 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.AttributeConverter;
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoder of requests of the JSON Profile of XACML 3.0 into an attribute vector.
+ * <p/>
+ * The request is tokenized in place over UTF-8 bytes. Members of an attribute may come in any order, so the position
+ * of its value is kept and the value is only parsed if the policies use the attribute. Keys, shorthand categories and
+ * data types are compared as bytes, integer values are parsed from the bytes; strings are only created for attribute
+ * identifiers, issuers, unknown categories and data types, and string or double values.
+ * <p/>
+ * An attribute with an array of values, or repeated in the category, is a bag. Requests of the Multiple Decision
+ * Profile, with repeated categories or <code>MultiRequests</code>, are rejected. A decoder is not thread-safe.
+ *
+ * @author Canh Ngo
+ */
+public class JsonRequestDecoder {
+
+    private static final byte[] KEY_REQUEST = ascii("Request");
+    private static final byte[] KEY_CATEGORY = ascii("Category");
+    private static final byte[] KEY_CATEGORY_ID = ascii("CategoryId");
+    private static final byte[] KEY_ATTRIBUTE = ascii("Attribute");
+    private static final byte[] KEY_ATTRIBUTE_ID = ascii("AttributeId");
+    private static final byte[] KEY_VALUE = ascii("Value");
+    private static final byte[] KEY_DATA_TYPE = ascii("DataType");
+    private static final byte[] KEY_ISSUER = ascii("Issuer");
+    private static final byte[] KEY_MULTI_REQUESTS = ascii("MultiRequests");
+
+    private static final byte[] LITERAL_TRUE = ascii("true");
+    private static final byte[] LITERAL_FALSE = ascii("false");
+    private static final byte[] LITERAL_NULL = ascii("null");
+
+    private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:";
+    private static final String ATTRIBUTE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:";
+
+    /**
+     * Shorthand names of categories, followed by their identifiers
+     */
+    private static final String[] CATEGORIES = {
+            "AccessSubject", SUBJECT_CATEGORY + "access-subject",
+            "RecipientSubject", SUBJECT_CATEGORY + "recipient-subject",
+            "IntermediarySubject", SUBJECT_CATEGORY + "intermediary-subject",
+            "Codebase", SUBJECT_CATEGORY + "codebase",
+            "RequestingMachine", SUBJECT_CATEGORY + "requesting-machine",
+            "Resource", ATTRIBUTE_CATEGORY + "resource",
+            "Action", ATTRIBUTE_CATEGORY + "action",
+            "Environment", ATTRIBUTE_CATEGORY + "environment"};
+
+    private static final String XML_SCHEMA = "http://www.w3.org/2001/XMLSchema#";
+
+    /**
+     * Shorthand names of data types, followed by their identifiers
+     */
+    private static final String[] DATA_TYPES = {
+            "string", DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING,
+            "integer", DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER,
+            "double", DataTypeConverterUtil.XACML_3_0_DATA_TYPE_DOUBLE,
+            "anyURI", DataTypeConverterUtil.XACML_3_0_DATA_TYPE_ANYURI,
+            "boolean", XML_SCHEMA + "boolean",
+            "date", XML_SCHEMA + "date",
+            "dateTime", XML_SCHEMA + "dateTime",
+            "time", XML_SCHEMA + "time"};
+
+    private static final byte[][] CATEGORY_BYTES = toBytes(CATEGORIES);
+
+    private static final byte[][] DATA_TYPE_BYTES = toBytes(DATA_TYPES);
+
+    private final AttributeConverter converter;
+
+    private byte[] buf;
+
+    private int pos;
+
+    private int limit;
+
+    /**
+     * Bounds of the content of the last string token, and whether it has escape sequences
+     */
+    private int tokenStart;
+
+    private int tokenEnd;
+
+    private boolean tokenEscaped;
+
+    /**
+     * Categories decoded in the request
+     */
+    private final List<String> categories = new ArrayList<>();
+
+    public JsonRequestDecoder(AttributeMapper attrMapper) {
+        this.converter = new AttributeConverter(attrMapper);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] toBytes(String[] names) {
+        byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Decode the request in the remaining bytes of the buffer, the position of the buffer is not changed.
+     *
+     * @param request
+     * @param attributes
+     * @throws XACMLParsingException
+     */
+    public void decode(ByteBuffer request, AttributeVector attributes) throws XACMLParsingException {
+        if (request.hasArray()) {
+            decode(request.array(), request.arrayOffset() + request.position(), request.remaining(), attributes);
+        } else {
+            byte[] bytes = new byte[request.remaining()];
+            request.duplicate().get(bytes);
+            decode(bytes, 0, bytes.length, attributes);
+        }
+    }
+
+    /**
+     * Decode the request and set values of its attributes into the vector.
+     *
+     * @param request    UTF-8 encoded request
+     * @param offset
+     * @param length
+     * @param attributes
+     * @throws XACMLParsingException if the request is not a valid JSON request, it has multiple decisions, an
+     *                               attribute used by the policies has no value or an invalid value
+     */
+    public void decode(byte[] request, int offset, int length, AttributeVector attributes) throws XACMLParsingException {
+        this.buf = request;
+        this.pos = offset;
+        this.limit = offset + length;
+
+        try {
+            boolean found = false;
+            expect('{');
+            for (boolean first = true; nextMember(first); first = false) {
+                if (tokenEquals(KEY_REQUEST)) {
+                    decodeRequest(attributes);
+                    found = true;
+                } else {
+                    skipValue();
+                }
+            }
+            skipWhitespaces();
+            if (pos != limit) {
+                throw error("Unexpected data after the request");
+            }
+            if (!found) {
+                throw new XACMLParsingException("Not an XACML JSON request");
+            }
+        } finally {
+            this.buf = null;
+            categories.clear();
+        }
+    }
+
+    private void decodeRequest(AttributeVector attributes) throws XACMLParsingException {
+        expect('{');
+        for (boolean first = true; nextMember(first); first = false) {
+            int shorthand = find(CATEGORY_BYTES);
+            if (shorthand >= 0) {
+                decodeCategories(CATEGORIES[shorthand + 1], attributes);
+            } else if (tokenEquals(KEY_CATEGORY)) {
+                decodeCategories(null, attributes);
+            } else if (tokenEquals(KEY_MULTI_REQUESTS)) {
+                throw error("Multiple decision request with request references");
+            } else {
+                skipValue();
+            }
+        }
+    }
+
+    /**
+     * Decode a category object or an array of them
+     */
+    private void decodeCategories(String category, AttributeVector attributes) throws XACMLParsingException {
+        skipWhitespaces();
+        if (peek() == '[') {
+            pos++;
+            for (boolean first = true; nextElement(first); first = false) {
+                decodeCategory(category, attributes);
+            }
+        } else {
+            decodeCategory(category, attributes);
+        }
+    }
+
+    private void decodeCategory(String category, AttributeVector attributes) throws XACMLParsingException {
+        int attributePos = -1;
+
+        expect('{');
+        for (boolean first = true; nextMember(first); first = false) {
+            if (tokenEquals(KEY_CATEGORY_ID)) {
+                parseString();
+                int known = find(CATEGORY_BYTES);
+                category = (known >= 0 && (known & 1) == 1) ? CATEGORIES[known] : tokenString();
+            } else if (tokenEquals(KEY_ATTRIBUTE)) {
+                skipWhitespaces();
+                attributePos = pos;
+                skipValue();
+            } else {
+                skipValue();
+            }
+        }
+
+        if (category != null) {
+            if (categories.contains(category)) {
+                throw error("Multiple decision request with repeated category:" + category);
+            }
+            categories.add(category);
+        }
+        if (attributePos < 0) {
+            return;
+        }
+        if (category == null) {
+            throw error("Category without CategoryId");
+        }
+
+        int end = pos;
+        pos = attributePos;
+        if (peek() == '[') {
+            pos++;
+            for (boolean first = true; nextElement(first); first = false) {
+                decodeAttribute(category, attributes);
+            }
+        } else {
+            decodeAttribute(category, attributes);
+        }
+        pos = end;
+    }
+
+    private void decodeAttribute(String category, AttributeVector attributes) throws XACMLParsingException {
+        String attributeId = null;
+        String dataType = null;
+        String issuer = null;
+        int valuePos = -1;
+
+        expect('{');
+        for (boolean first = true; nextMember(first); first = false) {
+            if (tokenEquals(KEY_ATTRIBUTE_ID)) {
+                parseString();
+                attributeId = tokenString();
+            } else if (tokenEquals(KEY_DATA_TYPE)) {
+                parseString();
+                int known = find(DATA_TYPE_BYTES);
+                dataType = (known >= 0) ? DATA_TYPES[known | 1] : tokenString();
+            } else if (tokenEquals(KEY_ISSUER)) {
+                parseString();
+                issuer = tokenString();
+            } else if (tokenEquals(KEY_VALUE)) {
+                skipWhitespaces();
+                valuePos = pos;
+                skipValue();
+            } else {
+                skipValue();
+            }
+        }
+
+        if (attributeId == null) {
+            throw error("Attribute without AttributeId");
+        }
+        if (valuePos < 0) {
+            throw new XACMLParsingException("Empty value in the attribute:" + attributeId);
+        }
+
+        int end = pos;
+        pos = valuePos;
+        if (peek() == '[') {
+            pos++;
+            boolean first = true;
+            for (; nextElement(first); first = false) {
+                decodeValue(category, attributeId, dataType, issuer, attributes);
+            }
+            if (first) {
+                throw new XACMLParsingException("Empty value in the attribute:" + attributeId);
+            }
+        } else {
+            decodeValue(category, attributeId, dataType, issuer, attributes);
+        }
+        pos = end;
+    }
+
+    /**
+     * Decode the value at the current position if the policies use the attribute, otherwise skip it
+     */
+    private void decodeValue(String category, String attributeId, String dataType, String issuer, AttributeVector attributes) throws XACMLParsingException {
+        if (dataType == null) {
+            dataType = inferDataType();
+        }
+        if (dataType != null && converter.findVariables(category, attributeId, dataType, issuer) > 0) {
+            decodeValue(attributeId, dataType, attributes);
+        } else {
+            skipValue();
+        }
+    }
+
+    /**
+     * Default data type of the value at the current position
+     *
+     * @return <code>null</code> if the value has no default data type, e.g. an XPath expression object
+     */
+    private String inferDataType() throws XACMLParsingException {
+        byte c = peek();
+        if (c == '"') {
+            return DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING;
+        } else if (c == 't' || c == 'f') {
+            return XML_SCHEMA + "boolean";
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            int start = pos;
+            boolean integer = parseNumber();
+            pos = start;
+            return integer ? DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER : DataTypeConverterUtil.XACML_3_0_DATA_TYPE_DOUBLE;
+        }
+        return null;
+    }
+
+    private void decodeValue(String attributeId, String dataType, AttributeVector attributes) throws XACMLParsingException {
+        byte c = peek();
+        if (c == '"') {
+            parseString();
+            converter.setValue(attributeId, dataType, tokenString(), attributes);
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            int start = pos;
+            boolean integer = parseNumber();
+            if (integer && dataType.equals(DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER)) {
+                converter.setLong(parseLong(start, pos, attributeId), attributes);
+            } else {
+                converter.setValue(attributeId, dataType, new String(buf, start, pos - start, StandardCharsets.US_ASCII), attributes);
+            }
+        } else if (c == 't' || c == 'f') {
+            int start = pos;
+            skipLiteral();
+            converter.setValue(attributeId, dataType, new String(buf, start, pos - start, StandardCharsets.US_ASCII), attributes);
+        } else {
+            throw new XACMLParsingException("Invalid value in the attribute:" + attributeId);
+        }
+    }
+
+    private long parseLong(int start, int end, String attributeId) throws XACMLParsingException {
+        boolean negative = buf[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (end - i > 18) {
+            // may overflow
+            try {
+                return Long.parseLong(new String(buf, start, end - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new XACMLParsingException("Invalid integer value in the attribute:" + attributeId);
+            }
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            value = value * 10 + (buf[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Tokenizer
+
+    private XACMLParsingException error(String message) {
+        return new XACMLParsingException(message + " at position " + pos);
+    }
+
+    private byte peek() throws XACMLParsingException {
+        if (pos >= limit) {
+            throw error("Unexpected end of the request");
+        }
+        return buf[pos];
+    }
+
+    private void skipWhitespaces() {
+        while (pos < limit) {
+            byte c = buf[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char c) throws XACMLParsingException {
+        skipWhitespaces();
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    /**
+     * Move to the next member of the current object and parse its key, the opening brace has been consumed
+     *
+     * @param first true if no member has been read
+     * @return false if the object ends
+     */
+    private boolean nextMember(boolean first) throws XACMLParsingException {
+        skipWhitespaces();
+        if (peek() == '}') {
+            pos++;
+            return false;
+        }
+        if (!first) {
+            expect(',');
+        }
+        parseString();
+        expect(':');
+        skipWhitespaces();
+        return true;
+    }
+
+    /**
+     * Move to the next element of the current array, the opening bracket has been consumed
+     *
+     * @param first true if no element has been read
+     * @return false if the array ends
+     */
+    private boolean nextElement(boolean first) throws XACMLParsingException {
+        skipWhitespaces();
+        if (peek() == ']') {
+            pos++;
+            return false;
+        }
+        if (!first) {
+            expect(',');
+            skipWhitespaces();
+        }
+        return true;
+    }
+
+    /**
+     * Parse a string token at the current position
+     */
+    private void parseString() throws XACMLParsingException {
+        skipWhitespaces();
+        if (peek() != '"') {
+            throw error("Expected a string");
+        }
+        pos++;
+        tokenStart = pos;
+        tokenEscaped = false;
+        while (true) {
+            byte c = peek();
+            if (c == '"') {
+                tokenEnd = pos;
+                pos++;
+                return;
+            } else if (c == '\\') {
+                tokenEscaped = true;
+                pos++;
+                byte e = peek();
+                if (e == 'u') {
+                    pos += 4;
+                    if (pos >= limit) {
+                        throw error("Invalid escape sequence");
+                    }
+                }
+                pos++;
+            } else if (c >= 0 && c < 0x20) {
+                throw error("Control character in a string");
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Return true if the last string token is the key
+     */
+    private boolean tokenEquals(byte[] key) {
+        if (tokenEscaped || tokenEnd - tokenStart != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buf[tokenStart + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the index of the last string token in the names
+     *
+     * @return -1 if it is not found
+     */
+    private int find(byte[][] names) {
+        for (int i = 0; i < names.length; i++) {
+            if (tokenEquals(names[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String tokenString() throws XACMLParsingException {
+        if (!tokenEscaped) {
+            return new String(buf, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder sb = new StringBuilder(tokenEnd - tokenStart);
+        int start = tokenStart;
+        int i = tokenStart;
+        while (i < tokenEnd) {
+            if (buf[i] != '\\') {
+                i++;
+                continue;
+            }
+            sb.append(new String(buf, start, i - start, StandardCharsets.UTF_8));
+            byte e = buf[i + 1];
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append((char) e);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    try {
+                        sb.append((char) Integer.parseInt(new String(buf, i + 2, 4, StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Invalid escape sequence");
+                    }
+                    i += 4;
+                    break;
+                default:
+                    throw error("Invalid escape sequence");
+            }
+            i += 2;
+            start = i;
+        }
+        sb.append(new String(buf, start, tokenEnd - start, StandardCharsets.UTF_8));
+        return sb.toString();
+    }
+
+    /**
+     * Parse a number at the current position
+     *
+     * @return true if the number is an integer
+     */
+    private boolean parseNumber() throws XACMLParsingException {
+        boolean integer = true;
+        if (peek() == '-') {
+            pos++;
+        }
+        int digits = skipDigits();
+        if (pos < limit && buf[pos] == '.') {
+            integer = false;
+            pos++;
+            digits = skipDigits();
+        }
+        if (digits > 0 && pos < limit && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            integer = false;
+            pos++;
+            if (pos < limit && (buf[pos] == '+' || buf[pos] == '-')) {
+                pos++;
+            }
+            digits = skipDigits();
+        }
+        if (digits == 0) {
+            throw error("Invalid number");
+        }
+        return integer;
+    }
+
+    private int skipDigits() {
+        int start = pos;
+        while (pos < limit && buf[pos] >= '0' && buf[pos] <= '9') {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    private void skipLiteral() throws XACMLParsingException {
+        byte[] literal;
+        switch (peek()) {
+            case 't':
+                literal = LITERAL_TRUE;
+                break;
+            case 'f':
+                literal = LITERAL_FALSE;
+                break;
+            case 'n':
+                literal = LITERAL_NULL;
+                break;
+            default:
+                throw error("Unexpected character");
+        }
+        if (pos + literal.length > limit) {
+            throw error("Unexpected end of the request");
+        }
+        for (byte b : literal) {
+            if (buf[pos++] != b) {
+                throw error("Invalid literal");
+            }
+        }
+    }
+
+    /**
+     * Skip the value at the current position
+     */
+    private void skipValue() throws XACMLParsingException {
+        skipWhitespaces();
+        byte c = peek();
+        if (c == '{') {
+            expect('{');
+            for (boolean first = true; nextMember(first); first = false) {
+                skipValue();
+            }
+        } else if (c == '[') {
+            pos++;
+            for (boolean first = true; nextElement(first); first = false) {
+                skipValue();
+            }
+        } else if (c == '"') {
+            parseString();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            parseNumber();
+        } else {
+            skipLiteral();
+        }
+    }
+}
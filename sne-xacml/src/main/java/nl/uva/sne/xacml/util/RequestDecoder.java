@@ -0,0 +1,184 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.AttributeConverter;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass decoder of XACML 3.0 requests into an attribute vector.
+ * <p/>
+ * The request is read with a StAX stream reader, no DOM or JAXB objects are created. An attribute is looked up in the
+ * attribute mapper when each of its values starts, the value text is only read and parsed if the policies use the
+ * attribute, other elements (e.g. <code>Content</code>) are skipped.
+ * <p/>
+ * The decoder gives a single decision: requests of the Multiple Decision Profile, with repeated categories or a
+ * <code>MultiRequests</code> element, are rejected; they are split by {@link nl.uva.sne.xacml.MultipleDecisionRequest}.
+ *
+ * @author Canh Ngo
+ */
+public class RequestDecoder {
+
+    public static final String XACML_3_0_NAMESPACE = "urn:oasis:names:tc:xacml:3.0:core:schema:wd-17";
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private final AttributeConverter converter;
+
+    public RequestDecoder(AttributeMapper attrMapper) {
+        this.converter = new AttributeConverter(attrMapper);
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Decode the request and set values of its attributes into the vector. An attribute with several values, or
+     * repeated in the category, is a bag.
+     *
+     * @param istream
+     * @param attributes
+     * @throws XACMLParsingException if the request is not a well-formed XACML 3.0 request, it has multiple decisions,
+     *                               an attribute used by the policies has no value or an invalid value
+     */
+    public void decode(InputStream istream, AttributeVector attributes) throws XACMLParsingException {
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory.createXMLStreamReader(istream);
+
+            reader.nextTag();
+            if (!isElement(reader, "Request")) {
+                throw new XACMLParsingException("Not an XACML 3.0 request: " + reader.getName());
+            }
+
+            List<String> categories = new ArrayList<>();
+            while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+                if (isElement(reader, "Attributes")) {
+                    decodeAttributes(reader, categories, attributes);
+                } else if (isElement(reader, "MultiRequests")) {
+                    throw new XACMLParsingException("Multiple decision request with request references");
+                } else {
+                    skipElement(reader);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new XACMLParsingException("Invalid request: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // the stream has been read
+                }
+            }
+        }
+    }
+
+    private void decodeAttributes(XMLStreamReader reader, List<String> categories, AttributeVector attributes)
+            throws XMLStreamException, XACMLParsingException {
+        String category = reader.getAttributeValue(null, "Category");
+        if (categories.contains(category)) {
+            throw new XACMLParsingException("Multiple decision request with repeated category:" + category);
+        }
+        categories.add(category);
+
+        while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+            if (isElement(reader, "Attribute")) {
+                decodeAttribute(reader, category, attributes);
+            } else {
+                skipElement(reader);
+            }
+        }
+    }
+
+    private void decodeAttribute(XMLStreamReader reader, String category, AttributeVector attributes) throws XMLStreamException, XACMLParsingException {
+        String attributeId = reader.getAttributeValue(null, "AttributeId");
+        String issuer = reader.getAttributeValue(null, "Issuer");
+        if (attributeId == null) {
+            throw new XACMLParsingException("Attribute without AttributeId in the category:" + category);
+        }
+
+        boolean hasValue = false;
+        while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+            if (isElement(reader, "AttributeValue")) {
+                hasValue = true;
+                String dataType = reader.getAttributeValue(null, "DataType");
+                if (dataType == null) {
+                    throw new XACMLParsingException("Value without DataType in the attribute:" + attributeId);
+                }
+
+                if (converter.findVariables(category, attributeId, dataType, issuer) > 0) {
+                    String value = reader.getElementText();
+                    if (value.isEmpty()) {
+                        throw new XACMLParsingException("Empty value in the attribute:" + attributeId);
+                    }
+                    converter.setValue(attributeId, dataType, value, attributes);
+                } else {
+                    skipElement(reader);
+                }
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        if (!hasValue) {
+            throw new XACMLParsingException("Empty value in the attribute:" + attributeId);
+        }
+    }
+
+    private static boolean isElement(XMLStreamReader reader, String localName) {
+        return localName.equals(reader.getLocalName()) && XACML_3_0_NAMESPACE.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * Move the reader to the end of the current element
+     *
+     * @param reader
+     * @throws XMLStreamException
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -31,14 +31,96 @@ import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
 import javax.xml.bind.*;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Reading and writing XACML documents.
+ * <p/>
+ * JAXB contexts are thread-safe and expensive to create, they are created once per class and shared. Unmarshallers,
+ * marshallers and DOM builders are not thread-safe, each thread keeps its own instances.
+ *
  * @author Canh Ngo
  */
 public class XACMLUtil {
 
+    private static final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Map<Class<?>, Unmarshaller>> unmarshallers = new ThreadLocal<Map<Class<?>, Unmarshaller>>() {
+        @Override
+        protected Map<Class<?>, Unmarshaller> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private static final ThreadLocal<Map<Class<?>, Marshaller>> marshallers = new ThreadLocal<Map<Class<?>, Marshaller>>() {
+        @Override
+        protected Map<Class<?>, Marshaller> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private static final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<>();
+
+    /**
+     * Return the shared JAXB context of the class
+     *
+     * @param cls
+     * @return
+     * @throws JAXBException
+     */
+    public static JAXBContext getContext(Class<?> cls) throws JAXBException {
+        JAXBContext jc = contexts.get(cls);
+        if (jc == null) {
+            jc = JAXBContext.newInstance(cls);
+            JAXBContext existing = contexts.putIfAbsent(cls, jc);
+            if (existing != null) {
+                jc = existing;
+            }
+        }
+        return jc;
+    }
+
+    private static Unmarshaller getUnmarshaller(Class<?> cls) throws JAXBException {
+        Map<Class<?>, Unmarshaller> pool = unmarshallers.get();
+        Unmarshaller unmarshaller = pool.get(cls);
+        if (unmarshaller == null) {
+            unmarshaller = getContext(cls).createUnmarshaller();
+            pool.put(cls, unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    private static Marshaller getMarshaller(Class<?> cls) throws JAXBException {
+        Map<Class<?>, Marshaller> pool = marshallers.get();
+        Marshaller marshaller = pool.get(cls);
+        if (marshaller == null) {
+            marshaller = getContext(cls).createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            pool.put(cls, marshaller);
+        }
+        return marshaller;
+    }
+
+    private static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder db = documentBuilders.get();
+        if (db == null) {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            db = dbf.newDocumentBuilder();
+            documentBuilders.set(db);
+        } else {
+            db.reset();
+        }
+        return db;
+    }
+
     public static PolicySetType unmarshalPolicySetType(InputStream istream)
             throws ParserConfigurationException, SAXException, IOException {
         Document doc = readXML(istream);
@@ -71,8 +153,7 @@ public class XACMLUtil {
     private static <T> T unmarshall(Class<T> cls, Element dom) {
 
         try {
-            JAXBContext jc = JAXBContext.newInstance(cls);
-            Unmarshaller unmarshaller = jc.createUnmarshaller();
+            Unmarshaller unmarshaller = getUnmarshaller(cls);
 
             JAXBElement<T> jaxbObject = unmarshaller.unmarshal(dom, cls);
 
@@ -86,28 +167,14 @@ public class XACMLUtil {
 
     public static Document readXML(InputStream istream)
             throws ParserConfigurationException, SAXException, IOException {
-        javax.xml.parsers.DocumentBuilderFactory dbf = javax.xml.parsers.DocumentBuilderFactory
-                .newInstance();
-        dbf.setNamespaceAware(true);
-
-        javax.xml.parsers.DocumentBuilder db = dbf.newDocumentBuilder();
-
-        org.w3c.dom.Document doc = db.parse(istream);
-
-        return doc;
+        return getDocumentBuilder().parse(istream);
     }
 
     public static Document readXML(String xmlFile)
             throws ParserConfigurationException, SAXException, IOException {
-        javax.xml.parsers.DocumentBuilderFactory dbf = javax.xml.parsers.DocumentBuilderFactory
-                .newInstance();
-        dbf.setNamespaceAware(true);
-
-        javax.xml.parsers.DocumentBuilder db = dbf.newDocumentBuilder();
-
-        org.w3c.dom.Document doc = db.parse(new FileInputStream(xmlFile));
-
-        return doc;
+        try (InputStream istream = new FileInputStream(xmlFile)) {
+            return getDocumentBuilder().parse(istream);
+        }
     }
 
 
@@ -158,11 +225,8 @@ public class XACMLUtil {
 
     public static <T> void print(JAXBElement<T> jaxbElement, Class<T> cls,
                                  OutputStream os) {
-        JAXBContext jc;
         try {
-            jc = JAXBContext.newInstance(cls);
-            Marshaller m = jc.createMarshaller();
-            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            Marshaller m = getMarshaller(cls);
 
             m.marshal(jaxbElement, os);
         } catch (JAXBException e) {
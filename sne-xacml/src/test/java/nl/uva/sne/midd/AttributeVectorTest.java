@@ -0,0 +1,154 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AttributeVectorTest {
+
+    @Test
+    public void testSetAndGet() {
+        AttributeVector vector = new AttributeVector(4);
+
+        vector.setLong(0, 10L);
+        vector.setDouble(1, 2.5);
+        vector.set(2, "admin");
+        vector.set(3, 7L);
+
+        assertTrue(vector.isLong(0));
+        assertEquals(10L, vector.getLong(0));
+        assertEquals(Long.class, vector.getType(0));
+
+        assertTrue(vector.isDouble(1));
+        assertEquals(2.5, vector.getDouble(1), 0.0);
+        assertEquals(Double.class, vector.getType(1));
+
+        assertEquals("admin", vector.get(2));
+        assertEquals(String.class, vector.getType(2));
+
+        // boxed long value is kept in the primitive slot
+        assertTrue(vector.isLong(3));
+        assertEquals(7L, vector.get(3));
+
+        vector.remove(2);
+        assertFalse(vector.isPresent(2));
+        assertNull(vector.get(2));
+        assertNull(vector.getType(2));
+    }
+
+    @Test
+    public void testGrowAndClear() {
+        AttributeVector vector = new AttributeVector(2);
+        assertFalse(vector.isPresent(100));
+
+        vector.set(100, "x");
+        vector.setLong(1, 1L);
+        assertTrue(vector.capacity() > 100);
+        assertTrue(vector.isPresent(100));
+        assertFalse(vector.isPresent(99));
+
+        vector.clear();
+        assertFalse(vector.isPresent(100));
+        assertFalse(vector.isPresent(1));
+        assertNull(vector.get(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeId() {
+        new AttributeVector(2).setLong(-1, 0L);
+    }
+
+    @Test
+    public void testSetAll() {
+        AttributeVector other = new AttributeVector(2);
+        other.setLong(0, 7L);
+        other.setDouble(70, 1.5);
+        other.set(3, "value");
+
+        AttributeVector vector = new AttributeVector(4);
+        vector.set(0, "replaced");
+        vector.setLong(1, 2L);
+        vector.setAll(other);
+
+        assertTrue(vector.isLong(0));
+        assertEquals(7L, vector.getLong(0));
+        assertEquals(2L, vector.getLong(1));
+        assertEquals("value", vector.get(3));
+        assertTrue(vector.isDouble(70));
+        assertEquals(1.5, vector.getDouble(70), 0.0);
+
+        vector.setAll(new AttributeVector(1));
+        assertEquals(2L, vector.getLong(1));
+    }
+
+    @Test
+    public void testBag() {
+        AttributeVector vector = new AttributeVector(2);
+        vector.add(1, "a");
+        assertFalse(vector.isBag(1));
+        assertFalse(vector.hasBags());
+
+        vector.add(1, "b");
+        vector.setLong(0, 1L);
+        vector.add(0, 2L);
+        for (int i = 0; i < 10; i++) {
+            vector.add(1, "c" + i);
+        }
+
+        assertTrue(vector.hasBags());
+        assertTrue(vector.isBag(0));
+        assertFalse(vector.isLong(0));
+        assertEquals(Long.class, vector.getType(0));
+        assertEquals(2, vector.getBagSize(0));
+        assertEquals(1L, vector.getBagValue(0, 0));
+        assertEquals(2L, vector.getBagValue(0, 1));
+        assertEquals(12, vector.getBagSize(1));
+        assertEquals("a", vector.get(1));
+        assertEquals("c9", vector.getBagValue(1, 11));
+
+        AttributeVector copy = new AttributeVector(1);
+        copy.setAll(vector);
+        assertTrue(copy.isBag(1));
+        assertEquals(12, copy.getBagSize(1));
+
+        // removing or setting a bag variable leaves no bag
+        copy.remove(1);
+        assertFalse(copy.isPresent(1));
+        assertTrue(copy.hasBags());
+        copy.setLong(0, 3L);
+        assertFalse(copy.hasBags());
+        assertTrue(copy.isLong(0));
+        assertEquals(3L, copy.getLong(0));
+
+        vector.clear();
+        assertFalse(vector.hasBags());
+        assertFalse(vector.isPresent(1));
+        vector.add(1, "d");
+        assertFalse(vector.isBag(1));
+        vector.add(1, "e");
+        assertEquals(2, vector.getBagSize(1));
+        assertEquals("d", vector.getBagValue(1, 0));
+    }
+}
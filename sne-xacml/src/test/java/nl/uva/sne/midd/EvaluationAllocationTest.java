@@ -0,0 +1,163 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd;
+
+import nl.uva.sne.midd.compiled.CompiledMIDD;
+import nl.uva.sne.midd.compiled.MIDDCompiler;
+import nl.uva.sne.midd.edges.DoubleEdge;
+import nl.uva.sne.midd.interval.EndPoint;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.DoubleNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.midd.util.MIDDUtils;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measure the heap allocated by the evaluation in steady state, whether the request reaches a leaf, misses an edge or
+ * misses an attribute. The object graph evaluation only allocates the returned decision, the compiled evaluation returns
+ * decisions built at compile time.
+ */
+public class EvaluationAllocationTest {
+
+    private static final int WARMUP = 200000;
+    private static final int ROUNDS = 1000000;
+
+    /**
+     * Upper bound of the allocated bytes per decision: a {@link Decision} and its empty list of obligations.
+     */
+    private static final long MAX_BYTES_PER_DECISION = 64;
+
+    /**
+     * Upper bound of the allocated bytes per decision of a compiled MIDD, above zero to tolerate measurement noise.
+     */
+    private static final long MAX_BYTES_PER_COMPILED_DECISION = 1;
+
+    private InternalNode<?> buildMIDD() throws MIDDException {
+        DoubleNode n0 = new DoubleNode(0, DecisionType.Indeterminate_P);
+        DoubleNode n1 = new DoubleNode(1, DecisionType.Indeterminate_P);
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit);
+        ExternalNode3 deny = new ExternalNode3(DecisionType.Deny);
+
+        n0.addChild(new DoubleEdge(new Interval<>(1.0, 2.0, true, true)), n1);
+        n0.addChild(new DoubleEdge(new Interval<>(3.0, 4.0, true, false)), deny);
+        n1.addChild(new DoubleEdge(new Interval<>(5.0)), permit);
+        n1.addChild(new DoubleEdge(new Interval<Double>(EndPoint.Infinity.POSITIVE, 10.0)), deny);
+        MIDDUtils.buildEdgeIndexes(n0);
+        return n0;
+    }
+
+    /**
+     * Requests reaching a leaf, missing an edge at the root, missing an edge at the second node and missing an
+     * attribute.
+     *
+     * @return
+     */
+    private List<Map<Integer, Variable<?>>> createRequests() {
+        List<Map<Integer, Variable<?>>> requests = new ArrayList<>();
+        requests.add(createRequest(1.5, 5.0));
+        requests.add(createRequest(3.5, 20.0));
+        requests.add(createRequest(0.0, 5.0));
+        requests.add(createRequest(1.5, 7.0));
+        requests.add(createRequest(1.5, null));
+        return requests;
+    }
+
+    private Map<Integer, Variable<?>> createRequest(Double... values) {
+        Map<Integer, Variable<?>> variables = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                variables.put(i, new Variable<>(i, values[i]));
+            }
+        }
+        return variables;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(sunBean.isThreadAllocatedMemorySupported());
+        sunBean.setThreadAllocatedMemoryEnabled(true);
+        return sunBean;
+    }
+
+    @Test
+    public void testObjectGraphEvaluation() throws MIDDException {
+        com.sun.management.ThreadMXBean bean = getThreadMXBean();
+        InternalNode<?> midd = buildMIDD();
+        List<Map<Integer, Variable<?>>> requests = createRequests();
+
+        int permits = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            permits += count(EvaluationUtils.eval(midd, requests.get(i % requests.size())));
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        long startBytes = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            permits += count(EvaluationUtils.eval(midd, requests.get(i % requests.size())));
+        }
+        double bytesPerDecision = (double) (bean.getThreadAllocatedBytes(threadId) - startBytes) / ROUNDS;
+
+        assertEquals((WARMUP + ROUNDS) / requests.size(), permits);
+        assertTrue("Allocated bytes per decision: " + bytesPerDecision, bytesPerDecision <= MAX_BYTES_PER_DECISION);
+    }
+
+    @Test
+    public void testCompiledEvaluation() throws MIDDException {
+        com.sun.management.ThreadMXBean bean = getThreadMXBean();
+        CompiledMIDD midd = MIDDCompiler.compile(buildMIDD());
+        List<Map<Integer, Variable<?>>> requests = createRequests();
+
+        int permits = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            permits += count(EvaluationUtils.eval(midd, requests.get(i % requests.size())));
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        long startBytes = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            permits += count(EvaluationUtils.eval(midd, requests.get(i % requests.size())));
+        }
+        double bytesPerDecision = (double) (bean.getThreadAllocatedBytes(threadId) - startBytes) / ROUNDS;
+
+        assertEquals((WARMUP + ROUNDS) / requests.size(), permits);
+        assertTrue("Allocated bytes per decision: " + bytesPerDecision, bytesPerDecision <= MAX_BYTES_PER_COMPILED_DECISION);
+    }
+
+    private static int count(Decision decision) {
+        return decision.getDecision() == DecisionType.Permit ? 1 : 0;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.builders;
+
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.algorithms.FirstApplicableAlg;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.LongNode;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ComputedTableTest {
+
+    private static final Object OP = "op";
+
+    private final AbstractNode[] nodes = {new ExternalNode3(DecisionType.Permit), new ExternalNode3(DecisionType.Deny),
+            new ExternalNode3(DecisionType.NotApplicable)};
+
+    @Test
+    public void testLRU() {
+        ComputedTable cache = new ComputedTable(2, ComputedTable.EvictionPolicy.LRU);
+        cache.put(OP, nodes[0], nodes[1], nodes[2]);
+        cache.put(OP, nodes[1], nodes[0], nodes[2]);
+        assertSame(nodes[2], cache.get(OP, nodes[0], nodes[1]));
+
+        // (1, 0) is the least recently used
+        cache.put(OP, nodes[1], nodes[2], nodes[0]);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(OP, nodes[1], nodes[0]));
+        assertSame(nodes[2], cache.get(OP, nodes[0], nodes[1]));
+        assertNull(cache.get("other", nodes[0], nodes[1]));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testClear() {
+        ComputedTable cache = new ComputedTable(2, ComputedTable.EvictionPolicy.CLEAR);
+        cache.put(OP, nodes[0], nodes[1], nodes[2]);
+        cache.put(OP, nodes[1], nodes[0], nodes[2]);
+        cache.put(OP, nodes[1], nodes[2], nodes[0]);
+        assertEquals(1, cache.size());
+        assertNull(cache.get(OP, nodes[0], nodes[1]));
+        assertSame(nodes[0], cache.get(OP, nodes[1], nodes[2]));
+
+        cache.put(OP, nodes[0], nodes[0], null);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCombine() throws MIDDException {
+        LongNode n1 = new LongNode(1, DecisionType.NotApplicable);
+        n1.addChild(new LongEdge(Interval.of(0L, 10L)), nodes[0]);
+        LongNode n2 = new LongNode(1, DecisionType.NotApplicable);
+        n2.addChild(new LongEdge(Interval.of(5L, 20L)), nodes[1]);
+
+        ComputedTable cache = new ComputedTable();
+        MIDDCombiner combiner = new MIDDCombiner(new FirstApplicableAlg(), new UniqueTable(), cache);
+        AbstractNode n = combiner.combine(n1, n2);
+        long misses = cache.getMisses();
+        assertSame(n, combiner.combine(n1, n2));
+        assertEquals(1, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+
+        // combining again with another computed table gives an equal node of the unique table
+        assertSame(n, new MIDDCombiner(new FirstApplicableAlg(), null, cache).combine(n1, n2));
+    }
+}
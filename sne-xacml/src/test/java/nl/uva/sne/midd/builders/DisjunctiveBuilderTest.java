@@ -0,0 +1,55 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.builders;
+
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.ExternalNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.nodes.LongNode;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DisjunctiveBuilderTest {
+
+    @Test
+    public void testJoinDifferentLevels() throws MIDDException {
+        // x0 in [0, 10) or x1 in [0, 10)
+        LongNode n1 = new LongNode(0, DecisionType.NotApplicable);
+        n1.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), new ExternalNode());
+        LongNode n2 = new LongNode(1, DecisionType.NotApplicable);
+        n2.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), new ExternalNode());
+
+        @SuppressWarnings("unchecked")
+        InternalNode<Long> n = (InternalNode<Long>) DisjunctiveBuilder.join(n1, n2);
+        assertEquals(0, n.getID());
+        assertTrue(n.findEdge(5L).getSubDiagram() instanceof ExternalNode);
+
+        // x0 outside of [0, 10) still satisfies the disjunction with x1 in [0, 10)
+        assertSame(n2, n.findEdge(20L).getSubDiagram());
+        assertSame(n2, n.findEdge(-1L).getSubDiagram());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.builders;
+
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.nodes.LongNode;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UniqueTableTest {
+
+    private static LongNode createNode(int id, DecisionType state, long upper) throws MIDDException {
+        LongNode n = new LongNode(id, state);
+        n.addChild(new LongEdge(Interval.of(0L, upper, true, false)), new ExternalNode3(DecisionType.Permit));
+        n.addChild(new LongEdge(Interval.of(upper)), new ExternalNode3(DecisionType.Deny));
+        return n;
+    }
+
+    @Test
+    public void testIntern() throws MIDDException {
+        UniqueTable nodes = new UniqueTable();
+
+        LongNode n1 = createNode(1, DecisionType.NotApplicable, 10L);
+        assertSame(n1, nodes.intern(n1));
+        assertEquals(3, nodes.size());
+
+        // equal structure with other objects
+        LongNode n2 = createNode(1, DecisionType.NotApplicable, 10L);
+        assertSame(n1, nodes.intern(n2));
+        assertEquals(3, nodes.size());
+        assertEquals(3, nodes.getHits());
+
+        // other variable, state or intervals
+        assertNotSame(n1, nodes.intern(createNode(2, DecisionType.NotApplicable, 10L)));
+        assertNotSame(n1, nodes.intern(createNode(1, DecisionType.Indeterminate_P, 10L)));
+        assertNotSame(n1, nodes.intern(createNode(1, DecisionType.NotApplicable, 20L)));
+        assertEquals(6, nodes.size());
+    }
+
+    @Test
+    public void testShareChildren() throws MIDDException {
+        UniqueTable nodes = new UniqueTable();
+
+        LongNode root = new LongNode(0, DecisionType.NotApplicable);
+        root.addChild(new LongEdge(Interval.of(0L)), createNode(1, DecisionType.NotApplicable, 10L));
+        root.addChild(new LongEdge(Interval.of(1L)), createNode(1, DecisionType.NotApplicable, 10L));
+
+        InternalNode<?> n = (InternalNode<?>) nodes.intern(root);
+        AbstractNode child = n.getEdges().get(0).getSubDiagram();
+        assertSame(child, n.getEdges().get(1).getSubDiagram());
+        assertEquals(4, nodes.size());
+    }
+}
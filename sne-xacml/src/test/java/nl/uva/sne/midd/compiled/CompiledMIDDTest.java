@@ -0,0 +1,176 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.compiled;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.Variable;
+import nl.uva.sne.midd.algorithms.DenyOverridesAlg;
+import nl.uva.sne.midd.builders.MIDDCombiner;
+import nl.uva.sne.midd.edges.DoubleEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.DoubleNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.obligations.Obligation;
+import nl.uva.sne.midd.obligations.ObligationExpression;
+import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompiledMIDDTest {
+
+    private ObligationExpression oe1 = new ObligationExpression(DecisionType.Permit, new Obligation("O1"));
+    private ObligationExpression oe2 = new ObligationExpression(DecisionType.Deny, new Obligation("O2"));
+
+    private InternalNode<?> buildPermitMIDD() throws MIDDException {
+        DoubleNode n0 = new DoubleNode(0, DecisionType.Indeterminate_P);
+        DoubleNode n1 = new DoubleNode(1, DecisionType.Indeterminate_P);
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit, Arrays.asList(oe1));
+
+        n0.addChild(new DoubleEdge(new Interval<>(1.0, 2.0, true, true)), n1);
+        n0.addChild(new DoubleEdge(new Interval<>(3.0, 4.0, true, false)), permit);
+        n1.addChild(new DoubleEdge(new Interval<>(5.0)), permit);
+        return n0;
+    }
+
+    private InternalNode<?> buildDenyMIDD() throws MIDDException {
+        DoubleNode n0 = new DoubleNode(0, DecisionType.Indeterminate_D);
+        DoubleNode n2 = new DoubleNode(2, DecisionType.Indeterminate_D);
+        ExternalNode3 deny = new ExternalNode3(DecisionType.Deny, Arrays.asList(oe2));
+
+        n0.addChild(new DoubleEdge(new Interval<>(0.0, 1.5, false, true)), n2);
+        n2.addChild(new DoubleEdge(new Interval<>(10.0, 20.0)), deny);
+        return n0;
+    }
+
+    @Test
+    public void testCompileSharedNodes() throws MIDDException {
+        CompiledMIDD midd = MIDDCompiler.compile(buildPermitMIDD());
+
+        assertEquals(2, midd.countInternalNodes());
+        assertEquals(1, midd.countLeaves());
+        assertEquals(0, midd.getRoot());
+    }
+
+    @Test
+    public void testEvalSameAsObjectGraph() throws MIDDException {
+        MIDDCombiner combiner = new MIDDCombiner(new DenyOverridesAlg());
+        AbstractNode root = combiner.combine(buildPermitMIDD(), buildDenyMIDD());
+        assertTrue(root instanceof InternalNode);
+
+        CompiledMIDD compiled = MIDDCompiler.compile(root);
+
+        Double[] values = new Double[]{null, -1.0, 0.0, 1.0, 1.2, 1.5, 2.0, 2.5, 3.0, 3.5, 4.0, 5.0, 10.0, 15.0, 20.0};
+        for (Double x0 : values) {
+            for (Double x1 : values) {
+                for (Double x2 : values) {
+                    Map<Integer, Variable<?>> request = createRequest(x0, x1, x2);
+
+                    Decision expected = EvaluationUtils.eval((InternalNode<?>) root, request);
+                    Decision actual = EvaluationUtils.eval(compiled, request);
+                    Decision actualVector = EvaluationUtils.eval(compiled, AttributeVector.of(request));
+
+                    assertEquals(expected.toString(), actual.toString());
+                    assertEquals(expected.toString(), actualVector.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Vectors evaluated in a single walk, most of them share their children at the branching nodes
+     */
+    @Test
+    public void testEvalBatch() throws MIDDException {
+        MIDDCombiner combiner = new MIDDCombiner(new DenyOverridesAlg());
+        CompiledMIDD compiled = MIDDCompiler.compile(combiner.combine(buildPermitMIDD(), buildDenyMIDD()));
+
+        Double[] values = new Double[]{null, -1.0, 0.0, 1.0, 1.2, 1.5, 2.0, 2.5, 3.0, 3.5, 4.0, 5.0, 10.0, 15.0, 20.0};
+        AttributeVector[] requests = new AttributeVector[values.length * values.length * values.length];
+        int count = 0;
+        for (Double x2 : values) {
+            for (Double x1 : values) {
+                for (Double x0 : values) {
+                    requests[count++] = AttributeVector.of(createRequest(x0, x1, x2));
+                }
+            }
+        }
+        BitSet varying = new BitSet();
+        varying.set(0, 3);
+        Decision[] results = new Decision[count];
+        EvaluationUtils.eval(compiled, requests, count, varying, results);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(EvaluationUtils.eval(compiled, requests[i]).toString(), results[i].toString());
+        }
+    }
+
+    @Test
+    public void testEvalNotMatched() throws MIDDException {
+        CompiledMIDD midd = MIDDCompiler.compile(buildPermitMIDD());
+
+        assertEquals(DecisionType.Permit, EvaluationUtils.eval(midd, createRequest(3.0, null, null)).getDecision());
+        assertEquals(DecisionType.Permit, EvaluationUtils.eval(midd, createRequest(1.5, 5.0, null)).getDecision());
+        assertEquals(DecisionType.Indeterminate_P, EvaluationUtils.eval(midd, createRequest(4.0, null, null)).getDecision());
+        assertEquals(DecisionType.Indeterminate_P, EvaluationUtils.eval(midd, createRequest(1.5, 6.0, null)).getDecision());
+        assertEquals(DecisionType.Indeterminate_P, EvaluationUtils.eval(midd, createRequest(null, null, null)).getDecision());
+    }
+
+    @Test
+    public void testPrecomputedDecisions() throws MIDDException {
+        CompiledMIDD midd = MIDDCompiler.compile(buildPermitMIDD());
+
+        Decision permit = EvaluationUtils.eval(midd, createRequest(3.0, null, null));
+        assertSame(permit, EvaluationUtils.eval(midd, createRequest(1.5, 5.0, null)));
+        assertEquals(Arrays.asList(new Obligation("O1")), permit.getObligations());
+
+        Decision notMatched = EvaluationUtils.eval(midd, createRequest(4.0, null, null));
+        assertSame(notMatched, EvaluationUtils.eval(midd, createRequest(null, null, null)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableDecision() throws MIDDException {
+        CompiledMIDD midd = MIDDCompiler.compile(buildPermitMIDD());
+        EvaluationUtils.eval(midd, createRequest(3.0, null, null)).getObligations().add(new Obligation("O3"));
+    }
+
+    private Map<Integer, Variable<?>> createRequest(Double... values) {
+        Map<Integer, Variable<?>> variables = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                variables.put(i, new Variable<>(i, values[i]));
+            }
+        }
+        return variables;
+    }
+}
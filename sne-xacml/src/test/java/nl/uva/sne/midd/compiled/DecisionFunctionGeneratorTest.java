@@ -0,0 +1,138 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.compiled;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.edges.DoubleEdge;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.edges.StringEdge;
+import nl.uva.sne.midd.interval.EndPoint;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.DoubleNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.nodes.LongNode;
+import nl.uva.sne.midd.nodes.StringNode;
+import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecisionFunctionGeneratorTest {
+
+    private static final Long[] LONG_VALUES = {null, Long.MIN_VALUE, -5L, -1L, 0L, 5L, 10L, 11L, 20L, 25L, 29L, 30L, Long.MAX_VALUE};
+
+    private static final Double[] DOUBLE_VALUES = {null, Double.NaN, -0.0, 0.0, 1.0, 1.5, 2.0, 2.5, 3.0, 3.5};
+
+    private static final String[] STRING_VALUES = {null, "a", "b", "c", "d"};
+
+    /**
+     * Integer, double and string nodes, with open, closed and infinite bounds; the double node is shared
+     */
+    private InternalNode<?> buildMIDD() throws MIDDException {
+        LongNode n0 = new LongNode(0, DecisionType.Indeterminate_P);
+        DoubleNode n1 = new DoubleNode(1, DecisionType.Indeterminate_D);
+        StringNode n2 = new StringNode(2, DecisionType.NotApplicable);
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit);
+        ExternalNode3 deny = new ExternalNode3(DecisionType.Deny);
+
+        n0.addChild(new LongEdge(new Interval<>(EndPoint.Infinity.NEGATIVE, 0L)), n1);
+        n0.addChild(new LongEdge(new Interval<>(0L, 10L, true, true)), permit);
+        n0.addChild(new LongEdge(new Interval<>(10L, 20L, false, false)), n1);
+        n0.addChild(new LongEdge(new Interval<>(25L)), n2);
+        n0.addChild(new LongEdge(new Interval<>(30L, Long.MAX_VALUE, true, true)), deny);
+        n1.addChild(new DoubleEdge(new Interval<>(1.0, 2.0, true, false)), permit);
+        n1.addChild(new DoubleEdge(new Interval<>(2.0, 3.0, false, true)), deny);
+        n2.addChild(new StringEdge(new Interval<>("a")), permit);
+        n2.addChild(new StringEdge(new Interval<>("b")), deny);
+        n2.addChild(new StringEdge(new Interval<>("c")), n1);
+        return n0;
+    }
+
+    @Test
+    public void testSameAsInterpreter() throws MIDDException {
+        CompiledMIDD midd = MIDDCompiler.compile(buildMIDD());
+        DecisionFunction f = DecisionFunctionGenerator.generate(midd, 100);
+        assertNotNull(f);
+
+        AttributeVector attributes = new AttributeVector(3);
+        for (Long x0 : LONG_VALUES) {
+            for (Double x1 : DOUBLE_VALUES) {
+                for (String x2 : STRING_VALUES) {
+                    attributes.clear();
+                    if (x0 != null) {
+                        attributes.setLong(0, x0);
+                    }
+                    if (x1 != null) {
+                        attributes.setDouble(1, x1);
+                    }
+                    if (x2 != null) {
+                        attributes.set(2, x2);
+                    }
+                    assertSame(x0 + ", " + x1 + ", " + x2, EvaluationUtils.eval(midd, attributes), f.evaluate(attributes));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLeafRoot() throws MIDDException {
+        CompiledMIDD midd = MIDDCompiler.compile(new ExternalNode3(DecisionType.Deny));
+        DecisionFunction f = DecisionFunctionGenerator.generate(midd, 100);
+
+        assertEquals(DecisionType.Deny, f.evaluate(new AttributeVector(1)).getDecision());
+    }
+
+    @Test
+    public void testMaxNodes() throws MIDDException {
+        CompiledMIDD midd = MIDDCompiler.compile(buildMIDD());
+
+        assertNotNull(DecisionFunctionGenerator.generate(midd, 3));
+        assertNull(DecisionFunctionGenerator.generate(midd, 2));
+    }
+
+    /**
+     * The search over many intervals is too large for a method compiled by the JIT
+     */
+    @Test
+    public void testMaxCodeLength() throws MIDDException {
+        LongNode n = new LongNode(0, DecisionType.NotApplicable);
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit);
+        for (long i = 0; i < 1000; i++) {
+            n.addChild(new LongEdge(new Interval<>(2 * i)), permit);
+        }
+
+        assertNull(DecisionFunctionGenerator.generate(MIDDCompiler.compile(n), 100));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testWrongType() throws MIDDException {
+        DecisionFunction f = DecisionFunctionGenerator.generate(MIDDCompiler.compile(buildMIDD()), 100);
+
+        AttributeVector attributes = new AttributeVector(3);
+        attributes.setDouble(0, 1.0);
+        f.evaluate(attributes);
+    }
+}
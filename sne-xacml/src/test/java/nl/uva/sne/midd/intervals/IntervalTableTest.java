@@ -0,0 +1,169 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.intervals;
+
+import com.google.common.collect.ImmutableList;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.interval.ComparableIntervalTable;
+import nl.uva.sne.midd.interval.DoubleIntervalTable;
+import nl.uva.sne.midd.interval.EndPoint;
+import nl.uva.sne.midd.interval.HashIntervalTable;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.interval.IntervalTable;
+import nl.uva.sne.midd.interval.LongIntervalTable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IntervalTableTest {
+
+    private static final int[] TARGETS = new int[]{0, 1, 2, 3};
+
+    /**
+     * (-inf, 1), [2, 5), [5], (7, +inf)
+     */
+    private List<Interval<Long>> createLongIntervals() throws MIDDException {
+        return ImmutableList.of(
+                Interval.from(EndPoint.Infinity.NEGATIVE, 1L),
+                Interval.of(2L, 5L, true, false),
+                new Interval<>(5L),
+                Interval.from(EndPoint.Infinity.POSITIVE, 7L));
+    }
+
+    private List<Interval<Double>> createDoubleIntervals() throws MIDDException {
+        return ImmutableList.of(
+                Interval.from(EndPoint.Infinity.NEGATIVE, 1.0),
+                Interval.of(2.0, 5.0, true, false),
+                new Interval<>(5.0),
+                Interval.from(EndPoint.Infinity.POSITIVE, 7.0));
+    }
+
+    @Test
+    public void testCreateByDataType() throws MIDDException {
+        assertTrue(IntervalTable.create(createLongIntervals(), TARGETS) instanceof LongIntervalTable);
+        assertTrue(IntervalTable.create(createDoubleIntervals(), TARGETS) instanceof DoubleIntervalTable);
+        assertTrue(IntervalTable.create(ImmutableList.of(Interval.of("a", "b")), new int[]{0}) instanceof ComparableIntervalTable);
+
+        // no finite bound, the data type is given
+        List<Interval<Long>> all = ImmutableList.of(new Interval<Long>(EndPoint.of(EndPoint.Infinity.NEGATIVE),
+                EndPoint.of(EndPoint.Infinity.POSITIVE)));
+        assertTrue(IntervalTable.create(all, new int[]{0}, Long.class) instanceof LongIntervalTable);
+    }
+
+    @Test
+    public void testLookupLong() throws MIDDException {
+        List<Interval<Long>> intervals = createLongIntervals();
+        LongIntervalTable table = (LongIntervalTable) IntervalTable.create(intervals, TARGETS);
+
+        for (long v = -3; v <= 10; v++) {
+            assertEquals(expectedTarget(intervals, v), table.lookupLong(v));
+            assertEquals(expectedTarget(intervals, v), table.lookup(v));
+        }
+        assertEquals(0, table.lookupLong(Long.MIN_VALUE));
+        assertEquals(3, table.lookupLong(Long.MAX_VALUE));
+        assertEquals(0, table.lookup(null));
+    }
+
+    @Test
+    public void testLookupDouble() throws MIDDException {
+        List<Interval<Double>> intervals = createDoubleIntervals();
+        DoubleIntervalTable table = (DoubleIntervalTable) IntervalTable.create(intervals, TARGETS);
+
+        for (double v = -3.0; v <= 10.0; v += 0.25) {
+            assertEquals(expectedTarget(intervals, v), table.lookupDouble(v));
+            assertEquals(expectedTarget(intervals, v), table.lookup(v));
+        }
+        assertEquals(0, table.lookupDouble(Double.NEGATIVE_INFINITY));
+        assertEquals(3, table.lookupDouble(Double.POSITIVE_INFINITY));
+    }
+
+    @Test(expected = MIDDException.class)
+    public void testOverlappedIntervals() throws MIDDException {
+        IntervalTable.create(ImmutableList.of(Interval.of(1L, 5L), Interval.of(3L, 7L)), new int[]{0, 1});
+    }
+
+    /**
+     * Single values "admin", "guest", "user" and their complement (-inf, "admin"), ("admin", "guest"), ...
+     */
+    private List<Interval<String>> createEqualityIntervals() throws MIDDException {
+        List<Interval<String>> intervals = new ArrayList<>();
+        intervals.add(new Interval<>("admin"));
+        intervals.add(new Interval<>("guest"));
+        intervals.add(new Interval<>("user"));
+        intervals.add(Interval.from(EndPoint.Infinity.NEGATIVE, "admin"));
+        intervals.add(Interval.of("admin", "guest"));
+        intervals.add(Interval.of("guest", "user"));
+        intervals.add(Interval.from(EndPoint.Infinity.POSITIVE, "user"));
+        return intervals;
+    }
+
+    @Test
+    public void testLookupEqualityValues() throws MIDDException {
+        List<Interval<String>> intervals = createEqualityIntervals();
+        int[] targets = new int[]{0, 1, 0, 2, 2, 2, 2};
+        IntervalTable table = IntervalTable.create(intervals, targets);
+        assertTrue(table instanceof HashIntervalTable);
+
+        for (String v : new String[]{"", "a", "admin", "admin2", "guest", "root", "user", "zzz"}) {
+            int expected = IntervalTable.NO_MATCH;
+            for (int i = 0; i < intervals.size() && expected == IntervalTable.NO_MATCH; i++) {
+                if (intervals.get(i).hasValue(v)) {
+                    expected = targets[i];
+                }
+            }
+            assertEquals(expected, table.lookup(v));
+        }
+        assertEquals(2, table.lookup(null));
+
+        // only single values
+        IntervalTable points = IntervalTable.create(intervals.subList(0, 3), new int[]{0, 1, 0});
+        assertTrue(points instanceof HashIntervalTable);
+        assertEquals(1, points.lookup("guest"));
+        assertEquals(IntervalTable.NO_MATCH, points.lookup("root"));
+        assertEquals(IntervalTable.NO_MATCH, points.lookup(null));
+    }
+
+    @Test
+    public void testNotEqualityValues() throws MIDDException {
+        List<Interval<String>> intervals = createEqualityIntervals();
+
+        // complement intervals have different targets
+        assertTrue(IntervalTable.create(intervals, new int[]{0, 1, 0, 2, 3, 2, 2}) instanceof ComparableIntervalTable);
+
+        // complement intervals do not cover the domain
+        intervals.remove(5);
+        assertTrue(IntervalTable.create(intervals, new int[]{0, 1, 0, 2, 2, 2}) instanceof ComparableIntervalTable);
+    }
+
+    private <T extends Comparable<T>> int expectedTarget(List<Interval<T>> intervals, T value) throws MIDDException {
+        for (int i = 0; i < intervals.size(); i++) {
+            if (intervals.get(i).hasValue(value)) {
+                return TARGETS[i];
+            }
+        }
+        return IntervalTable.NO_MATCH;
+    }
+}
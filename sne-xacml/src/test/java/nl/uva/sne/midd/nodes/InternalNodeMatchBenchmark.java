@@ -0,0 +1,70 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.nodes;
+
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.UnmatchedException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static nl.uva.sne.midd.nodes.InternalNodeMatchTest.createNode;
+import static nl.uva.sne.midd.nodes.InternalNodeMatchTest.linearMatch;
+
+/**
+ * Compare the runtime of the indexed edge lookup of internal nodes with a linear scan over the edges.
+ */
+public class InternalNodeMatchBenchmark {
+
+    private static final int LOOKUPS = 100000;
+
+    @Test
+    public void benchmarkMatch() throws MIDDException, UnmatchedException {
+        for (int numEdges : new int[]{10, 1000, 100000}) {
+            LongNode n = createNode(numEdges);
+            Random rnd = new Random(numEdges);
+
+            n.buildEdgeIndex();
+            // warm up
+            for (int i = 0; i < LOOKUPS; i++) {
+                n.match((long) rnd.nextInt(numEdges));
+            }
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                n.match((long) rnd.nextInt(numEdges));
+            }
+            double indexedTime = (System.nanoTime() - startTime) / 1000.0 / LOOKUPS;
+
+            int linearLookups = Math.max(10, LOOKUPS / numEdges);
+            startTime = System.nanoTime();
+            for (int i = 0; i < linearLookups; i++) {
+                linearMatch(n, (long) rnd.nextInt(numEdges));
+            }
+            double linearTime = (System.nanoTime() - startTime) / 1000.0 / linearLookups;
+
+            System.out.println("Edges: " + numEdges + ", indexed match (microsec):" + indexedTime
+                    + ", linear scan (microsec):" + linearTime);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.nodes;
+
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.UnmatchedException;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Check the indexed edge lookup of internal nodes against a linear scan over the edges.
+ */
+public class InternalNodeMatchTest {
+
+    /**
+     * Create a node with edges [0], (0, 2), [2], (2, 4), ... the point intervals lead to a Permit leaf, the others to
+     * a Deny leaf.
+     *
+     * @param numEdges
+     * @return
+     * @throws MIDDException
+     */
+    static LongNode createNode(int numEdges) throws MIDDException {
+        LongNode n = new LongNode(0, DecisionType.NotApplicable);
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit);
+        ExternalNode3 deny = new ExternalNode3(DecisionType.Deny);
+
+        for (int i = 0; i < numEdges; i++) {
+            long v = 2 * (i / 2);
+            if (i % 2 == 0) {
+                n.addChild(new LongEdge(new Interval<>(v)), permit);
+            } else {
+                n.addChild(new LongEdge(new Interval<>(v, v + 2)), deny);
+            }
+        }
+        return n;
+    }
+
+    static AbstractEdge<Long> linearMatch(LongNode n, Long value) throws MIDDException {
+        for (AbstractEdge<Long> e : n.getEdges()) {
+            if (e.match(value)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testMatch() throws MIDDException {
+        LongNode n = createNode(101);
+        n.buildEdgeIndex();
+        assertNotNull(n.getEdgeIndex());
+
+        for (long v = -2; v <= 103; v++) {
+            AbstractEdge<Long> expected = linearMatch(n, v);
+            try {
+                assertSame(expected, n.match(v));
+            } catch (UnmatchedException e) {
+                assertNull(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchAfterAddingEdges() throws MIDDException, UnmatchedException {
+        LongNode n = createNode(10);
+        n.buildEdgeIndex();
+        assertEquals(DecisionType.Permit, ((ExternalNode3) n.match(4L).getSubDiagram()).getDecision());
+
+        n.addChild(new LongEdge(new Interval<>(100L)), new ExternalNode3(DecisionType.Deny));
+        assertNull(n.getEdgeIndex());
+        assertEquals(DecisionType.Deny, ((ExternalNode3) n.match(100L).getSubDiagram()).getDecision());
+    }
+
+    /**
+     * Replacing or removing an edge through the list of edges drops the index
+     */
+    @Test
+    public void testMatchAfterReplacingEdges() throws MIDDException, UnmatchedException {
+        LongNode n = createNode(10);
+        n.buildEdgeIndex();
+
+        LongEdge e = new LongEdge(new Interval<>(4L));
+        e.setSubDiagram(new ExternalNode3(DecisionType.Deny));
+        n.getEdges().set(4, e);
+        assertNull(n.getEdgeIndex());
+        assertSame(e, n.match(4L));
+
+        n.buildEdgeIndex();
+        assertSame(e, n.match(4L));
+        n.getEdges().remove(4);
+        assertNull(n.getEdgeIndex());
+        assertNull(n.findEdge(4L));
+    }
+}
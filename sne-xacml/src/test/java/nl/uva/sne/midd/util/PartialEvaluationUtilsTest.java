@@ -0,0 +1,153 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.compiled.CompiledMIDD;
+import nl.uva.sne.midd.compiled.MIDDCompiler;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.nodes.LongNode;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PartialEvaluationUtilsTest {
+
+    private static final int LEVELS = 6;
+    private static final int NODES_PER_LEVEL = 6;
+    private static final int EDGES_PER_NODE = 5;
+
+    /**
+     * Layered MIDD of integer variables, each node has intervals [0, 10), [10, 20), ... leading to random nodes of the
+     * next level, the last level leads to Permit/Deny leaves.
+     */
+    private InternalNode<?> buildMIDD(Random rnd) throws MIDDException {
+        List<ExternalNode3> leaves = new ArrayList<>();
+        leaves.add(new ExternalNode3(DecisionType.Permit));
+        leaves.add(new ExternalNode3(DecisionType.Deny));
+
+        List<InternalNode<?>> next = null;
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            List<InternalNode<?>> current = new ArrayList<>();
+            int numNodes = (level == 0) ? 1 : NODES_PER_LEVEL;
+            for (int i = 0; i < numNodes; i++) {
+                LongNode n = new LongNode(level, DecisionType.Indeterminate_P);
+                for (int e = 0; e < EDGES_PER_NODE; e++) {
+                    n.addChild(new LongEdge(Interval.of(10L * e, 10L * e + 10, true, false)),
+                            next == null ? leaves.get(rnd.nextInt(2)) : next.get(rnd.nextInt(next.size())));
+                }
+                current.add(n);
+            }
+            next = current;
+        }
+        return next.get(0);
+    }
+
+    private static void setRandom(Random rnd, AttributeVector attributes, int from, int to) {
+        for (int level = from; level < to; level++) {
+            if (rnd.nextInt(30) != 0) {
+                attributes.setLong(level, rnd.nextInt(60) - 5);
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsFullEvaluation() throws MIDDException {
+        Random rnd = new Random(1);
+        InternalNode<?> midd = buildMIDD(rnd);
+        CompiledMIDD compiled = MIDDCompiler.compile(midd);
+
+        for (int session = 0; session < 50; session++) {
+            // the first two levels are known
+            AttributeVector known = new AttributeVector(LEVELS);
+            setRandom(rnd, known, 0, 2);
+            AbstractNode residual = PartialEvaluationUtils.partialEval(midd, known);
+            CompiledMIDD compiledResidual = MIDDCompiler.compile(residual);
+            assertTrue(compiledResidual.countInternalNodes() < compiled.countInternalNodes());
+
+            for (int i = 0; i < 100; i++) {
+                AttributeVector unknown = new AttributeVector(LEVELS);
+                setRandom(rnd, unknown, 2, LEVELS);
+                AttributeVector all = new AttributeVector(LEVELS);
+                all.setAll(known);
+                all.setAll(unknown);
+
+                assertEquals(EvaluationUtils.eval(compiled, all), EvaluationUtils.eval(compiledResidual, unknown));
+            }
+        }
+    }
+
+    @Test
+    public void testReduction() throws MIDDException {
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit);
+        ExternalNode3 deny = new ExternalNode3(DecisionType.Deny);
+
+        // x1 has edges to the same child, x2 has only a Permit child and a Permit state
+        LongNode x2 = new LongNode(2, DecisionType.Permit);
+        x2.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), permit);
+        LongNode x1 = new LongNode(1, DecisionType.Deny);
+        x1.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), x2);
+        x1.addChild(new LongEdge(Interval.of(10L, 20L, true, false)), x2);
+        x1.addChild(new LongEdge(Interval.of(20L, 30L, true, false)), deny);
+        LongNode x0 = new LongNode(0, DecisionType.NotApplicable);
+        x0.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), x1);
+
+        AttributeVector known = new AttributeVector(3);
+        AbstractNode residual = PartialEvaluationUtils.partialEval(x0, known);
+
+        assertEquals(2, MIDDCompiler.compile(residual).countInternalNodes());
+        InternalNode<?> residualX1 = (InternalNode<?>) ((InternalNode<?>) residual).getEdges().get(0).getSubDiagram();
+        assertEquals(2, residualX1.getEdges().size());
+        assertSame(permit, residualX1.getEdges().get(0).getSubDiagram());
+        // adjacent intervals of the merged edges are joined
+        assertEquals(1, residualX1.getEdges().get(0).getIntervals().size());
+
+        // the input is not modified
+        assertEquals(3, x1.getEdges().size());
+
+        // no matching edge: the state of the node
+        known.setLong(0, 50L);
+        residual = PartialEvaluationUtils.partialEval(x0, known);
+        assertEquals(DecisionType.NotApplicable, ((ExternalNode3) residual).getDecision());
+    }
+
+    @Test(expected = MIDDException.class)
+    public void testTypeMismatch() throws MIDDException {
+        LongNode x0 = new LongNode(0, DecisionType.NotApplicable);
+        x0.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), new ExternalNode3(DecisionType.Permit));
+
+        AttributeVector known = new AttributeVector(1);
+        known.set(0, "text");
+        PartialEvaluationUtils.partialEval(x0, known);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.compiled.CompiledMIDD;
+import nl.uva.sne.midd.compiled.MIDDCompiler;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.nodes.LongNode;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QueryUtilsTest {
+
+    private static final int LEVELS = 4;
+    private static final int NODES_PER_LEVEL = 5;
+    private static final int EDGES_PER_NODE = 4;
+
+    private static final DecisionType[] DECISIONS = {DecisionType.Permit, DecisionType.Deny,
+            DecisionType.NotApplicable, DecisionType.Indeterminate_P};
+
+    /**
+     * Layered MIDD of integer variables with random intervals, states and leaves
+     */
+    private InternalNode<?> buildMIDD(Random rnd) throws MIDDException {
+        List<AbstractNode> next = new ArrayList<>();
+        for (DecisionType d : DECISIONS) {
+            next.add(new ExternalNode3(d));
+        }
+
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            List<AbstractNode> current = new ArrayList<>();
+            int numNodes = (level == 0) ? 1 : NODES_PER_LEVEL;
+            for (int i = 0; i < numNodes; i++) {
+                LongNode n = new LongNode(level, DECISIONS[rnd.nextInt(DECISIONS.length)]);
+                long lower = 0;
+                boolean lowerClosed = true;
+                for (int e = 0; e < EDGES_PER_NODE; e++) {
+                    long upper = lower + 1 + rnd.nextInt(10);
+                    boolean upperClosed = rnd.nextBoolean();
+                    n.addChild(new LongEdge(Interval.of(lower, upper, lowerClosed, upperClosed)),
+                            next.get(rnd.nextInt(next.size())));
+                    // adjacent edges do not share their end point
+                    lower = upper + rnd.nextInt(3);
+                    lowerClosed = rnd.nextBoolean() && (lower != upper || !upperClosed);
+                }
+                current.add(n);
+            }
+            next = current;
+        }
+        return (InternalNode<?>) next.get(0);
+    }
+
+    private static boolean contains(List<Interval<?>> intervals, long value) throws MIDDException {
+        for (Interval i : intervals) {
+            if (i.hasValue(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testSameAsEvaluation() throws MIDDException {
+        Random rnd = new Random(7);
+        for (int m = 0; m < 20; m++) {
+            InternalNode<?> midd = buildMIDD(rnd);
+            CompiledMIDD compiled = MIDDCompiler.compile(midd);
+
+            for (int varId = 0; varId < LEVELS; varId++) {
+                AttributeVector attributes = new AttributeVector(LEVELS);
+                for (int i = 0; i < LEVELS; i++) {
+                    if (i != varId && rnd.nextInt(10) != 0) {
+                        attributes.setLong(i, rnd.nextInt(40));
+                    }
+                }
+                List<Interval<?>> permitted = QueryUtils.permittedIntervals(midd, attributes, varId);
+
+                for (long v = -3; v < 45; v++) {
+                    attributes.setLong(varId, v);
+                    boolean isPermit = EvaluationUtils.eval(compiled, attributes).getDecision() == DecisionType.Permit;
+                    assertEquals("value " + v + " in " + permitted, isPermit, contains(permitted, v));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDisjointIntervals() throws MIDDException {
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit);
+        LongNode x0 = new LongNode(0, DecisionType.NotApplicable);
+        x0.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), permit);
+        x0.addChild(new LongEdge(Interval.of(10L, 20L, true, true)), permit);
+        x0.addChild(new LongEdge(Interval.of(30L)), permit);
+        x0.addChild(new LongEdge(Interval.of(40L, 50L)), new ExternalNode3(DecisionType.Deny));
+
+        List<Interval<?>> permitted = QueryUtils.permittedIntervals(x0, new AttributeVector(1), 0);
+        assertEquals(2, permitted.size());
+        assertEquals(Interval.of(0L, 20L, true, true), permitted.get(0));
+        assertEquals(Interval.of(30L), permitted.get(1));
+
+        // the queried variable does not occur in the MIDD
+        assertTrue(QueryUtils.permittedIntervals(x0, new AttributeVector(2), 1).isEmpty());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.midd.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.compiled.CompiledMIDD;
+import nl.uva.sne.midd.compiled.MIDDCompiler;
+import nl.uva.sne.midd.edges.LongEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.nodes.LongNode;
+import nl.uva.sne.xacml.ExternalNode3;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReductionUtilsTest {
+
+    private static final int LEVELS = 5;
+    private static final int EDGES_PER_NODE = 4;
+
+    private static final DecisionType[] DECISIONS = {DecisionType.Permit, DecisionType.Deny};
+
+    /**
+     * Tree of integer variables, each node has intervals [0, 10), [10, 20), ... leading to new nodes of the next level,
+     * the last level leads to Permit/Deny leaves. States are random decisions, so some nodes do not discriminate.
+     */
+    private AbstractNode buildTree(Random rnd, int level) throws MIDDException {
+        if (level == LEVELS) {
+            return new ExternalNode3(DECISIONS[rnd.nextInt(DECISIONS.length)]);
+        }
+        LongNode n = new LongNode(level, DECISIONS[rnd.nextInt(DECISIONS.length)]);
+        for (int e = 0; e < EDGES_PER_NODE; e++) {
+            n.addChild(new LongEdge(Interval.of(10L * e, 10L * e + 10, true, false)), buildTree(rnd, level + 1));
+        }
+        return n;
+    }
+
+    @Test
+    public void testReduceNode() throws MIDDException {
+        ExternalNode3 permit = new ExternalNode3(DecisionType.Permit);
+        ExternalNode3 deny = new ExternalNode3(DecisionType.Deny);
+
+        LongNode n = new LongNode(0, DecisionType.NotApplicable);
+        n.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), permit);
+        n.addChild(new LongEdge(Interval.of(10L, 20L, true, false)), deny);
+        n.addChild(new LongEdge(Interval.of(20L, 30L, true, false)), permit);
+        n.addChild(new LongEdge(Interval.of(30L, 40L, true, false)), permit);
+
+        // [20, 30) and [30, 40) are joined, [0, 10) is not adjacent to them
+        InternalNode<?> reduced = (InternalNode<?>) ReductionUtils.reduceNode(n);
+        assertEquals(2, reduced.getEdges().size());
+        assertSame(permit, reduced.getEdges().get(0).getSubDiagram());
+        assertEquals(2, reduced.getEdges().get(0).getIntervals().size());
+        assertEquals(Interval.of(20L, 40L, true, false), reduced.getEdges().get(0).getIntervals().get(1));
+        assertEquals(4, n.getEdges().size());
+
+        // a reduced node is not copied
+        assertSame(reduced, ReductionUtils.reduceNode(reduced));
+
+        // every value and a missing value lead to Permit
+        LongNode x = new LongNode(1, DecisionType.Permit);
+        x.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), permit);
+        x.addChild(new LongEdge(Interval.of(20L, 30L, true, false)), permit);
+        assertSame(permit, ReductionUtils.reduceNode(x));
+
+        // a missing value leads to another decision
+        LongNode y = new LongNode(1, DecisionType.Deny);
+        y.addChild(new LongEdge(Interval.of(0L, 10L, true, false)), permit);
+        assertSame(y, ReductionUtils.reduceNode(y));
+    }
+
+    @Test
+    public void testReduce() throws MIDDException {
+        Random rnd = new Random(5);
+        for (int session = 0; session < 10; session++) {
+            InternalNode<?> tree = (InternalNode<?>) buildTree(rnd, 0);
+            AbstractNode reduced = ReductionUtils.reduce(tree);
+
+            int treeNodes = MIDDUtils.countNodes(tree);
+            int reducedNodes = (reduced instanceof InternalNode) ? MIDDUtils.countNodes((InternalNode) reduced) : 1;
+            assertTrue(reducedNodes < treeNodes);
+
+            CompiledMIDD compiledTree = MIDDCompiler.compile(tree);
+            CompiledMIDD compiledReduced = MIDDCompiler.compile(reduced);
+            for (int i = 0; i < 200; i++) {
+                AttributeVector attributes = new AttributeVector(LEVELS);
+                for (int level = 0; level < LEVELS; level++) {
+                    if (rnd.nextInt(10) != 0) {
+                        attributes.setLong(level, rnd.nextInt(50) - 5);
+                    }
+                }
+                assertEquals(EvaluationUtils.eval(compiledTree, attributes), EvaluationUtils.eval(compiledReduced, attributes));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.policy.parsers.MIDDParsingException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class AttributeMapperTest {
+
+    private static final int NUM_ATTRIBUTES = 1000;
+
+    private static final String SUBJECT = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+    private static final String RESOURCE = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+    private static final String STRING = "http://www.w3.org/2001/XMLSchema#string";
+
+    private AttributeMapper createMapper() {
+        AttributeMapper mapper = new AttributeMapper();
+        for (int i = 0; i < NUM_ATTRIBUTES; i++) {
+            assertEquals(i, mapper.addAttribute(createKey(i)));
+        }
+        return mapper;
+    }
+
+    private AttributeKey createKey(int i) {
+        return new AttributeKey(SUBJECT, "urn:attribute:" + i, STRING);
+    }
+
+    @Test
+    public void testFrozenLookup() throws MIDDParsingException {
+        AttributeMapper mapper = createMapper();
+        mapper.freeze();
+
+        assertTrue(mapper.isFrozen());
+        assertEquals(NUM_ATTRIBUTES, mapper.size());
+        for (int i = 0; i < NUM_ATTRIBUTES; i++) {
+            AttributeKey key = createKey(i);
+            assertEquals(i, mapper.lookup(key));
+            assertEquals(i, mapper.lookup(SUBJECT, key.getAttributeId(), STRING, null));
+            assertEquals(i, mapper.getVariableId(key));
+            assertTrue(mapper.hasVariableId(key));
+            assertEquals(key, mapper.getAttribute(i));
+        }
+
+        assertEquals(-1, mapper.lookup(SUBJECT, "urn:attribute:unknown", STRING, null));
+        assertEquals(-1, mapper.lookup(RESOURCE, "urn:attribute:0", STRING, null));
+        assertEquals(-1, mapper.lookup(SUBJECT, "urn:attribute:0", STRING, "issuer"));
+        assertEquals(-1, mapper.lookup(null, "urn:attribute:0", STRING, null));
+        assertFalse(mapper.hasVariableId(createKey(NUM_ATTRIBUTES)));
+    }
+
+    @Test
+    public void testSameIdInDifferentCategories() throws MIDDParsingException {
+        AttributeMapper mapper = new AttributeMapper();
+        int subjectId = mapper.addAttribute(new AttributeKey(SUBJECT, "urn:attribute:id", STRING));
+        int resourceId = mapper.addAttribute(new AttributeKey(RESOURCE, "urn:attribute:id", STRING));
+        int issuedId = mapper.addAttribute(new AttributeKey(RESOURCE, "urn:attribute:id", STRING, "issuer"));
+        assertNotEquals(subjectId, resourceId);
+        assertNotEquals(resourceId, issuedId);
+
+        mapper.freeze();
+        assertEquals(subjectId, mapper.lookup(SUBJECT, "urn:attribute:id", STRING, null));
+        assertEquals(resourceId, mapper.lookup(RESOURCE, "urn:attribute:id", STRING, null));
+        assertEquals(issuedId, mapper.lookup(RESOURCE, "urn:attribute:id", STRING, "issuer"));
+    }
+
+    private static int[] findVariables(AttributeMapper mapper, String category, String issuer) {
+        int[] result = new int[4];
+        int count = mapper.findVariables(category, "urn:attribute:id", STRING, issuer, result);
+        int[] found = Arrays.copyOf(result, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * Policy attributes without category or issuer match request attributes of any category or issuer, the frozen
+     * mapper finds the same variables
+     */
+    @Test
+    public void testFindVariables() {
+        AttributeMapper mapper = new AttributeMapper();
+        int subjectId = mapper.addAttribute(new AttributeKey(SUBJECT, "urn:attribute:id", STRING));
+        int anyCategoryId = mapper.addAttribute(new AttributeKey(null, "urn:attribute:id", STRING));
+        int issuedId = mapper.addAttribute(new AttributeKey(SUBJECT, "urn:attribute:id", STRING, "issuer"));
+        int anyCategoryIssuedId = mapper.addAttribute(new AttributeKey(null, "urn:attribute:id", STRING, "issuer"));
+        int resourceId = mapper.addAttribute(new AttributeKey(RESOURCE, "urn:attribute:id", STRING));
+        mapper.addAttribute(new AttributeKey(SUBJECT, "urn:attribute:other", STRING));
+
+        String[] categories = {SUBJECT, RESOURCE, null};
+        String[] issuers = {"issuer", "other", null};
+        int[][][] expected = new int[categories.length][issuers.length][];
+        for (int c = 0; c < categories.length; c++) {
+            for (int i = 0; i < issuers.length; i++) {
+                expected[c][i] = findVariables(mapper, categories[c], issuers[i]);
+            }
+        }
+
+        assertArrayEquals(new int[]{subjectId, anyCategoryId, issuedId, anyCategoryIssuedId}, expected[0][0]);
+        assertArrayEquals(new int[]{subjectId, anyCategoryId}, expected[0][1]);
+        assertArrayEquals(new int[]{anyCategoryId, resourceId}, expected[1][2]);
+        assertArrayEquals(new int[]{anyCategoryId}, expected[2][2]);
+
+        mapper.freeze();
+        for (int c = 0; c < categories.length; c++) {
+            for (int i = 0; i < issuers.length; i++) {
+                assertArrayEquals(expected[c][i], findVariables(mapper, categories[c], issuers[i]));
+            }
+        }
+        assertEquals(0, mapper.findVariables(SUBJECT, "urn:attribute:unknown", STRING, null, new int[4]));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddToFrozenMapper() {
+        AttributeMapper mapper = createMapper();
+        mapper.freeze();
+        mapper.addAttribute(new AttributeKey(SUBJECT, "urn:attribute:new", STRING));
+    }
+
+    @Test(expected = MIDDParsingException.class)
+    public void testUnknownAttribute() throws MIDDParsingException {
+        AttributeMapper mapper = createMapper();
+        mapper.freeze();
+        mapper.getVariableId(new AttributeKey(SUBJECT, "urn:attribute:unknown", STRING));
+    }
+
+    @Test
+    public void testFreezeEmptyMapper() {
+        AttributeMapper mapper = new AttributeMapper();
+        mapper.freeze();
+        assertEquals(-1, mapper.lookup(createKey(0)));
+    }
+}
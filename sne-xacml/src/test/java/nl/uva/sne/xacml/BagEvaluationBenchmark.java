@@ -0,0 +1,66 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import org.junit.Test;
+
+import static nl.uva.sne.xacml.BagEvaluationTest.*;
+
+/**
+ * Compare evaluating a subject with a single role against a subject with many groups, most of them not in the policies.
+ */
+public class BagEvaluationBenchmark {
+
+    private static final int NUM_REQUESTS = 20000;
+
+    @Test
+    public void benchmarkManyGroups() throws Exception {
+        PDP pdp = createPDP(SLI_POLICYSET_FILE);
+
+        RequestType single = createGroupRequest("VIO");
+        single.getAttributes().set(0, createAttributes(SUBJECT_CATEGORY, SUBJECT_ROLE, DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING, "VIO"));
+        RequestType bag = createGroupRequest("VIO");
+
+        for (int i = 0; i < NUM_REQUESTS / 10; i++) {
+            pdp.evaluate(single);
+            pdp.evaluate(bag);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            pdp.evaluate(single);
+        }
+        long singleTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            pdp.evaluate(bag);
+        }
+        long bagTime = System.nanoTime() - start;
+
+        System.out.println("Evaluation of a subject with 1 role " + singleTime / NUM_REQUESTS + "ns, with " +
+                NUM_GROUPS + " roles " + bagTime / NUM_REQUESTS + "ns");
+    }
+}
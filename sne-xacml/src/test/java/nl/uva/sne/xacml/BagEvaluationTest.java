@@ -0,0 +1,235 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicyType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BagEvaluationTest {
+
+    private static final String MULTI_VALUED_POLICYSET_FILE = "src/test/resources/xacml3-multi-valued-attributes-policy.xml";
+
+    private static final String FIRST_APPLICABLE_POLICYSET_FILE = "src/test/resources/xacml3-first-applicable-roles-policy.xml";
+
+    private static final String CONTINUE_POLICYSET_FILE = "policies/sample-xacml3/continue-a-xacml3.xml";
+
+    static final String SLI_POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+
+    private static final String RESOURCE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+
+    private static final String ACTION_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:action";
+
+    static final String SUBJECT_ROLE = "http://authz-interop.org/AAA/xacml/subject/subject-role";
+
+    private static final String RESOURCE_TYPE = "http://authz-interop.org/AAA/xacml/resource/resource-type";
+
+    private static final String ACTION_ID = "urn:oasis:names:tc:xacml:1.0:action:action-id";
+
+    static final int NUM_GROUPS = 50;
+
+    private static final int NUM_REQUESTS = 2000;
+
+    private static Level logLevel;
+
+    /**
+     * Debug logging of the parsers would dominate the time of the tests
+     */
+    @BeforeClass
+    public static void setUpLogging() {
+        Logger logger = Logger.getLogger("nl.uva.sne");
+        logLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterClass
+    public static void restoreLogging() {
+        Logger.getLogger("nl.uva.sne").setLevel(logLevel);
+    }
+
+    static PDP createPDP(String policySetFile) throws Exception {
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(policySetFile), null);
+        pdp.initialize();
+        return pdp;
+    }
+
+    static AttributesType createAttributes(String category, String attributeId, String dataType, String... values) {
+        AttributeType attr = new AttributeType();
+        attr.setAttributeId(attributeId);
+        for (String value : values) {
+            AttributeValueType attrValue = new AttributeValueType();
+            attrValue.setDataType(dataType);
+            attrValue.getContent().add(value);
+            attr.getAttributeValue().add(attrValue);
+        }
+
+        AttributesType attrs = new AttributesType();
+        attrs.setCategory(category);
+        attrs.getAttribute().add(attr);
+        return attrs;
+    }
+
+    private static DecisionType evaluateX1(PDP pdp, String... values) {
+        RequestType request = new RequestType();
+        request.getAttributes().add(createAttributes(SUBJECT_CATEGORY, "x1", DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER, values));
+        return pdp.evaluate(request).getResult().get(0).getDecision();
+    }
+
+    /**
+     * The target 100 <= x1 <= 200 has two Match expressions, each of them is matched by the whole bag: the values 50 and
+     * 300 satisfy one each, the target is matched although no single value is in the interval
+     */
+    @Test
+    public void testMultiValuedAttribute() throws Exception {
+        PDP pdp = createPDP(MULTI_VALUED_POLICYSET_FILE);
+
+        assertEquals(DecisionType.PERMIT, evaluateX1(pdp, "150"));
+        assertEquals(DecisionType.NOT_APPLICABLE, evaluateX1(pdp, "50"));
+        assertEquals(DecisionType.PERMIT, evaluateX1(pdp, "50", "150"));
+        assertEquals(DecisionType.PERMIT, evaluateX1(pdp, "150", "300", "150"));
+        assertEquals(DecisionType.NOT_APPLICABLE, evaluateX1(pdp, "250", "300"));
+        assertEquals(DecisionType.PERMIT, evaluateX1(pdp, "50", "300"));
+    }
+
+    private static DecisionType evaluateRoles(PDP pdp, String... roles) {
+        RequestType request = new RequestType();
+        request.getAttributes().add(createAttributes(SUBJECT_CATEGORY, "role", DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING, roles));
+        return pdp.evaluate(request).getResult().get(0).getDecision();
+    }
+
+    /**
+     * A first-applicable policy set whose first policy denies guests and the second one permits admins: a subject with
+     * both roles matches both targets, the first policy decides whatever the order of the values
+     */
+    @Test
+    public void testFirstApplicable() throws Exception {
+        PDP pdp = createPDP(FIRST_APPLICABLE_POLICYSET_FILE);
+
+        assertEquals(DecisionType.DENY, evaluateRoles(pdp, "guest"));
+        assertEquals(DecisionType.PERMIT, evaluateRoles(pdp, "admin"));
+        assertEquals(DecisionType.DENY, evaluateRoles(pdp, "guest", "user"));
+        assertEquals(DecisionType.PERMIT, evaluateRoles(pdp, "user", "admin", "admin"));
+
+        assertEquals(DecisionType.DENY, evaluateRoles(pdp, "admin", "guest"));
+        assertEquals(DecisionType.DENY, evaluateRoles(pdp, "guest", "admin"));
+    }
+
+    @Test
+    public void testStreamedBag() throws Exception {
+        PDP pdp = createPDP(MULTI_VALUED_POLICYSET_FILE);
+        String xml = "<Request xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" ReturnPolicyIdList=\"false\" CombinedDecision=\"false\">" +
+                "<Attributes Category=\"" + SUBJECT_CATEGORY + "\">" +
+                "<Attribute IncludeInResult=\"false\" AttributeId=\"x1\">" +
+                "<AttributeValue DataType=\"" + DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER + "\">50</AttributeValue>" +
+                "<AttributeValue DataType=\"" + DataTypeConverterUtil.XACML_3_0_DATA_TYPE_INTEGER + "\">120</AttributeValue>" +
+                "</Attribute></Attributes></Request>";
+
+        DecisionType decision = pdp.evaluate(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))
+                .getResult().get(0).getDecision();
+        assertEquals(DecisionType.PERMIT, decision);
+    }
+
+    /**
+     * Without bags, the targets of the policy give the decisions of the MIDD. The SLI policy set is left out: an AllOf
+     * element of its rules has equality Match expressions of different values, which the parser merges into the last one.
+     * Attributes are not missing: the MIDD returns the Indeterminate state of a missing attribute that must be present,
+     * where XACML gives NotApplicable if another Match expression of the AllOf element is false.
+     */
+    @Test
+    public void testSingleValues() throws Exception {
+        PolicySetType policyset = XACMLUtil.unmarshalPolicySetType(CONTINUE_POLICYSET_FILE);
+        PDP pdp = new PDP(policyset, null);
+        pdp.initialize();
+        assertSameDecisions(pdp.getCompiledPolicy(), BagEvaluator.of(policyset, null, pdp.getCompiledPolicy().getAttributeMapper()));
+
+        for (String file : VariableOrderingTest.POLICY_FILES) {
+            PolicyType policy = XACMLUtil.unmarshalPolicyType(file);
+            pdp = new PDP(policy);
+            pdp.initialize();
+            assertSameDecisions(pdp.getCompiledPolicy(), BagEvaluator.of(policy, pdp.getCompiledPolicy().getAttributeMapper()));
+        }
+    }
+
+    private static void assertSameDecisions(CompiledPolicy policy, BagEvaluator evaluator) throws Exception {
+        List<Map.Entry<AttributeKey, List<Comparable<?>>>> values =
+                new ArrayList<>(VariableOrderingTest.collectValues(policy).entrySet());
+        Random rnd = new Random(5);
+        AttributeVector attributes = new AttributeVector(policy.getAttributeMapper().size());
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            attributes.clear();
+            for (Map.Entry<AttributeKey, List<Comparable<?>>> e : values) {
+                int varId = policy.getAttributeMapper().getVariableId(e.getKey());
+                attributes.set(varId, e.getValue().get(rnd.nextInt(e.getValue().size())));
+            }
+            assertEquals("Request " + i, policy.evaluate(attributes), evaluator.evaluate(attributes));
+        }
+    }
+
+    static RequestType createGroupRequest(String role) {
+        String[] roles = new String[NUM_GROUPS];
+        for (int i = 0; i < NUM_GROUPS - 1; i++) {
+            roles[i] = "group-" + i;
+        }
+        roles[NUM_GROUPS - 1] = role;
+
+        RequestType request = new RequestType();
+        request.getAttributes().add(createAttributes(SUBJECT_CATEGORY, SUBJECT_ROLE, DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING, roles));
+        request.getAttributes().add(createAttributes(RESOURCE_CATEGORY, RESOURCE_TYPE, DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING, "VI"));
+        request.getAttributes().add(createAttributes(ACTION_CATEGORY, ACTION_ID, DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING, "MLI:Instantiate-VI"));
+        return request;
+    }
+
+    /**
+     * A subject with many groups, most of them not in the policies
+     */
+    @Test
+    public void testManyGroups() throws Exception {
+        PDP pdp = createPDP(SLI_POLICYSET_FILE);
+
+        assertEquals(DecisionType.PERMIT, pdp.evaluate(createGroupRequest("VIO")).getResult().get(0).getDecision());
+        assertEquals(DecisionType.NOT_APPLICABLE, pdp.evaluate(createGroupRequest("group-x")).getResult().get(0).getDecision());
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.compiled.CompiledMIDD;
+import nl.uva.sne.midd.compiled.DecisionFunction;
+import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compare the decision function generated from the MIDD with the interpreted compiled MIDD, on requests having the
+ * values of the policy bounds.
+ */
+public class DecisionFunctionBenchmark {
+
+    private static final int NUM_VECTORS = 1000;
+
+    private static final int ROUNDS = 2000;
+
+    @Test
+    public void benchmarkDecisionFunction() throws Exception {
+        for (String file : VariableOrderingTest.POLICYSET_FILES) {
+            PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(file), null);
+            pdp.setDecisionFunctionMaxNodes(Integer.MAX_VALUE);
+            pdp.initialize();
+            benchmark(file, pdp.getCompiledPolicy());
+        }
+        for (String file : VariableOrderingTest.POLICY_FILES) {
+            PDP pdp = new PDP(XACMLUtil.unmarshalPolicyType(file));
+            pdp.setDecisionFunctionMaxNodes(Integer.MAX_VALUE);
+            pdp.initialize();
+            benchmark(file, pdp.getCompiledPolicy());
+        }
+    }
+
+    private static void benchmark(String file, CompiledPolicy policy) throws Exception {
+        CompiledMIDD midd = policy.getCompiledMIDD();
+        DecisionFunction f = policy.getDecisionFunction();
+        AttributeVector[] vectors = createVectors(policy);
+
+        for (int r = 0; r < ROUNDS / 4; r++) {
+            interpret(midd, vectors);
+            generated(f, vectors);
+        }
+
+        long start = System.nanoTime();
+        int count = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            count += interpret(midd, vectors);
+        }
+        long interpretedTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            count -= generated(f, vectors);
+        }
+        long generatedTime = System.nanoTime() - start;
+
+        if (count != 0) {
+            throw new AssertionError("Different decisions");
+        }
+        final long decisions = (long) ROUNDS * NUM_VECTORS;
+        System.out.println(file + ": " + midd.countInternalNodes() + " nodes, interpreted " + interpretedTime / decisions +
+                "ns, generated " + generatedTime / decisions + "ns per decision");
+    }
+
+    /**
+     * Return the number of Permit decisions, so the evaluation is not optimized away
+     */
+    private static int interpret(CompiledMIDD midd, AttributeVector[] vectors) {
+        int permits = 0;
+        for (AttributeVector v : vectors) {
+            Decision d = EvaluationUtils.eval(midd, v);
+            if (d.getDecision() == DecisionType.Permit) {
+                permits++;
+            }
+        }
+        return permits;
+    }
+
+    private static int generated(DecisionFunction f, AttributeVector[] vectors) {
+        int permits = 0;
+        for (AttributeVector v : vectors) {
+            Decision d = f.evaluate(v);
+            if (d.getDecision() == DecisionType.Permit) {
+                permits++;
+            }
+        }
+        return permits;
+    }
+
+    private static AttributeVector[] createVectors(CompiledPolicy policy) throws Exception {
+        List<Map.Entry<AttributeKey, List<Comparable<?>>>> values =
+                new ArrayList<>(VariableOrderingTest.collectValues(policy).entrySet());
+        Random rnd = new Random(11);
+        AttributeVector[] vectors = new AttributeVector[NUM_VECTORS];
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            vectors[i] = new AttributeVector(policy.getAttributeMapper().size());
+            for (Map.Entry<AttributeKey, List<Comparable<?>>> e : values) {
+                int varId = policy.getAttributeMapper().getVariableId(e.getKey());
+                vectors[i].set(varId, e.getValue().get(rnd.nextInt(e.getValue().size())));
+            }
+        }
+        return vectors;
+    }
+}
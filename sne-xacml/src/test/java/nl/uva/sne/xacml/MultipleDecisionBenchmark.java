@@ -0,0 +1,78 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static nl.uva.sne.xacml.MultipleDecisionTest.*;
+
+/**
+ * Compare a multiple decision request with the same individual requests sent one by one.
+ */
+public class MultipleDecisionBenchmark {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final int NUM_REQUESTS = 2000;
+
+    private PDP pdp;
+
+    @Before
+    public void setUp() throws Exception {
+        pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+    }
+
+    @Test
+    public void benchmarkMultipleDecisions() {
+        RequestType request = createRepeatedCategories("VIO");
+        int n = RESOURCES.length * ACTIONS.length;
+
+        for (int i = 0; i < NUM_REQUESTS / 10; i++) {
+            pdp.evaluate(request);
+            evaluateSingle(pdp, "VIO", RESOURCES[i % RESOURCES.length], ACTIONS[i % ACTIONS.length]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            pdp.evaluate(request);
+        }
+        long multipleTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            for (int r = 0; r < RESOURCES.length; r++) {
+                for (int a = 0; a < ACTIONS.length; a++) {
+                    evaluateSingle(pdp, "VIO", RESOURCES[r], ACTIONS[a]);
+                }
+            }
+        }
+        long singleTime = System.nanoTime() - start;
+
+        System.out.println("Evaluation of " + n + " decisions: multiple decision request " +
+                multipleTime / NUM_REQUESTS + "ns, individual requests " + singleTime / NUM_REQUESTS + "ns");
+    }
+}
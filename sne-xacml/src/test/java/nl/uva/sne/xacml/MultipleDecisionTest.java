@@ -0,0 +1,244 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.MultiRequestsType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestReferenceType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResultType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MultipleDecisionTest {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+
+    private static final String RESOURCE_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+
+    private static final String ACTION_CATEGORY = "urn:oasis:names:tc:xacml:3.0:attribute-category:action";
+
+    private static final String SUBJECT_ROLE = "http://authz-interop.org/AAA/xacml/subject/subject-role";
+
+    private static final String RESOURCE_TYPE = "http://authz-interop.org/AAA/xacml/resource/resource-type";
+
+    private static final String ACTION_ID = "urn:oasis:names:tc:xacml:1.0:action:action-id";
+
+    static final String[] ACTIONS = {"MLI:Instantiate-VI", "MLI:Decommission-VI", "MLI:Request-VI",
+            "SLI:Operate-VR", "SLI:Monitor-VR-Info", "unknown-action"};
+
+    static final String[] RESOURCES = {"VI", "VI-Request", "VR-IT", "VLink"};
+
+    private PDP pdp;
+
+    @Before
+    public void setUp() throws Exception {
+        pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+    }
+
+    private static AttributesType createAttributes(String category, String attributeId, String value, boolean includeInResult) {
+        AttributeValueType attrValue = new AttributeValueType();
+        attrValue.setDataType(DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING);
+        attrValue.getContent().add(value);
+
+        AttributeType attr = new AttributeType();
+        attr.setAttributeId(attributeId);
+        attr.setIncludeInResult(includeInResult);
+        attr.getAttributeValue().add(attrValue);
+
+        AttributesType attrs = new AttributesType();
+        attrs.setCategory(category);
+        attrs.getAttribute().add(attr);
+        return attrs;
+    }
+
+    static DecisionType evaluateSingle(PDP pdp, String role, String resource, String action) {
+        RequestType request = new RequestType();
+        request.getAttributes().add(createAttributes(SUBJECT_CATEGORY, SUBJECT_ROLE, role, false));
+        request.getAttributes().add(createAttributes(RESOURCE_CATEGORY, RESOURCE_TYPE, resource, false));
+        request.getAttributes().add(createAttributes(ACTION_CATEGORY, ACTION_ID, action, false));
+        return pdp.evaluate(request).getResult().get(0).getDecision();
+    }
+
+    /**
+     * Repeated resource and action categories, with the subject shared by all individual requests
+     */
+    static RequestType createRepeatedCategories(String role) {
+        RequestType request = new RequestType();
+        request.getAttributes().add(createAttributes(SUBJECT_CATEGORY, SUBJECT_ROLE, role, false));
+        for (String resource : RESOURCES) {
+            request.getAttributes().add(createAttributes(RESOURCE_CATEGORY, RESOURCE_TYPE, resource, true));
+        }
+        for (String action : ACTIONS) {
+            request.getAttributes().add(createAttributes(ACTION_CATEGORY, ACTION_ID, action, true));
+        }
+        return request;
+    }
+
+    private static String getIncludedValue(ResultType result, String category) {
+        for (AttributesType attrs : result.getAttributes()) {
+            if (attrs.getCategory().equals(category)) {
+                return (String) attrs.getAttribute().get(0).getAttributeValue().get(0).getContent().get(0);
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testRepeatedCategories() {
+        ResponseType response = pdp.evaluate(createRepeatedCategories("VIO"));
+
+        assertEquals(RESOURCES.length * ACTIONS.length, response.getResult().size());
+        boolean permit = false;
+        for (int r = 0; r < RESOURCES.length; r++) {
+            for (int a = 0; a < ACTIONS.length; a++) {
+                ResultType result = response.getResult().get(r * ACTIONS.length + a);
+
+                assertEquals(RESOURCES[r], getIncludedValue(result, RESOURCE_CATEGORY));
+                assertEquals(ACTIONS[a], getIncludedValue(result, ACTION_CATEGORY));
+                assertNull(getIncludedValue(result, SUBJECT_CATEGORY));
+                assertEquals(evaluateSingle(pdp, "VIO", RESOURCES[r], ACTIONS[a]), result.getDecision());
+                permit |= result.getDecision() == DecisionType.PERMIT;
+            }
+        }
+        assertTrue(permit);
+    }
+
+    @Test
+    public void testRequestReferences() throws Exception {
+        RequestType request = new RequestType();
+        AttributesType subject = createAttributes(SUBJECT_CATEGORY, SUBJECT_ROLE, "VIO", false);
+        AttributesType resource = createAttributes(RESOURCE_CATEGORY, RESOURCE_TYPE, "VI", false);
+        AttributesType instantiate = createAttributes(ACTION_CATEGORY, ACTION_ID, "MLI:Instantiate-VI", false);
+        AttributesType unknown = createAttributes(ACTION_CATEGORY, ACTION_ID, "unknown-action", false);
+        subject.setId("s");
+        resource.setId("r");
+        instantiate.setId("a1");
+        unknown.setId("a2");
+        request.getAttributes().add(subject);
+        request.getAttributes().add(resource);
+        request.getAttributes().add(instantiate);
+        request.getAttributes().add(unknown);
+
+        MultiRequestsType multiRequests = new MultiRequestsType();
+        multiRequests.getRequestReference().add(createReference(subject, resource, unknown));
+        multiRequests.getRequestReference().add(createReference(subject, resource, instantiate));
+        request.setMultiRequests(multiRequests);
+
+        ResponseType response = pdp.evaluate(request);
+        assertEquals(2, response.getResult().size());
+        assertEquals(evaluateSingle(pdp, "VIO", "VI", "unknown-action"), response.getResult().get(0).getDecision());
+        assertEquals(DecisionType.PERMIT, response.getResult().get(1).getDecision());
+
+        // through XML, the references are resolved by JAXB
+        String xml = XACMLUtil.print(request);
+        RequestType unmarshalled = XACMLUtil.unmarshalRequestType(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        response = pdp.evaluate(unmarshalled);
+        assertEquals(2, response.getResult().size());
+        assertEquals(DecisionType.PERMIT, response.getResult().get(1).getDecision());
+    }
+
+    private static RequestReferenceType createReference(AttributesType... attributes) {
+        RequestReferenceType ref = new RequestReferenceType();
+        for (AttributesType attrs : attributes) {
+            AttributesReferenceType attrsRef = new AttributesReferenceType();
+            attrsRef.setReferenceId(attrs);
+            ref.getAttributesReference().add(attrsRef);
+        }
+        return ref;
+    }
+
+    @Test
+    public void testCombinedDecision() {
+        RequestType request = new RequestType();
+        request.setCombinedDecision(true);
+        request.getAttributes().add(createAttributes(SUBJECT_CATEGORY, SUBJECT_ROLE, "VIO", false));
+        request.getAttributes().add(createAttributes(RESOURCE_CATEGORY, RESOURCE_TYPE, "VI", false));
+        request.getAttributes().add(createAttributes(ACTION_CATEGORY, ACTION_ID, "MLI:Instantiate-VI", false));
+        request.getAttributes().add(createAttributes(ACTION_CATEGORY, ACTION_ID, "MLI:Instantiate-VI", false));
+
+        ResponseType response = pdp.evaluate(request);
+        assertEquals(1, response.getResult().size());
+        assertEquals(DecisionType.PERMIT, response.getResult().get(0).getDecision());
+
+        // different decisions
+        request.getAttributes().add(createAttributes(ACTION_CATEGORY, ACTION_ID, "unknown-action", false));
+        response = pdp.evaluate(request);
+        assertEquals(1, response.getResult().size());
+        assertEquals(DecisionType.INDETERMINATE, response.getResult().get(0).getDecision());
+    }
+
+    @Test
+    public void testInvalidIndividualRequest() {
+        RequestType request = createRepeatedCategories("VIO");
+        AttributesType invalid = new AttributesType();
+        invalid.setCategory(RESOURCE_CATEGORY);
+        AttributeType attr = new AttributeType();
+        attr.setAttributeId(RESOURCE_TYPE);
+        invalid.getAttribute().add(attr);
+        request.getAttributes().add(invalid);
+
+        ResponseType response = pdp.evaluate(request);
+        assertEquals((RESOURCES.length + 1) * ACTIONS.length, response.getResult().size());
+
+        // the invalid resource is the last one
+        ResultType result = response.getResult().get(RESOURCES.length * ACTIONS.length);
+        assertEquals(DecisionType.INDETERMINATE, result.getDecision());
+        assertEquals("urn:oasis:names:tc:xacml:1.0:status:syntax-error", result.getStatus().getStatusCode().getValue());
+        assertEquals(DecisionType.PERMIT, response.getResult().get(0).getDecision());
+    }
+
+    @Test
+    public void testTooManyIndividualRequests() throws Exception {
+        RequestType request = new RequestType();
+        for (int i = 0; i < 33; i++) {
+            request.getAttributes().add(createAttributes(RESOURCE_CATEGORY, RESOURCE_TYPE, "r" + i, false));
+            request.getAttributes().add(createAttributes(ACTION_CATEGORY, ACTION_ID, "a" + i, false));
+        }
+
+        try {
+            MultipleDecisionRequest.of(request);
+            fail("Expected XACMLParsingException");
+        } catch (XACMLParsingException e) {
+            // expected
+        }
+        assertNull(pdp.evaluate(request));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Throughput of a PDP shared by an increasing number of threads.
+ */
+public class PDPConcurrencyBenchmark {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private PDP pdp;
+
+    private RequestType request;
+
+    @Before
+    public void setUp() throws Exception {
+        pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+        request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+    }
+
+    @Test
+    public void benchmarkThroughput() throws Exception {
+        final int maxThreads = Runtime.getRuntime().availableProcessors();
+        final int requestsPerThread = 20000;
+
+        // warm up
+        evaluateConcurrently(maxThreads, requestsPerThread);
+
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+            long startTime = System.nanoTime();
+            evaluateConcurrently(numThreads, requestsPerThread);
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+
+            System.out.println("Threads: " + numThreads + ", throughput (requests/sec):"
+                    + (long) (numThreads * requestsPerThread / seconds));
+        }
+    }
+
+    private void evaluateConcurrently(int numThreads, final int requestsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int permits = 0;
+                        for (int i = 0; i < requestsPerThread; i++) {
+                            if (pdp.evaluate(request).getResult().get(0).getDecision() == DecisionType.PERMIT) {
+                                permits++;
+                            }
+                        }
+                        return permits;
+                    }
+                }));
+            }
+            for (Future<Integer> f : futures) {
+                assertEquals(requestsPerThread, f.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
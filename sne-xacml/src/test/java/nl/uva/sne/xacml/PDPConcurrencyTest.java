@@ -0,0 +1,140 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Evaluate requests with a PDP shared by multiple threads.
+ */
+public class PDPConcurrencyTest {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private static final String STATUS_CODE_OK = "urn:oasis:names:tc:xacml:1.0:status:ok";
+
+    private static Level logLevel;
+
+    private PDP pdp;
+
+    private RequestType request;
+
+    /**
+     * A request having an attribute of the policy without value, its evaluation fails with a syntax error
+     */
+    private RequestType invalidRequest;
+
+    /**
+     * The PDP logs each failed request as an error, the test evaluates thousands of invalid requests
+     */
+    @BeforeClass
+    public static void setUpLogging() {
+        Logger logger = Logger.getLogger(PDP.class);
+        logLevel = logger.getLevel();
+        logger.setLevel(Level.OFF);
+    }
+
+    @AfterClass
+    public static void restoreLogging() {
+        Logger.getLogger(PDP.class).setLevel(logLevel);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        PolicySetType policySet = XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE);
+        pdp = new PDP(policySet, null);
+        pdp.initialize();
+
+        request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+
+        invalidRequest = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+        AttributesType attrs = invalidRequest.getAttributes().get(0);
+        AttributeType emptyAttr = new AttributeType();
+        emptyAttr.setAttributeId(attrs.getAttribute().get(0).getAttributeId());
+        attrs.getAttribute().add(0, emptyAttr);
+    }
+
+    /**
+     * Valid and invalid requests are evaluated at the same time, the status of one must not leak into the other.
+     */
+    @Test
+    public void testRequestScopedStatus() throws Exception {
+        assertNull(pdp.evaluate(invalidRequest));
+
+        final int numThreads = 4;
+        final int rounds = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final boolean valid = (t % 2 == 0);
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int errors = 0;
+                        for (int i = 0; i < rounds; i++) {
+                            if (valid) {
+                                ResponseType response = pdp.evaluate(request);
+                                if (response.getResult().get(0).getDecision() != DecisionType.PERMIT ||
+                                        !STATUS_CODE_OK.equals(response.getResult().get(0).getStatus().getStatusCode().getValue())) {
+                                    errors++;
+                                }
+                            } else if (pdp.evaluate(invalidRequest) != null) {
+                                errors++;
+                            }
+                        }
+                        return errors;
+                    }
+                }));
+            }
+            for (Future<Integer> f : futures) {
+                assertEquals(0, f.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
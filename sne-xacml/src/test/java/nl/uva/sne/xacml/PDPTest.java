@@ -0,0 +1,235 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.compiled.DecisionFunction;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.DataTypeConverterUtil;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeValueType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PDPTest {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private PDP createPDP() throws ParserConfigurationException, SAXException, IOException, MIDDException, XACMLParsingException {
+        PolicySetType policySet = XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE);
+        PDP pdp = new PDP(policySet, null);
+        pdp.initialize();
+        return pdp;
+    }
+
+    @Test
+    public void testEvaluate() throws ParserConfigurationException, SAXException, IOException, MIDDException, XACMLParsingException {
+        PDP pdp = createPDP();
+        RequestType request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+
+        ResponseType response = pdp.evaluate(request);
+
+        assertNotNull(response);
+        assertEquals(1, response.getResult().size());
+        assertEquals(DecisionType.PERMIT, response.getResult().get(0).getDecision());
+    }
+
+    @Test
+    public void testCompileParallelism() throws ParserConfigurationException, SAXException, IOException, MIDDException, XACMLParsingException {
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.setCompileParallelism(4);
+        pdp.initialize();
+
+        ResponseType response = pdp.evaluate(XACMLUtil.unmarshalRequestType(REQUEST_FILE));
+        assertEquals(DecisionType.PERMIT, response.getResult().get(0).getDecision());
+        assertEquals(createPDP().getCompiledPolicy().getCompiledMIDD().countInternalNodes(),
+                pdp.getCompiledPolicy().getCompiledMIDD().countInternalNodes());
+    }
+
+    @Test
+    public void testUnknownAttributesSkipped() throws ParserConfigurationException, SAXException, IOException, MIDDException, XACMLParsingException {
+        PDP pdp = createPDP();
+        RequestType request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+        int numAttributes = pdp.getCompiledPolicy().getAttributeMapper().size();
+
+        AttributeType unknown = new AttributeType();
+        unknown.setAttributeId("urn:test:unknown-attribute");
+        AttributeValueType value = new AttributeValueType();
+        value.setDataType(DataTypeConverterUtil.XACML_3_0_DATA_TYPE_STRING);
+        value.getContent().add("unknown");
+        unknown.getAttributeValue().add(value);
+        request.getAttributes().get(0).getAttribute().add(unknown);
+
+        ResponseType response = pdp.evaluate(request);
+
+        assertEquals(DecisionType.PERMIT, response.getResult().get(0).getDecision());
+        assertEquals(numAttributes, pdp.getCompiledPolicy().getAttributeMapper().size());
+    }
+
+    @Test
+    public void testPartialEvaluate() throws ParserConfigurationException, SAXException, IOException, MIDDException, XACMLParsingException {
+        PDP pdp = createPDP();
+        RequestType request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+
+        // the subject is known for the session
+        RequestType known = new RequestType();
+        known.getAttributes().add(request.getAttributes().get(0));
+        CompiledPolicy residual = pdp.partialEvaluate(known);
+        assertTrue(residual.getCompiledMIDD().countInternalNodes() < pdp.getCompiledPolicy().getCompiledMIDD().countInternalNodes());
+
+        RequestType call = new RequestType();
+        call.getAttributes().addAll(request.getAttributes().subList(1, request.getAttributes().size()));
+        assertEquals(DecisionType.PERMIT, pdp.evaluate(residual, call).getResult().get(0).getDecision());
+        assertEquals(DecisionType.PERMIT, pdp.evaluate(residual, request).getResult().get(0).getDecision());
+        assertEquals(DecisionType.NOT_APPLICABLE, pdp.evaluate(call).getResult().get(0).getDecision());
+    }
+
+    @Test
+    public void testPermittedIntervals() throws ParserConfigurationException, SAXException, IOException, MIDDException, XACMLParsingException {
+        PDP pdp = createPDP();
+        RequestType request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+
+        AttributeKey action = new AttributeKey("urn:oasis:names:tc:xacml:3.0:attribute-category:action",
+                "urn:oasis:names:tc:xacml:1.0:action:action-id", "http://www.w3.org/2001/XMLSchema#string");
+        List<Interval<?>> permitted = pdp.permittedIntervals(request, action);
+        assertFalse(permitted.isEmpty());
+
+        boolean found = false;
+        for (Interval i : permitted) {
+            found |= i.hasValue("MLI:Instantiate-VI");
+        }
+        assertTrue(found);
+    }
+
+    /**
+     * Values of the queried attribute are ignored, several values are not a bag of the query
+     */
+    @Test
+    public void testPermittedIntervalsOfBag() throws ParserConfigurationException, SAXException, IOException, MIDDException, XACMLParsingException {
+        PDP pdp = createPDP();
+        // the designators of the policy have no category
+        AttributeKey action = new AttributeKey(null, "urn:oasis:names:tc:xacml:1.0:action:action-id",
+                "http://www.w3.org/2001/XMLSchema#string");
+        List<Interval<?>> expected = pdp.permittedIntervals(XACMLUtil.unmarshalRequestType(REQUEST_FILE), action);
+
+        RequestType request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+        for (AttributesType attrs : request.getAttributes()) {
+            for (AttributeType attr : attrs.getAttribute()) {
+                if (attr.getAttributeId().equals(action.getAttributeId())) {
+                    AttributeValueType value = new AttributeValueType();
+                    value.setDataType(action.getDataType());
+                    value.getContent().add("MLI:Other");
+                    attr.getAttributeValue().add(value);
+                }
+            }
+        }
+        assertTrue(pdp.getCompiledPolicy().getAttributeMapper().hasVariableId(action));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, pdp.permittedIntervals(request, action));
+    }
+
+    /**
+     * The generated decision function gives the decisions of the interpreted MIDD, also for missing attributes
+     */
+    @Test
+    public void testDecisionFunction() throws Exception {
+        for (String file : VariableOrderingTest.POLICYSET_FILES) {
+            PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(file), null);
+            pdp.setDecisionFunctionMaxNodes(100000);
+            pdp.initialize();
+            assertSameDecisions(pdp.getCompiledPolicy());
+        }
+        for (String file : VariableOrderingTest.POLICY_FILES) {
+            PDP pdp = new PDP(XACMLUtil.unmarshalPolicyType(file));
+            pdp.setDecisionFunctionMaxNodes(100000);
+            pdp.initialize();
+            assertSameDecisions(pdp.getCompiledPolicy());
+        }
+    }
+
+    @Test
+    public void testDecisionFunctionMaxNodes() throws Exception {
+        RequestType request = XACMLUtil.unmarshalRequestType(REQUEST_FILE);
+
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.setDecisionFunctionMaxNodes(100000);
+        pdp.initialize();
+        assertNotNull(pdp.getCompiledPolicy().getDecisionFunction());
+        assertEquals(DecisionType.PERMIT, pdp.evaluate(request).getResult().get(0).getDecision());
+
+        // the residual policy is generated too
+        RequestType known = new RequestType();
+        known.getAttributes().add(request.getAttributes().get(0));
+        CompiledPolicy residual = pdp.partialEvaluate(known);
+        assertNotNull(residual.getDecisionFunction());
+        assertEquals(DecisionType.PERMIT, pdp.evaluate(residual, request).getResult().get(0).getDecision());
+
+        // too large for the decision function, fall back to the interpreter
+        pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.setDecisionFunctionMaxNodes(1);
+        pdp.initialize();
+        assertNull(pdp.getCompiledPolicy().getDecisionFunction());
+        assertEquals(DecisionType.PERMIT, pdp.evaluate(request).getResult().get(0).getDecision());
+    }
+
+    private static void assertSameDecisions(CompiledPolicy policy) throws Exception {
+        DecisionFunction f = policy.getDecisionFunction();
+        assertNotNull(f);
+
+        List<Map.Entry<AttributeKey, List<Comparable<?>>>> values =
+                new ArrayList<>(VariableOrderingTest.collectValues(policy).entrySet());
+        Random rnd = new Random(7);
+        AttributeVector attributes = new AttributeVector(policy.getAttributeMapper().size());
+        for (int i = 0; i < 2000; i++) {
+            attributes.clear();
+            for (Map.Entry<AttributeKey, List<Comparable<?>>> e : values) {
+                int k = rnd.nextInt(e.getValue().size() + 1);
+                // some attributes are missing
+                if (k < e.getValue().size()) {
+                    attributes.set(policy.getAttributeMapper().getVariableId(e.getKey()), e.getValue().get(k));
+                }
+            }
+            assertSame("Request " + i, EvaluationUtils.eval(policy.getCompiledMIDD(), attributes), f.evaluate(attributes));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.xacml.util.XACMLUtil;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static nl.uva.sne.xacml.VariableOrderingTest.*;
+
+/**
+ * Compare the compiled sizes and initialization times of policies under each variable ordering strategy.
+ */
+public class VariableOrderingBenchmark {
+
+    /**
+     * Print compiled sizes of the policy under each strategy, with and without sifting, and check all PDPs give the
+     * same decisions as the first-seen order
+     */
+    private void compareStrategies(String name, Loader loader) throws Exception {
+        PDP baseline = loader.load();
+        baseline.initialize();
+        Map<AttributeKey, List<Comparable<?>>> values = collectValues(baseline.getCompiledPolicy());
+
+        StringBuilder report = new StringBuilder(name).append(':');
+        for (VariableOrdering.Strategy strategy : VariableOrdering.Strategy.values()) {
+            // sifting gives the same order from any strategy on the fixtures, it is run once as it is slow
+            for (boolean sifting : (strategy == VariableOrdering.Strategy.DEPTH) ? new boolean[]{false, true} : new boolean[]{false}) {
+                PDP pdp = loader.load();
+                pdp.setVariableOrdering(strategy, sifting);
+                long start = System.nanoTime();
+                pdp.initialize();
+                long time = (System.nanoTime() - start) / 1000000;
+
+                report.append(' ').append(strategy).append(sifting ? "+sifting " : " ")
+                        .append(pdp.getCompiledPolicy().getCompiledMIDD().countInternalNodes()).append(" nodes (")
+                        .append(time).append("ms);");
+                assertSameDecisions(baseline.getCompiledPolicy(), pdp.getCompiledPolicy(), values);
+            }
+        }
+        System.out.println(report);
+    }
+
+    @Test
+    public void benchmarkStrategies() throws Exception {
+        Logger logger = Logger.getLogger("nl.uva.sne");
+        Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        try {
+            for (final String file : POLICYSET_FILES) {
+                compareStrategies(file, new Loader() {
+                    @Override
+                    public PDP load() throws Exception {
+                        return new PDP(XACMLUtil.unmarshalPolicySetType(file), null);
+                    }
+                });
+            }
+            for (final String file : POLICY_FILES) {
+                compareStrategies(file, new Loader() {
+                    @Override
+                    public PDP load() throws Exception {
+                        return new PDP(XACMLUtil.unmarshalPolicyType(file));
+                    }
+                });
+            }
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+}
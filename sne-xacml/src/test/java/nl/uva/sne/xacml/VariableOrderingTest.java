@@ -0,0 +1,264 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.builders.UniqueTable;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.xacml.policy.finder.PolicyFinder;
+import nl.uva.sne.xacml.policy.finder.impl.PolicyFinderImpl;
+import nl.uva.sne.xacml.policy.parsers.MIDDParsingException;
+import nl.uva.sne.xacml.policy.parsers.PolicySetParser;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicyType;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VariableOrderingTest {
+
+    static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    static final String[] POLICYSET_FILES = {
+            "src/test/resources/xacml3-policyset-sli.xml",
+            "policies/sample-xacml3/continue-a-xacml3.xml"};
+
+    static final String[] POLICY_FILES = {
+            "src/test/resources/xacml3-policyset-number-po.xml",
+            "src/test/resources/xacml3-policyset-suppliers.xml"};
+
+    private static final String SUBJECT_ROLE = "http://authz-interop.org/AAA/xacml/subject/subject-role";
+
+    private static final String ACTION_ID = "urn:oasis:names:tc:xacml:1.0:action:action-id";
+
+    private static final int NUM_REQUESTS = 2000;
+
+    private static final String REFERENCES_DIR = "policies/upperlicl";
+
+    @Test
+    public void testOrder() throws Exception {
+        PolicySetType policyset = XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE);
+
+        // same order as the parser
+        AttributeMapper attrMapper = new AttributeMapper();
+        new PolicySetParser(null, policyset, attrMapper).parse();
+        List<AttributeKey> firstSeen = VariableOrdering.order(policyset, VariableOrdering.Strategy.FIRST_SEEN);
+        assertEquals(attrMapper.size(), firstSeen.size());
+        for (int i = 0; i < firstSeen.size(); i++) {
+            assertEquals(attrMapper.getAttribute(i), firstSeen.get(i));
+        }
+
+        // the subject role is matched by the policy set target, action identifiers by most rules
+        List<AttributeKey> depth = VariableOrdering.order(policyset, VariableOrdering.Strategy.DEPTH);
+        assertEquals(3, depth.size());
+        assertEquals(SUBJECT_ROLE, depth.get(0).getAttributeId());
+
+        List<AttributeKey> frequency = VariableOrdering.order(policyset, VariableOrdering.Strategy.FREQUENCY);
+        assertEquals(3, frequency.size());
+        assertEquals(ACTION_ID, frequency.get(0).getAttributeId());
+        assertTrue(frequency.containsAll(depth));
+    }
+
+    /**
+     * Attributes of referenced policies are ordered too, in the order of the parser
+     */
+    @Test
+    public void testReferences() throws Exception {
+        Map<String, Object> policies = new HashMap<>();
+        for (File file : new File(REFERENCES_DIR).listFiles()) {
+            if (file.getName().startsWith("PPS-")) {
+                PolicySetType policyset = XACMLUtil.unmarshalPolicySetType(file.getPath());
+                policies.put(policyset.getPolicySetId(), policyset);
+            } else if (file.getName().startsWith("permission-")) {
+                PolicyType policy = XACMLUtil.unmarshalPolicyType(file.getPath());
+                policies.put(policy.getPolicyId(), policy);
+            }
+        }
+        PolicyFinder policyFinder = new PolicyFinderImpl(policies);
+        PolicySetType policyset = XACMLUtil.unmarshalPolicySetType(REFERENCES_DIR + "/RPS-VIO-Role.xml");
+
+        AttributeMapper attrMapper = new AttributeMapper();
+        new PolicySetParser(null, policyset, attrMapper, policyFinder).parse();
+        List<AttributeKey> firstSeen = VariableOrdering.order(policyset, policyFinder, VariableOrdering.Strategy.FIRST_SEEN);
+        assertEquals(attrMapper.size(), firstSeen.size());
+        for (int i = 0; i < firstSeen.size(); i++) {
+            assertEquals(attrMapper.getAttribute(i), firstSeen.get(i));
+        }
+        assertTrue(VariableOrdering.order(policyset, VariableOrdering.Strategy.FIRST_SEEN).size() < firstSeen.size());
+    }
+
+    @Test
+    public void testSift() throws Exception {
+        final PolicySetType policyset = XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE);
+        VariableOrdering.MIDDBuilder builder = new VariableOrdering.MIDDBuilder() {
+            @Override
+            public AbstractNode build(AttributeMapper attrMapper) throws MIDDParsingException, XACMLParsingException, MIDDException {
+                return new PolicySetParser(null, policyset, attrMapper, null, new UniqueTable()).parse();
+            }
+        };
+
+        for (VariableOrdering.Strategy strategy : VariableOrdering.Strategy.values()) {
+            List<AttributeKey> order = VariableOrdering.order(policyset, strategy);
+            List<AttributeKey> sifted = VariableOrdering.sift(order, builder);
+            assertEquals(order.size(), sifted.size());
+            assertTrue(sifted.containsAll(order));
+            assertTrue(VariableOrdering.size(sifted, builder) <= VariableOrdering.size(order, builder));
+        }
+    }
+
+    private static Level logLevel;
+
+    /**
+     * Debug logging of the parsers would dominate the time of the tests
+     */
+    @BeforeClass
+    public static void setUpLogging() {
+        Logger logger = Logger.getLogger("nl.uva.sne");
+        logLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterClass
+    public static void restoreLogging() {
+        Logger.getLogger("nl.uva.sne").setLevel(logLevel);
+    }
+
+    interface Loader {
+        PDP load() throws Exception;
+    }
+
+    /**
+     * Check the PDPs of every strategy give the same decisions as the first-seen order, on requests where some
+     * attributes are missing
+     *
+     * @param sifting also check the sifted orders
+     */
+    private void assertSameDecisions(Loader loader, boolean sifting) throws Exception {
+        PDP baseline = loader.load();
+        baseline.initialize();
+        Map<AttributeKey, List<Comparable<?>>> values = collectValues(baseline.getCompiledPolicy());
+
+        for (VariableOrdering.Strategy strategy : VariableOrdering.Strategy.values()) {
+            for (boolean sift : sifting ? new boolean[]{false, true} : new boolean[]{false}) {
+                PDP pdp = loader.load();
+                pdp.setVariableOrdering(strategy, sift);
+                pdp.initialize();
+                assertSameDecisions(baseline.getCompiledPolicy(), pdp.getCompiledPolicy(), values);
+            }
+        }
+    }
+
+    /**
+     * Decisions do not depend on the order of the variables, even with missing attributes. Sifting the large policy set
+     * builds its MIDD thousands of times, its sifted order is checked by {@link VariableOrderingBenchmark}.
+     */
+    @Test
+    public void testSameDecisions() throws Exception {
+        for (final String file : POLICYSET_FILES) {
+            assertSameDecisions(new Loader() {
+                @Override
+                public PDP load() throws Exception {
+                    return new PDP(XACMLUtil.unmarshalPolicySetType(file), null);
+                }
+            }, file.equals(POLICYSET_FILE));
+        }
+        for (final String file : POLICY_FILES) {
+            assertSameDecisions(new Loader() {
+                @Override
+                public PDP load() throws Exception {
+                    return new PDP(XACMLUtil.unmarshalPolicyType(file));
+                }
+            }, true);
+        }
+    }
+
+    static Map<AttributeKey, List<Comparable<?>>> collectValues(CompiledPolicy policy) throws MIDDException, MIDDParsingException {
+        Map<AttributeKey, List<Comparable<?>>> values = new HashMap<>();
+        List<AbstractNode> stack = new ArrayList<>();
+        Map<AbstractNode, Boolean> visited = new IdentityHashMap<>();
+        stack.add(policy.getMIDD());
+        while (!stack.isEmpty()) {
+            AbstractNode n = stack.remove(stack.size() - 1);
+            if (!(n instanceof InternalNode) || visited.put(n, Boolean.TRUE) != null) {
+                continue;
+            }
+            InternalNode<?> node = (InternalNode<?>) n;
+            AttributeKey attr = policy.getAttributeMapper().getAttribute(node.getID());
+            List<Comparable<?>> l = values.get(attr);
+            if (l == null) {
+                l = new ArrayList<>();
+                values.put(attr, l);
+            }
+            for (AbstractEdge<?> e : node.getEdges()) {
+                for (Interval<?> i : e.getIntervals()) {
+                    if (!i.isLowerInfinite()) {
+                        l.add(i.getLowerBound().getValue());
+                    }
+                    if (!i.isUpperInfinite()) {
+                        l.add(i.getUpperBound().getValue());
+                    }
+                }
+                stack.add(e.getSubDiagram());
+            }
+        }
+        return values;
+    }
+
+    static void assertSameDecisions(CompiledPolicy expected, CompiledPolicy actual,
+                                            Map<AttributeKey, List<Comparable<?>>> values) throws MIDDParsingException {
+        Random rnd = new Random(3);
+        AttributeVector v1 = new AttributeVector(expected.getAttributeMapper().size());
+        AttributeVector v2 = new AttributeVector(actual.getAttributeMapper().size());
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            v1.clear();
+            v2.clear();
+            for (Map.Entry<AttributeKey, List<Comparable<?>>> e : values.entrySet()) {
+                if (rnd.nextInt(4) == 0) {
+                    continue;       // missing attribute
+                }
+                Comparable<?> value = e.getValue().get(rnd.nextInt(e.getValue().size()));
+                v1.set(expected.getAttributeMapper().getVariableId(e.getKey()), value);
+                v2.set(actual.getAttributeMapper().getVariableId(e.getKey()), value);
+            }
+            assertEquals("Request " + i, expected.evaluate(v1), actual.evaluate(v2));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.xacml.PDP;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static nl.uva.sne.xacml.binary.BinaryCodecTest.*;
+import static org.junit.Assert.*;
+
+/**
+ * Compare the throughput of the JSON path and the binary path on the same request.
+ */
+public class BinaryCodecBenchmark {
+
+    private static final String JSON_REQUEST = "{\"Request\":{" +
+            "\"AccessSubject\":{\"Attribute\":[{\"AttributeId\":\"" + SUBJECT_ROLE + "\",\"Value\":\"VIO\"}]}," +
+            "\"Resource\":{\"Attribute\":[{\"AttributeId\":\"" + RESOURCE_TYPE + "\",\"Value\":\"VI\"}]}," +
+            "\"Action\":{\"Attribute\":[{\"AttributeId\":\"" + ACTION_ID + "\",\"Value\":\"MLI:Instantiate-VI\"}]}}}";
+
+    private static final int NUM_REQUESTS = 200000;
+
+    private PDP pdp;
+
+    private AttributeTable table;
+
+    @Before
+    public void setUp() throws Exception {
+        pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+        table = pdp.getCompiledPolicy().getAttributeTable();
+    }
+
+    @Test
+    public void benchmarkBinaryVsJson() throws Exception {
+        byte[] json = JSON_REQUEST.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        BinaryRequestEncoder encoder = new BinaryRequestEncoder(table);
+        ByteBuffer request = ByteBuffer.allocate(1024);
+        encodeRequest(table, encoder, request, "VIO");
+        request.flip();
+        ByteBuffer response = ByteBuffer.allocate(1024);
+
+        for (int i = 0; i < NUM_REQUESTS / 10; i++) {
+            os.reset();
+            pdp.evaluateJson(json, os);
+            request.rewind();
+            response.clear();
+            pdp.evaluate(request, response);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            os.reset();
+            pdp.evaluateJson(json, os);
+        }
+        long jsonTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            request.rewind();
+            response.clear();
+            pdp.evaluate(request, response);
+        }
+        long binaryTime = System.nanoTime() - start;
+
+        response.flip();
+        assertEquals(DecisionType.Permit, BinaryResponse.decode(response).getDecision().getDecision());
+        System.out.println("Request evaluation: JSON " + jsonTime / NUM_REQUESTS + "ns/request, binary " +
+                binaryTime / NUM_REQUESTS + "ns/request");
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.binary;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.obligations.Obligation;
+import nl.uva.sne.xacml.PDP;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    static final String SUBJECT_ROLE = "http://authz-interop.org/AAA/xacml/subject/subject-role";
+
+    static final String RESOURCE_TYPE = "http://authz-interop.org/AAA/xacml/resource/resource-type";
+
+    static final String ACTION_ID = "urn:oasis:names:tc:xacml:1.0:action:action-id";
+
+    private PDP pdp;
+
+    private AttributeTable table;
+
+    @Before
+    public void setUp() throws Exception {
+        pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+
+        // negotiate the attribute table
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        pdp.getCompiledPolicy().getAttributeTable().writeTo(buffer);
+        buffer.flip();
+        table = AttributeTable.readFrom(buffer);
+    }
+
+    static int getVariableId(AttributeTable table, String attributeId) {
+        for (int i = 0; i < table.size(); i++) {
+            if (table.getAttribute(i).getAttributeId().equals(attributeId)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(attributeId);
+    }
+
+    private int getVariableId(String attributeId) {
+        return getVariableId(table, attributeId);
+    }
+
+    static void encodeRequest(AttributeTable table, BinaryRequestEncoder encoder, ByteBuffer buffer, String role) {
+        encoder.begin(buffer);
+        encoder.putString(getVariableId(table, SUBJECT_ROLE), role);
+        encoder.putString(getVariableId(table, RESOURCE_TYPE), "VI");
+        encoder.putString(getVariableId(table, ACTION_ID), "MLI:Instantiate-VI");
+        encoder.end();
+    }
+
+    @Test
+    public void testNegotiatedTable() {
+        AttributeTable local = pdp.getCompiledPolicy().getAttributeTable();
+        assertEquals(local, table);
+        assertEquals(local.getId(), table.getId());
+        assertEquals(getVariableId(ACTION_ID), local.getVariableId(table.getAttribute(getVariableId(ACTION_ID))));
+    }
+
+    @Test
+    public void testEvaluate() {
+        BinaryRequestEncoder encoder = new BinaryRequestEncoder(table);
+        ByteBuffer request = ByteBuffer.allocate(1024);
+        ByteBuffer response = ByteBuffer.allocate(1024);
+
+        // two frames in one buffer
+        encodeRequest(table, encoder, request, "VIO");
+        encodeRequest(table, encoder, request, "guest");
+        request.flip();
+
+        pdp.evaluate(request, response);
+        pdp.evaluate(request, response);
+        assertFalse(request.hasRemaining());
+        response.flip();
+
+        BinaryResponse r = BinaryResponse.decode(response);
+        assertEquals(DecisionType.Permit, r.getDecision().getDecision());
+        assertEquals(BinaryFormat.STATUS_OK, r.getStatus());
+
+        r = BinaryResponse.decode(response);
+        assertNotEquals(DecisionType.Permit, r.getDecision().getDecision());
+        assertFalse(response.hasRemaining());
+    }
+
+    @Test
+    public void testInvalidRequests() {
+        ByteBuffer response = ByteBuffer.allocate(1024);
+
+        // another attribute table
+        ByteBuffer request = ByteBuffer.allocate(64);
+        request.putInt(6).putInt(table.getId() + 1).putShort((short) 0).flip();
+        pdp.evaluate(request, response);
+        assertFalse(request.hasRemaining());
+
+        // truncated frame
+        request = ByteBuffer.allocate(64);
+        request.putInt(100).putInt(table.getId()).flip();
+        pdp.evaluate(request, response);
+
+        // value type different from the data type of the attribute
+        request = ByteBuffer.allocate(64);
+        request.putInt(17).putInt(table.getId()).putShort((short) 1)
+                .putShort((short) getVariableId(ACTION_ID)).put(BinaryFormat.TYPE_LONG).putLong(1).flip();
+        pdp.evaluate(request, response);
+        assertFalse(request.hasRemaining());
+
+        response.flip();
+        for (int i = 0; i < 3; i++) {
+            BinaryResponse r = BinaryResponse.decode(response);
+            assertEquals(DecisionType.Indeterminate, r.getDecision().getDecision());
+            assertEquals(BinaryFormat.STATUS_SYNTAX_ERROR, r.getStatus());
+        }
+    }
+
+    /**
+     * A string whose length exceeds the buffer or the frame is a syntax error, the next frame is decoded
+     */
+    @Test
+    public void testTruncatedString() {
+        ByteBuffer response = ByteBuffer.allocate(1024);
+        final short actionId = (short) getVariableId(ACTION_ID);
+
+        // string of 200 bytes at the end of the buffer
+        ByteBuffer request = ByteBuffer.allocate(64);
+        request.putInt(11).putInt(table.getId()).putShort((short) 1)
+                .putShort(actionId).put(BinaryFormat.TYPE_STRING).putShort((short) 200).flip();
+        pdp.evaluate(request, response);
+        assertFalse(request.hasRemaining());
+
+        // string crossing the end of its frame, followed by a valid frame
+        request = ByteBuffer.allocate(1024);
+        request.putInt(14).putInt(table.getId()).putShort((short) 1)
+                .putShort(actionId).put(BinaryFormat.TYPE_STRING).putShort((short) 10).put(new byte[3]);
+        encodeRequest(table, new BinaryRequestEncoder(table), request, "VIO");
+        request.flip();
+        pdp.evaluate(request, response);
+        pdp.evaluate(request, response);
+        assertFalse(request.hasRemaining());
+
+        response.flip();
+        for (int i = 0; i < 2; i++) {
+            BinaryResponse r = BinaryResponse.decode(response);
+            assertEquals(DecisionType.Indeterminate, r.getDecision().getDecision());
+            assertEquals(BinaryFormat.STATUS_SYNTAX_ERROR, r.getStatus());
+        }
+        assertEquals(DecisionType.Permit, BinaryResponse.decode(response).getDecision().getDecision());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncoderTypeMismatch() {
+        BinaryRequestEncoder encoder = new BinaryRequestEncoder(table);
+        encoder.begin(ByteBuffer.allocate(64));
+        encoder.putLong(getVariableId(ACTION_ID), 1);
+    }
+
+    @Test
+    public void testResponseObligations() {
+        Decision decision = new Decision(DecisionType.Deny, Arrays.asList(new Obligation("urn:o1"), new Obligation("ö2")));
+        BinaryResponseEncoder encoder = new BinaryResponseEncoder();
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        encoder.write(decision, false, false, buffer);
+        encoder.write(decision, false, false, buffer);
+        buffer.flip();
+
+        for (int i = 0; i < 2; i++) {
+            BinaryResponse r = BinaryResponse.decode(buffer);
+            assertEquals(decision, r.getDecision());
+            assertEquals(BinaryFormat.STATUS_OK, r.getStatus());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.builders;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.obligations.Obligation;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ObjectFactory;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
+import org.junit.Test;
+
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compare building and marshalling a JAXB response against writing the cached response.
+ */
+public class ResponseWriterBenchmark {
+
+    private static final int NUM_RESPONSES = 20000;
+
+    @Test
+    public void benchmarkWriting() throws Exception {
+        Decision decision = new Decision(DecisionType.Permit, Arrays.asList(new Obligation("O1"), new Obligation("O2")));
+        ResponseWriter writer = new ResponseWriter();
+        Marshaller marshaller = XACMLUtil.getContext(ResponseType.class).createMarshaller();
+        ObjectFactory factory = new ObjectFactory();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_RESPONSES; i++) {
+            os.reset();
+            marshaller.marshal(factory.createResponse(new ResponseTypeBuilder(false, false).create(decision)), os);
+        }
+        long jaxb = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_RESPONSES; i++) {
+            os.reset();
+            writer.write(decision, false, false, os);
+        }
+        long written = System.nanoTime() - start;
+
+        System.out.println("Response writing: JAXB " + jaxb / NUM_RESPONSES + "ns/response, ResponseWriter " +
+                written / NUM_RESPONSES + "ns/response");
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.builders;
+
+import nl.uva.sne.midd.Decision;
+import nl.uva.sne.midd.DecisionType;
+import nl.uva.sne.midd.obligations.Obligation;
+import nl.uva.sne.xacml.PDP;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResultType;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ResponseWriterTest {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private static ResponseType unmarshal(byte[] xml) throws JAXBException {
+        return XACMLUtil.getContext(ResponseType.class).createUnmarshaller()
+                .unmarshal(new StreamSource(new ByteArrayInputStream(xml)), ResponseType.class).getValue();
+    }
+
+    private static void assertSameResult(ResultType expected, ResultType actual) {
+        assertEquals(expected.getDecision(), actual.getDecision());
+        assertEquals(expected.getStatus().getStatusCode().getValue(), actual.getStatus().getStatusCode().getValue());
+
+        int numObligations = (actual.getObligations() == null) ? 0 : actual.getObligations().getObligation().size();
+        assertEquals(expected.getObligations().getObligation().size(), numObligations);
+        for (int i = 0; i < numObligations; i++) {
+            assertEquals(expected.getObligations().getObligation().get(i).getObligationId(),
+                    actual.getObligations().getObligation().get(i).getObligationId());
+        }
+    }
+
+    @Test
+    public void testSameAsResponseTypeBuilder() throws Exception {
+        ResponseWriter writer = new ResponseWriter();
+        Decision[] decisions = new Decision[]{
+                new Decision(DecisionType.Permit, Arrays.asList(new Obligation("O1"), new Obligation("urn:o2?a=1&b=\"<2>\""))),
+                new Decision(DecisionType.Deny),
+                new Decision(DecisionType.Indeterminate_P, Arrays.asList(new Obligation("O3"))),
+                new Decision(DecisionType.NotApplicable)};
+
+        for (Decision decision : decisions) {
+            // twice: encoded, then cached
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                writer.write(decision, false, false, os);
+
+                ResponseType expected = new ResponseTypeBuilder(false, false).create(decision);
+                ResponseType actual = unmarshal(os.toByteArray());
+                assertEquals(1, actual.getResult().size());
+                assertSameResult(expected.getResult().get(0), actual.getResult().get(0));
+
+                StringWriter sw = new StringWriter();
+                writer.write(decision, false, false, sw);
+                assertEquals(new String(os.toByteArray(), StandardCharsets.UTF_8), sw.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testError() throws Exception {
+        ResponseWriter writer = new ResponseWriter();
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.write(null, true, false, os);
+        ResultType result = unmarshal(os.toByteArray()).getResult().get(0);
+        assertEquals(oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType.INDETERMINATE, result.getDecision());
+        assertEquals(ResponseTypeBuilder.STATUS_CODE_SYNTAX_ERROR, result.getStatus().getStatusCode().getValue());
+
+        os = new ByteArrayOutputStream();
+        writer.write(new Decision(DecisionType.Permit), false, true, os);
+        result = unmarshal(os.toByteArray()).getResult().get(0);
+        assertEquals(oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType.INDETERMINATE, result.getDecision());
+        assertEquals(ResponseTypeBuilder.STATUS_CODE_PROCESSING_ERROR, result.getStatus().getStatusCode().getValue());
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        ResponseWriter writer = new ResponseWriter(ResponseWriter.Format.JSON);
+
+        StringWriter sw = new StringWriter();
+        writer.write(new Decision(DecisionType.Permit, Arrays.asList(new Obligation("O1"), new Obligation("a\"b\\c"))), false, false, sw);
+        assertEquals("{\"Response\":[{\"Decision\":\"Permit\",\"Status\":{\"StatusCode\":{\"Value\":\"" +
+                ResponseTypeBuilder.STATUS_CODE_OK + "\"}},\"Obligations\":[{\"Id\":\"O1\"},{\"Id\":\"a\\\"b\\\\c\"}]}]}", sw.toString());
+
+        sw = new StringWriter();
+        writer.write(null, true, false, sw);
+        assertEquals("{\"Response\":[{\"Decision\":\"Indeterminate\",\"Status\":{\"StatusCode\":{\"Value\":\"" +
+                ResponseTypeBuilder.STATUS_CODE_SYNTAX_ERROR + "\"}}}]}", sw.toString());
+    }
+
+    @Test
+    public void testPDPEvaluateStream() throws Exception {
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        pdp.evaluate(Files.newInputStream(Paths.get(REQUEST_FILE)), os);
+
+        ResultType result = unmarshal(os.toByteArray()).getResult().get(0);
+        assertEquals(oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType.PERMIT, result.getDecision());
+    }
+}
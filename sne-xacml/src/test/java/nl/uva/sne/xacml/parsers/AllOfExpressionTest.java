@@ -23,6 +23,7 @@
 package nl.uva.sne.xacml.parsers;
 
 import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.xacml.AttributeKey;
 import nl.uva.sne.xacml.policy.parsers.AllOfExpression;
 import nl.uva.sne.xacml.policy.parsers.AttributeInfo;
 import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
@@ -64,11 +65,11 @@ public class AllOfExpressionTest {
         AllOfExpression allOfExp = new AllOfExpression();
         try {
             allOfExp.parse(allOf);
-            Map<String, AttributeInfo> mapIntervals = allOfExp.getAttributeInfos();
-            Iterator<String> it = mapIntervals.keySet().iterator();
+            Map<AttributeKey, AttributeInfo> mapIntervals = allOfExp.getAttributeInfos();
+            Iterator<AttributeKey> it = mapIntervals.keySet().iterator();
 
             while (it.hasNext()) {
-                String varId = it.next();
+                AttributeKey varId = it.next();
                 System.out.println("Variable '" + varId + "' has interval: " + mapIntervals.get(varId).getInterval());
             }
 
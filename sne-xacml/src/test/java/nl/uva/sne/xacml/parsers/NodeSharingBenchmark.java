@@ -0,0 +1,128 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.parsers;
+
+import nl.uva.sne.midd.builders.ComputedTable;
+import nl.uva.sne.midd.builders.UniqueTable;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.util.MIDDUtils;
+import nl.uva.sne.midd.util.ReductionUtils;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.policy.parsers.PolicySetParser;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import static nl.uva.sne.xacml.parsers.NodeSharingTest.*;
+
+/**
+ * Compare the sizes and memory of the MIDDs of policies built as trees and built with a unique table, and the time to
+ * build them with a computed table. Print the sizes of the reduced MIDDs.
+ */
+public class NodeSharingBenchmark {
+
+    private static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static void compare(String name, Parser parser) throws Exception {
+        long before = usedMemory();
+        AbstractNode tree = parser.parse(null);
+        long treeMemory = usedMemory() - before;
+
+        UniqueTable nodes = new UniqueTable();
+        before = usedMemory();
+        AbstractNode dag = parser.parse(nodes);
+        long dagMemory = usedMemory() - before;
+
+        int treeNodes = MIDDUtils.countNodes((InternalNode) tree);
+        int dagNodes = MIDDUtils.countNodes((InternalNode) dag);
+        System.out.println(name + ": tree " + treeNodes + " nodes, " + treeMemory / 1024 + "KB; unique table " +
+                dagNodes + " nodes, " + dagMemory / 1024 + "KB, " + nodes.getHits() + " of " + nodes.getLookups() +
+                " created nodes shared");
+    }
+
+    @Test
+    public void benchmarkNodeSharing() throws Exception {
+        for (String file : POLICYSET_FILES) {
+            compare(file, policySetParser(file));
+        }
+        for (String file : POLICY_FILES) {
+            compare(file, policyParser(file));
+        }
+        compare("generated " + NUM_GENERATED_POLICIES + " policies", policySetParser(generatePolicySet()));
+    }
+
+    @Test
+    public void benchmarkReduction() throws Exception {
+        for (String file : POLICYSET_FILES) {
+            AbstractNode tree = policySetParser(file).parse(null);
+            System.out.println(file + ": " + countNodes(tree) + " nodes, " + countNodes(ReductionUtils.reduce(tree)) +
+                    " nodes after reduction");
+        }
+        for (String file : POLICY_FILES) {
+            AbstractNode tree = policyParser(file).parse(null);
+            System.out.println(file + ": " + countNodes(tree) + " nodes, " + countNodes(ReductionUtils.reduce(tree)) +
+                    " nodes after reduction");
+        }
+    }
+
+    /**
+     * Compare the time to build MIDDs with and without a computed table
+     */
+    @Test
+    public void benchmarkComputedTable() throws Exception {
+        PolicySetType[] policySets = {XACMLUtil.unmarshalPolicySetType(POLICYSET_FILES[2]), generatePolicySet()};
+        String[] names = {POLICYSET_FILES[2], "generated " + NUM_GENERATED_POLICIES + " policies"};
+
+        // debug logging of the parsers would dominate the build time
+        Logger logger = Logger.getLogger("nl.uva.sne");
+        Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+
+        for (int p = 0; p < policySets.length; p++) {
+            long[] times = new long[2];
+            AbstractNode[] midds = new AbstractNode[2];
+            ComputedTable cache = null;
+            for (int round = 0; round < 5; round++) {
+                for (int c = 0; c < 2; c++) {
+                    cache = (c == 0) ? null : new ComputedTable();
+                    long start = System.nanoTime();
+                    midds[c] = new PolicySetParser(null, policySets[p], new AttributeMapper(), null, new UniqueTable(), cache).parse();
+                    times[c] = System.nanoTime() - start;
+                }
+            }
+            System.out.println(names[p] + ": build " + times[0] / 1000000 + "ms without computed table, " +
+                    times[1] / 1000000 + "ms with computed table, " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+            assertEquivalent(midds[0], midds[1]);
+        }
+        logger.setLevel(level);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.parsers;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.midd.MIDDException;
+import nl.uva.sne.midd.builders.ComputedTable;
+import nl.uva.sne.midd.builders.UniqueTable;
+import nl.uva.sne.midd.compiled.CompiledMIDD;
+import nl.uva.sne.midd.compiled.MIDDCompiler;
+import nl.uva.sne.midd.edges.AbstractEdge;
+import nl.uva.sne.midd.interval.Interval;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.midd.nodes.InternalNode;
+import nl.uva.sne.midd.util.EvaluationUtils;
+import nl.uva.sne.midd.util.MIDDUtils;
+import nl.uva.sne.midd.util.ReductionUtils;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.policy.parsers.PolicyParser;
+import nl.uva.sne.xacml.policy.parsers.PolicySetParser;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compare the MIDDs of policies built as trees and built with a unique table
+ */
+public class NodeSharingTest {
+
+    static final String[] POLICYSET_FILES = {
+            "src/test/resources/xacml3-policyset-sli.xml",
+            "src/test/resources/xacml3-ps-null1.xml",
+            "policies/sample-xacml3/continue-a-xacml3.xml"};
+
+    static final String[] POLICY_FILES = {
+            "src/test/resources/xacml3-policyset-number-po.xml",
+            "src/test/resources/xacml3-policyset-suppliers.xml"};
+
+    private static final String SLI_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    static final int NUM_GENERATED_POLICIES = 100;
+
+    private static final int NUM_REQUESTS = 2000;
+
+    private static Level logLevel;
+
+    /**
+     * Debug logging of the parsers would dominate the time of the tests
+     */
+    @BeforeClass
+    public static void setUpLogging() {
+        Logger logger = Logger.getLogger("nl.uva.sne");
+        logLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterClass
+    public static void restoreLogging() {
+        Logger.getLogger("nl.uva.sne").setLevel(logLevel);
+    }
+
+    interface Parser {
+        AbstractNode parse(UniqueTable nodes) throws Exception;
+    }
+
+    static Parser policySetParser(final PolicySetType policySet) {
+        return new Parser() {
+            @Override
+            public AbstractNode parse(UniqueTable nodes) throws Exception {
+                return new PolicySetParser(null, policySet, new AttributeMapper(), null, nodes).parse();
+            }
+        };
+    }
+
+    static Parser policySetParser(final String file) {
+        return new Parser() {
+            @Override
+            public AbstractNode parse(UniqueTable nodes) throws Exception {
+                return new PolicySetParser(null, XACMLUtil.unmarshalPolicySetType(file), new AttributeMapper(), null, nodes).parse();
+            }
+        };
+    }
+
+    static Parser policyParser(final String file) {
+        return new Parser() {
+            @Override
+            public AbstractNode parse(UniqueTable nodes) throws Exception {
+                return new PolicyParser(null, XACMLUtil.unmarshalPolicyType(file), new AttributeMapper(), nodes).parse();
+            }
+        };
+    }
+
+    /**
+     * Parse the policy as a tree and with a unique table, check both MIDDs give the same decisions
+     *
+     * @return number of nodes of the tree and of the MIDD built with the unique table
+     */
+    private int[] compare(Parser parser) throws Exception {
+        AbstractNode tree = parser.parse(null);
+        AbstractNode dag = parser.parse(new UniqueTable());
+
+        assertEquivalent(tree, dag);
+        return new int[]{MIDDUtils.countNodes((InternalNode) tree), MIDDUtils.countNodes((InternalNode) dag)};
+    }
+
+    /**
+     * Evaluate both MIDDs with random values taken from the intervals of the tree
+     */
+    static void assertEquivalent(AbstractNode tree, AbstractNode dag) throws MIDDException {
+        Map<Integer, List<Comparable<?>>> values = new HashMap<>();
+        collectValues(tree, values, new IdentityHashMap<AbstractNode, Boolean>());
+        int capacity = 0;
+        for (Integer id : values.keySet()) {
+            capacity = Math.max(capacity, id + 1);
+        }
+
+        CompiledMIDD compiledTree = MIDDCompiler.compile(tree);
+        CompiledMIDD compiledDag = MIDDCompiler.compile(dag);
+        Random rnd = new Random(11);
+        AttributeVector attributes = new AttributeVector(capacity);
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            attributes.clear();
+            for (Map.Entry<Integer, List<Comparable<?>>> e : values.entrySet()) {
+                if (rnd.nextInt(8) != 0) {
+                    attributes.set(e.getKey(), e.getValue().get(rnd.nextInt(e.getValue().size())));
+                }
+            }
+            assertEquals(EvaluationUtils.eval(compiledTree, attributes), EvaluationUtils.eval(compiledDag, attributes));
+        }
+    }
+
+    private static void collectValues(AbstractNode n, Map<Integer, List<Comparable<?>>> values,
+                                      Map<AbstractNode, Boolean> visited) throws MIDDException {
+        if (!(n instanceof InternalNode) || visited.put(n, Boolean.TRUE) != null) {
+            return;
+        }
+        InternalNode<?> node = (InternalNode<?>) n;
+        List<Comparable<?>> l = values.get(node.getID());
+        if (l == null) {
+            l = new ArrayList<>();
+            values.put(node.getID(), l);
+        }
+        for (AbstractEdge<?> e : node.getEdges()) {
+            for (Interval<?> i : e.getIntervals()) {
+                if (!i.isLowerInfinite()) {
+                    l.add(i.getLowerBound().getValue());
+                }
+                if (!i.isUpperInfinite()) {
+                    l.add(i.getUpperBound().getValue());
+                }
+            }
+            collectValues(e.getSubDiagram(), values, visited);
+        }
+    }
+
+    @Test
+    public void testPolicyFixtures() throws Exception {
+        for (String file : POLICYSET_FILES) {
+            int[] counts = compare(policySetParser(file));
+            assertTrue(counts[1] <= counts[0]);
+        }
+        for (String file : POLICY_FILES) {
+            int[] counts = compare(policyParser(file));
+            assertTrue(counts[1] <= counts[0]);
+        }
+    }
+
+    static int countNodes(AbstractNode n) throws MIDDException {
+        return (n instanceof InternalNode) ? MIDDUtils.countNodes((InternalNode) n) : 1;
+    }
+
+    /**
+     * Reduce the MIDD of the policy built as a tree, check the reduced MIDD gives the same decisions
+     *
+     * @return number of nodes of the tree and of the reduced MIDD
+     */
+    private int[] reduce(Parser parser) throws Exception {
+        AbstractNode tree = parser.parse(null);
+        AbstractNode reduced = ReductionUtils.reduce(tree);
+
+        assertEquivalent(tree, reduced);
+        return new int[]{countNodes(tree), countNodes(reduced)};
+    }
+
+    @Test
+    public void testReduction() throws Exception {
+        for (String file : POLICYSET_FILES) {
+            int[] counts = reduce(policySetParser(file));
+            assertTrue(counts[1] <= counts[0]);
+        }
+        for (String file : POLICY_FILES) {
+            int[] counts = reduce(policyParser(file));
+            assertTrue(counts[1] <= counts[0]);
+        }
+    }
+
+    /**
+     * A policy set of policies with the same rules for different subject roles
+     */
+    static PolicySetType generatePolicySet() throws Exception {
+        String sli = new String(Files.readAllBytes(Paths.get(SLI_FILE)), StandardCharsets.UTF_8);
+        String policy = sli.substring(sli.indexOf("<Policy PolicyId=\"sli-interface\""), sli.lastIndexOf("</Policy>") + 9);
+
+        StringBuilder xml = new StringBuilder();
+        xml.append("<PolicySet xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicySetId=\"generated\" Version=\"1.0\" ")
+                .append("PolicyCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:policy-combining-algorithm:permit-overrides\"><Target/>");
+        for (int i = 0; i < NUM_GENERATED_POLICIES; i++) {
+            xml.append(policy.replace("sli-interface", "sli-interface-" + i).replace(">VIO<", ">role-" + i + "<"));
+        }
+        xml.append("</PolicySet>");
+        return XACMLUtil.unmarshalPolicySetType(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testGeneratedPolicySet() throws Exception {
+        int[] counts = compare(policySetParser(generatePolicySet()));
+        // the rules of all roles are shared
+        assertTrue(counts[1] * 10 < counts[0]);
+    }
+
+    /**
+     * The MIDD built with a computed table gives the same decisions as the MIDD built without it
+     */
+    @Test
+    public void testComputedTable() throws Exception {
+        PolicySetType policySet = generatePolicySet();
+        ComputedTable cache = new ComputedTable();
+        AbstractNode midd = new PolicySetParser(null, policySet, new AttributeMapper(), null, new UniqueTable()).parse();
+        AbstractNode cached = new PolicySetParser(null, policySet, new AttributeMapper(), null, new UniqueTable(), cache).parse();
+
+        assertTrue(cache.getHits() > 0);
+        assertEquivalent(midd, cached);
+    }
+}
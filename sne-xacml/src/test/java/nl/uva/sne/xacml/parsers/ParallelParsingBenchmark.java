@@ -0,0 +1,76 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.parsers;
+
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static nl.uva.sne.xacml.parsers.ParallelParsingTest.*;
+
+/**
+ * Compare the time to parse policy sets sequentially and in parallel.
+ */
+public class ParallelParsingBenchmark {
+
+    private static final int NUM_RUNS = 10;
+
+    @Test
+    public void benchmarkParallelParsing() throws Exception {
+        Logger logger = Logger.getLogger("nl.uva.sne");
+        Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            String[] names = {POLICYSET_FILES[2], "generated"};
+            PolicySetType[] policysets = {XACMLUtil.unmarshalPolicySetType(POLICYSET_FILES[2]), NodeSharingTest.generatePolicySet()};
+            for (int i = 0; i < names.length; i++) {
+                // warm up
+                parse(policysets[i], null);
+                parse(policysets[i], pool);
+
+                long start = System.nanoTime();
+                for (int r = 0; r < NUM_RUNS; r++) {
+                    parse(policysets[i], null);
+                }
+                long sequentialTime = (System.nanoTime() - start) / NUM_RUNS;
+
+                start = System.nanoTime();
+                for (int r = 0; r < NUM_RUNS; r++) {
+                    parse(policysets[i], pool);
+                }
+                long parallelTime = (System.nanoTime() - start) / NUM_RUNS;
+
+                System.out.println(names[i] + ": sequential " + sequentialTime / 1000 + "us, parallel (" + PARALLELISM +
+                        " threads) " + parallelTime / 1000 + "us, " + Runtime.getRuntime().availableProcessors() + " processors");
+            }
+        } finally {
+            pool.shutdown();
+            logger.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.parsers;
+
+import nl.uva.sne.midd.builders.ComputedTable;
+import nl.uva.sne.midd.builders.UniqueTable;
+import nl.uva.sne.midd.nodes.AbstractNode;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.VariableOrdering;
+import nl.uva.sne.xacml.policy.parsers.PolicySetParser;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.util.XACMLUtil;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicySetType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.PolicyType;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compare policy sets parsed sequentially and in parallel
+ */
+public class ParallelParsingTest {
+
+    static final String[] POLICYSET_FILES = {
+            "src/test/resources/xacml3-policyset-sli.xml",
+            "src/test/resources/xacml3-ps-null1.xml",
+            "policies/sample-xacml3/continue-a-xacml3.xml"};
+
+    private static final String FIRST_APPLICABLE = "urn:oasis:names:tc:xacml:1.0:policy-combining-algorithm:first-applicable";
+
+    static final int PARALLELISM = 4;
+
+    static AbstractNode parse(PolicySetType policyset, ForkJoinPool pool) throws Exception {
+        AttributeMapper attrMapper = new AttributeMapper();
+        attrMapper.addAttributes(VariableOrdering.order(policyset, VariableOrdering.Strategy.FIRST_SEEN));
+        return new PolicySetParser(null, policyset, attrMapper, null, new UniqueTable(), new ComputedTable(), pool).parse();
+    }
+
+    private static Level logLevel;
+
+    /**
+     * Debug logging of the parsers would dominate the time of the tests
+     */
+    @BeforeClass
+    public static void setUpLogging() {
+        Logger logger = Logger.getLogger("nl.uva.sne");
+        logLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterClass
+    public static void restoreLogging() {
+        Logger.getLogger("nl.uva.sne").setLevel(logLevel);
+    }
+
+    private static void compare(PolicySetType policyset) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            NodeSharingTest.assertEquivalent(parse(policyset, null), parse(policyset, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameDecisions() throws Exception {
+        for (String file : POLICYSET_FILES) {
+            compare(XACMLUtil.unmarshalPolicySetType(file));
+        }
+        compare(NodeSharingTest.generatePolicySet());
+
+        PolicySetType policyset = NodeSharingTest.generatePolicySet();
+        policyset.setPolicyCombiningAlgId(FIRST_APPLICABLE);
+        compare(policyset);
+    }
+
+    @Test(expected = XACMLParsingException.class)
+    public void testChildError() throws Exception {
+        PolicySetType policyset = NodeSharingTest.generatePolicySet();
+        // an error of a child parsed by the pool is raised by the parser
+        ((PolicyType) policyset.getPolicySetOrPolicyOrPolicySetIdReference().get(7).getValue())
+                .setRuleCombiningAlgId("urn:unknown-algorithm");
+
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            parse(policyset, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
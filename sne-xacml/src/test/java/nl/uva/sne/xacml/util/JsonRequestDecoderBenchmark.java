@@ -0,0 +1,80 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import nl.uva.sne.xacml.PDP;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static nl.uva.sne.xacml.util.JsonRequestDecoderTest.SLI_REQUEST;
+
+/**
+ * Compare the throughput of the XML stream path and the JSON path on the same request.
+ */
+public class JsonRequestDecoderBenchmark {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private static final int NUM_REQUESTS = 50000;
+
+    @Test
+    public void benchmarkJsonVsXml() throws Exception {
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+        byte[] xml = Files.readAllBytes(Paths.get(REQUEST_FILE));
+        byte[] json = SLI_REQUEST.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        // warm up
+        for (int i = 0; i < NUM_REQUESTS / 10; i++) {
+            os.reset();
+            pdp.evaluate(new ByteArrayInputStream(xml), os);
+            os.reset();
+            pdp.evaluateJson(json, os);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            os.reset();
+            pdp.evaluate(new ByteArrayInputStream(xml), os);
+        }
+        long xmlTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            os.reset();
+            pdp.evaluateJson(json, os);
+        }
+        long jsonTime = System.nanoTime() - start;
+
+        System.out.println("Request evaluation: XML " + xmlTime / NUM_REQUESTS + "ns/request, JSON " +
+                jsonTime / NUM_REQUESTS + "ns/request");
+    }
+}
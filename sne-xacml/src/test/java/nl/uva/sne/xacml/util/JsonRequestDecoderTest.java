@@ -0,0 +1,186 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.xacml.AttributeKey;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.PDP;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JsonRequestDecoderTest {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String SUBJECT = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+
+    private static final String RESOURCE = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+
+    private static final String ENVIRONMENT = "urn:oasis:names:tc:xacml:3.0:attribute-category:environment";
+
+    private static final String INTEGER = "http://www.w3.org/2001/XMLSchema#integer";
+
+    private static final String DOUBLE = "http://www.w3.org/2001/XMLSchema#double";
+
+    private static final String STRING = "http://www.w3.org/2001/XMLSchema#string";
+
+    static final String SLI_REQUEST = "{\"Request\":{" +
+            "\"AccessSubject\":{\"Attribute\":[{\"AttributeId\":\"http://authz-interop.org/AAA/xacml/subject/subject-role\",\"Value\":\"VIO\"}]}," +
+            "\"Resource\":{\"Attribute\":[{\"AttributeId\":\"http://authz-interop.org/AAA/xacml/resource/resource-type\",\"Value\":\"VI\"}]}," +
+            "\"Action\":{\"Attribute\":[{\"AttributeId\":\"urn:oasis:names:tc:xacml:1.0:action:action-id\",\"Value\":\"MLI:Instantiate-VI\"}]}}}";
+
+    private AttributeMapper createMapper() {
+        AttributeMapper mapper = new AttributeMapper();
+        mapper.addAttribute(new AttributeKey(SUBJECT, "urn:test:age", INTEGER));
+        mapper.addAttribute(new AttributeKey(SUBJECT, "urn:test:role", STRING));
+        mapper.addAttribute(new AttributeKey(RESOURCE, "urn:test:size", DOUBLE, "urn:test:issuer"));
+        mapper.addAttribute(new AttributeKey(ENVIRONMENT, "urn:test:name", STRING));
+        mapper.freeze();
+        return mapper;
+    }
+
+    private AttributeVector decode(AttributeMapper mapper, String json) throws XACMLParsingException {
+        AttributeVector attributes = new AttributeVector(mapper.size());
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        new JsonRequestDecoder(mapper).decode(bytes, 0, bytes.length, attributes);
+        return attributes;
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        String json = "{\"Request\": {\n" +
+                "  \"ReturnPolicyIdList\": false,\n" +
+                "  \"AccessSubject\": {\"Attribute\": [\n" +
+                "    {\"Value\": [42, 43], \"AttributeId\": \"urn:test:age\"},\n" +
+                "    {\"AttributeId\": \"urn:test:unused\", \"Value\": {\"any\": [null, true, -1.5e3, \"x\"]}},\n" +
+                "    {\"AttributeId\": \"urn:test:role\", \"DataType\": \"string\", \"Value\": \"a\\\"d\\u006din\\n\"}]},\n" +
+                "  \"Category\": [\n" +
+                "    {\"Attribute\": {\"AttributeId\": \"urn:test:size\", \"Issuer\": \"urn:test:issuer\", \"Value\": 1.5},\n" +
+                "     \"CategoryId\": \"" + RESOURCE + "\"},\n" +
+                "    {\"CategoryId\": \"Environment\", \"Attribute\": []},\n" +
+                "    {\"CategoryId\": \"" + ENVIRONMENT + "\", \"Attribute\": {\"AttributeId\": \"urn:test:name\", \"DataType\": \"" + STRING + "\", \"Value\": \"café\"}}]\n" +
+                "}}";
+
+        AttributeVector attributes = decode(createMapper(), json);
+
+        assertTrue(attributes.isBag(0));
+        assertEquals(2, attributes.getBagSize(0));
+        assertEquals(42L, attributes.getBagValue(0, 0));
+        assertEquals(43L, attributes.getBagValue(0, 1));
+        assertEquals("a\"dmin\n", attributes.get(1));
+        assertTrue(attributes.isDouble(2));
+        assertEquals(1.5, attributes.getDouble(2), 0.0);
+        assertEquals("café", attributes.get(3));
+    }
+
+    @Test
+    public void testDataTypeMismatch() throws Exception {
+        // a double value does not match an integer attribute
+        AttributeVector attributes = decode(createMapper(), "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":42.0}}}}");
+        assertFalse(attributes.isPresent(0));
+
+        attributes = decode(createMapper(), "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"DataType\":\"integer\",\"Value\":\"-7\"}}}}");
+        assertEquals(-7L, attributes.getLong(0));
+    }
+
+    @Test
+    public void testEmptyRequest() throws Exception {
+        AttributeVector attributes = decode(createMapper(), " { \"Request\" : { } } ");
+        for (int i = 0; i < 4; i++) {
+            assertFalse(attributes.isPresent(i));
+        }
+    }
+
+    @Test
+    public void testByteBuffer() throws Exception {
+        AttributeMapper mapper = createMapper();
+        byte[] json = "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":12345678901234}}}}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(json.length + 2);
+        direct.put((byte) ' ').put(json).flip();
+        direct.position(1);
+
+        AttributeVector attributes = new AttributeVector(mapper.size());
+        new JsonRequestDecoder(mapper).decode(direct, attributes);
+        assertEquals(12345678901234L, attributes.getLong(0));
+        assertEquals(1, direct.position());
+    }
+
+    @Test
+    public void testInvalidRequests() {
+        String[] invalid = {
+                "",
+                "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":42,}}}}",
+                "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":42}}}",
+                "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":[]}}}}",
+                "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"DataType\":\"integer\",\"Value\":\"x\"}}}}",
+                "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\"}}}}",
+                "{\"Request\":{\"Category\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":42}}}}",
+                "{\"Request\":{\"AccessSubject\":{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":tru}}}}",
+                "{\"Request\":{}} {}",
+                "{\"Response\":{}}",
+                // multiple decision requests
+                "{\"Request\":{\"AccessSubject\":[{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":42}}," +
+                        "{\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":43}}]}}",
+                "{\"Request\":{\"AccessSubject\":{}," +
+                        "\"Category\":{\"CategoryId\":\"" + SUBJECT + "\",\"Attribute\":{\"AttributeId\":\"urn:test:age\",\"Value\":43}}}}",
+                "{\"Request\":{\"AccessSubject\":{\"Id\":\"s\"},\"MultiRequests\":{\"RequestReference\":[{\"ReferenceId\":[\"s\"]}]}}}"};
+
+        AttributeMapper mapper = createMapper();
+        for (String json : invalid) {
+            try {
+                decode(mapper, json);
+                fail("Invalid request decoded: " + json);
+            } catch (XACMLParsingException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testPDPEvaluateJson() throws Exception {
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        pdp.evaluateJson(SLI_REQUEST.getBytes(StandardCharsets.UTF_8), os);
+        assertTrue(os.toString("UTF-8").startsWith("{\"Response\":[{\"Decision\":\"Permit\""));
+
+        os.reset();
+        pdp.evaluateJson("{\"Request\":".getBytes(StandardCharsets.UTF_8), os);
+        assertTrue(os.toString("UTF-8").contains("urn:oasis:names:tc:xacml:1.0:status:syntax-error"));
+
+        os.reset();
+        pdp.evaluateJson(("{\"Request\":{\"Resource\":[{\"Attribute\":[]},{\"Attribute\":[]}]}}")
+                .getBytes(StandardCharsets.UTF_8), os);
+        assertTrue(os.toString("UTF-8").contains("urn:oasis:names:tc:xacml:1.0:status:syntax-error"));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import nl.uva.sne.xacml.PDP;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Compare evaluating requests unmarshalled by JAXB against requests decoded by the stream decoder.
+ */
+public class RequestDecoderBenchmark {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private static final int NUM_REQUESTS = 20000;
+
+    @Test
+    public void benchmarkDecoding() throws Exception {
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+        byte[] xml = Files.readAllBytes(Paths.get(REQUEST_FILE));
+
+        // warm up
+        for (int i = 0; i < NUM_REQUESTS / 10; i++) {
+            pdp.evaluate(XACMLUtil.unmarshalRequestType(new ByteArrayInputStream(xml)));
+            pdp.evaluate(new ByteArrayInputStream(xml));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            pdp.evaluate(XACMLUtil.unmarshalRequestType(new ByteArrayInputStream(xml)));
+        }
+        long jaxb = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            pdp.evaluate(new ByteArrayInputStream(xml));
+        }
+        long streamed = System.nanoTime() - start;
+
+        System.out.println("Request evaluation: DOM and JAXB " + jaxb / NUM_REQUESTS / 1000 + "us/request, StAX " +
+                streamed / NUM_REQUESTS / 1000 + "us/request");
+    }
+}
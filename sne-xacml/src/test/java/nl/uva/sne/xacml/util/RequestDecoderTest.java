@@ -0,0 +1,210 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import nl.uva.sne.midd.AttributeVector;
+import nl.uva.sne.xacml.AttributeKey;
+import nl.uva.sne.xacml.AttributeMapper;
+import nl.uva.sne.xacml.PDP;
+import nl.uva.sne.xacml.policy.parsers.XACMLParsingException;
+import nl.uva.sne.xacml.policy.parsers.util.AttributeConverter;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributeType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.AttributesType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.DecisionType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.ResponseType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class RequestDecoderTest {
+
+    private static final String POLICYSET_FILE = "src/test/resources/xacml3-policyset-sli.xml";
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private static final String SUBJECT = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+
+    private static final String RESOURCE = "urn:oasis:names:tc:xacml:3.0:attribute-category:resource";
+
+    private static final String INTEGER = "http://www.w3.org/2001/XMLSchema#integer";
+
+    private static final String STRING = "http://www.w3.org/2001/XMLSchema#string";
+
+    private AttributeMapper createMapper() {
+        AttributeMapper mapper = new AttributeMapper();
+        mapper.addAttribute(new AttributeKey(SUBJECT, "urn:test:age", INTEGER));
+        mapper.addAttribute(new AttributeKey(null, "urn:test:role", STRING));
+        mapper.addAttribute(new AttributeKey(RESOURCE, "urn:test:id", STRING, "urn:test:issuer"));
+        mapper.freeze();
+        return mapper;
+    }
+
+    private static String request(String... attributes) {
+        StringBuilder buf = new StringBuilder();
+        buf.append("<Request xmlns=\"").append(RequestDecoder.XACML_3_0_NAMESPACE).append("\" ReturnPolicyIdList=\"false\" CombinedDecision=\"false\">");
+        for (String a : attributes) {
+            buf.append(a);
+        }
+        return buf.append("</Request>").toString();
+    }
+
+    private static String attributes(String category, String... attributes) {
+        StringBuilder buf = new StringBuilder("<Attributes Category=\"" + category + "\">");
+        for (String a : attributes) {
+            buf.append(a);
+        }
+        return buf.append("</Attributes>").toString();
+    }
+
+    private static String attribute(String attributeId, String issuer, String dataType, String... values) {
+        StringBuilder buf = new StringBuilder("<Attribute IncludeInResult=\"false\" AttributeId=\"" + attributeId + "\"");
+        if (issuer != null) {
+            buf.append(" Issuer=\"").append(issuer).append("\"");
+        }
+        buf.append(">");
+        for (String v : values) {
+            buf.append("<AttributeValue DataType=\"").append(dataType).append("\">").append(v).append("</AttributeValue>");
+        }
+        return buf.append("</Attribute>").toString();
+    }
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        String xml = request(
+                attributes(SUBJECT,
+                        attribute("urn:test:age", null, INTEGER, "42", "43"),
+                        attribute("urn:test:unused", null, INTEGER, "not a number"),
+                        attribute("urn:test:role", null, STRING, "admin")),
+                attributes(RESOURCE,
+                        "<Content><any><nested/></any></Content>",
+                        attribute("urn:test:id", "urn:test:issuer", STRING, "doc-1")));
+
+        AttributeMapper mapper = createMapper();
+        AttributeVector streamed = new AttributeVector(mapper.size());
+        new RequestDecoder(mapper).decode(stream(xml), streamed);
+
+        assertTrue(streamed.isBag(0));
+        assertEquals(2, streamed.getBagSize(0));
+        assertEquals(42L, streamed.getBagValue(0, 0));
+        assertEquals(43L, streamed.getBagValue(0, 1));
+        assertEquals("admin", streamed.get(1));
+        assertEquals("doc-1", streamed.get(2));
+
+        // same values as decoding through JAXB
+        AttributeVector unmarshalled = new AttributeVector(mapper.size());
+        AttributeConverter converter = new AttributeConverter(mapper);
+        RequestType request = XACMLUtil.unmarshalRequestType(stream(xml));
+        for (AttributesType attrs : request.getAttributes()) {
+            for (AttributeType attr : attrs.getAttribute()) {
+                converter.convert(attrs.getCategory(), attr, unmarshalled);
+            }
+        }
+        for (int i = 0; i < mapper.size(); i++) {
+            assertEquals(unmarshalled.get(i), streamed.get(i));
+        }
+        assertEquals(2, unmarshalled.getBagSize(0));
+        assertEquals(43L, unmarshalled.getBagValue(0, 1));
+    }
+
+    @Test
+    public void testAttributeInOtherCategory() throws Exception {
+        String xml = request(attributes(RESOURCE, attribute("urn:test:age", null, INTEGER, "42")));
+
+        AttributeMapper mapper = createMapper();
+        AttributeVector attributes = new AttributeVector(mapper.size());
+        new RequestDecoder(mapper).decode(stream(xml), attributes);
+
+        assertFalse(attributes.isPresent(0));
+    }
+
+    @Test(expected = XACMLParsingException.class)
+    public void testInvalidValue() throws Exception {
+        String xml = request(attributes(SUBJECT, attribute("urn:test:age", null, INTEGER, "forty-two")));
+        AttributeMapper mapper = createMapper();
+        new RequestDecoder(mapper).decode(stream(xml), new AttributeVector(mapper.size()));
+    }
+
+    @Test(expected = XACMLParsingException.class)
+    public void testEmptyAttribute() throws Exception {
+        String xml = request(attributes(SUBJECT, attribute("urn:test:age", null, INTEGER)));
+        AttributeMapper mapper = createMapper();
+        new RequestDecoder(mapper).decode(stream(xml), new AttributeVector(mapper.size()));
+    }
+
+    @Test(expected = XACMLParsingException.class)
+    public void testMalformedRequest() throws Exception {
+        String xml = request(attributes(SUBJECT, attribute("urn:test:age", null, INTEGER, "42"))).replace("</Request>", "");
+        AttributeMapper mapper = createMapper();
+        new RequestDecoder(mapper).decode(stream(xml), new AttributeVector(mapper.size()));
+    }
+
+    /**
+     * Requests of the Multiple Decision Profile are not merged into a single decision
+     */
+    @Test
+    public void testMultipleDecisions() throws Exception {
+        AttributeMapper mapper = createMapper();
+        String[] invalid = {
+                request(attributes(SUBJECT, attribute("urn:test:age", null, INTEGER, "42")),
+                        attributes(SUBJECT, attribute("urn:test:age", null, INTEGER, "43"))),
+                request(attributes(SUBJECT, attribute("urn:test:age", null, INTEGER, "42")),
+                        "<MultiRequests><RequestReference><AttributesReference ReferenceId=\"s\"/></RequestReference></MultiRequests>")};
+        for (String xml : invalid) {
+            try {
+                new RequestDecoder(mapper).decode(stream(xml), new AttributeVector(mapper.size()));
+                fail("Multiple decision request decoded: " + xml);
+            } catch (XACMLParsingException e) {
+                // expected
+            }
+        }
+
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        pdp.evaluate(stream(invalid[0]), os);
+        assertTrue(os.toString("UTF-8").contains("urn:oasis:names:tc:xacml:1.0:status:syntax-error"));
+    }
+
+    @Test
+    public void testEvaluateStream() throws Exception {
+        PDP pdp = new PDP(XACMLUtil.unmarshalPolicySetType(POLICYSET_FILE), null);
+        pdp.initialize();
+
+        ResponseType response = pdp.evaluate(Files.newInputStream(Paths.get(REQUEST_FILE)));
+        assertEquals(DecisionType.PERMIT, response.getResult().get(0).getDecision());
+
+        response = pdp.evaluate(stream("<Request"));
+        assertNull(response);
+    }
+}
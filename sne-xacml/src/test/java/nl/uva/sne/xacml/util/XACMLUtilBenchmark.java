@@ -0,0 +1,71 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compare parsing requests with a new JAXB context and DOM builder for each request against the cached ones.
+ */
+public class XACMLUtilBenchmark {
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private static final int NUM_REQUESTS = 2000;
+
+    private static final int NUM_UNCACHED_REQUESTS = 50;
+
+    @Test
+    public void benchmarkRequestParsing() throws Exception {
+        byte[] xml = Files.readAllBytes(Paths.get(REQUEST_FILE));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_UNCACHED_REQUESTS; i++) {
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            dbf.setNamespaceAware(true);
+            Document doc = dbf.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+            JAXBContext jc = JAXBContext.newInstance(RequestType.class);
+            assertNotNull(jc.createUnmarshaller().unmarshal(doc.getDocumentElement(), RequestType.class).getValue());
+        }
+        long uncached = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            assertNotNull(XACMLUtil.unmarshalRequestType(new ByteArrayInputStream(xml)));
+        }
+        long cached = System.nanoTime() - start;
+
+        System.out.println("Request parsing: new context " + uncached / NUM_UNCACHED_REQUESTS / 1000 +
+                "us/request, cached context " + cached / NUM_REQUESTS / 1000 + "us/request");
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * SNE-XACML: A high performance XACML evaluation engine.
+ *
+ * Copyright (C) 2013-2014 Canh Ngo <canhnt@gmail.com>
+ * System and Network Engineering Group, University of Amsterdam.
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301 USA
+ */
+package nl.uva.sne.xacml.util;
+
+import oasis.names.tc.xacml._3_0.core.schema.wd_17.RequestType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class XACMLUtilTest {
+
+    private static final String REQUEST_FILE = "src/test/resources/xacml3-sli-request.xml";
+
+    private static final int NUM_THREADS = 4;
+
+    @Test
+    public void testContextIsShared() throws Exception {
+        assertSame(XACMLUtil.getContext(RequestType.class), XACMLUtil.getContext(RequestType.class));
+    }
+
+    @Test
+    public void testConcurrentUnmarshal() throws Exception {
+        final byte[] xml = Files.readAllBytes(Paths.get(REQUEST_FILE));
+        final int numAttributes = XACMLUtil.unmarshalRequestType(new ByteArrayInputStream(xml)).getAttributes().size();
+        assertTrue(numAttributes > 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < NUM_THREADS; t++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int i = 0; i < 100; i++) {
+                            RequestType request = XACMLUtil.unmarshalRequestType(new ByteArrayInputStream(xml));
+                            if (request == null || request.getAttributes().size() != numAttributes) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}